@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.actors.client;
 
+import io.netty.channel.ChannelHandlerContext;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.mqtt.broker.actors.ActorSystemContext;
 import org.thingsboard.mqtt.broker.actors.TbActorCtx;
@@ -56,12 +57,19 @@ import org.thingsboard.mqtt.broker.service.stats.ClientActorStats;
 import org.thingsboard.mqtt.broker.session.DisconnectReason;
 import org.thingsboard.mqtt.broker.session.DisconnectReasonType;
 
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class ClientActor extends ContextAwareActor {
 
+    // messages of the connected client that are processed without blocking calls, so they can be processed on the event loop
+    private static final Set<MsgType> EVENT_LOOP_MSG_TYPES = EnumSet.of(
+            MsgType.MQTT_PUBLISH_MSG, MsgType.MQTT_PUBACK_MSG, MsgType.MQTT_PUBREC_MSG, MsgType.MQTT_PUBREL_MSG,
+            MsgType.MQTT_PUBCOMP_MSG, MsgType.MQTT_PING_MSG, MsgType.PUBACK_RESPONSE_MSG, MsgType.PUBREC_RESPONSE_MSG);
+
     private final SessionClusterManager sessionClusterManager;
     private final SubscriptionChangesManager subscriptionChangesManager;
     private final SubscriptionCommandService subscriptionCommandService;
@@ -120,12 +128,14 @@ public class ClientActor extends ContextAwareActor {
             } else {
                 switch (msg.getMsgType()) {
                     case SESSION_INIT_MSG:
+                        unbindFromEventLoop();
                         actorProcessor.onInit(state, (SessionInitMsg) msg);
                         break;
                     case STOP_ACTOR_COMMAND_MSG:
                         processActorStop((StopActorCommandMsg) msg);
                         break;
                     case DISCONNECT_MSG:
+                        unbindFromEventLoop();
                         actorProcessor.onDisconnect(state, (MqttDisconnectMsg) msg);
                         break;
 
@@ -354,6 +364,7 @@ public class ClientActor extends ContextAwareActor {
         try {
             connectService.acceptConnection(state, msg, getActorRef());
             state.updateSessionState(SessionState.CONNECTED);
+            bindToEventLoop();
         } catch (Exception e) {
             log.warn("[{}][{}] Failed to process {}.", state.getClientId(), state.getCurrentSessionId(), msg.getMsgType(), e);
             ctx.tellWithHighPriority(new MqttDisconnectMsg(state.getCurrentSessionId(), new DisconnectReason(DisconnectReasonType.ON_ERROR,
@@ -361,6 +372,27 @@ public class ClientActor extends ContextAwareActor {
         }
     }
 
+    /**
+     * Makes the mailbox process the PUBLISH flow messages of the connected client on the event loop of its channel,
+     * so that they are processed without a thread hand-off on receive and on write.
+     */
+    private void bindToEventLoop() {
+        if (!actorConfiguration.isEventLoopAffinityEnabled()) {
+            return;
+        }
+        ChannelHandlerContext channel = state.getCurrentSessionCtx().getChannel();
+        if (channel != null) {
+            ctx.bindToExecutor(new EventLoopAffinityExecutor(channel.channel().eventLoop()),
+                    msg -> EVENT_LOOP_MSG_TYPES.contains(msg.getMsgType()));
+        }
+    }
+
+    private void unbindFromEventLoop() {
+        if (actorConfiguration.isEventLoopAffinityEnabled()) {
+            ctx.bindToExecutor(null, null);
+        }
+    }
+
     private boolean actorNeedsToBeStopped(boolean successfulProcessing) {
         return !successfulProcessing || state.getCurrentSessionState() == SessionState.DISCONNECTED;
     }
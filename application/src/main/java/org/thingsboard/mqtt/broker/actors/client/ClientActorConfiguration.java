@@ -27,5 +27,6 @@ public class ClientActorConfiguration {
     private int dispatcherPoolSize;
     private int waitBeforeGeneratedActorStopSeconds;
     private int waitBeforeNamedActorStopSeconds;
+    private boolean eventLoopAffinityEnabled;
 
 }
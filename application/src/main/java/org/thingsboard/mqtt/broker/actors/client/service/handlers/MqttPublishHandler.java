@@ -73,12 +73,14 @@ public class MqttPublishHandler {
 
     @Value("${mqtt.handler.all_msg_callback_threads:2}")
     private int threadsCount;
+    @Value("${mqtt.handler.all_msg_callback_virtual_threads:false}")
+    private boolean virtualThreads;
 
     private ExecutorService callbackProcessor;
 
     @PostConstruct
     public void init() {
-        this.callbackProcessor = ThingsBoardExecutors.initExecutorService(threadsCount, "publish-callback-processor");
+        this.callbackProcessor = ThingsBoardExecutors.initExecutorService(threadsCount, "publish-callback-processor", virtualThreads);
     }
 
     public void process(ClientSessionCtx ctx, MqttPublishMsg msg, TbActorRef actorRef) throws MqttException {
@@ -17,8 +17,11 @@ package org.thingsboard.mqtt.broker.actors.client.service.handlers;
 
 import io.netty.handler.codec.mqtt.MqttReasonCodes;
 import io.netty.handler.codec.mqtt.MqttSubAckMessage;
+import io.netty.channel.ChannelHandlerContext;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.thingsboard.mqtt.broker.actors.client.messages.mqtt.MqttDisconnectMsg;
@@ -40,6 +43,7 @@ import org.thingsboard.mqtt.broker.service.mqtt.MqttMessageGenerator;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsgDeliveryService;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.MsgPersistenceManager;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.ApplicationPersistenceProcessor;
+import org.thingsboard.mqtt.broker.service.mqtt.retain.OffHeapRetainedMsg;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsg;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsgService;
 import org.thingsboard.mqtt.broker.service.subscription.shared.TopicSharedSubscription;
@@ -54,8 +58,10 @@ import org.thingsboard.mqtt.broker.util.MqttReasonCodeUtil;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
@@ -76,6 +82,16 @@ public class MqttSubscribeHandler {
     private final ApplicationPersistenceProcessor applicationPersistenceProcessor;
     private final RateLimitService rateLimitService;
 
+    @Setter
+    @Value("${mqtt.retain-msg.streaming-delivery.enabled:false}")
+    private boolean retainedMsgStreamingEnabled;
+    @Setter
+    @Value("${mqtt.retain-msg.streaming-delivery.chunk-size:100}")
+    private int retainedMsgChunkSize;
+    @Setter
+    @Value("${mqtt.retain-msg.streaming-delivery.pause-ms:10}")
+    private long retainedMsgPauseMs;
+
     public void process(ClientSessionCtx ctx, MqttSubscribeMsg msg) {
         Set<TopicSharedSubscription> currentSharedSubscriptions = clientSubscriptionService.getClientSharedSubscriptions(ctx.getClientId());
         List<TopicSubscription> topicSubscriptions = msg.getTopicSubscriptions();
@@ -131,7 +147,7 @@ public class MqttSubscribeHandler {
             }
 
             if (!CollectionUtils.isEmpty(ctx.getAuthRulePatterns())) {
-                boolean isClientAuthorized = authorizationRuleService.isSubAuthorized(topic, ctx.getAuthRulePatterns());
+                boolean isClientAuthorized = authorizationRuleService.isSubAuthorized(ctx.getClientId(), topic, ctx.getAuthRulePatterns());
                 if (!isClientAuthorized) {
                     log.warn("[{}][{}] Client is not authorized to subscribe to the topic {}",
                             ctx.getClientId(), ctx.getSessionId(), topic);
@@ -187,6 +203,10 @@ public class MqttSubscribeHandler {
     private void processRetainedMessages(ClientSessionCtx ctx,
                                          List<TopicSubscription> newSubscriptions,
                                          Set<TopicSubscription> currentSubscriptions) {
+        if (retainedMsgStreamingEnabled) {
+            streamRetainedMessages(ctx, getSubscriptionsToSendRetained(newSubscriptions, currentSubscriptions));
+            return;
+        }
         List<RetainedMsg> retainedMsgList = getRetainedMessagesForTopicSubscriptions(newSubscriptions, currentSubscriptions);
         retainedMsgList = applyRateLimits(retainedMsgList);
         retainedMsgList.forEach(retainedMsg -> publishMsgDeliveryService.sendPublishRetainedMsgToClient(ctx, retainedMsg));
@@ -212,14 +232,21 @@ public class MqttSubscribeHandler {
 
     List<RetainedMsg> getRetainedMessagesForTopicSubscriptions(List<TopicSubscription> newSubscriptions,
                                                               Set<TopicSubscription> currentSubscriptions) {
+        return getSubscriptionsToSendRetained(newSubscriptions, currentSubscriptions)
+                .stream()
+                .map(this::getRetainedMessagesForTopicSubscription)
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    List<TopicSubscription> getSubscriptionsToSendRetained(List<TopicSubscription> newSubscriptions,
+                                                           Set<TopicSubscription> currentSubscriptions) {
         return newSubscriptions
                 .stream()
                 .filter(TopicSubscription::isCommonSubscription)
                 .filter(topicSubscription ->
                         topicSubscription.getOptions().needSendRetainedForTopicSubscription(
                                 ts -> !currentSubscriptions.contains(ts), topicSubscription))
-                .map(this::getRetainedMessagesForTopicSubscription)
-                .flatMap(List::stream)
                 .toList();
     }
 
@@ -228,27 +255,124 @@ public class MqttSubscribeHandler {
         List<RetainedMsg> retainedMessages = getRetainedMessages(topicSubscription);
         List<RetainedMsg> result = new ArrayList<>(retainedMessages.size());
         for (RetainedMsg retainedMsg : retainedMessages) {
-            MsgExpiryResult msgExpiryResult = MqttPropertiesUtil.getMsgExpiryResult(retainedMsg, currentTs);
-            if (msgExpiryResult.isExpired()) {
-                continue;
+            RetainedMsg newRetainedMsg = toRetainedMsgForSubscription(topicSubscription, retainedMsg, currentTs);
+            if (newRetainedMsg != null) {
+                result.add(newRetainedMsg);
+            }
+        }
+        return result;
+    }
+
+    private RetainedMsg toRetainedMsgForSubscription(TopicSubscription topicSubscription, RetainedMsg retainedMsg, long currentTs) {
+        MsgExpiryResult msgExpiryResult = MqttPropertiesUtil.getMsgExpiryResult(retainedMsg, currentTs);
+        if (msgExpiryResult.isExpired()) {
+            return null;
+        }
+        int qos = MqttQosUtil.downgradeQos(topicSubscription, retainedMsg);
+        RetainedMsg newRetainedMsg = newRetainedMsg(retainedMsg, qos);
+        if (newRetainedMsg == null) {
+            return null;
+        }
+
+        if (msgExpiryResult.isMsgExpiryIntervalPresent()) {
+            MqttPropertiesUtil.addMsgExpiryIntervalToProps(newRetainedMsg.getProperties(), msgExpiryResult.getMsgExpiryInterval());
+        }
+        MqttPropertiesUtil.addSubscriptionIdToProps(newRetainedMsg.getProperties(), topicSubscription.getSubscriptionId());
+        return newRetainedMsg;
+    }
+
+    void streamRetainedMessages(ClientSessionCtx ctx, List<TopicSubscription> topicSubscriptions) {
+        if (topicSubscriptions.isEmpty()) {
+            return;
+        }
+        new RetainedMsgDeliveryTask(ctx, topicSubscriptions.iterator()).schedule();
+    }
+
+    /**
+     * Delivers the retained messages of the new subscriptions in chunks on the client channel event loop.
+     * The retain msg trie is iterated lazily, so only one chunk is held in memory at a time.
+     * Next chunk is taken only when the channel is writable and the client has free receive maximum,
+     * otherwise the delivery is paused to not flood the outbound buffer. The task yields the event loop between chunks.
+     */
+    private class RetainedMsgDeliveryTask implements Runnable {
+
+        private final ClientSessionCtx ctx;
+        private final Iterator<TopicSubscription> topicSubscriptions;
+        private TopicSubscription currentSubscription;
+        private Iterator<RetainedMsg> currentRetainedMsgs = Collections.emptyIterator();
+
+        private RetainedMsgDeliveryTask(ClientSessionCtx ctx, Iterator<TopicSubscription> topicSubscriptions) {
+            this.ctx = ctx;
+            this.topicSubscriptions = topicSubscriptions;
+        }
+
+        void schedule() {
+            ctx.getChannel().executor().execute(this);
+        }
+
+        @Override
+        public void run() {
+            ChannelHandlerContext channel = ctx.getChannel();
+            if (!channel.channel().isActive()) {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}][{}] Channel is closed, stopping retained messages delivery", ctx.getClientId(), ctx.getSessionId());
+                }
+                return;
             }
-            int qos = MqttQosUtil.downgradeQos(topicSubscription, retainedMsg);
-            RetainedMsg newRetainedMsg = newRetainedMsg(retainedMsg, qos);
+            int availableReceiveMax = ctx.getClientReceiveMax() - ctx.getPendingMsgsCount();
+            if (!ctx.isWritable() || availableReceiveMax <= 0) {
+                if (log.isTraceEnabled()) {
+                    log.trace("[{}][{}] Pausing retained messages delivery, writable - {}, available receive maximum - {}",
+                            ctx.getClientId(), ctx.getSessionId(), ctx.isWritable(), availableReceiveMax);
+                }
+                channel.executor().schedule(this, retainedMsgPauseMs, TimeUnit.MILLISECONDS);
+                return;
+            }
+            int chunkSize = Math.min(retainedMsgChunkSize, availableReceiveMax);
+            List<RetainedMsg> chunk = nextChunk(chunkSize);
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<RetainedMsg> allowedChunk = applyRateLimits(chunk);
+            allowedChunk.forEach(retainedMsg -> publishMsgDeliveryService.sendPublishRetainedMsgToClient(ctx, retainedMsg));
+            if (allowedChunk.size() < chunk.size() || chunk.size() < chunkSize) {
+                return;
+            }
+            channel.executor().execute(this);
+        }
 
-            if (msgExpiryResult.isMsgExpiryIntervalPresent()) {
-                MqttPropertiesUtil.addMsgExpiryIntervalToProps(newRetainedMsg.getProperties(), msgExpiryResult.getMsgExpiryInterval());
+        private List<RetainedMsg> nextChunk(int chunkSize) {
+            List<RetainedMsg> chunk = new ArrayList<>(chunkSize);
+            long currentTs = System.currentTimeMillis();
+            while (chunk.size() < chunkSize) {
+                if (!currentRetainedMsgs.hasNext()) {
+                    if (!topicSubscriptions.hasNext()) {
+                        break;
+                    }
+                    currentSubscription = topicSubscriptions.next();
+                    currentRetainedMsgs = retainedMsgService.getRetainedMessagesIterator(currentSubscription.getTopicFilter());
+                    continue;
+                }
+                RetainedMsg retainedMsg = toRetainedMsgForSubscription(currentSubscription, currentRetainedMsgs.next(), currentTs);
+                if (retainedMsg != null) {
+                    chunk.add(retainedMsg);
+                }
             }
-            MqttPropertiesUtil.addSubscriptionIdToProps(newRetainedMsg.getProperties(), topicSubscription.getSubscriptionId());
-            result.add(newRetainedMsg);
+            return chunk;
         }
-        return result;
     }
 
     private List<RetainedMsg> getRetainedMessages(TopicSubscription topicSubscription) {
         return retainedMsgService.getRetainedMessages(topicSubscription.getTopicFilter());
     }
 
+    /**
+     * @return null if the content of the off-heap retained msg was released, i.e. the retained msg was replaced or cleared meanwhile
+     */
     private RetainedMsg newRetainedMsg(RetainedMsg retainedMsg, int qos) {
+        if (retainedMsg instanceof OffHeapRetainedMsg offHeapRetainedMsg) {
+            return offHeapRetainedMsg.withQos(qos);
+        }
         return retainedMsg.withQosAndProps(qos, MqttPropertiesUtil.copyProps(retainedMsg.getProperties()));
     }
 
@@ -33,9 +33,12 @@ import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 import org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -50,6 +53,8 @@ public class ClientSessionServiceImpl implements ClientSessionService {
     private final ServiceInfoProvider serviceInfoProvider;
     private final StatsManager statsManager;
 
+    private final List<Consumer<String>> sessionChangeListeners = new CopyOnWriteArrayList<>();
+
     private ConcurrentMap<String, ClientSessionInfo> clientSessionMap;
 
     @Override
@@ -76,6 +81,7 @@ public class ClientSessionServiceImpl implements ClientSessionService {
 
         ClientSessionInfo clientSessionInfo = ClientSessionInfoFactory.clientSessionToClientSessionInfo(clientSession);
         clientSessionMap.put(clientId, clientSessionInfo);
+        notifySessionChanged(clientId);
 
         QueueProtos.ClientSessionInfoProto clientSessionInfoProto = ProtoConverter.convertToClientSessionInfoProto(clientSessionInfo);
         clientSessionPersistenceService.persistClientSessionInfoAsync(clientId, clientSessionInfoProto, callback);
@@ -93,6 +99,8 @@ public class ClientSessionServiceImpl implements ClientSessionService {
         ClientSessionInfo removedClientSessionInfo = clientSessionMap.remove(clientId);
         if (removedClientSessionInfo == null) {
             log.warn("[{}] No client session found while clearing session.", clientId);
+        } else {
+            notifySessionChanged(clientId);
         }
         clientSessionPersistenceService.persistClientSessionInfoAsync(clientId, QueueConstants.EMPTY_CLIENT_SESSION_INFO_PROTO, callback);
     }
@@ -148,6 +156,22 @@ public class ClientSessionServiceImpl implements ClientSessionService {
             }
             clientSessionMap.put(clientId, clientSessionInfo);
         }
+        notifySessionChanged(clientId);
+    }
+
+    @Override
+    public void addSessionChangeListener(Consumer<String> listener) {
+        sessionChangeListeners.add(listener);
+    }
+
+    private void notifySessionChanged(String clientId) {
+        for (Consumer<String> listener : sessionChangeListeners) {
+            try {
+                listener.accept(clientId);
+            } catch (Exception e) {
+                log.warn("[{}] Failed to notify client session change listener.", clientId, e);
+            }
+        }
     }
 
     private boolean isPersistent(ClientSessionInfo clientSessionInfo) {
@@ -43,7 +43,9 @@ import org.thingsboard.mqtt.broker.common.data.util.CallbackUtil;
 import org.thingsboard.mqtt.broker.common.data.util.StringUtils;
 import org.thingsboard.mqtt.broker.common.util.DonAsynchron;
 import org.thingsboard.mqtt.broker.common.util.ThingsBoardExecutors;
+import org.thingsboard.mqtt.broker.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.mqtt.broker.dao.timeseries.TimeseriesService;
+import org.thingsboard.mqtt.broker.exception.ConnectFastPathConflictException;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
 import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
 import org.thingsboard.mqtt.broker.queue.TbQueueMsgHeaders;
@@ -54,16 +56,21 @@ import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
 import org.thingsboard.mqtt.broker.queue.provider.ClientSessionEventQueueFactory;
 import org.thingsboard.mqtt.broker.service.limits.RateLimitCacheService;
 import org.thingsboard.mqtt.broker.service.mqtt.client.disconnect.DisconnectClientCommandService;
+import org.thingsboard.mqtt.broker.service.mqtt.client.event.ClientSessionEventBatcher;
 import org.thingsboard.mqtt.broker.service.mqtt.client.event.ClientSessionEventType;
+import org.thingsboard.mqtt.broker.service.mqtt.client.event.ConnectionResponse;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.MsgPersistenceManager;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.topic.ApplicationRemovedEventService;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.topic.ApplicationTopicService;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -88,16 +95,29 @@ public class SessionClusterManagerImpl implements SessionClusterManager {
 
     private TbQueueProducer<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>> eventResponseProducer;
     private ExecutorService eventResponseSenderExecutor;
+    private ScheduledExecutorService responseBatchFlushScheduler;
+    private ClientSessionEventBatcher<String, QueueProtos.ClientSessionEventResponseItemProto> responseBatcher;
 
     @Value("${queue.client-session-event-response.max-request-timeout}")
     private long requestTimeout;
     @Value("${queue.client-session-event-response.response-sender-threads}")
     private int eventResponseSenderThreads;
+    @Value("${queue.client-session-event.batching.enabled:false}")
+    private boolean batchingEnabled;
+    @Value("${queue.client-session-event.batching.max-batch-size:500}")
+    private int maxBatchSize;
+    @Value("${queue.client-session-event.batching.linger-ms:5}")
+    private long lingerMs;
 
     @PostConstruct
     public void init() {
         this.eventResponseProducer = clientSessionEventQueueFactory.createEventResponseProducer(serviceInfoProvider.getServiceId());
         this.eventResponseSenderExecutor = Executors.newFixedThreadPool(eventResponseSenderThreads);
+        if (batchingEnabled) {
+            this.responseBatcher = new ClientSessionEventBatcher<>(maxBatchSize, this::sendEventResponsesBatch);
+            this.responseBatchFlushScheduler = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("client-session-event-response-batch-flush-scheduler"));
+            responseBatchFlushScheduler.scheduleWithFixedDelay(responseBatcher::flush, lingerMs, lingerMs, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
@@ -112,6 +132,12 @@ public class SessionClusterManagerImpl implements SessionClusterManager {
         }
 
         ClientSession currentClientSession = getClientSessionForClient(clientId);
+        if (requestInfo.isLocal() && currentClientSession != null) {
+            log.debug("[{}][{}] Client session appeared before the fast-path connection request was processed.", clientId, requestInfo.getRequestId());
+            requestInfo.getLocalResponseFuture().setException(
+                    new ConnectFastPathConflictException("Client session is present for client " + clientId));
+            return;
+        }
         UUID currentClientSessionId = getCurrentClientSessionIdIfPresent(currentClientSession);
 
         if (sessionInfo.getSessionId().equals(currentClientSessionId)) {
@@ -338,13 +364,28 @@ public class SessionClusterManagerImpl implements SessionClusterManager {
     }
 
     private void sendEventResponse(String clientId, ConnectionRequestInfo connectionRequestInfo, boolean success, boolean sessionPresent) {
+        if (connectionRequestInfo.isLocal()) {
+            connectionRequestInfo.getLocalResponseFuture().set(new ConnectionResponse(success, sessionPresent));
+            return;
+        }
+        if (responseBatcher != null) {
+            UUID requestId = connectionRequestInfo.getRequestId();
+            responseBatcher.add(connectionRequestInfo.getResponseTopic(), QueueProtos.ClientSessionEventResponseItemProto.newBuilder()
+                    .setRequestIdMSB(requestId.getMostSignificantBits())
+                    .setRequestIdLSB(requestId.getLeastSignificantBits())
+                    .setSuccess(success)
+                    .setSessionPresent(sessionPresent)
+                    .build());
+            return;
+        }
         QueueProtos.ClientSessionEventResponseProto response = getEventResponseProto(success, sessionPresent);
         TbQueueMsgHeaders headers = createResponseHeaders(connectionRequestInfo.getRequestId());
+        // keyed by request id to spread the responses over the partitions of the response topic
         eventResponseSenderExecutor.execute(
                 () -> eventResponseProducer.send(
                         connectionRequestInfo.getResponseTopic(),
                         null,
-                        new TbProtoQueueMsg<>(clientId, response, headers),
+                        new TbProtoQueueMsg<>(connectionRequestInfo.getRequestId().toString(), response, headers),
                         new TbQueueCallback() {
                             @Override
                             public void onSuccess(TbQueueMsgMetadata metadata) {
@@ -360,6 +401,27 @@ public class SessionClusterManagerImpl implements SessionClusterManager {
                         }));
     }
 
+    private void sendEventResponsesBatch(String responseTopic, List<QueueProtos.ClientSessionEventResponseItemProto> responses) {
+        QueueProtos.ClientSessionEventResponseItemProto first = responses.get(0);
+        String key = new UUID(first.getRequestIdMSB(), first.getRequestIdLSB()).toString();
+        QueueProtos.ClientSessionEventResponseProto batch = QueueProtos.ClientSessionEventResponseProto.newBuilder()
+                .addAllResponses(responses)
+                .build();
+        eventResponseProducer.send(responseTopic, null, new TbProtoQueueMsg<>(key, batch), new TbQueueCallback() {
+            @Override
+            public void onSuccess(TbQueueMsgMetadata metadata) {
+                if (log.isTraceEnabled()) {
+                    log.trace("[{}] Successfully sent batch of {} responses.", responseTopic, responses.size());
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("[{}] Failed to send batch of {} responses.", responseTopic, responses.size(), t);
+            }
+        });
+    }
+
     private QueueProtos.ClientSessionEventResponseProto getEventResponseProto(boolean success, boolean sessionPresent) {
         return QueueProtos.ClientSessionEventResponseProto.newBuilder()
                 .setSuccess(success)
@@ -463,6 +525,10 @@ public class SessionClusterManagerImpl implements SessionClusterManager {
 
     @PreDestroy
     public void destroy() {
+        if (responseBatchFlushScheduler != null) {
+            ThingsBoardExecutors.shutdownAndAwaitTermination(responseBatchFlushScheduler, "Session cluster manager response batch flush");
+            responseBatcher.flush();
+        }
         if (eventResponseProducer != null) {
             eventResponseProducer.stop();
         }
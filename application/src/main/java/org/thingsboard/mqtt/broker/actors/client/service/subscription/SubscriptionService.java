@@ -18,6 +18,7 @@ package org.thingsboard.mqtt.broker.actors.client.service.subscription;
 import org.thingsboard.mqtt.broker.common.data.subscription.TopicSubscription;
 import org.thingsboard.mqtt.broker.exception.SubscriptionTrieClearException;
 import org.thingsboard.mqtt.broker.service.subscription.ClientSubscription;
+import org.thingsboard.mqtt.broker.service.subscription.TopicFilterMatchVisitor;
 import org.thingsboard.mqtt.broker.service.subscription.ValueWithTopicFilter;
 
 import java.util.Collection;
@@ -34,6 +35,12 @@ public interface SubscriptionService {
 
     List<ValueWithTopicFilter<ClientSubscription>> getSubscriptions(String topic);
 
+    /**
+     * Hands the subscriptions matching the topic to the visitor. With the tokenized lookup enabled and no lookup cache
+     * the matches are not collected into a list. The visitor must not look up the subscriptions itself.
+     */
+    void forEachSubscription(String topic, TopicFilterMatchVisitor<ClientSubscription> visitor);
+
     void clearEmptyTopicNodes() throws SubscriptionTrieClearException;
 
 }
@@ -15,7 +15,10 @@
  */
 package org.thingsboard.mqtt.broker.actors.client.service.subscription;
 
+import jakarta.annotation.PostConstruct;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.thingsboard.mqtt.broker.common.data.subscription.TopicSubscription;
@@ -23,9 +26,12 @@ import org.thingsboard.mqtt.broker.exception.SubscriptionTrieClearException;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 import org.thingsboard.mqtt.broker.service.stats.timer.SubscriptionTimerStats;
 import org.thingsboard.mqtt.broker.service.subscription.ClientSubscription;
+import org.thingsboard.mqtt.broker.service.subscription.SubscriptionLookupCache;
 import org.thingsboard.mqtt.broker.service.subscription.SubscriptionTrie;
+import org.thingsboard.mqtt.broker.service.subscription.TopicFilterMatchVisitor;
 import org.thingsboard.mqtt.broker.service.subscription.ValueWithTopicFilter;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -35,13 +41,35 @@ import java.util.concurrent.TimeUnit;
 public class SubscriptionServiceImpl implements SubscriptionService {
 
     private final SubscriptionTrie<ClientSubscription> subscriptionTrie;
+    private final StatsManager statsManager;
     private final SubscriptionTimerStats subscriptionTimerStats;
 
+    @Setter
+    @Value("${mqtt.subscription-trie.tokenized-lookup-enabled:false}")
+    private boolean tokenizedLookupEnabled;
+    @Setter
+    @Value("${mqtt.subscription-trie.lookup-cache.enabled:false}")
+    private boolean lookupCacheEnabled;
+    @Setter
+    @Value("${mqtt.subscription-trie.lookup-cache.max-size:10000}")
+    private int lookupCacheMaxSize;
+
+    private SubscriptionLookupCache<ClientSubscription> lookupCache;
+
     public SubscriptionServiceImpl(SubscriptionTrie<ClientSubscription> subscriptionTrie, StatsManager statsManager) {
         this.subscriptionTrie = subscriptionTrie;
+        this.statsManager = statsManager;
         this.subscriptionTimerStats = statsManager.getSubscriptionTimerStats();
     }
 
+    @PostConstruct
+    public void init() {
+        if (lookupCacheEnabled) {
+            log.info("Subscription lookup cache is enabled with max size {}", lookupCacheMaxSize);
+            this.lookupCache = new SubscriptionLookupCache<>(lookupCacheMaxSize, statsManager.getSubscriptionCacheStats());
+        }
+    }
+
     @Override
     public void subscribe(String clientId, Collection<TopicSubscription> topicSubscriptions) {
         if (log.isTraceEnabled()) {
@@ -57,6 +85,7 @@ public class SubscriptionServiceImpl implements SubscriptionService {
                             topicSubscription.getOptions(),
                             topicSubscription.getSubscriptionId())
             );
+            invalidateLookupCache(topicSubscription.getTopicFilter());
         }
     }
 
@@ -67,7 +96,9 @@ public class SubscriptionServiceImpl implements SubscriptionService {
         }
         for (String topicFilter : topicFilters) {
             boolean successfullyDeleted = subscriptionTrie.delete(topicFilter, val -> clientId.equals(val.getClientId()));
-            if (!successfullyDeleted) {
+            if (successfullyDeleted) {
+                invalidateLookupCache(topicFilter);
+            } else {
                 if (log.isDebugEnabled()) {
                     log.debug("[{}] Client wasn't subscribed to the topic filter {}", clientId, topicFilter);
                 }
@@ -78,8 +109,41 @@ public class SubscriptionServiceImpl implements SubscriptionService {
     @Override
     public List<ValueWithTopicFilter<ClientSubscription>> getSubscriptions(String topic) {
         long startTime = System.nanoTime();
-        List<ValueWithTopicFilter<ClientSubscription>> subscriptions = subscriptionTrie.get(topic);
+        List<ValueWithTopicFilter<ClientSubscription>> subscriptions = lookupCache != null ?
+                lookupCache.get(topic, this::lookupSubscriptions) : lookupSubscriptions(topic);
+        subscriptionTimerStats.logSubscriptionsLookup(startTime, TimeUnit.NANOSECONDS);
+        return subscriptions;
+    }
+
+    @Override
+    public void forEachSubscription(String topic, TopicFilterMatchVisitor<ClientSubscription> visitor) {
+        long startTime = System.nanoTime();
+        if (lookupCache == null && tokenizedLookupEnabled) {
+            // the logged lookup time includes the visitor, matches are handed to it during the traversal
+            subscriptionTrie.forEachMatch(topic, visitor);
+        } else {
+            List<ValueWithTopicFilter<ClientSubscription>> subscriptions = lookupCache != null ?
+                    lookupCache.get(topic, this::lookupSubscriptions) : subscriptionTrie.get(topic);
+            for (ValueWithTopicFilter<ClientSubscription> subscription : subscriptions) {
+                visitor.visit(subscription.getValue(), subscription.getTopicFilter());
+            }
+        }
         subscriptionTimerStats.logSubscriptionsLookup(startTime, TimeUnit.NANOSECONDS);
+    }
+
+    private List<ValueWithTopicFilter<ClientSubscription>> lookupSubscriptions(String topic) {
+        return tokenizedLookupEnabled ? getSubscriptionsWithTokenizedLookup(topic) : subscriptionTrie.get(topic);
+    }
+
+    private void invalidateLookupCache(String topicFilter) {
+        if (lookupCache != null) {
+            lookupCache.invalidate(topicFilter);
+        }
+    }
+
+    private List<ValueWithTopicFilter<ClientSubscription>> getSubscriptionsWithTokenizedLookup(String topic) {
+        List<ValueWithTopicFilter<ClientSubscription>> subscriptions = new ArrayList<>();
+        subscriptionTrie.forEachMatch(topic, (value, topicFilter) -> subscriptions.add(new ValueWithTopicFilter<>(value, topicFilter)));
         return subscriptions;
     }
 
@@ -24,4 +24,11 @@ public interface PublishedInFlightCtx {
     void ackInFlightMsg(int msgId);
 
     boolean processMsg(long ttlMs);
+
+    /**
+     * Number of messages sent to the client and not acknowledged yet plus the messages delayed until the client frees its receive maximum
+     */
+    int getPendingMsgsCount();
+
+    int getClientReceiveMax();
 }
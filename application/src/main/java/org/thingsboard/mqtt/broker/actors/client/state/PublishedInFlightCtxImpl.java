@@ -180,6 +180,11 @@ public class PublishedInFlightCtxImpl implements PublishedInFlightCtx {
         }
     }
 
+    @Override
+    public int getPendingMsgsCount() {
+        return publishedInFlightMsgQueueSize() + delayedMsgQueueSize();
+    }
+
     public void sendDelayedMsg(MqttPublishMessage mqttPubMsg) {
         clientSessionCtx.getChannel().writeAndFlush(mqttPubMsg);
     }
@@ -32,10 +32,17 @@ public class ActorsConfiguration {
     private int maxActorInitAttempts;
     @Value("${actors.system.scheduler-pool-size:1}")
     private int schedulerPoolSize;
+    @Value("${actors.system.mailbox.mpsc-enabled:false}")
+    private boolean mpscMailboxEnabled;
+    @Value("${actors.system.mailbox.chunk-size:16}")
+    private int mailboxChunkSize;
+    @Value("${actors.system.mailbox.max-throughput:64}")
+    private int maxActorThroughput;
 
     @Bean
     public TbActorSystemSettings actorSystemSettings() {
-        return new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts);
+        return new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts,
+                mpscMailboxEnabled, mailboxChunkSize, maxActorThroughput);
     }
 
     @Bean(destroyMethod = "destroy")
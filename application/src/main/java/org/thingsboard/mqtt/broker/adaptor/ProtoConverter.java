@@ -16,6 +16,8 @@
 package org.thingsboard.mqtt.broker.adaptor;
 
 import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.mqtt.MqttProperties;
 import io.netty.handler.codec.mqtt.MqttProperties.UserProperties;
 import lombok.extern.slf4j.Slf4j;
@@ -55,6 +57,13 @@ public class ProtoConverter {
      * PUBLISH messages conversion
      */
 
+    /**
+     * Wraps the payload into a read-only buffer without copying it. Duplicates of the result can be sent to any number of clients.
+     */
+    public static ByteBuf wrapPayload(QueueProtos.PublishMsgProto publishMsgProto) {
+        return Unpooled.wrappedBuffer(publishMsgProto.getPayload().asReadOnlyByteBuffer());
+    }
+
     public static QueueProtos.PublishMsgProto convertToPublishMsgProto(SessionInfo sessionInfo, PublishMsg publishMsg) {
         UserProperties userProperties = MqttPropertiesUtil.getUserProperties(publishMsg.getProperties());
         QueueProtos.PublishMsgProto.Builder builder = QueueProtos.PublishMsgProto.newBuilder()
@@ -132,6 +141,17 @@ public class ProtoConverter {
         }
     }
 
+    public static QueueProtos.DownLinkTargetProto toDownLinkTargetProto(Subscription subscription, QueueProtos.PublishMsgProto publishMsgProto) {
+        QueueProtos.DownLinkTargetProto.Builder builder = QueueProtos.DownLinkTargetProto.newBuilder()
+                .setClientId(subscription.getClientId())
+                .setQos(MqttQosUtil.downgradeQos(subscription, publishMsgProto))
+                .setRetain(subscription.getOptions().isRetain(publishMsgProto.getRetain()));
+        if (subscription.isSubsIdsPresent()) {
+            builder.addAllSubscriptionIds(subscription.getSubscriptionIds());
+        }
+        return builder.build();
+    }
+
     private static QueueProtos.MqttPropertiesProto updateMqttPropsWithSubsIds(Subscription subscription, QueueProtos.PublishMsgProto publishMsgProto) {
         QueueProtos.MqttPropertiesProto mqttProperties = publishMsgProto.getMqttProperties();
         if (subscription.isSubsIdsPresent()) {
@@ -459,10 +479,7 @@ public class ProtoConverter {
      */
 
     public static RetainedMsg convertProtoToRetainedMsg(QueueProtos.RetainedMsgProto retainedMsgProto) {
-        MqttProperties properties = createMqttPropertiesWithUserPropsIfPresent(retainedMsgProto.getUserPropertiesList());
-        if (retainedMsgProto.hasMqttProperties()) {
-            addFromProtoToMqttProperties(retainedMsgProto.getMqttProperties(), properties);
-        }
+        MqttProperties properties = convertProtoToRetainedMsgProps(retainedMsgProto);
         return new RetainedMsg(
                 retainedMsgProto.getTopic(),
                 retainedMsgProto.getPayload().toByteArray(),
@@ -486,6 +503,27 @@ public class ProtoConverter {
         return builder.build();
     }
 
+    /**
+     * Only the MQTT properties of the retained msg are set in the result proto
+     */
+    public static QueueProtos.RetainedMsgProto convertToRetainedMsgPropsProto(MqttProperties properties) {
+        QueueProtos.RetainedMsgProto.Builder builder = QueueProtos.RetainedMsgProto.newBuilder()
+                .addAllUserProperties(getUserPropertyProtos(properties));
+        QueueProtos.MqttPropertiesProto.Builder mqttPropsProtoBuilder = getMqttPropsProtoBuilder(properties);
+        if (mqttPropsProtoBuilder != null) {
+            builder.setMqttProperties(mqttPropsProtoBuilder);
+        }
+        return builder.build();
+    }
+
+    public static MqttProperties convertProtoToRetainedMsgProps(QueueProtos.RetainedMsgProto retainedMsgProto) {
+        MqttProperties properties = createMqttPropertiesWithUserPropsIfPresent(retainedMsgProto.getUserPropertiesList());
+        if (retainedMsgProto.hasMqttProperties()) {
+            addFromProtoToMqttProperties(retainedMsgProto.getMqttProperties(), properties);
+        }
+        return properties;
+    }
+
     /**
      * MQTT properties conversion
      */
@@ -0,0 +1,32 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.exception;
+
+import java.io.Serial;
+
+/**
+ * Signals that the client got cluster state after the connect fast-path was chosen for it,
+ * so the connection request has to go through the client session event queue.
+ */
+public class ConnectFastPathConflictException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 2938741553061047829L;
+
+    public ConnectFastPathConflictException(String message) {
+        super(message);
+    }
+}
@@ -15,38 +15,178 @@
  */
 package org.thingsboard.mqtt.broker.server;
 
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionStats;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.ReferenceCountedOpenSslEngine;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.thingsboard.mqtt.broker.common.data.util.StringUtils;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+import org.thingsboard.mqtt.broker.service.stats.TlsHandshakeStats;
 import org.thingsboard.mqtt.broker.ssl.config.SslCredentials;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
+import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 public abstract class AbstractMqttHandlerProvider {
 
-    private SSLContext sslContext;
+    @Autowired
+    private StatsManager statsManager;
+
+    private volatile SSLContext sslContext;
+    private volatile SslContext openSslContext;
+    private TlsHandshakeStats handshakeStats;
+    private final AtomicLong openSslResumedHandshakes = new AtomicLong();
+
+    @PostConstruct
+    public void initHandshakeStats() {
+        handshakeStats = statsManager.createTlsHandshakeStats(getListenerName());
+    }
 
     public SslHandler getSslHandler(String[] enabledCipherSuites) {
-        if (sslContext == null) {
-            sslContext = createSslContext();
+        SslHandler sslHandler = new SslHandler(createSslEngine(enabledCipherSuites));
+        long handshakeStartTime = System.currentTimeMillis();
+        sslHandler.handshakeFuture().addListener(future -> {
+            if (future.isSuccess()) {
+                if (sslHandler.engine() instanceof ReferenceCountedOpenSslEngine) {
+                    logOpenSslHandshake();
+                } else {
+                    handshakeStats.logHandshake(isSessionResumed(sslHandler.engine().getSession(), handshakeStartTime));
+                }
+            } else {
+                handshakeStats.logFailedHandshake();
+            }
+        });
+        return sslHandler;
+    }
+
+    private SSLEngine createSslEngine(String[] enabledCipherSuites) {
+        if (getTlsEngineType() == TlsEngineType.OPENSSL && OpenSsl.isAvailable()) {
+            return getOpenSslContext(enabledCipherSuites).newEngine(ByteBufAllocator.DEFAULT);
         }
-        SSLEngine sslEngine = sslContext.createSSLEngine();
+        SSLEngine sslEngine = getSslContext().createSSLEngine();
         sslEngine.setUseClientMode(false);
         sslEngine.setNeedClientAuth(false);
         sslEngine.setWantClientAuth(true);
         sslEngine.setEnabledProtocols(sslEngine.getSupportedProtocols());
         sslEngine.setEnabledCipherSuites(getEnabledCipherSuites(enabledCipherSuites, sslEngine));
         sslEngine.setEnableSessionCreation(true);
-        return new SslHandler(sslEngine);
+        return sslEngine;
+    }
+
+    /**
+     * The first connections may be accepted on several event loops at once, while all the handshakes of the listener
+     * have to share one context to share its session cache and ticket keys.
+     */
+    private SslContext getOpenSslContext(String[] enabledCipherSuites) {
+        SslContext context = openSslContext;
+        if (context == null) {
+            synchronized (this) {
+                context = openSslContext;
+                if (context == null) {
+                    context = createOpenSslContext(enabledCipherSuites);
+                    openSslContext = context;
+                }
+            }
+        }
+        return context;
+    }
+
+    private SSLContext getSslContext() {
+        SSLContext context = sslContext;
+        if (context == null) {
+            synchronized (this) {
+                context = sslContext;
+                if (context == null) {
+                    context = createSslContext();
+                    sslContext = context;
+                }
+            }
+        }
+        return context;
+    }
+
+    /**
+     * OpenSSL reports the session creation time in seconds, so resumptions are taken from the session context stats instead:
+     * session cache hits plus the sessions resumed from a ticket. The stats are shared by all the handshakes of the listener,
+     * so the growth since the last handshake is logged rather than a per-handshake flag.
+     */
+    private void logOpenSslHandshake() {
+        handshakeStats.logHandshake(false);
+        if (openSslContext.sessionContext() instanceof OpenSslSessionContext openSslSessionContext) {
+            OpenSslSessionStats stats = openSslSessionContext.stats();
+            long resumed = stats.hits() + stats.ticketKeyResume();
+            long previous = openSslResumedHandshakes.getAndAccumulate(resumed, Math::max);
+            if (resumed > previous) {
+                handshakeStats.logResumedHandshakes((int) (resumed - previous));
+            }
+        }
+    }
+
+    /**
+     * A resumed JDK session keeps the creation time (in millis) of the session it was resumed from,
+     * while a new one is created during the handshake.
+     */
+    static boolean isSessionResumed(SSLSession session, long handshakeStartTime) {
+        return session.getCreationTime() < handshakeStartTime;
+    }
+
+    private SslContext createOpenSslContext(String[] enabledCipherSuites) {
+        try {
+            SslCredentials sslCredentials = getSslCredentials();
+            SslContext context = SslContextBuilder.forServer(sslCredentials.createKeyManagerFactory())
+                    .sslProvider(SslProvider.OPENSSL)
+                    .trustManager(getX509TrustManager(sslCredentials.createTrustManagerFactory()))
+                    .clientAuth(ClientAuth.OPTIONAL)
+                    .ciphers(enabledCipherSuites == null || enabledCipherSuites.length == 0 ? null : Arrays.asList(enabledCipherSuites),
+                            SupportedCipherSuiteFilter.INSTANCE)
+                    .sessionCacheSize(getSessionCacheSize())
+                    .sessionTimeout(getSessionTimeout())
+                    .build();
+            if (isSessionTicketsEnabled() && context.sessionContext() instanceof OpenSslSessionContext openSslSessionContext) {
+                // setting the ticket keys enables session tickets that are disabled by default
+                openSslSessionContext.setTicketKeys(newSessionTicketKey());
+            }
+            log.info("[{}] Using {} TLS engine", getListenerName(), OpenSsl.versionString());
+            return context;
+        } catch (Exception e) {
+            log.error("Unable to set up OpenSSL context.", e);
+            throw new RuntimeException("Failed to get OpenSSL context", e);
+        }
+    }
+
+    private OpenSslSessionTicketKey newSessionTicketKey() {
+        SecureRandom random = new SecureRandom();
+        byte[] name = new byte[OpenSslSessionTicketKey.NAME_SIZE];
+        byte[] hmacKey = new byte[OpenSslSessionTicketKey.HMAC_KEY_SIZE];
+        byte[] aesKey = new byte[OpenSslSessionTicketKey.AES_KEY_SIZE];
+        random.nextBytes(name);
+        random.nextBytes(hmacKey);
+        random.nextBytes(aesKey);
+        return new OpenSslSessionTicketKey(name, hmacKey, aesKey);
     }
 
     private SSLContext createSslContext() {
@@ -67,8 +207,15 @@ public abstract class AbstractMqttHandlerProvider {
                     log.debug("sslProtocol is set to {}", sslProtocol);
                 }
             }
+            if (getTlsEngineType() == TlsEngineType.OPENSSL) {
+                log.warn("[{}] OpenSSL TLS engine is not available, falling back to JDK engine. Reason: {}", getListenerName(),
+                        OpenSsl.unavailabilityCause() != null ? OpenSsl.unavailabilityCause().getMessage() : null);
+            }
             SSLContext sslContext = SSLContext.getInstance(sslProtocol);
             sslContext.init(km, tm, null);
+            SSLSessionContext serverSessionContext = sslContext.getServerSessionContext();
+            serverSessionContext.setSessionCacheSize(getSessionCacheSize());
+            serverSessionContext.setSessionTimeout(getSessionTimeout());
             return sslContext;
         } catch (Exception e) {
             log.error("Unable to set up SSL context.", e);
@@ -128,6 +275,16 @@ public abstract class AbstractMqttHandlerProvider {
 
     protected abstract SslCredentials getSslCredentials();
 
+    protected abstract String getListenerName();
+
+    protected abstract TlsEngineType getTlsEngineType();
+
+    protected abstract int getSessionCacheSize();
+
+    protected abstract int getSessionTimeout();
+
+    protected abstract boolean isSessionTicketsEnabled();
+
     private String[] getEnabledCipherSuites(String[] enabledCipherSuites, SSLEngine sslEngine) {
         return enabledCipherSuites == null || enabledCipherSuites.length == 0 ? sslEngine.getSupportedCipherSuites() : enabledCipherSuites;
     }
@@ -16,21 +16,26 @@
 package org.thingsboard.mqtt.broker.server;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.util.ResourceLeakDetector;
 import io.netty.util.concurrent.Future;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public abstract class AbstractMqttServerBootstrap implements MqttServerBootstrap {
 
-    private Channel serverChannel;
+    private static final PooledByteBufAllocator POOLED_DIRECT_ALLOCATOR = new PooledByteBufAllocator(true);
+
+    private final List<Channel> serverChannels = new ArrayList<>();
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
 
@@ -39,16 +44,41 @@ public abstract class AbstractMqttServerBootstrap implements MqttServerBootstrap
         ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.valueOf(getLeakDetectorLevel().toUpperCase()));
 
         log.info("[{}] Starting MQTT server...", getServerName());
-        bossGroup = new NioEventLoopGroup(getBossGroupThreadCount());
-        workerGroup = new NioEventLoopGroup(getWorkerGroupThreadCount());
+        NettyTransportType transportType = NettyTransportType.resolve(getTransportType(), getServerName());
+        int acceptorsCount = getAcceptorsCount(transportType);
+        bossGroup = transportType.newEventLoopGroup(Math.max(getBossGroupThreadCount(), acceptorsCount));
+        workerGroup = transportType.newEventLoopGroup(getWorkerGroupThreadCount());
         ServerBootstrap b = new ServerBootstrap();
         b.group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
+                .channel(transportType.getServerChannelClass())
                 .childHandler(getChannelInitializer())
-                .childOption(ChannelOption.SO_KEEPALIVE, isKeepAlive());
+                .childOption(ChannelOption.SO_KEEPALIVE, isKeepAlive())
+                .childOption(ChannelOption.TCP_NODELAY, isTcpNoDelay())
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                        new WriteBufferWaterMark(getWriteBufferLowWaterMark(), getWriteBufferHighWaterMark()));
+        if (isPooledDirectAllocator()) {
+            b.option(ChannelOption.ALLOCATOR, POOLED_DIRECT_ALLOCATOR).childOption(ChannelOption.ALLOCATOR, POOLED_DIRECT_ALLOCATOR);
+        }
+        if (acceptorsCount > 1) {
+            b.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
 
-        serverChannel = b.bind(getHost(), getPort()).sync().channel();
-        log.info("[{}] Mqtt server started on port {}!", getServerName(), getPort());
+        // with SO_REUSEPORT every server channel has its own accept queue and is served by its own boss thread
+        for (int i = 0; i < acceptorsCount; i++) {
+            serverChannels.add(b.bind(getHost(), getPort()).sync().channel());
+        }
+        log.info("[{}] Mqtt server started on port {} using {} transport with {} acceptor(s)!",
+                getServerName(), getPort(), transportType, acceptorsCount);
+    }
+
+    private int getAcceptorsCount(NettyTransportType transportType) {
+        int acceptorsCount = Math.max(1, getAcceptorsCount());
+        if (acceptorsCount > 1 && !transportType.isReusePortSupported()) {
+            log.warn("[{}] SO_REUSEPORT is not supported by {} transport, only one acceptor is going to be used instead of {}",
+                    getServerName(), transportType, acceptorsCount);
+            return 1;
+        }
+        return acceptorsCount;
     }
 
     public void shutdown() throws InterruptedException {
@@ -57,9 +87,10 @@ public abstract class AbstractMqttServerBootstrap implements MqttServerBootstrap
         Future<?> bossFuture = null;
         Future<?> workerFuture = null;
 
-        if (serverChannel != null) {
+        for (Channel serverChannel : serverChannels) {
             serverChannel.close().sync();
         }
+        serverChannels.clear();
 
         if (bossGroup != null) {
             bossFuture = bossGroup.shutdownGracefully(getShutdownQuietPeriod(), getShutdownTimeout(), TimeUnit.SECONDS);
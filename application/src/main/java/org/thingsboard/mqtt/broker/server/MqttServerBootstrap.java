@@ -29,6 +29,18 @@ public interface MqttServerBootstrap {
 
     boolean isKeepAlive();
 
+    String getTransportType();
+
+    int getAcceptorsCount();
+
+    boolean isTcpNoDelay();
+
+    int getWriteBufferLowWaterMark();
+
+    int getWriteBufferHighWaterMark();
+
+    boolean isPooledDirectAllocator();
+
     int getShutdownQuietPeriod();
 
     int getShutdownTimeout();
@@ -0,0 +1,81 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.server;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public enum NettyTransportType {
+
+    NIO {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threadCount) {
+            return new NioEventLoopGroup(threadCount);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public boolean isReusePortSupported() {
+            return false;
+        }
+    },
+    EPOLL {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threadCount) {
+            return new EpollEventLoopGroup(threadCount);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public boolean isReusePortSupported() {
+            return true;
+        }
+    };
+
+    public abstract EventLoopGroup newEventLoopGroup(int threadCount);
+
+    public abstract Class<? extends ServerChannel> getServerChannelClass();
+
+    public abstract boolean isReusePortSupported();
+
+    /**
+     * Returns the configured transport or NIO if the native library of the configured transport can not be loaded.
+     */
+    public static NettyTransportType resolve(String type, String serverName) {
+        NettyTransportType transportType = NettyTransportType.valueOf(type.toUpperCase());
+        if (transportType == EPOLL && !Epoll.isAvailable()) {
+            log.warn("[{}] Epoll transport is not available, falling back to NIO transport. Reason: {}",
+                    serverName, Epoll.unavailabilityCause() != null ? Epoll.unavailabilityCause().getMessage() : null);
+            return NIO;
+        }
+        return transportType;
+    }
+}
@@ -48,6 +48,18 @@ public class MqttTcpServerBootstrap extends AbstractMqttServerBootstrap {
     private int workerGroupThreadCount;
     @Value("${listener.tcp.netty.so_keep_alive}")
     private boolean keepAlive;
+    @Value("${listener.tcp.netty.transport_type:NIO}")
+    private String transportType;
+    @Value("${listener.tcp.netty.acceptors_count:1}")
+    private int acceptorsCount;
+    @Value("${listener.tcp.netty.tcp_no_delay:true}")
+    private boolean tcpNoDelay;
+    @Value("${listener.tcp.netty.write_buffer_low_water_mark:32768}")
+    private int writeBufferLowWaterMark;
+    @Value("${listener.tcp.netty.write_buffer_high_water_mark:65536}")
+    private int writeBufferHighWaterMark;
+    @Value("${listener.tcp.netty.pooled_direct_allocator:false}")
+    private boolean pooledDirectAllocator;
 
     @Value("${listener.tcp.netty.shutdown_quiet_period:0}")
     private int shutdownQuietPeriod;
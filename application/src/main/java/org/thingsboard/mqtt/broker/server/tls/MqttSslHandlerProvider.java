@@ -25,6 +25,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 import org.thingsboard.mqtt.broker.server.AbstractMqttHandlerProvider;
+import org.thingsboard.mqtt.broker.server.TlsEngineType;
 import org.thingsboard.mqtt.broker.ssl.config.SslCredentials;
 import org.thingsboard.mqtt.broker.ssl.config.SslCredentialsConfig;
 
@@ -35,6 +36,14 @@ public class MqttSslHandlerProvider extends AbstractMqttHandlerProvider {
 
     @Value("${listener.ssl.config.protocol}")
     private String sslProtocol;
+    @Value("${listener.ssl.config.engine:JDK}")
+    private TlsEngineType tlsEngineType;
+    @Value("${listener.ssl.config.session_cache_size:20480}")
+    private int sessionCacheSize;
+    @Value("${listener.ssl.config.session_timeout:86400}")
+    private int sessionTimeout;
+    @Value("${listener.ssl.config.session_tickets_enabled:true}")
+    private boolean sessionTicketsEnabled;
 
     @Bean
     @ConfigurationProperties(prefix = "listener.ssl.config.credentials")
@@ -57,4 +66,29 @@ public class MqttSslHandlerProvider extends AbstractMqttHandlerProvider {
         return this.mqttSslCredentialsConfig.getCredentials();
     }
 
+    @Override
+    protected String getListenerName() {
+        return "ssl";
+    }
+
+    @Override
+    protected TlsEngineType getTlsEngineType() {
+        return tlsEngineType;
+    }
+
+    @Override
+    protected int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    @Override
+    protected int getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    @Override
+    protected boolean isSessionTicketsEnabled() {
+        return sessionTicketsEnabled;
+    }
+
 }
@@ -48,6 +48,18 @@ public class MqttSslServerBootstrap extends AbstractMqttServerBootstrap {
     private int workerGroupThreadCount;
     @Value("${listener.ssl.netty.so_keep_alive}")
     private boolean keepAlive;
+    @Value("${listener.ssl.netty.transport_type:NIO}")
+    private String transportType;
+    @Value("${listener.ssl.netty.acceptors_count:1}")
+    private int acceptorsCount;
+    @Value("${listener.ssl.netty.tcp_no_delay:true}")
+    private boolean tcpNoDelay;
+    @Value("${listener.ssl.netty.write_buffer_low_water_mark:32768}")
+    private int writeBufferLowWaterMark;
+    @Value("${listener.ssl.netty.write_buffer_high_water_mark:65536}")
+    private int writeBufferHighWaterMark;
+    @Value("${listener.ssl.netty.pooled_direct_allocator:false}")
+    private boolean pooledDirectAllocator;
 
     @Value("${listener.ssl.netty.shutdown_quiet_period:0}")
     private int shutdownQuietPeriod;
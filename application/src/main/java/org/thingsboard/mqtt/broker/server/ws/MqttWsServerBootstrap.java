@@ -48,6 +48,18 @@ public class MqttWsServerBootstrap extends AbstractMqttServerBootstrap {
     private int workerGroupThreadCount;
     @Value("${listener.ws.netty.so_keep_alive}")
     private boolean keepAlive;
+    @Value("${listener.ws.netty.transport_type:NIO}")
+    private String transportType;
+    @Value("${listener.ws.netty.acceptors_count:1}")
+    private int acceptorsCount;
+    @Value("${listener.ws.netty.tcp_no_delay:true}")
+    private boolean tcpNoDelay;
+    @Value("${listener.ws.netty.write_buffer_low_water_mark:32768}")
+    private int writeBufferLowWaterMark;
+    @Value("${listener.ws.netty.write_buffer_high_water_mark:65536}")
+    private int writeBufferHighWaterMark;
+    @Value("${listener.ws.netty.pooled_direct_allocator:false}")
+    private boolean pooledDirectAllocator;
 
     @Value("${listener.ws.netty.shutdown_quiet_period:0}")
     private int shutdownQuietPeriod;
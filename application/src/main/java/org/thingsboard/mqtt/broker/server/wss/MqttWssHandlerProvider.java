@@ -25,6 +25,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 import org.thingsboard.mqtt.broker.server.AbstractMqttHandlerProvider;
+import org.thingsboard.mqtt.broker.server.TlsEngineType;
 import org.thingsboard.mqtt.broker.ssl.config.SslCredentials;
 import org.thingsboard.mqtt.broker.ssl.config.SslCredentialsConfig;
 
@@ -35,6 +36,14 @@ public class MqttWssHandlerProvider extends AbstractMqttHandlerProvider {
 
     @Value("${listener.wss.config.protocol}")
     private String sslProtocol;
+    @Value("${listener.wss.config.engine:JDK}")
+    private TlsEngineType tlsEngineType;
+    @Value("${listener.wss.config.session_cache_size:20480}")
+    private int sessionCacheSize;
+    @Value("${listener.wss.config.session_timeout:86400}")
+    private int sessionTimeout;
+    @Value("${listener.wss.config.session_tickets_enabled:true}")
+    private boolean sessionTicketsEnabled;
 
     @Bean
     @ConfigurationProperties(prefix = "listener.wss.config.credentials")
@@ -57,4 +66,29 @@ public class MqttWssHandlerProvider extends AbstractMqttHandlerProvider {
         return this.mqttWssCredentialsConfig.getCredentials();
     }
 
+    @Override
+    protected String getListenerName() {
+        return "wss";
+    }
+
+    @Override
+    protected TlsEngineType getTlsEngineType() {
+        return tlsEngineType;
+    }
+
+    @Override
+    protected int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    @Override
+    protected int getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    @Override
+    protected boolean isSessionTicketsEnabled() {
+        return sessionTicketsEnabled;
+    }
+
 }
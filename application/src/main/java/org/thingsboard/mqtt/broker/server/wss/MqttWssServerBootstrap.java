@@ -48,6 +48,18 @@ public class MqttWssServerBootstrap extends AbstractMqttServerBootstrap {
     private int workerGroupThreadCount;
     @Value("${listener.wss.netty.so_keep_alive}")
     private boolean keepAlive;
+    @Value("${listener.wss.netty.transport_type:NIO}")
+    private String transportType;
+    @Value("${listener.wss.netty.acceptors_count:1}")
+    private int acceptorsCount;
+    @Value("${listener.wss.netty.tcp_no_delay:true}")
+    private boolean tcpNoDelay;
+    @Value("${listener.wss.netty.write_buffer_low_water_mark:32768}")
+    private int writeBufferLowWaterMark;
+    @Value("${listener.wss.netty.write_buffer_high_water_mark:65536}")
+    private int writeBufferHighWaterMark;
+    @Value("${listener.wss.netty.pooled_direct_allocator:false}")
+    private boolean pooledDirectAllocator;
 
     @Value("${listener.wss.netty.shutdown_quiet_period:0}")
     private int shutdownQuietPeriod;
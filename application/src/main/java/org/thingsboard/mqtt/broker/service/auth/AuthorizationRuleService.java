@@ -32,5 +32,7 @@ public interface AuthorizationRuleService {
 
     boolean isSubAuthorized(String topic, List<AuthRulePatterns> authRulePatterns);
 
+    boolean isSubAuthorized(String clientId, String topic, List<AuthRulePatterns> authRulePatterns);
+
     void evict(String clientId);
 }
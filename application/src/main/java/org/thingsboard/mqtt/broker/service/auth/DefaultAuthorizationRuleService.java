@@ -16,7 +16,9 @@
 package org.thingsboard.mqtt.broker.service.auth;
 
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.thingsboard.mqtt.broker.common.data.client.credentials.ClientTypeSslMqttCredentials;
@@ -25,6 +27,7 @@ import org.thingsboard.mqtt.broker.common.data.client.credentials.SinglePubSubAu
 import org.thingsboard.mqtt.broker.common.data.client.credentials.SslMqttCredentials;
 import org.thingsboard.mqtt.broker.exception.AuthenticationException;
 import org.thingsboard.mqtt.broker.service.security.authorization.AuthRulePatterns;
+import org.thingsboard.mqtt.broker.service.security.authorization.AuthRulesMatcher;
 
 import java.util.Collections;
 import java.util.List;
@@ -46,6 +49,14 @@ import static org.thingsboard.mqtt.broker.service.auth.providers.SslAuthFailure.
 public class DefaultAuthorizationRuleService implements AuthorizationRuleService {
 
     private final ConcurrentMap<String, ConcurrentMap<String, Boolean>> publishAuthMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AuthRulesMatcher> authRulesMatchers = new ConcurrentHashMap<>();
+
+    @Setter
+    @Value("${security.mqtt.authorization.compiled-rules-enabled:false}")
+    private boolean compiledRulesEnabled;
+    @Setter
+    @Value("${security.mqtt.authorization.verdict-cache-max-size:1000}")
+    private int verdictCacheMaxSize;
 
     @Override
     public List<AuthRulePatterns> parseSslAuthorizationRule(ClientTypeSslMqttCredentials clientTypeSslMqttCredentials, String clientCommonName) throws AuthenticationException {
@@ -99,6 +110,9 @@ public class DefaultAuthorizationRuleService implements AuthorizationRuleService
         if (CollectionUtils.isEmpty(authRulePatterns)) {
             return true;
         }
+        if (compiledRulesEnabled) {
+            return getAuthRulesMatcher(clientId, authRulePatterns).isPubAuthorized(topic);
+        }
         ConcurrentMap<String, Boolean> topicAuthMap = publishAuthMap.get(clientId);
         if (topicAuthMap == null) {
             topicAuthMap = publishAuthMap.computeIfAbsent(clientId, s -> new ConcurrentHashMap<>());
@@ -119,6 +133,27 @@ public class DefaultAuthorizationRuleService implements AuthorizationRuleService
         return isAuthorized(topic, subPatterns);
     }
 
+    @Override
+    public boolean isSubAuthorized(String clientId, String topic, List<AuthRulePatterns> authRulePatterns) {
+        if (compiledRulesEnabled && clientId != null && !CollectionUtils.isEmpty(authRulePatterns)) {
+            return getAuthRulesMatcher(clientId, authRulePatterns).isSubAuthorized(topic);
+        }
+        return isSubAuthorized(topic, authRulePatterns);
+    }
+
+    /**
+     * The rules of the client are compiled on the first check after the authentication and reused until the client
+     * gets other rules (e.g. after re-authentication) or disconnects.
+     */
+    private AuthRulesMatcher getAuthRulesMatcher(String clientId, List<AuthRulePatterns> authRulePatterns) {
+        AuthRulesMatcher authRulesMatcher = authRulesMatchers.get(clientId);
+        if (authRulesMatcher == null || !authRulesMatcher.isCompiledFrom(authRulePatterns)) {
+            authRulesMatcher = new AuthRulesMatcher(authRulePatterns, verdictCacheMaxSize);
+            authRulesMatchers.put(clientId, authRulesMatcher);
+        }
+        return authRulesMatcher;
+    }
+
     private boolean isAuthorized(String topic, Stream<List<Pattern>> stream) {
         List<Pattern> patterns = stream.flatMap(List::stream).toList();
         if (CollectionUtils.isEmpty(patterns)) {
@@ -134,6 +169,7 @@ public class DefaultAuthorizationRuleService implements AuthorizationRuleService
             if (topicAuthMap != null) {
                 topicAuthMap.clear();
             }
+            authRulesMatchers.remove(clientId);
         }
     }
 }
@@ -95,7 +95,7 @@ public class SslMqttClientAuthProvider implements MqttClientAuthProvider {
     private ClientTypeSslMqttCredentials authWithSSLCredentials(String clientId, SslHandler sslHandler) throws AuthenticationException {
         X509Certificate[] certificates;
         try {
-            certificates = (X509Certificate[]) sslHandler.engine().getSession().getPeerCertificates();
+            certificates = SslUtil.getPeerCertificates(sslHandler.engine().getSession());
         } catch (SSLPeerUnverifiedException e) {
             if (log.isDebugEnabled()) {
                 log.debug(PEER_IDENTITY_NOT_VERIFIED.getErrorMsg(), e);
@@ -184,7 +184,7 @@ public class SslMqttClientAuthProvider implements MqttClientAuthProvider {
     private String getClientCertificateCommonName(SslHandler sslHandler) throws AuthenticationException {
         X509Certificate[] certificates;
         try {
-            certificates = (X509Certificate[]) sslHandler.engine().getSession().getPeerCertificates();
+            certificates = SslUtil.getPeerCertificates(sslHandler.engine().getSession());
             return SslUtil.parseCommonName(certificates[0]);
         } catch (Exception e) {
             log.error(FAILED_TO_GET_CLIENT_CERT_CN.getErrorMsg(), e);
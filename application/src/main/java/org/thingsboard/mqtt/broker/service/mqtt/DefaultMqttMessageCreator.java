@@ -46,7 +46,7 @@ import org.thingsboard.mqtt.broker.actors.client.messages.ConnectionAcceptedMsg;
 import org.thingsboard.mqtt.broker.actors.client.state.ClientActorStateInfo;
 import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
 import org.thingsboard.mqtt.broker.common.data.util.StringUtils;
-import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+import org.thingsboard.mqtt.broker.service.mqtt.retain.OffHeapRetainedMsg;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsg;
 import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
 import org.thingsboard.mqtt.broker.util.MqttPropertiesUtil;
@@ -213,23 +213,36 @@ public class DefaultMqttMessageCreator implements MqttMessageGenerator {
     }
 
     @Override
-    public MqttPublishMessage createPubMsg(PublishMsgProto msg, int qos, boolean retain, String topicName, int packetId, MqttProperties properties) {
-        return getMqttPublishMessage(false, qos, retain, topicName, packetId, msg.getPayload().toByteArray(), properties);
+    public MqttPublishMessage createPubMsg(ByteBuf payload, int qos, boolean retain, String topicName, int packetId, MqttProperties properties) {
+        return getMqttPublishMessage(false, qos, retain, topicName, packetId, payload, properties);
     }
 
     @Override
     public MqttPublishMessage createPubRetainMsg(int msgId, RetainedMsg retainedMsg) {
+        if (retainedMsg instanceof OffHeapRetainedMsg offHeapRetainedMsg) {
+            return offHeapRetainedMsg.readContent((payloadBuf, properties) -> {
+                ByteBuf payload = ALLOCATOR.buffer(payloadBuf.readableBytes());
+                payload.writeBytes(payloadBuf);
+                return getMqttPublishMessage(false, retainedMsg.getQos(), true,
+                        retainedMsg.getTopic(), msgId, payload, properties);
+            });
+        }
         return getMqttPublishMessage(false, retainedMsg.getQos(), true,
                 retainedMsg.getTopic(), msgId, retainedMsg.getPayload(), retainedMsg.getProperties());
     }
 
     private MqttPublishMessage getMqttPublishMessage(boolean isDup, int qos, boolean isRetain,
                                                      String topic, int packetId, byte[] payloadBytes, MqttProperties properties) {
+        ByteBuf payload = ALLOCATOR.buffer();
+        payload.writeBytes(payloadBytes);
+        return getMqttPublishMessage(isDup, qos, isRetain, topic, packetId, payload, properties);
+    }
+
+    private MqttPublishMessage getMqttPublishMessage(boolean isDup, int qos, boolean isRetain,
+                                                     String topic, int packetId, ByteBuf payload, MqttProperties properties) {
         MqttFixedHeader mqttFixedHeader =
                 new MqttFixedHeader(MqttMessageType.PUBLISH, isDup, MqttQoS.valueOf(qos), isRetain, 0);
         MqttPublishVariableHeader header = new MqttPublishVariableHeader(topic, packetId, properties);
-        ByteBuf payload = ALLOCATOR.buffer();
-        payload.writeBytes(payloadBytes);
         return new MqttPublishMessage(mqttFixedHeader, header, payload);
     }
 
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.service.mqtt;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.mqtt.MqttMessage;
 import io.netty.handler.codec.mqtt.MqttProperties;
 import io.netty.handler.codec.mqtt.MqttPublishMessage;
@@ -25,6 +26,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.thingsboard.mqtt.broker.adaptor.ProtoConverter;
 import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.DownLinkTargetProto;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
 import org.thingsboard.mqtt.broker.service.historical.stats.TbMessageStatsReportClient;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsg;
@@ -91,18 +93,23 @@ public class DefaultPublishMsgDeliveryService implements PublishMsgDeliveryServi
 
     @Override
     public void sendPublishMsgProtoToClient(ClientSessionCtx sessionCtx, PublishMsgProto msg) {
-        sendPublishMsgProtoToClient(sessionCtx, msg, msg.getQos(), msg.getRetain(), null);
+        sendPublishMsgProtoToClient(sessionCtx, msg, msg.getQos(), msg.getRetain(), null, ProtoConverter.wrapPayload(msg));
     }
 
     @Override
-    public void sendPublishMsgProtoToClient(ClientSessionCtx sessionCtx, PublishMsgProto msg, Subscription subscription) {
+    public void sendPublishMsgProtoToClient(ClientSessionCtx sessionCtx, PublishMsgProto msg, Subscription subscription, ByteBuf payload) {
         int qos = MqttQosUtil.downgradeQos(subscription, msg);
         boolean retain = subscription.getOptions().isRetain(msg.getRetain());
-        sendPublishMsgProtoToClient(sessionCtx, msg, qos, retain, subscription.getSubscriptionIds());
+        sendPublishMsgProtoToClient(sessionCtx, msg, qos, retain, subscription.getSubscriptionIds(), payload.retainedDuplicate());
+    }
+
+    @Override
+    public void sendPublishMsgProtoToClient(ClientSessionCtx sessionCtx, PublishMsgProto msg, DownLinkTargetProto target, ByteBuf payload) {
+        sendPublishMsgProtoToClient(sessionCtx, msg, target.getQos(), target.getRetain(), target.getSubscriptionIdsList(), payload.retainedDuplicate());
     }
 
     private void sendPublishMsgProtoToClient(ClientSessionCtx sessionCtx, PublishMsgProto msg, int qos, boolean retain,
-                                             List<Integer> subscriptionIds) {
+                                             List<Integer> subscriptionIds, ByteBuf payload) {
         if (isTraceEnabled) {
             log.trace("[{}] Executing sendPublishMsgProtoToClient [{}][{}][{}]", sessionCtx.getClientId(), msg, qos, retain);
         }
@@ -120,7 +127,7 @@ public class DefaultPublishMsgDeliveryService implements PublishMsgDeliveryServi
 
         String topicName = topicAliasResult == null ? msg.getTopicName() : topicAliasResult.getTopicName();
         int packetId = sessionCtx.getMsgIdSeq().nextMsgId();
-        MqttPublishMessage mqttPubMsg = mqttMessageGenerator.createPubMsg(msg, qos, retain, topicName, packetId, properties);
+        MqttPublishMessage mqttPubMsg = mqttMessageGenerator.createPubMsg(payload, qos, retain, topicName, packetId, properties);
 
         tbMessageStatsReportClient.reportStats(OUTGOING_MSGS);
         tbMessageStatsReportClient.reportClientReceiveStats(sessionCtx.getClientId(), qos);
@@ -146,6 +153,12 @@ public class DefaultPublishMsgDeliveryService implements PublishMsgDeliveryServi
         }
         int packetId = sessionCtx.getMsgIdSeq().nextMsgId();
         MqttPublishMessage mqttPubMsg = mqttMessageGenerator.createPubRetainMsg(packetId, retainedMsg);
+        if (mqttPubMsg == null) {
+            if (isTraceEnabled) {
+                log.trace("[{}] Retained msg for topic {} was replaced or cleared, skipping it", sessionCtx.getClientId(), retainedMsg.getTopic());
+            }
+            return;
+        }
         tbMessageStatsReportClient.reportStats(OUTGOING_MSGS);
         tbMessageStatsReportClient.reportClientReceiveStats(sessionCtx.getClientId(), retainedMsg.getQos());
         sendPublishMsgToClient(sessionCtx, mqttPubMsg);
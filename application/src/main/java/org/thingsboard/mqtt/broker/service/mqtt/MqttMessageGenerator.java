@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.service.mqtt;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.mqtt.MqttConnAckMessage;
 import io.netty.handler.codec.mqtt.MqttConnectReturnCode;
 import io.netty.handler.codec.mqtt.MqttMessage;
@@ -26,7 +27,6 @@ import io.netty.handler.codec.mqtt.MqttSubAckMessage;
 import org.thingsboard.mqtt.broker.actors.client.messages.ConnectionAcceptedMsg;
 import org.thingsboard.mqtt.broker.actors.client.state.ClientActorStateInfo;
 import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
-import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsg;
 
 import java.util.List;
@@ -53,8 +53,14 @@ public interface MqttMessageGenerator {
 
     MqttPublishMessage createPubMsg(DevicePublishMsg pubMsg, boolean isDup);
 
-    MqttPublishMessage createPubMsg(PublishMsgProto publishMsgProto, int qos, boolean retain, String topicName, int packetId, MqttProperties properties);
+    /**
+     * The payload is not copied, the created message takes over one reference of it.
+     */
+    MqttPublishMessage createPubMsg(ByteBuf payload, int qos, boolean retain, String topicName, int packetId, MqttProperties properties);
 
+    /**
+     * @return null if the content of the off-heap retained msg was released, i.e. the retained msg was replaced or cleared meanwhile
+     */
     MqttPublishMessage createPubRetainMsg(int msgId, RetainedMsg retainedMsg);
 
     MqttMessage createPingRespMsg();
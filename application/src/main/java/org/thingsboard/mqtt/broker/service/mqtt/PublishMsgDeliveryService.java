@@ -15,7 +15,9 @@
  */
 package org.thingsboard.mqtt.broker.service.mqtt;
 
+import io.netty.buffer.ByteBuf;
 import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.DownLinkTargetProto;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsg;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
@@ -27,7 +29,15 @@ public interface PublishMsgDeliveryService {
 
     void sendPublishMsgProtoToClient(ClientSessionCtx sessionCtx, PublishMsgProto publishMsgProto);
 
-    void sendPublishMsgProtoToClient(ClientSessionCtx sessionCtx, PublishMsgProto publishMsgProto, Subscription subscription);
+    /**
+     * @param payload payload of the publishMsgProto wrapped once for all subscribers, a retained duplicate of it is sent to the client
+     */
+    void sendPublishMsgProtoToClient(ClientSessionCtx sessionCtx, PublishMsgProto publishMsgProto, Subscription subscription, ByteBuf payload);
+
+    /**
+     * @param payload payload of the publishMsgProto wrapped once for all targets, a retained duplicate of it is sent to the client
+     */
+    void sendPublishMsgProtoToClient(ClientSessionCtx sessionCtx, PublishMsgProto publishMsgProto, DownLinkTargetProto target, ByteBuf payload);
 
     void sendPublishMsgToClientWithoutFlush(ClientSessionCtx sessionCtx, PublishMsg publishMsg);
 
@@ -24,4 +24,6 @@ public interface ClientSessionCallbackMsgFactory {
 
     SessionClusterManagementMsg createSessionClusterManagementMsg(TbProtoQueueMsg<QueueProtos.ClientSessionEventProto> msg, ClientCallback callback);
 
+    SessionClusterManagementMsg createSessionClusterManagementMsg(QueueProtos.ClientSessionEventRequestProto event, ClientCallback callback);
+
 }
@@ -30,6 +30,7 @@ import org.thingsboard.mqtt.broker.queue.TbQueueMsgHeaders;
 import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
 
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static org.thingsboard.mqtt.broker.common.data.BrokerConstants.REQUEST_ID_HEADER;
 import static org.thingsboard.mqtt.broker.common.data.BrokerConstants.REQUEST_TIME;
@@ -43,13 +44,22 @@ public class ClientSessionCallbackMsgFactoryImpl implements ClientSessionCallbac
 
     @Override
     public SessionClusterManagementMsg createSessionClusterManagementMsg(TbProtoQueueMsg<QueueProtos.ClientSessionEventProto> msg, ClientCallback callback) {
-        QueueProtos.ClientSessionEventProto eventProto = msg.getValue();
+        return createSessionClusterManagementMsg(msg.getValue(), () -> getConnectionRequestInfo(msg), callback);
+    }
+
+    @Override
+    public SessionClusterManagementMsg createSessionClusterManagementMsg(QueueProtos.ClientSessionEventRequestProto event, ClientCallback callback) {
+        return createSessionClusterManagementMsg(event.getEvent(), () -> getConnectionRequestInfo(event), callback);
+    }
+
+    private SessionClusterManagementMsg createSessionClusterManagementMsg(QueueProtos.ClientSessionEventProto eventProto,
+                                                                          Supplier<ConnectionRequestInfo> connectionRequestInfoSupplier,
+                                                                          ClientCallback callback) {
         SessionInfo sessionInfo;
         switch (ClientSessionEventType.valueOf(eventProto.getEventType())) {
             case CONNECTION_REQUEST:
                 sessionInfo = getSessionInfo(eventProto);
-                ConnectionRequestInfo connectionRequestInfo = getConnectionRequestInfo(msg);
-                return new ConnectionRequestMsg(callback, sessionInfo, connectionRequestInfo);
+                return new ConnectionRequestMsg(callback, sessionInfo, connectionRequestInfoSupplier.get());
             case DISCONNECTION_REQUEST:
                 sessionInfo = getSessionInfo(eventProto);
                 return new SessionDisconnectedMsg(callback, sessionInfo.getSessionId(), sessionInfo.getSessionExpiryInterval());
@@ -74,4 +84,9 @@ public class ClientSessionCallbackMsgFactoryImpl implements ClientSessionCallbac
         String responseTopic = bytesToString(requestHeaders.get(RESPONSE_TOPIC_HEADER));
         return new ConnectionRequestInfo(requestId, requestTime, responseTopic);
     }
+
+    private ConnectionRequestInfo getConnectionRequestInfo(QueueProtos.ClientSessionEventRequestProto event) {
+        UUID requestId = new UUID(event.getRequestIdMSB(), event.getRequestIdLSB());
+        return new ConnectionRequestInfo(requestId, event.getRequestTime(), event.getResponseTopic());
+    }
 }
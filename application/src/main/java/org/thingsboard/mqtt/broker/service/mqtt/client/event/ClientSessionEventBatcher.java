@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.client.event;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Collects client session events (or responses to them) per target key and hands them over in batches,
+ * either when a batch is full or on {@link #flush()}. Batches of the same key are handed over in the order
+ * the items were added.
+ */
+@Slf4j
+public class ClientSessionEventBatcher<K, T> {
+
+    private final ConcurrentMap<K, PendingBatch<T>> batches = new ConcurrentHashMap<>();
+    private final int maxBatchSize;
+    private final BiConsumer<K, List<T>> batchSender;
+
+    public ClientSessionEventBatcher(int maxBatchSize, BiConsumer<K, List<T>> batchSender) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchSender = batchSender;
+    }
+
+    public void add(K key, T item) {
+        PendingBatch<T> batch = batches.computeIfAbsent(key, k -> new PendingBatch<>());
+        synchronized (batch) {
+            batch.items.add(item);
+            if (batch.items.size() >= maxBatchSize) {
+                send(key, batch);
+            }
+        }
+    }
+
+    public void flush() {
+        batches.forEach((key, batch) -> {
+            synchronized (batch) {
+                if (!batch.items.isEmpty()) {
+                    send(key, batch);
+                }
+            }
+        });
+    }
+
+    private void send(K key, PendingBatch<T> batch) {
+        List<T> items = batch.items;
+        batch.items = new ArrayList<>();
+        try {
+            batchSender.accept(key, items);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to send batch of {} client session events.", key, items.size(), e);
+        }
+    }
+
+    private static class PendingBatch<T> {
+        private List<T> items = new ArrayList<>();
+    }
+}
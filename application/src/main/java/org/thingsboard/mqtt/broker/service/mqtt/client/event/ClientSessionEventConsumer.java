@@ -17,4 +17,14 @@ package org.thingsboard.mqtt.broker.service.mqtt.client.event;
 
 public interface ClientSessionEventConsumer {
     void startConsuming();
+
+    /**
+     * Whether the client session events of the client are consumed by this node at the moment
+     */
+    boolean isOwnedLocally(String clientId);
+
+    /**
+     * Partition of the client session event topic the events of the client are sent to, -1 if consumers are not started yet
+     */
+    int getEventPartition(String clientId);
 }
@@ -33,19 +33,20 @@ import org.thingsboard.mqtt.broker.queue.provider.ClientSessionEventQueueFactory
 import org.thingsboard.mqtt.broker.service.stats.ClientSessionEventConsumerStats;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class ClientSessionEventConsumerImpl implements ClientSessionEventConsumer {
 
-    private final List<TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.ClientSessionEventProto>>> eventConsumers = new ArrayList<>();
+    private final List<TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.ClientSessionEventProto>>> eventConsumers = new CopyOnWriteArrayList<>();
 
     private final ClientSessionEventQueueFactory clientSessionEventQueueFactory;
     private final ClientSessionCallbackMsgFactory callbackMsgFactory;
@@ -80,6 +81,28 @@ public class ClientSessionEventConsumerImpl implements ClientSessionEventConsume
         consumersExecutor.submit(() -> processClientSessionEvents(eventConsumer, stats));
     }
 
+    @Override
+    public boolean isOwnedLocally(String clientId) {
+        if (stopped || eventConsumers.isEmpty()) {
+            return false;
+        }
+        int partition = getEventPartition(clientId);
+        for (var eventConsumer : eventConsumers) {
+            if (eventConsumer.getAssignedPartitions().contains(partition)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getEventPartition(String clientId) {
+        if (eventConsumers.isEmpty()) {
+            return -1;
+        }
+        return eventConsumers.get(0).getPartitionForKey(clientId);
+    }
+
     private void processClientSessionEvents(TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.ClientSessionEventProto>> consumer, ClientSessionEventConsumerStats stats) {
         while (!stopped) {
             try {
@@ -112,28 +135,16 @@ public class ClientSessionEventConsumerImpl implements ClientSessionEventConsume
     }
 
     private void processMessages(List<TbProtoQueueMsg<QueueProtos.ClientSessionEventProto>> msgs) {
-        CountDownLatch latch = new CountDownLatch(msgs.size());
+        CountDownLatch latch = new CountDownLatch(countEvents(msgs));
         for (TbProtoQueueMsg<QueueProtos.ClientSessionEventProto> msg : msgs) {
-            String clientId = msg.getKey();
-
-            ClientCallback callback = new ClientCallback() {
-                @Override
-                public void onSuccess() {
-                    latch.countDown();
+            if (msg.getValue().getEventsCount() > 0) {
+                for (QueueProtos.ClientSessionEventRequestProto event : msg.getValue().getEventsList()) {
+                    sendToActor(event.getClientId(), event.getEvent().getEventType(), latch,
+                            callback -> callbackMsgFactory.createSessionClusterManagementMsg(event, callback));
                 }
-
-                @Override
-                public void onFailure(Throwable t) {
-                    log.warn("[{}] Failed to process {} msg.", clientId, msg.getValue().getEventType(), t);
-                    latch.countDown();
-                }
-            };
-
-            SessionClusterManagementMsg sessionClusterManagementMsg = callbackMsgFactory.createSessionClusterManagementMsg(msg, callback);
-            try {
-                clientSessionEventActorManager.sendSessionClusterManagementMsg(clientId, sessionClusterManagementMsg);
-            } catch (Exception e) {
-                log.warn("[{}] Failed to send {} msg to actor.", clientId, sessionClusterManagementMsg.getMsgType(), e);
+            } else {
+                sendToActor(msg.getKey(), msg.getValue().getEventType(), latch,
+                        callback -> callbackMsgFactory.createSessionClusterManagementMsg(msg, callback));
             }
         }
 
@@ -148,6 +159,37 @@ public class ClientSessionEventConsumerImpl implements ClientSessionEventConsume
         }
     }
 
+    private int countEvents(List<TbProtoQueueMsg<QueueProtos.ClientSessionEventProto>> msgs) {
+        int count = 0;
+        for (TbProtoQueueMsg<QueueProtos.ClientSessionEventProto> msg : msgs) {
+            count += Math.max(1, msg.getValue().getEventsCount());
+        }
+        return count;
+    }
+
+    private void sendToActor(String clientId, String eventType, CountDownLatch latch,
+                             Function<ClientCallback, SessionClusterManagementMsg> msgFactory) {
+        ClientCallback callback = new ClientCallback() {
+            @Override
+            public void onSuccess() {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("[{}] Failed to process {} msg.", clientId, eventType, t);
+                latch.countDown();
+            }
+        };
+
+        SessionClusterManagementMsg sessionClusterManagementMsg = msgFactory.apply(callback);
+        try {
+            clientSessionEventActorManager.sendSessionClusterManagementMsg(clientId, sessionClusterManagementMsg);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to send {} msg to actor.", clientId, sessionClusterManagementMsg.getMsgType(), e);
+        }
+    }
+
     @PreDestroy
     public void destroy() {
         stopped = true;
@@ -17,6 +17,7 @@ package org.thingsboard.mqtt.broker.service.mqtt.client.event;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -26,6 +27,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.time.StopWatch;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.thingsboard.mqtt.broker.actors.client.messages.ClientCallback;
+import org.thingsboard.mqtt.broker.actors.client.messages.ConnectionRequestInfo;
+import org.thingsboard.mqtt.broker.actors.client.messages.cluster.ConnectionRequestMsg;
 import org.thingsboard.mqtt.broker.adaptor.ProtoConverter;
 import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
 import org.thingsboard.mqtt.broker.common.data.ClientInfo;
@@ -34,14 +38,18 @@ import org.thingsboard.mqtt.broker.common.data.SessionInfo;
 import org.thingsboard.mqtt.broker.common.data.util.BytesUtil;
 import org.thingsboard.mqtt.broker.common.util.ThingsBoardExecutors;
 import org.thingsboard.mqtt.broker.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.mqtt.broker.exception.ConnectFastPathConflictException;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
 import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
+import org.thingsboard.mqtt.broker.queue.TbQueueConsumer;
 import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
 import org.thingsboard.mqtt.broker.queue.TbQueueMsgMetadata;
 import org.thingsboard.mqtt.broker.queue.TbQueueProducer;
 import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
 import org.thingsboard.mqtt.broker.queue.provider.ClientSessionEventQueueFactory;
+import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionCache;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -63,14 +71,15 @@ import static org.thingsboard.mqtt.broker.common.data.BrokerConstants.RESPONSE_T
 public class DefaultClientSessionEventService implements ClientSessionEventService {
 
     private final ConcurrentMap<UUID, EventFuture> pendingRequests = new ConcurrentHashMap<>();
-    private final ExecutorService responseConsumerExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("client-session-event-response-consumer"));
-    private final AtomicLong tickTs = new AtomicLong();
-    private final AtomicLong nextCleanupMs = new AtomicLong();
+    private final List<TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>>> eventResponseConsumers = new ArrayList<>();
     private final AtomicLong tickSize = new AtomicLong();
 
     private final ClientSessionEventQueueFactory clientSessionEventQueueFactory;
     private final ServiceInfoProvider serviceInfoProvider;
     private final ClientSessionEventFactory eventFactory;
+    private final ClientSessionEventConsumer clientSessionEventConsumer;
+    private final ClientSessionEventActorManager clientSessionEventActorManager;
+    private final ClientSessionCache clientSessionCache;
 
     @Value("${queue.client-session-event.max-pending-requests}")
     private long maxPendingRequests;
@@ -80,19 +89,41 @@ public class DefaultClientSessionEventService implements ClientSessionEventServi
     private long cleanupInterval;
     @Value("${queue.client-session-event-response.max-request-timeout}")
     private long maxRequestTimeout;
-
+    @Value("${queue.client-session-event-response.consumers-count:1}")
+    private int responseConsumersCount;
+    @Value("${queue.client-session-event.connect-fast-path.enabled:false}")
+    private boolean connectFastPathEnabled;
+    @Value("${queue.client-session-event.batching.enabled:false}")
+    private boolean batchingEnabled;
+    @Value("${queue.client-session-event.batching.max-batch-size:500}")
+    private int maxBatchSize;
+    @Value("${queue.client-session-event.batching.linger-ms:5}")
+    private long lingerMs;
+
+    private ExecutorService responseConsumersExecutor;
     private ScheduledExecutorService cleanupStaleRequestsScheduler;
+    private ScheduledExecutorService batchFlushScheduler;
+    private RequestTimeoutWheel requestTimeoutWheel;
+    private ClientSessionEventBatcher<Integer, PendingEvent> eventBatcher;
     private TbQueueProducer<TbProtoQueueMsg<QueueProtos.ClientSessionEventProto>> eventProducer;
-    private TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>> eventResponseConsumer;
+    private String responseTopic;
 
     private volatile boolean stopped = false;
 
     @PostConstruct
     public void init() {
         this.eventProducer = clientSessionEventQueueFactory.createEventProducer(serviceInfoProvider.getServiceId());
-        this.eventResponseConsumer = clientSessionEventQueueFactory.createEventResponseConsumer(serviceInfoProvider.getServiceId());
+        this.responseConsumersCount = Math.max(1, responseConsumersCount);
+        for (int i = 0; i < responseConsumersCount; i++) {
+            eventResponseConsumers.add(clientSessionEventQueueFactory.createEventResponseConsumer(serviceInfoProvider.getServiceId(), i));
+        }
+        this.responseTopic = eventResponseConsumers.get(0).getTopic();
+        this.requestTimeoutWheel = new RequestTimeoutWheel(cleanupInterval, maxRequestTimeout);
         startProcessingEventResponses();
         startStaleRequestsCleanup();
+        if (batchingEnabled) {
+            startBatching();
+        }
     }
 
     @Override
@@ -101,6 +132,13 @@ public class DefaultClientSessionEventService implements ClientSessionEventServi
             return Futures.immediateFailedFuture(new RuntimeException("Cannot send CONNECTION_REQUEST. Pending request map is full!"));
         }
 
+        if (connectFastPathEnabled && isConnectFastPathApplicable(sessionInfo)) {
+            return requestConnectionLocally(sessionInfo);
+        }
+        return sendConnectionRequestEvent(sessionInfo);
+    }
+
+    private ListenableFuture<ConnectionResponse> sendConnectionRequestEvent(SessionInfo sessionInfo) {
         return sendEvent(
                 sessionInfo.getClientInfo().getClientId(),
                 eventFactory.createConnectionRequestEventProto(sessionInfo),
@@ -108,6 +146,53 @@ public class DefaultClientSessionEventService implements ClientSessionEventServi
                 null);
     }
 
+    /**
+     * All the session changes of the client are made by its actor on the node that consumes the client's partition
+     * of the client session event topic, and that node updates its ClientSessionCache synchronously.
+     * So when this node owns the partition and has no session for a clean-start client, the request
+     * can be handed to the actor directly. If the session appears in the meantime, the actor rejects the request
+     * and it is retried through the queue.
+     */
+    boolean isConnectFastPathApplicable(SessionInfo sessionInfo) {
+        String clientId = sessionInfo.getClientInfo().getClientId();
+        return sessionInfo.isCleanStart()
+                && clientSessionCache.getClientSession(clientId) == null
+                && clientSessionEventConsumer.isOwnedLocally(clientId);
+    }
+
+    ListenableFuture<ConnectionResponse> requestConnectionLocally(SessionInfo sessionInfo) {
+        String clientId = sessionInfo.getClientInfo().getClientId();
+        UUID requestId = UUID.randomUUID();
+        SettableFuture<ConnectionResponse> future = SettableFuture.create();
+        ConnectionRequestInfo requestInfo = new ConnectionRequestInfo(requestId, System.currentTimeMillis(), null, future);
+        if (log.isTraceEnabled()) {
+            log.trace("[{}][{}] Processing connection request on the fast-path.", clientId, requestId);
+        }
+        ClientCallback callback = new ClientCallback() {
+            @Override
+            public void onSuccess() {
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.setException(t);
+            }
+        };
+        try {
+            clientSessionEventActorManager.sendSessionClusterManagementMsg(clientId, new ConnectionRequestMsg(callback, sessionInfo, requestInfo));
+        } catch (Exception e) {
+            future.setException(e);
+        }
+        ListenableFuture<ConnectionResponse> responseFuture = cleanupStaleRequestsScheduler != null ?
+                Futures.withTimeout(future, maxRequestTimeout, TimeUnit.MILLISECONDS, cleanupStaleRequestsScheduler) : future;
+        return Futures.catchingAsync(responseFuture, ConnectFastPathConflictException.class, e -> {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}][{}] Falling back to the connection request event: {}", clientId, requestId, e.getMessage());
+            }
+            return sendConnectionRequestEvent(sessionInfo);
+        }, MoreExecutors.directExecutor());
+    }
+
     @Override
     public void notifyClientDisconnected(ClientInfo clientInfo, UUID sessionId, int sessionExpiryInterval) {
         sendEvent(
@@ -156,12 +241,12 @@ public class DefaultClientSessionEventService implements ClientSessionEventServi
     private ListenableFuture<ConnectionResponse> sendEvent(String clientId, QueueProtos.ClientSessionEventProto eventProto,
                                                            boolean isAwaitingResponse, TbQueueCallback callback) {
         UUID requestId = UUID.randomUUID();
-        TbProtoQueueMsg<QueueProtos.ClientSessionEventProto> eventRequest = generateRequest(clientId, eventProto, requestId);
 
         SettableFuture<ConnectionResponse> future = SettableFuture.create();
         if (isAwaitingResponse) {
-            EventFuture eventFuture = new EventFuture(tickTs.get() + maxRequestTimeout, future);
-            pendingRequests.putIfAbsent(requestId, eventFuture);
+            long expTime = System.currentTimeMillis() + maxRequestTimeout;
+            pendingRequests.putIfAbsent(requestId, new EventFuture(expTime, future));
+            requestTimeoutWheel.add(requestId, expTime);
         }
         if (log.isTraceEnabled()) {
             log.trace("[{}][{}][{}] Sending client session event request.", clientId, eventProto.getEventType(), requestId);
@@ -185,43 +270,91 @@ public class DefaultClientSessionEventService implements ClientSessionEventServi
                 }
             }
         };
-        eventProducer.send(eventRequest, callback != null ? callback : tbQueueCallback);
+        int partition = batchingEnabled ? clientSessionEventConsumer.getEventPartition(clientId) : -1;
+        if (partition >= 0) {
+            eventBatcher.add(partition, new PendingEvent(clientId, requestId, eventProto, callback != null ? callback : tbQueueCallback));
+        } else {
+            eventProducer.send(generateRequest(clientId, eventProto, requestId), callback != null ? callback : tbQueueCallback);
+        }
         return future;
     }
 
+    private void sendEventsBatch(int partition, List<PendingEvent> events) {
+        long requestTime = System.currentTimeMillis();
+        QueueProtos.ClientSessionEventProto.Builder batchProto = QueueProtos.ClientSessionEventProto.newBuilder();
+        for (PendingEvent event : events) {
+            batchProto.addEvents(QueueProtos.ClientSessionEventRequestProto.newBuilder()
+                    .setClientId(event.clientId)
+                    .setEvent(event.eventProto)
+                    .setRequestIdMSB(event.requestId.getMostSignificantBits())
+                    .setRequestIdLSB(event.requestId.getLeastSignificantBits())
+                    .setRequestTime(requestTime)
+                    .setResponseTopic(responseTopic)
+                    .build());
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("[{}] Sending batch of {} client session events.", partition, events.size());
+        }
+        eventProducer.send(eventProducer.getDefaultTopic(), partition, new TbProtoQueueMsg<>(events.get(0).clientId, batchProto.build()),
+                new TbQueueCallback() {
+                    @Override
+                    public void onSuccess(TbQueueMsgMetadata metadata) {
+                        events.forEach(event -> event.callback.onSuccess(metadata));
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        events.forEach(event -> event.callback.onFailure(t));
+                    }
+                });
+    }
+
     private TbProtoQueueMsg<QueueProtos.ClientSessionEventProto> generateRequest(String clientId, QueueProtos.ClientSessionEventProto clientSessionEventProto, UUID requestId) {
         TbProtoQueueMsg<QueueProtos.ClientSessionEventProto> eventRequest = new TbProtoQueueMsg<>(clientId, clientSessionEventProto);
         eventRequest.getHeaders().put(REQUEST_ID_HEADER, BytesUtil.uuidToBytes(requestId));
         eventRequest.getHeaders().put(REQUEST_TIME, BytesUtil.longToBytes(System.currentTimeMillis()));
-        eventRequest.getHeaders().put(RESPONSE_TOPIC_HEADER, BytesUtil.stringToBytes(eventResponseConsumer.getTopic()));
+        eventRequest.getHeaders().put(RESPONSE_TOPIC_HEADER, BytesUtil.stringToBytes(responseTopic));
         return eventRequest;
     }
 
     private void startProcessingEventResponses() {
-        eventResponseConsumer.subscribe();
-        responseConsumerExecutor.execute(() -> {
-            while (!stopped) {
-                try {
-                    List<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>> eventResponseList = eventResponseConsumer.poll(pollDuration);
-                    if (!eventResponseList.isEmpty()) {
-                        if (log.isTraceEnabled()) {
-                            log.trace("Read {} event responses.", eventResponseList.size());
-                        }
-                    } else {
-                        continue;
-                    }
-                    for (TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto> eventResponseMsg : eventResponseList) {
-                        processEventResponse(eventResponseMsg);
+        this.responseConsumersExecutor = Executors.newFixedThreadPool(responseConsumersCount, ThingsBoardThreadFactory.forName("client-session-event-response-consumer"));
+        for (var eventResponseConsumer : eventResponseConsumers) {
+            eventResponseConsumer.subscribe();
+            responseConsumersExecutor.execute(() -> processEventResponses(eventResponseConsumer));
+        }
+    }
+
+    private void processEventResponses(TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>> eventResponseConsumer) {
+        while (!stopped) {
+            try {
+                List<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>> eventResponseList = eventResponseConsumer.poll(pollDuration);
+                if (!eventResponseList.isEmpty()) {
+                    if (log.isTraceEnabled()) {
+                        log.trace("Read {} event responses.", eventResponseList.size());
                     }
-                    eventResponseConsumer.commitSync();
-                } catch (Throwable e) {
-                    processingEventResponseError(e);
+                } else {
+                    continue;
+                }
+                for (TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto> eventResponseMsg : eventResponseList) {
+                    processEventResponse(eventResponseMsg);
                 }
+                eventResponseConsumer.commitSync();
+            } catch (Throwable e) {
+                processingEventResponseError(e);
             }
-        });
+        }
     }
 
-    private void processEventResponse(TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto> eventResponseMsg) {
+    void processEventResponse(TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto> eventResponseMsg) {
+        QueueProtos.ClientSessionEventResponseProto responseProto = eventResponseMsg.getValue();
+        if (responseProto.getResponsesCount() > 0) {
+            for (QueueProtos.ClientSessionEventResponseItemProto response : responseProto.getResponsesList()) {
+                completeRequest(new UUID(response.getRequestIdMSB(), response.getRequestIdLSB()),
+                        new ConnectionResponse(response.getSuccess(), response.getSessionPresent()));
+            }
+            return;
+        }
         byte[] requestIdBytes = eventResponseMsg.getHeaders().get(REQUEST_ID_HEADER);
         if (requestIdBytes == null) {
             log.error("Missing requestId. Msg - {}.", eventResponseMsg);
@@ -231,13 +364,16 @@ public class DefaultClientSessionEventService implements ClientSessionEventServi
         if (log.isTraceEnabled()) {
             log.trace("[{}] Event response received: {}", requestId, eventResponseMsg);
         }
+        completeRequest(requestId, ProtoConverter.toConnectionResponse(responseProto));
+    }
+
+    private void completeRequest(UUID requestId, ConnectionResponse connectionResponse) {
         EventFuture eventFuture = pendingRequests.remove(requestId);
         if (eventFuture == null) {
             if (log.isDebugEnabled()) {
                 log.debug("[{}] Invalid or stale request.", requestId);
             }
         } else {
-            ConnectionResponse connectionResponse = ProtoConverter.toConnectionResponse(eventResponseMsg.getValue());
             eventFuture.future.set(connectionResponse);
         }
     }
@@ -262,34 +398,42 @@ public class DefaultClientSessionEventService implements ClientSessionEventServi
     private void startStaleRequestsCleanup() {
         this.cleanupStaleRequestsScheduler = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("client-session-event-response-clean-up-scheduler"));
         cleanupStaleRequestsScheduler.scheduleWithFixedDelay(() -> {
-            tickTs.getAndSet(System.currentTimeMillis());
-            if (nextCleanupMs.get() < tickTs.get()) {
-                cleanup();
-            }
+            cleanup(System.currentTimeMillis());
             tickSize.getAndSet(pendingRequests.size());
         }, cleanupInterval, cleanupInterval, TimeUnit.MILLISECONDS);
     }
 
-    private void cleanup() {
-        pendingRequests.forEach((key, eventFuture) -> {
-            if (eventFuture.expTime < tickTs.get()) {
-                EventFuture staleRequest = pendingRequests.remove(key);
-                if (staleRequest != null) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("[{}] Request timeout detected, expTime [{}], tickTs [{}]", key, staleRequest.expTime, tickTs);
-                    }
-                    staleRequest.future.setException(new TimeoutException());
-                }
+    void cleanup(long now) {
+        requestTimeoutWheel.expire(now, requestId -> {
+            EventFuture staleRequest = pendingRequests.remove(requestId);
+            if (staleRequest == null) {
+                return false;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Request timeout detected, expTime [{}], now [{}]", requestId, staleRequest.expTime, now);
             }
+            staleRequest.future.setException(new TimeoutException());
+            return true;
         });
-        nextCleanupMs.getAndSet(tickTs.get() + maxRequestTimeout);
+    }
+
+    private void startBatching() {
+        this.eventBatcher = new ClientSessionEventBatcher<>(maxBatchSize, this::sendEventsBatch);
+        this.batchFlushScheduler = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("client-session-event-batch-flush-scheduler"));
+        batchFlushScheduler.scheduleWithFixedDelay(eventBatcher::flush, lingerMs, lingerMs, TimeUnit.MILLISECONDS);
     }
 
     @PreDestroy
     public void destroy() {
         stopped = true;
 
-        ThingsBoardExecutors.shutdownAndAwaitTermination(responseConsumerExecutor, "Client session event response consumer");
+        if (responseConsumersExecutor != null) {
+            ThingsBoardExecutors.shutdownAndAwaitTermination(responseConsumersExecutor, "Client session event response consumer");
+        }
+        if (batchFlushScheduler != null) {
+            ThingsBoardExecutors.shutdownAndAwaitTermination(batchFlushScheduler, "Client session event batch flush");
+            eventBatcher.flush();
+        }
         if (cleanupStaleRequestsScheduler != null) {
             ThingsBoardExecutors.shutdownAndAwaitTermination(cleanupStaleRequestsScheduler, "Client session cleanup");
         }
@@ -303,9 +447,7 @@ public class DefaultClientSessionEventService implements ClientSessionEventServi
             stopWatch.stop();
             log.info("Client Session Event producer stopped for {} ms.", stopWatch.getTime());
         }
-        if (eventResponseConsumer != null) {
-            eventResponseConsumer.unsubscribeAndClose();
-        }
+        eventResponseConsumers.forEach(TbQueueConsumer::unsubscribeAndClose);
     }
 
     @AllArgsConstructor
@@ -313,4 +455,12 @@ public class DefaultClientSessionEventService implements ClientSessionEventServi
         private final long expTime;
         private final SettableFuture<ConnectionResponse> future;
     }
+
+    @AllArgsConstructor
+    private static class PendingEvent {
+        private final String clientId;
+        private final UUID requestId;
+        private final QueueProtos.ClientSessionEventProto eventProto;
+        private final TbQueueCallback callback;
+    }
 }
@@ -0,0 +1,83 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.client.event;
+
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+/**
+ * Timing wheel of pending request ids. A request is put to the bucket of the tick it expires at,
+ * so each {@link #expire(long, Predicate)} call only looks at the buckets whose time has come
+ * instead of scanning all the pending requests. Ids of requests that got a response are left in the buckets
+ * and are skipped by the expiration handler.
+ */
+class RequestTimeoutWheel {
+
+    private final long tickMs;
+    private final Queue<Entry>[] buckets;
+    private long lastExpiredTick = -1;
+
+    @SuppressWarnings("unchecked")
+    RequestTimeoutWheel(long tickMs, long maxTimeoutMs) {
+        this.tickMs = Math.max(1, tickMs);
+        int bucketsCount = (int) (maxTimeoutMs / this.tickMs) + 2;
+        this.buckets = new Queue[bucketsCount];
+        for (int i = 0; i < bucketsCount; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    void add(UUID requestId, long expTime) {
+        long tick = (expTime + tickMs - 1) / tickMs;
+        buckets[(int) (tick % buckets.length)].add(new Entry(requestId, expTime));
+    }
+
+    /**
+     * Not thread-safe, expected to be called from a single scheduler thread.
+     *
+     * @param expirationHandler returns false if the request is already completed
+     * @return number of expired requests
+     */
+    int expire(long now, Predicate<UUID> expirationHandler) {
+        long currentTick = now / tickMs;
+        if (lastExpiredTick < 0 || currentTick - lastExpiredTick > buckets.length) {
+            lastExpiredTick = currentTick - buckets.length;
+        }
+        int expired = 0;
+        for (long tick = lastExpiredTick + 1; tick <= currentTick; tick++) {
+            Queue<Entry> bucket = buckets[(int) (tick % buckets.length)];
+            int size = bucket.size();
+            for (int i = 0; i < size; i++) {
+                Entry entry = bucket.poll();
+                if (entry == null) {
+                    break;
+                }
+                if (entry.expTime > now) {
+                    bucket.add(entry);
+                } else if (expirationHandler.test(entry.requestId)) {
+                    expired++;
+                }
+            }
+        }
+        lastExpiredTick = currentTick;
+        return expired;
+    }
+
+    private record Entry(UUID requestId, long expTime) {
+    }
+}
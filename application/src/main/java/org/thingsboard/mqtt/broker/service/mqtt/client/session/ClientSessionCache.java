@@ -19,6 +19,7 @@ import org.thingsboard.mqtt.broker.common.data.ClientSession;
 import org.thingsboard.mqtt.broker.common.data.ClientSessionInfo;
 
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface ClientSessionCache {
 
@@ -29,4 +30,9 @@ public interface ClientSessionCache {
     ClientSessionInfo getClientSessionInfo(String clientId);
 
     Map<String, ClientSessionInfo> getAllClientSessions();
+
+    /**
+     * The listener is called with the clientId every time the client session is saved or cleared, locally or by other node
+     */
+    void addSessionChangeListener(Consumer<String> listener);
 }
@@ -30,16 +30,21 @@ import org.thingsboard.mqtt.broker.actors.client.state.SessionState;
 import org.thingsboard.mqtt.broker.adaptor.ProtoConverter;
 import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
 import org.thingsboard.mqtt.broker.common.data.mqtt.MsgExpiryResult;
+import org.thingsboard.mqtt.broker.common.data.util.CallbackUtil;
 import org.thingsboard.mqtt.broker.common.util.ThingsBoardExecutors;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
 import org.thingsboard.mqtt.broker.queue.TbQueueAdmin;
 import org.thingsboard.mqtt.broker.queue.TbQueueConsumer;
 import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
+import org.thingsboard.mqtt.broker.queue.TbQueueMultiplexedConsumer;
 import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
 import org.thingsboard.mqtt.broker.queue.provider.ApplicationPersistenceMsgQueueFactory;
 import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsgDeliveryService;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.data.ApplicationCommittedOffset;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.data.ApplicationMultiplexedClientCtx;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.data.ApplicationMultiplexedConsumer;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.data.ApplicationSharedSubscriptionCtx;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.data.ApplicationSharedSubscriptionJob;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.ApplicationAckStrategy;
@@ -70,6 +75,7 @@ import org.thingsboard.mqtt.broker.util.MqttQosUtil;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -88,6 +94,9 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
 
     private final ConcurrentMap<String, ApplicationPackProcessingCtx> packProcessingCtxMap = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Future<?>> processingFutures = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ApplicationMultiplexedClientCtx> multiplexedClients = new ConcurrentHashMap<>();
+    private final List<ApplicationMultiplexedConsumer> multiplexedConsumers = new ArrayList<>();
+    private final ConcurrentMap<String, ApplicationCommittedOffset> multiplexedCommittedOffsets = new ConcurrentHashMap<>();
 
     private final ConcurrentMap<String, Set<ApplicationSharedSubscriptionCtx>> sharedSubscriptionsPackProcessingCtxMap = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, List<ApplicationSharedSubscriptionJob>> sharedSubscriptionsProcessingJobs = new ConcurrentHashMap<>();
@@ -116,17 +125,38 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
     private long packProcessingTimeout;
     @Value("${queue.application-persisted-msg.shared-topic-validation:true}")
     private boolean validateSharedTopicFilter;
+    @Value("${queue.application-persisted-msg.multiplexed-consumers.enabled:false}")
+    private boolean multiplexedConsumersEnabled;
+    @Value("${queue.application-persisted-msg.multiplexed-consumers.consumers-count:4}")
+    private int multiplexedConsumersCount;
+    @Value("${queue.application-persisted-msg.virtual-threads-enabled:false}")
+    private boolean virtualThreadsEnabled;
 
     private volatile boolean stopped = false;
     private ExecutorService persistedMsgsConsumerExecutor;
     private ExecutorService sharedSubsMsgsConsumerExecutor;
+    private ExecutorService multiplexedMsgsConsumerExecutor;
 
     @PostConstruct
     public void init() {
-        statsManager.registerActiveApplicationProcessorsStats(processingFutures);
+        statsManager.registerActiveApplicationProcessorsStats(multiplexedConsumersEnabled ? multiplexedClients : processingFutures);
         statsManager.registerActiveSharedApplicationProcessorsStats(sharedSubscriptionsProcessingJobs);
-        persistedMsgsConsumerExecutor = ThingsBoardExecutors.initCachedExecutorService("application-persisted-msg-consumers");
-        sharedSubsMsgsConsumerExecutor = ThingsBoardExecutors.initCachedExecutorService("application-shared-subs-msg-consumers");
+        persistedMsgsConsumerExecutor = ThingsBoardExecutors.initCachedExecutorService("application-persisted-msg-consumers", virtualThreadsEnabled);
+        sharedSubsMsgsConsumerExecutor = ThingsBoardExecutors.initCachedExecutorService("application-shared-subs-msg-consumers", virtualThreadsEnabled);
+        if (multiplexedConsumersEnabled) {
+            initMultiplexedConsumers();
+        }
+    }
+
+    private void initMultiplexedConsumers() {
+        multiplexedMsgsConsumerExecutor = ThingsBoardExecutors.initExecutorService(multiplexedConsumersCount, "application-persisted-msg-multiplexed-consumers");
+        for (int i = 0; i < multiplexedConsumersCount; i++) {
+            TbQueueMultiplexedConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer =
+                    applicationPersistenceMsgQueueFactory.createMultiplexedConsumer(serviceInfoProvider.getServiceId() + "-" + i);
+            ApplicationMultiplexedConsumer multiplexedConsumer = new ApplicationMultiplexedConsumer(consumer);
+            multiplexedConsumer.setFuture(multiplexedMsgsConsumerExecutor.submit(() -> processMultiplexedPersistedMessages(multiplexedConsumer)));
+            multiplexedConsumers.add(multiplexedConsumer);
+        }
     }
 
     @Override
@@ -331,7 +361,7 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
                                     ctx.await(packProcessingTimeout, TimeUnit.MILLISECONDS);
                                 }
 
-                                if (analyzeIfProcessingDone(clientId, consumer, stats, submitStrategy, ctx, totalPublishMsgs, totalPubRelMsgs))
+                                if (analyzeIfProcessingDone(clientId, consumer::commitSync, stats, submitStrategy, ctx, totalPublishMsgs, totalPubRelMsgs))
                                     break;
                             }
                             if (isTraceEnabled) {
@@ -383,7 +413,7 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
     }
 
     private boolean analyzeIfProcessingDone(String clientId,
-                                            TbQueueControlledOffsetConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer,
+                                            Runnable commitAction,
                                             ApplicationProcessorStats stats,
                                             ApplicationSubmitStrategy submitStrategy,
                                             ApplicationPackProcessingCtx ctx,
@@ -398,7 +428,7 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
 
         if (decision.isCommit()) {
             ctx.clear();
-            consumer.commitSync();
+            commitAction.run();
             return true;
         } else {
             submitStrategy.update(decision.getReprocessMap());
@@ -465,6 +495,10 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
         if (log.isDebugEnabled()) {
             log.debug("[{}] Starting persisted messages processing.", clientId);
         }
+        if (multiplexedConsumersEnabled) {
+            startMultiplexedProcessing(clientState, clientTopic);
+            return;
+        }
         TbQueueControlledOffsetConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer = initConsumer(clientId, clientTopic);
         Future<?> future = persistedMsgsConsumerExecutor.submit(() -> {
             try {
@@ -497,7 +531,11 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
             log.debug("[{}] Stopping persisted messages processing.", clientId);
         }
         clientLogger.logEvent(clientId, this.getClass(), "Stopping processing persisted messages");
-        cancelMainProcessing(clientId);
+        if (multiplexedConsumersEnabled) {
+            stopMultiplexedProcessing(clientId);
+        } else {
+            cancelMainProcessing(clientId);
+        }
         cancelSharedSubscriptionProcessing(clientId);
         stopSharedSubscriptionConsumers(clientId);
 
@@ -639,6 +677,7 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
         }
         unacknowledgedPersistedMsgCtxService.clearContext(clientId);
         persistedMsgCtxMap.remove(clientId);
+        multiplexedCommittedOffsets.remove(clientId);
     }
 
     private TbQueueControlledOffsetConsumer<TbProtoQueueMsg<PublishMsgProto>> initConsumer(String clientId, String clientTopic) {
@@ -718,7 +757,7 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
                         ctx.await(packProcessingTimeout, TimeUnit.MILLISECONDS);
                     }
 
-                    if (analyzeIfProcessingDone(clientId, consumer, stats, submitStrategy, ctx, totalPublishMsgs, totalPubRelMsgs))
+                    if (analyzeIfProcessingDone(clientId, consumer::commitSync, stats, submitStrategy, ctx, totalPublishMsgs, totalPubRelMsgs))
                         break;
                 }
                 if (isTraceEnabled) {
@@ -743,6 +782,227 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
         }
     }
 
+    private void startMultiplexedProcessing(ClientActorStateInfo clientState, String clientTopic) {
+        ClientSessionCtx clientSessionCtx = clientState.getCurrentSessionCtx();
+        String clientId = clientSessionCtx.getClientId();
+        String consumerGroup = appClientHelperService.getAppConsumerGroup(clientId);
+
+        ApplicationProcessorStats stats = statsManager.createApplicationProcessorStats(clientId);
+        ApplicationPersistedMsgCtx persistedMsgCtx = unacknowledgedPersistedMsgCtxService.loadPersistedMsgCtx(clientId);
+        persistedMsgCtxMap.put(clientId, persistedMsgCtx);
+        clientSessionCtx.getMsgIdSeq().updateMsgIdSequence(persistedMsgCtx.getLastPacketId());
+
+        ApplicationMultiplexedConsumer multiplexedConsumer = multiplexedConsumers.get(Math.floorMod(clientId.hashCode(), multiplexedConsumers.size()));
+        ApplicationMultiplexedClientCtx clientCtx = new ApplicationMultiplexedClientCtx(multiplexedConsumer, clientState, clientSessionCtx,
+                clientSessionCtx.getSessionId(), clientTopic, consumerGroup, stats, persistedMsgCtx);
+        clientCtx.setPubRelMsgCtx(persistedMsgCtxToPubRelMsgCtx(persistedMsgCtx));
+
+        multiplexedClients.put(clientId, clientCtx);
+
+        ApplicationCommittedOffset committedOffset = multiplexedCommittedOffsets.get(clientId);
+        if (committedOffset != null && committedOffset.getOffset() >= 0) {
+            long offset = committedOffset.getOffset();
+            multiplexedConsumer.submit(() -> assignMultiplexedClient(clientCtx, offset));
+            return;
+        }
+        queueAdmin.getCommittedOffset(consumerGroup, clientTopic, 0,
+                offset -> multiplexedConsumer.submit(() -> assignMultiplexedClient(clientCtx, offset.orElse(null))),
+                throwable -> {
+                    log.warn("[{}] Failed to get committed offset.", clientId, throwable);
+                    multiplexedConsumer.submit(() -> {
+                        if (multiplexedClients.get(clientId) == clientCtx) {
+                            disconnectClient(clientId, clientCtx.getClientState());
+                        }
+                    });
+                });
+    }
+
+    private void assignMultiplexedClient(ApplicationMultiplexedClientCtx clientCtx, Long committedOffset) {
+        String clientId = clientCtx.getClientId();
+        if (multiplexedClients.get(clientId) != clientCtx) {
+            if (isDebugEnabled) {
+                log.debug("[{}] Processing was stopped before the consumer was assigned.", clientId);
+            }
+            return;
+        }
+        ApplicationMultiplexedConsumer multiplexedConsumer = clientCtx.getMultiplexedConsumer();
+        try {
+            long offset = multiplexedConsumer.getConsumer().assign(clientCtx.getTopic(), 0, committedOffset);
+            if (committedOffset == null) {
+                commitMultiplexedClientOffset(clientCtx, offset);
+            }
+            multiplexedConsumer.getClients().put(clientCtx.getTopic(), clientCtx);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to start processing persisted messages.", clientId, e);
+            multiplexedConsumer.getConsumer().unassign(clientCtx.getTopic(), 0);
+            disconnectClient(clientId, clientCtx.getClientState());
+        }
+    }
+
+    private void stopMultiplexedProcessing(String clientId) {
+        ApplicationMultiplexedClientCtx clientCtx = multiplexedClients.remove(clientId);
+        if (clientCtx == null) {
+            log.warn("[{}] Cannot find multiplexed processing context for client.", clientId);
+            return;
+        }
+        statsManager.clearApplicationProcessorStats(clientId);
+        ApplicationMultiplexedConsumer multiplexedConsumer = clientCtx.getMultiplexedConsumer();
+        multiplexedConsumer.submit(() -> {
+            if (multiplexedConsumer.getClients().remove(clientCtx.getTopic(), clientCtx)) {
+                multiplexedConsumer.getConsumer().unassign(clientCtx.getTopic(), 0);
+            }
+        });
+    }
+
+    private void processMultiplexedPersistedMessages(ApplicationMultiplexedConsumer multiplexedConsumer) {
+        TbQueueMultiplexedConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer = multiplexedConsumer.getConsumer();
+        try {
+            while (isProcessorActive()) {
+                try {
+                    Runnable command;
+                    while ((command = multiplexedConsumer.getCommands().poll()) != null) {
+                        command.run();
+                    }
+                    Map<String, List<TbProtoQueueMsg<PublishMsgProto>>> polledMessages = consumer.poll(pollDuration);
+                    for (ApplicationMultiplexedClientCtx clientCtx : multiplexedConsumer.getClients().values()) {
+                        List<TbProtoQueueMsg<PublishMsgProto>> publishProtoMessages = polledMessages.get(clientCtx.getTopic());
+                        processMultiplexedClient(clientCtx, publishProtoMessages == null ? Collections.emptyList() : publishProtoMessages);
+                    }
+                } catch (Exception e) {
+                    if (isProcessorActive()) {
+                        log.warn("Failed to process messages from multiplexed queue consumer.", e);
+                        try {
+                            Thread.sleep(pollDuration);
+                        } catch (InterruptedException e2) {
+                            if (isTraceEnabled) {
+                                log.trace("Failed to wait until the server has capacity to handle new requests", e2);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            consumer.close();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Application persisted messages multiplexed consumer stopped.");
+        }
+    }
+
+    /**
+     * Same pack semantics as {@link #processPersistedMessages} without blocking the polling thread:
+     * the partition is paused while a pack is in flight and the pack is analyzed once acknowledged or timed out.
+     */
+    private void processMultiplexedClient(ApplicationMultiplexedClientCtx clientCtx, List<TbProtoQueueMsg<PublishMsgProto>> publishProtoMessages) {
+        String clientId = clientCtx.getClientId();
+        try {
+            boolean connected = isClientConnected(clientCtx.getSessionId(), clientCtx.getClientState());
+            if (!clientCtx.isPackInProgress()) {
+                if (!connected || (publishProtoMessages.isEmpty() && clientCtx.getPubRelMsgCtx().nothingToDeliver())) {
+                    return;
+                }
+                startMultiplexedPack(clientCtx, publishProtoMessages);
+            }
+            while (clientCtx.isPackInProgress()) {
+                if (connected && !clientCtx.getPackProcessingCtx().isProcessed() && System.currentTimeMillis() < clientCtx.getPackDeadlineMs()) {
+                    return;
+                }
+                ApplicationPackProcessingCtx ctx = clientCtx.getPackProcessingCtx();
+                if (analyzeIfProcessingDone(clientId, () -> commitMultiplexedPack(clientCtx), clientCtx.getStats(), clientCtx.getSubmitStrategy(),
+                        ctx, clientCtx.getTotalPublishMsgs(), clientCtx.getTotalPubRelMsgs())) {
+                    finishMultiplexedPack(clientCtx);
+                } else if (connected) {
+                    processMultiplexedPackIteration(clientCtx);
+                } else {
+                    finishMultiplexedPack(clientCtx);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[{}] Failed to process messages from queue.", clientId, e);
+            finishMultiplexedPack(clientCtx);
+        }
+    }
+
+    private void startMultiplexedPack(ApplicationMultiplexedClientCtx clientCtx, List<TbProtoQueueMsg<PublishMsgProto>> publishProtoMessages) {
+        clientCtx.setPackProcessingStartNanos(System.nanoTime());
+        clientCtx.getMultiplexedConsumer().getConsumer().pause(clientCtx.getTopic(), 0);
+        if (!publishProtoMessages.isEmpty()) {
+            clientCtx.setPackCommitOffset(publishProtoMessages.get(publishProtoMessages.size() - 1).getOffset() + 1);
+        }
+
+        ApplicationSubmitStrategy submitStrategy = submitStrategyFactory.newInstance(clientCtx.getClientId());
+        List<PersistedMsg> messagesToDeliver = getMessagesToDeliver(
+                clientCtx.getPubRelMsgCtx(),
+                clientCtx.getClientSessionCtx(),
+                clientCtx.getPersistedMsgCtx(),
+                publishProtoMessages,
+                null);
+        submitStrategy.init(messagesToDeliver);
+        clientCtx.setSubmitStrategy(submitStrategy);
+        clientCtx.setPubRelMsgCtx(new ApplicationPubRelMsgCtx(Sets.newConcurrentHashSet()));
+
+        processMultiplexedPackIteration(clientCtx);
+    }
+
+    private void processMultiplexedPackIteration(ApplicationMultiplexedClientCtx clientCtx) {
+        String clientId = clientCtx.getClientId();
+        ApplicationPackProcessingCtx ctx = newPackProcessingCtx(clientCtx.getSubmitStrategy(), clientCtx.getPubRelMsgCtx(), clientCtx.getStats());
+        ctx.setProcessedCallback(clientCtx.getMultiplexedConsumer().getConsumer()::wakeup);
+        clientCtx.setPackProcessingCtx(ctx);
+        clientCtx.setTotalPublishMsgs(ctx.getPublishPendingMsgMap().size());
+        clientCtx.setTotalPubRelMsgs(ctx.getPubRelPendingMsgMap().size());
+        clientCtx.setPackDeadlineMs(System.currentTimeMillis() + packProcessingTimeout);
+        packProcessingCtxMap.put(clientId, ctx);
+
+        process(clientCtx.getSubmitStrategy(), clientCtx.getClientSessionCtx(), clientId);
+    }
+
+    private void commitMultiplexedPack(ApplicationMultiplexedClientCtx clientCtx) {
+        if (clientCtx.getPackCommitOffset() >= 0) {
+            commitMultiplexedClientOffset(clientCtx, clientCtx.getPackCommitOffset());
+        }
+    }
+
+    private void commitMultiplexedClientOffset(ApplicationMultiplexedClientCtx clientCtx, long offset) {
+        ApplicationCommittedOffset committedOffset = multiplexedCommittedOffsets.computeIfAbsent(clientCtx.getClientId(), id -> new ApplicationCommittedOffset());
+        if (committedOffset.update(offset)) {
+            sendMultiplexedClientOffset(clientCtx.getClientId(), clientCtx.getConsumerGroup(), clientCtx.getTopic(), committedOffset, offset);
+        }
+    }
+
+    private void sendMultiplexedClientOffset(String clientId, String consumerGroup, String topic, ApplicationCommittedOffset committedOffset, long offset) {
+        queueAdmin.commitOffset(consumerGroup, topic, 0, offset, CallbackUtil.createCallback(
+                () -> {
+                    if (isTraceEnabled) {
+                        log.trace("[{}] Committed offset {}", clientId, offset);
+                    }
+                    sendNextMultiplexedClientOffset(clientId, consumerGroup, topic, committedOffset);
+                },
+                throwable -> {
+                    log.warn("[{}] Failed to commit offset {}", clientId, offset, throwable);
+                    sendNextMultiplexedClientOffset(clientId, consumerGroup, topic, committedOffset);
+                }));
+    }
+
+    private void sendNextMultiplexedClientOffset(String clientId, String consumerGroup, String topic, ApplicationCommittedOffset committedOffset) {
+        long nextOffset = committedOffset.onCommitDone();
+        if (nextOffset >= 0) {
+            sendMultiplexedClientOffset(clientId, consumerGroup, topic, committedOffset, nextOffset);
+        }
+    }
+
+    private void finishMultiplexedPack(ApplicationMultiplexedClientCtx clientCtx) {
+        if (isTraceEnabled && clientCtx.isPackInProgress()) {
+            log.trace("[{}] Pack processing took {} ms, pack size - {}", clientCtx.getClientId(),
+                    (double) (System.nanoTime() - clientCtx.getPackProcessingStartNanos()) / 1_000_000,
+                    clientCtx.getSubmitStrategy().getOrderedMessages().size());
+        }
+        clientCtx.clearPack();
+        if (clientCtx.getMultiplexedConsumer().getClients().get(clientCtx.getTopic()) == clientCtx) {
+            clientCtx.getMultiplexedConsumer().getConsumer().resume(clientCtx.getTopic(), 0);
+        }
+    }
+
     private void process(ApplicationSubmitStrategy submitStrategy, ClientSessionCtx clientSessionCtx, String clientId) {
         if (isDebugEnabled) {
             log.debug("[{}] Start sending the pack of messages from processing ctx: {}", clientId, submitStrategy.getOrderedMessages());
@@ -831,6 +1091,16 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
     public void destroy() {
         stopped = true;
         sharedSubscriptionsProcessingJobs.forEach((clientId, jobs) -> jobs.forEach(j -> j.getFuture().cancel(false)));
+        multiplexedConsumers.forEach(multiplexedConsumer -> multiplexedConsumer.getConsumer().wakeup());
+        multiplexedClients.keySet().forEach(clientId -> {
+            log.info("[{}] Saving processing context before shutting down.", clientId);
+            ApplicationPackProcessingCtx processingContext = collectPackProcessingCtx(clientId);
+            try {
+                unacknowledgedPersistedMsgCtxService.saveContext(clientId, processingContext);
+            } catch (Exception e) {
+                log.warn("[{}] Failed to save APPLICATION context.", clientId);
+            }
+        });
         processingFutures.forEach((clientId, future) -> {
             future.cancel(false);
             log.info("[{}] Saving processing context before shutting down.", clientId);
@@ -843,5 +1113,8 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
         });
         ThingsBoardExecutors.shutdownAndAwaitTermination(persistedMsgsConsumerExecutor, "Application consumers'");
         ThingsBoardExecutors.shutdownAndAwaitTermination(sharedSubsMsgsConsumerExecutor, "Application shared subs consumers'");
+        if (multiplexedMsgsConsumerExecutor != null) {
+            ThingsBoardExecutors.shutdownAndAwaitTermination(multiplexedMsgsConsumerExecutor, "Application multiplexed consumers'");
+        }
     }
 }
@@ -0,0 +1,60 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.persistence.application.data;
+
+/**
+ * Latest offset committed for an APPLICATION client served by a multiplexed consumer.
+ * Commits are sent one at a time, so they reach Kafka in order, and the client resumes from this offset on reconnect
+ * instead of reading back a commit that may still be in flight.
+ */
+public class ApplicationCommittedOffset {
+
+    private long offset = -1;
+    private boolean commitInProgress;
+    private boolean commitPending;
+
+    /**
+     * @return true if the commit of the offset has to be sent now, false if it is outdated or will be sent after the current one
+     */
+    public synchronized boolean update(long offset) {
+        if (offset <= this.offset) {
+            return false;
+        }
+        this.offset = offset;
+        if (commitInProgress) {
+            commitPending = true;
+            return false;
+        }
+        commitInProgress = true;
+        return true;
+    }
+
+    /**
+     * @return the offset to commit next, -1 if there is nothing left to commit
+     */
+    public synchronized long onCommitDone() {
+        if (commitPending) {
+            commitPending = false;
+            return offset;
+        }
+        commitInProgress = false;
+        return -1;
+    }
+
+    public synchronized long getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.persistence.application.data;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.thingsboard.mqtt.broker.actors.client.state.ClientActorStateInfo;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.ApplicationPackProcessingCtx;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.ApplicationPersistedMsgCtx;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.ApplicationPubRelMsgCtx;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.ApplicationSubmitStrategy;
+import org.thingsboard.mqtt.broker.service.stats.ApplicationProcessorStats;
+import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
+
+import java.util.UUID;
+
+/**
+ * Pack processing state of an APPLICATION client served by a multiplexed consumer.
+ * Apart from construction it is accessed only by the polling thread of the consumer.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ApplicationMultiplexedClientCtx {
+
+    private final ApplicationMultiplexedConsumer multiplexedConsumer;
+    private final ClientActorStateInfo clientState;
+    private final ClientSessionCtx clientSessionCtx;
+    private final UUID sessionId;
+    private final String topic;
+    private final String consumerGroup;
+    private final ApplicationProcessorStats stats;
+    private final ApplicationPersistedMsgCtx persistedMsgCtx;
+
+    @Setter
+    private ApplicationPubRelMsgCtx pubRelMsgCtx;
+    @Setter
+    private ApplicationSubmitStrategy submitStrategy;
+    @Setter
+    private ApplicationPackProcessingCtx packProcessingCtx;
+    @Setter
+    private int totalPublishMsgs;
+    @Setter
+    private int totalPubRelMsgs;
+    @Setter
+    private long packDeadlineMs;
+    @Setter
+    private long packProcessingStartNanos;
+    /**
+     * Offset to commit once the current pack is done, -1 when the pack has no new messages
+     */
+    @Setter
+    private long packCommitOffset = -1;
+
+    public String getClientId() {
+        return clientSessionCtx.getClientId();
+    }
+
+    public boolean isPackInProgress() {
+        return submitStrategy != null;
+    }
+
+    public void clearPack() {
+        submitStrategy = null;
+        packProcessingCtx = null;
+        packCommitOffset = -1;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.persistence.application.data;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+import org.thingsboard.mqtt.broker.queue.TbQueueMultiplexedConsumer;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+
+@Getter
+@RequiredArgsConstructor
+public class ApplicationMultiplexedConsumer {
+
+    private final TbQueueMultiplexedConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer;
+    /**
+     * Assignment changes requested by other threads, executed by the polling thread
+     */
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    /**
+     * Clients by their topic, accessed only by the polling thread
+     */
+    private final Map<String, ApplicationMultiplexedClientCtx> clients = new HashMap<>();
+    @Setter
+    private volatile Future<?> future;
+
+    public void submit(Runnable command) {
+        commands.add(command);
+        consumer.wakeup();
+    }
+}
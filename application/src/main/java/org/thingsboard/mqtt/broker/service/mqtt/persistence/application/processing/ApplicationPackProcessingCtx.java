@@ -17,6 +17,7 @@ package org.thingsboard.mqtt.broker.service.mqtt.persistence.application.process
 
 import com.google.common.collect.Sets;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.mqtt.broker.service.stats.ApplicationProcessorStats;
 
@@ -40,6 +41,11 @@ public class ApplicationPackProcessingCtx {
     @Getter
     private final ApplicationPubRelMsgCtx pubRelMsgCtx;
     private final boolean isDebugEnabled = log.isDebugEnabled();
+    /**
+     * Invoked once every message of the pack is acknowledged
+     */
+    @Setter
+    private volatile Runnable processedCallback;
 
     public ApplicationPackProcessingCtx(String clientId) {
         this.clientId = clientId;
@@ -80,6 +86,18 @@ public class ApplicationPackProcessingCtx {
         return processingTimeoutLatch.await(packProcessingTimeout, timeUnit);
     }
 
+    public boolean isProcessed() {
+        return processingTimeoutLatch.getCount() == 0;
+    }
+
+    private void countDown() {
+        processingTimeoutLatch.countDown();
+        Runnable callback = processedCallback;
+        if (callback != null && isProcessed()) {
+            callback.run();
+        }
+    }
+
     // TODO: save only messages with higher offset (InFlightMessagesCtx)
 
     public boolean onPubAck(Integer packetId) {
@@ -89,7 +107,7 @@ public class ApplicationPackProcessingCtx {
                 log.debug("Found PUBLISH packet {} to process PubAck msg.", packetId);
             }
             stats.logPubAckLatency(processingStartTimeNanos, TimeUnit.NANOSECONDS);
-            processingTimeoutLatch.countDown();
+            countDown();
             return true;
         } else {
             if (isDebugEnabled) {
@@ -124,7 +142,7 @@ public class ApplicationPackProcessingCtx {
     private void onPublishMsgSuccess(Integer packetId) {
         PersistedPublishMsg msg = publishPendingMsgMap.remove(packetId);
         if (msg != null) {
-            processingTimeoutLatch.countDown();
+            countDown();
         } else {
             if (isDebugEnabled) {
                 log.debug("[{}] Couldn't find PUBLISH packet {} to process PubRec msg successfully from {}.", clientId, packetId, publishPendingMsgMap.keySet());
@@ -139,7 +157,7 @@ public class ApplicationPackProcessingCtx {
                 log.debug("Found PubRel packet {} to process PubComp msg.", packetId);
             }
             stats.logPubCompLatency(processingStartTimeNanos, TimeUnit.NANOSECONDS);
-            processingTimeoutLatch.countDown();
+            countDown();
             return true;
         } else {
             if (isDebugEnabled) {
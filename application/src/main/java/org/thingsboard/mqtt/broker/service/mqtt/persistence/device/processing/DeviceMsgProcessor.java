@@ -15,12 +15,16 @@
  */
 package org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.CompletionStage;
 
 public interface DeviceMsgProcessor {
 
     CompletionStage<Integer> persistClientDeviceMessages(ClientIdMessagesPack clientIdMessagesPack);
 
+    Map<String, CompletionStage<Integer>> persistClientDeviceMessages(Collection<ClientIdMessagesPack> clientIdMessagesPacks);
+
     void deliverClientDeviceMessages(String clientId, DevicePublishMsgListAndPrevPacketId devicePublishMessages);
 
 }
@@ -15,14 +15,19 @@
  */
 package org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing;
 
+import com.google.common.collect.Maps;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
 import org.thingsboard.mqtt.broker.dao.messages.DeviceMsgService;
 import org.thingsboard.mqtt.broker.dto.PacketIdDto;
 import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionCache;
 import org.thingsboard.mqtt.broker.service.processing.downlink.DownLinkProxy;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletionStage;
 
 @Slf4j
@@ -39,6 +44,15 @@ public class DeviceMsgProcessorImpl implements DeviceMsgProcessor {
         return deviceMsgService.saveAndReturnPreviousPacketId(pack.clientId(), pack.messages(), false);
     }
 
+    @Override
+    public Map<String, CompletionStage<Integer>> persistClientDeviceMessages(Collection<ClientIdMessagesPack> packs) {
+        Map<String, List<DevicePublishMsg>> clientIdToMessagesMap = Maps.newHashMapWithExpectedSize(packs.size());
+        for (var pack : packs) {
+            clientIdToMessagesMap.put(pack.clientId(), pack.messages());
+        }
+        return deviceMsgService.saveAndReturnPreviousPacketIds(clientIdToMessagesMap);
+    }
+
     @Override
     public void deliverClientDeviceMessages(String clientId, DevicePublishMsgListAndPrevPacketId devicePubMsgsAndPrevId) {
         var clientSessionInfo = clientSessionCache.getClientSessionInfo(clientId);
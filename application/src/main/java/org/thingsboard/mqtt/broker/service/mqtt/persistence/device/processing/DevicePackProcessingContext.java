@@ -44,6 +44,10 @@ public class DevicePackProcessingContext {
         return processingTimeoutLatch.await(packProcessingTimeout, timeUnit);
     }
 
+    public boolean isProcessed() {
+        return processingTimeoutLatch.getCount() == 0;
+    }
+
     public void onSuccess(String clientId, int previousPacketId) {
         ClientIdMessagesPack pack = pendingMap.remove(clientId);
         if (pack != null) {
@@ -0,0 +1,55 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing;
+
+import lombok.Getter;
+import org.thingsboard.mqtt.broker.service.processing.PipelinedPack;
+
+import java.util.Map;
+import java.util.Set;
+
+@Getter
+public class PipelinedDevicePack extends PipelinedPack<DevicePackProcessingContext> {
+
+    private final DeviceAckStrategy ackStrategy;
+    private final DeviceSubmitStrategy submitStrategy;
+    private final Set<String> clientIds;
+
+    public PipelinedDevicePack(DeviceAckStrategy ackStrategy, DeviceSubmitStrategy submitStrategy, Set<String> clientIds,
+                               Map<Integer, Long> partitionOffsets, int packSize, long pollNanos) {
+        super(partitionOffsets, packSize, pollNanos);
+        this.ackStrategy = ackStrategy;
+        this.submitStrategy = submitStrategy;
+        this.clientIds = clientIds;
+    }
+
+    @Override
+    protected boolean isIterationProcessed(DevicePackProcessingContext ctx) {
+        return ctx.isProcessed();
+    }
+
+    public boolean hasCommonClients(PipelinedDevicePack other) {
+        Set<String> smaller = clientIds.size() <= other.clientIds.size() ? clientIds : other.clientIds;
+        Set<String> larger = smaller == clientIds ? other.clientIds : clientIds;
+        for (String clientId : smaller) {
+            if (larger.contains(clientId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -26,6 +26,7 @@ import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
 import org.thingsboard.mqtt.broker.common.util.ThingsBoardExecutors;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
 import org.thingsboard.mqtt.broker.queue.TbQueueConsumer;
+import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
 import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
 import org.thingsboard.mqtt.broker.queue.provider.DevicePersistenceMsgQueueFactory;
 import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
@@ -38,10 +39,14 @@ import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.De
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.DevicePackProcessingResult;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.DeviceProcessingDecision;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.DeviceSubmitStrategy;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.PipelinedDevicePack;
+import org.thingsboard.mqtt.broker.service.processing.PipelinedPackUtil;
 import org.thingsboard.mqtt.broker.service.stats.DeviceProcessorStats;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -72,6 +77,10 @@ public class DeviceMsgQueueConsumerImpl implements DeviceMsgQueueConsumer {
     private int threadsCount;
     @Value("${queue.device-persisted-msg.pack-processing-timeout}")
     private long packProcessingTimeout;
+    @Value("${queue.device-persisted-msg.pipelined-processing.enabled:false}")
+    private boolean pipelinedProcessingEnabled;
+    @Value("${queue.device-persisted-msg.pipelined-processing.max-in-flight-packs:4}")
+    private int maxInFlightPacks;
 
     private volatile boolean stopped = false;
     private ExecutorService consumersExecutor;
@@ -85,10 +94,14 @@ public class DeviceMsgQueueConsumerImpl implements DeviceMsgQueueConsumer {
     public void startConsuming() {
         for (int i = 0; i < consumersCount; i++) {
             String consumerId = serviceInfoProvider.getServiceId() + "-" + i;
-            TbQueueConsumer<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> consumer = devicePersistenceMsgQueueFactory.createConsumer(consumerId);
+            TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> consumer = devicePersistenceMsgQueueFactory.createConsumer(consumerId);
             consumers.add(consumer);
             consumer.subscribe();
-            launchConsumer(consumerId, consumer);
+            if (pipelinedProcessingEnabled) {
+                launchPipelinedConsumer(consumerId, consumer);
+            } else {
+                launchConsumer(consumerId, consumer);
+            }
         }
     }
 
@@ -113,31 +126,8 @@ public class DeviceMsgQueueConsumerImpl implements DeviceMsgQueueConsumer {
                     long packProcessingStart = System.nanoTime();
                     while (!stopped) {
                         var ctx = new DevicePackProcessingContext(submitStrategy.getPendingMap());
-                        int totalMessagesCount = 0;
-                        if (statsManager.isEnabled()) {
-                            totalMessagesCount = ctx.getPendingMap().values().stream()
-                                    .mapToInt(pack -> pack.messages().size())
-                                    .sum();
-                        }
-                        submitStrategy.process(clientIdMessagesPack -> {
-                            long clientIdPackProcessingStart = System.nanoTime();
-                            String clientId = clientIdMessagesPack.clientId();
-                            clientLogger.logEvent(clientId, this.getClass(), "Start persisting DEVICE msgs");
-                            CompletionStage<Integer> future = deviceMsgProcessor.persistClientDeviceMessages(clientIdMessagesPack);
-                            future.whenComplete((prevPacketId, throwable) -> {
-                                if (throwable == null) {
-                                    clientLogger.logEvent(clientId, this.getClass(), "Finished persisting DEVICE messages");
-                                    ctx.onSuccess(clientId, prevPacketId);
-                                } else {
-                                    clientLogger.logEvent(clientId, this.getClass(), "Finished persisting DEVICE messages exceptionally: " + throwable.getMessage());
-                                    if (log.isTraceEnabled()) {
-                                        log.trace("[{}] Failed to persist device publish messages due to: ", clientId, throwable);
-                                    }
-                                    ctx.onFailure(clientId);
-                                }
-                                stats.logClientIdPackProcessingTime(System.nanoTime() - clientIdPackProcessingStart, TimeUnit.NANOSECONDS);
-                            });
-                        });
+                        int totalMessagesCount = countPendingMessages(ctx);
+                        persistPendingPacks(ctx, submitStrategy, stats);
 
                         if (!stopped) {
                             ctx.await(packProcessingTimeout, TimeUnit.MILLISECONDS);
@@ -175,6 +165,162 @@ public class DeviceMsgQueueConsumerImpl implements DeviceMsgQueueConsumer {
         });
     }
 
+    /**
+     * Keeps up to {@code maxInFlightPacks} packs in processing, so the next poll overlaps Redis writes of the previous packs.
+     * A pack is sent to Redis only when no earlier unprocessed pack has messages of the same clients. This keeps the per-client
+     * order of the persisted messages and the continuity of their packet ids, even when an earlier pack is retried by the ack strategy.
+     * Offsets are committed asynchronously only up to the last pack that is fully processed together with all packs before it.
+     */
+    private void launchPipelinedConsumer(String consumerId, TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> consumer) {
+        DeviceProcessorStats stats = statsManager.createDeviceProcessorStats(consumerId);
+        consumersExecutor.submit(() -> {
+            Deque<PipelinedDevicePack> inFlightPacks = new ArrayDeque<>(maxInFlightPacks);
+            while (!stopped) {
+                try {
+                    processInFlightPacks(inFlightPacks, stats);
+                    PipelinedPackUtil.commitProcessedPacks(consumer, inFlightPacks);
+                    if (inFlightPacks.size() >= maxInFlightPacks) {
+                        awaitHeadPack(inFlightPacks, stats);
+                        continue;
+                    }
+
+                    boolean redisWorkInFlight = hasRedisWorkInFlight(inFlightPacks);
+                    long pollStart = System.nanoTime();
+                    List<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> msgs = consumer.poll(pollDuration);
+                    if (msgs.isEmpty()) {
+                        continue;
+                    }
+                    long pollNanos = System.nanoTime();
+
+                    var clientIdToMsgsMap = toClientIdMsgsMap(msgs);
+                    DeviceSubmitStrategy submitStrategy = submitStrategyFactory.newInstance(consumerId);
+                    submitStrategy.init(clientIdToMsgsMap);
+                    var pack = new PipelinedDevicePack(ackStrategyFactory.newInstance(consumerId), submitStrategy,
+                            clientIdToMsgsMap.keySet(), PipelinedPackUtil.toPartitionOffsets(msgs), msgs.size(), pollNanos);
+                    inFlightPacks.addLast(pack);
+                    if (!hasEarlierPackOfSameClients(inFlightPacks, pack)) {
+                        submitPipelinedPackIteration(pack, stats);
+                    }
+                    if (redisWorkInFlight) {
+                        stats.logRedisOverlapTime(System.nanoTime() - pollStart, TimeUnit.NANOSECONDS);
+                    }
+                } catch (Exception e) {
+                    if (!stopped) {
+                        log.error("[{}] Failed to process messages from queue.", consumerId, e);
+                        try {
+                            Thread.sleep(pollDuration);
+                        } catch (InterruptedException e2) {
+                            log.trace("[{}] Failed to wait until the server has capacity to handle new requests", consumerId, e2);
+                        }
+                    }
+                }
+            }
+            log.info("[{}] Device Persisted Msg Consumer stopped.", consumerId);
+        });
+    }
+
+    void processInFlightPacks(Deque<PipelinedDevicePack> inFlightPacks, DeviceProcessorStats stats) {
+        for (PipelinedDevicePack pack : inFlightPacks) {
+            if (pack.isProcessed()) {
+                continue;
+            }
+            if (!pack.isStarted()) {
+                if (!hasEarlierPackOfSameClients(inFlightPacks, pack)) {
+                    submitPipelinedPackIteration(pack, stats);
+                }
+                continue;
+            }
+            if (!pack.isIterationFinished(packProcessingTimeout)) {
+                continue;
+            }
+            DevicePackProcessingContext ctx = pack.getCtx();
+            DevicePackProcessingResult result = new DevicePackProcessingResult(ctx);
+            ctx.cleanup();
+            DeviceProcessingDecision decision = pack.getAckStrategy().analyze(result);
+            stats.log(pack.getIterationMsgCount(), result, decision.commit());
+
+            result.getSuccessMap().forEach(deviceMsgProcessor::deliverClientDeviceMessages);
+            if (decision.commit()) {
+                pack.markProcessed();
+                stats.logClientIdPacksProcessingTime(pack.getPackSize(), System.nanoTime() - pack.getPollNanos(), TimeUnit.NANOSECONDS);
+            } else {
+                pack.getSubmitStrategy().update(decision.reprocessMap());
+                submitPipelinedPackIteration(pack, stats);
+            }
+        }
+    }
+
+    boolean hasEarlierPackOfSameClients(Deque<PipelinedDevicePack> inFlightPacks, PipelinedDevicePack pack) {
+        for (PipelinedDevicePack earlierPack : inFlightPacks) {
+            if (earlierPack == pack) {
+                return false;
+            }
+            if (!earlierPack.isProcessed() && earlierPack.hasCommonClients(pack)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasRedisWorkInFlight(Deque<PipelinedDevicePack> inFlightPacks) {
+        for (PipelinedDevicePack pack : inFlightPacks) {
+            if (pack.isStarted() && !pack.isProcessed() && !pack.getCtx().isProcessed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void awaitHeadPack(Deque<PipelinedDevicePack> inFlightPacks, DeviceProcessorStats stats) throws InterruptedException {
+        PipelinedDevicePack headPack = inFlightPacks.peekFirst();
+        if (headPack.isProcessed() || !headPack.isStarted()) {
+            return;
+        }
+        long awaitStart = System.nanoTime();
+        headPack.getCtx().await(Math.min(headPack.getIterationTimeLeft(packProcessingTimeout), pollDuration), TimeUnit.MILLISECONDS);
+        stats.logRedisAwaitTime(System.nanoTime() - awaitStart, TimeUnit.NANOSECONDS);
+    }
+
+    private void submitPipelinedPackIteration(PipelinedDevicePack pack, DeviceProcessorStats stats) {
+        var ctx = new DevicePackProcessingContext(pack.getSubmitStrategy().getPendingMap());
+        pack.startIteration(ctx, countPendingMessages(ctx));
+        persistPendingPacks(ctx, pack.getSubmitStrategy(), stats);
+    }
+
+    private void persistPendingPacks(DevicePackProcessingContext ctx, DeviceSubmitStrategy submitStrategy, DeviceProcessorStats stats) {
+        List<ClientIdMessagesPack> packs = new ArrayList<>(ctx.getPendingMap().size());
+        submitStrategy.process(clientIdMessagesPack -> {
+            clientLogger.logEvent(clientIdMessagesPack.clientId(), this.getClass(), "Start persisting DEVICE msgs");
+            packs.add(clientIdMessagesPack);
+        });
+        long clientIdPackProcessingStart = System.nanoTime();
+        Map<String, CompletionStage<Integer>> futures = deviceMsgProcessor.persistClientDeviceMessages(packs);
+        futures.forEach((clientId, future) -> {
+            future.whenComplete((prevPacketId, throwable) -> {
+                if (throwable == null) {
+                    clientLogger.logEvent(clientId, this.getClass(), "Finished persisting DEVICE messages");
+                    ctx.onSuccess(clientId, prevPacketId);
+                } else {
+                    clientLogger.logEvent(clientId, this.getClass(), "Finished persisting DEVICE messages exceptionally: " + throwable.getMessage());
+                    if (log.isTraceEnabled()) {
+                        log.trace("[{}] Failed to persist device publish messages due to: ", clientId, throwable);
+                    }
+                    ctx.onFailure(clientId);
+                }
+                stats.logClientIdPackProcessingTime(System.nanoTime() - clientIdPackProcessingStart, TimeUnit.NANOSECONDS);
+            });
+        });
+    }
+
+    private int countPendingMessages(DevicePackProcessingContext ctx) {
+        if (!statsManager.isEnabled()) {
+            return 0;
+        }
+        return ctx.getPendingMap().values().stream()
+                .mapToInt(pack -> pack.messages().size())
+                .sum();
+    }
+
     @PreDestroy
     public void destroy() {
         stopped = true;
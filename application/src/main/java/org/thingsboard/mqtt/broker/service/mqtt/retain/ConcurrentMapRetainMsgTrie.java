@@ -25,9 +25,13 @@ import org.thingsboard.mqtt.broker.common.data.BrokerConstants;
 import org.thingsboard.mqtt.broker.exception.RetainMsgTrieClearException;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Stack;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -122,7 +126,125 @@ public class ConcurrentMapRetainMsgTrie<T> implements RetainMsgTrie<T> {
     }
 
     private boolean notStartingWith$(TopicPosition<T> topicPosition, Node<T> childNode) {
-        return topicPosition.segmentStartIndex != 0 || childNode.key.isEmpty() || childNode.key.charAt(0) != '$';
+        return topicPosition.segmentStartIndex != 0 || notStartingWith$(childNode);
+    }
+
+    private boolean notStartingWith$(Node<T> childNode) {
+        return childNode.key.isEmpty() || childNode.key.charAt(0) != '$';
+    }
+
+    @Override
+    public Iterator<T> iterator(String topicFilter) {
+        if (topicFilter == null) {
+            throw new IllegalArgumentException("Topic filter cannot be null");
+        }
+        return new TopicFilterIterator(topicFilter);
+    }
+
+    /**
+     * Same traversal as {@link #get(String)}, but the children of the visited nodes are kept as iterators over the
+     * children maps, so the memory used does not depend on the number of matching values, only on the trie depth.
+     */
+    private class TopicFilterIterator implements Iterator<T> {
+
+        private final String topicFilter;
+        private final Deque<ChildrenCursor<T>> cursors = new ArrayDeque<>();
+        private TopicPosition<T> pendingPosition;
+        private T next;
+
+        private TopicFilterIterator(String topicFilter) {
+            this.topicFilter = topicFilter;
+            this.pendingPosition = new TopicPosition<>(0, root, false);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = findNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T value = next;
+            next = null;
+            return value;
+        }
+
+        private T findNext() {
+            while (true) {
+                TopicPosition<T> topicPosition = pendingPosition != null ? pendingPosition : nextChildPosition();
+                pendingPosition = null;
+                if (topicPosition == null) {
+                    return null;
+                }
+                T value = visit(topicPosition);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+
+        private TopicPosition<T> nextChildPosition() {
+            while (!cursors.isEmpty()) {
+                ChildrenCursor<T> cursor = cursors.peek();
+                if (!cursor.children.hasNext()) {
+                    cursors.pop();
+                    continue;
+                }
+                Node<T> childNode = cursor.children.next();
+                if (cursor.skip$ && !notStartingWith$(childNode)) {
+                    continue;
+                }
+                return new TopicPosition<>(cursor.segmentStartIndex, childNode, cursor.isMultiLevelWildcard);
+            }
+            return null;
+        }
+
+        private T visit(TopicPosition<T> topicPosition) {
+            Node<T> node = topicPosition.node;
+            T value = node.value.get();
+            if (topicPosition.isMultiLevelWildcard) {
+                pushChildren(node, 0, true, false);
+                return value;
+            }
+            if (topicPosition.segmentStartIndex > topicFilter.length()) {
+                return value;
+            }
+            String segment = getSegment(topicFilter, topicPosition.segmentStartIndex);
+            int nextSegmentStartIndex = getNextSegmentStartIndex(topicPosition.segmentStartIndex, segment);
+            boolean skip$ = topicPosition.segmentStartIndex == 0;
+            if (segment.equals(BrokerConstants.MULTI_LEVEL_WILDCARD)) {
+                pushChildren(node, 0, true, skip$);
+                return value;
+            } else if (segment.equals(BrokerConstants.SINGLE_LEVEL_WILDCARD)) {
+                pushChildren(node, nextSegmentStartIndex, false, skip$);
+            } else {
+                Node<T> segmentNode = node.children.get(segment);
+                if (segmentNode != null) {
+                    pendingPosition = new TopicPosition<>(nextSegmentStartIndex, segmentNode, false);
+                }
+            }
+            return null;
+        }
+
+        private void pushChildren(Node<T> node, int segmentStartIndex, boolean isMultiLevelWildcard, boolean skip$) {
+            if (!node.children.isEmpty()) {
+                cursors.push(new ChildrenCursor<>(node.children.values().iterator(), segmentStartIndex, isMultiLevelWildcard, skip$));
+            }
+        }
+    }
+
+    @AllArgsConstructor
+    private static class ChildrenCursor<T> {
+        private final Iterator<Node<T>> children;
+        private final int segmentStartIndex;
+        private final boolean isMultiLevelWildcard;
+        private final boolean skip$;
     }
 
     @AllArgsConstructor
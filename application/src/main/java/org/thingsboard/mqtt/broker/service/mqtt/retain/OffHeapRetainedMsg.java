@@ -0,0 +1,216 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.retain;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import org.thingsboard.mqtt.broker.adaptor.ProtoConverter;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.util.MqttPropertiesUtil;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Retained msg which payload and MQTT properties are kept in the direct buffer allocated by {@link RetainedMsgOffHeapStore}.
+ * Only the topic, qos, created time and message expiry interval stay on the heap.
+ * <p>
+ * The buffer is released by the store once the retained msg is replaced or cleared. The readers that got the msg
+ * before that have to handle the released content: {@link #readContent}, {@link #withQos} and {@link #copyToHeap} return null,
+ * while {@link #getPayload()} and {@link #getProperties()} throw {@link IllegalStateException}.
+ */
+public class OffHeapRetainedMsg extends RetainedMsg {
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private final Content content;
+    private final MqttProperties.IntegerProperty pubExpiryIntervalProperty;
+    private final MqttProperties properties;
+
+    OffHeapRetainedMsg(RetainedMsg retainedMsg, ByteBufAllocator allocator) {
+        super(retainedMsg.getTopic(), null, retainedMsg.getQos(), null, retainedMsg.getCreatedTime());
+        this.content = Content.allocate(retainedMsg, allocator);
+        this.pubExpiryIntervalProperty = MqttPropertiesUtil.getPubExpiryIntervalProperty(retainedMsg);
+        this.properties = null;
+    }
+
+    private OffHeapRetainedMsg(OffHeapRetainedMsg retainedMsg, int qos, MqttProperties properties) {
+        super(retainedMsg.getTopic(), null, qos, null, retainedMsg.getCreatedTime());
+        this.content = retainedMsg.content;
+        this.pubExpiryIntervalProperty = MqttPropertiesUtil.getPubExpiryIntervalProperty(properties);
+        this.properties = properties;
+    }
+
+    /**
+     * Copies the payload to the heap, prefer {@link #readContent} on delivery
+     *
+     * @throws IllegalStateException if the content was already released
+     */
+    @Override
+    public byte[] getPayload() {
+        byte[] payload = readContent((payloadBuf, props) -> ByteBufUtil.getBytes(payloadBuf));
+        if (payload == null) {
+            throw newReleasedException();
+        }
+        return payload;
+    }
+
+    /**
+     * @throws IllegalStateException if the properties are kept off-heap and the content was already released
+     */
+    @Override
+    public MqttProperties getProperties() {
+        if (properties != null) {
+            return properties;
+        }
+        MqttProperties result = readContent((payloadBuf, props) -> props);
+        if (result == null) {
+            throw newReleasedException();
+        }
+        return result;
+    }
+
+    /**
+     * The msg returned shares the off-heap content with this one and keeps the new qos and properties on the heap
+     */
+    @Override
+    public RetainedMsg withQosAndProps(int qos, MqttProperties properties) {
+        return new OffHeapRetainedMsg(this, qos, properties);
+    }
+
+    /**
+     * Same as {@link #withQosAndProps} with a copy of the properties of this msg
+     *
+     * @return null if the content was already released
+     */
+    public OffHeapRetainedMsg withQos(int qos) {
+        MqttProperties props = properties != null ? MqttPropertiesUtil.copyProps(properties) : readContent((payloadBuf, p) -> p);
+        return props == null ? null : new OffHeapRetainedMsg(this, qos, props);
+    }
+
+    /**
+     * @return the retained msg with the payload and properties copied to the heap, null if the content was already released
+     */
+    public RetainedMsg copyToHeap() {
+        return readContent((payloadBuf, props) ->
+                new RetainedMsg(getTopic(), ByteBufUtil.getBytes(payloadBuf), getQos(), props, getCreatedTime()));
+    }
+
+    /**
+     * Holds the content while the reader is applied, so the payload and properties it gets are of the same retained msg.
+     * The payload buffer is valid only until the reader returns.
+     *
+     * @return result of the reader, null if the content was already released and the reader was not called
+     */
+    public <T> T readContent(BiFunction<ByteBuf, MqttProperties, T> reader) {
+        if (!content.tryRetain()) {
+            return null;
+        }
+        try {
+            MqttProperties props = properties != null ? properties : content.readProperties(pubExpiryIntervalProperty);
+            return reader.apply(content.buf.slice(0, content.payloadLength), props);
+        } finally {
+            content.release();
+        }
+    }
+
+    public MqttProperties.IntegerProperty getPubExpiryIntervalProperty() {
+        return pubExpiryIntervalProperty;
+    }
+
+    public int getPayloadLength() {
+        return content.payloadLength;
+    }
+
+    boolean isReleased() {
+        return content.refCnt.get() <= 0;
+    }
+
+    void release() {
+        content.release();
+    }
+
+    private IllegalStateException newReleasedException() {
+        return new IllegalStateException("Content of the retained msg for topic " + getTopic() + " was released, the msg was replaced or cleared");
+    }
+
+    private static final class Content {
+
+        private final ByteBuf buf;
+        private final int payloadLength;
+        private final int propsLength;
+        // the buffer may be pooled and reused by the allocator after release, so the readers never touch it without holding this counter
+        private final AtomicInteger refCnt = new AtomicInteger(1);
+
+        private Content(ByteBuf buf, int payloadLength, int propsLength) {
+            this.buf = buf;
+            this.payloadLength = payloadLength;
+            this.propsLength = propsLength;
+        }
+
+        static Content allocate(RetainedMsg retainedMsg, ByteBufAllocator allocator) {
+            byte[] payload = retainedMsg.getPayload() != null ? retainedMsg.getPayload() : EMPTY_BYTES;
+            byte[] props = retainedMsg.getProperties() != null ?
+                    ProtoConverter.convertToRetainedMsgPropsProto(retainedMsg.getProperties()).toByteArray() : EMPTY_BYTES;
+            int size = payload.length + props.length;
+            ByteBuf buf = allocator.directBuffer(size, size);
+            buf.writeBytes(payload).writeBytes(props);
+            return new Content(buf, payload.length, props.length);
+        }
+
+        /**
+         * Has to be called while the content is retained
+         */
+        MqttProperties readProperties(MqttProperties.IntegerProperty pubExpiryIntervalProperty) {
+            MqttProperties result;
+            if (propsLength == 0) {
+                result = new MqttProperties();
+            } else {
+                try {
+                    QueueProtos.RetainedMsgProto propsProto = QueueProtos.RetainedMsgProto.parseFrom(buf.nioBuffer(payloadLength, propsLength));
+                    result = ProtoConverter.convertProtoToRetainedMsgProps(propsProto);
+                } catch (InvalidProtocolBufferException e) {
+                    throw new IllegalArgumentException("Failed to decode retained msg properties", e);
+                }
+            }
+            if (pubExpiryIntervalProperty != null) {
+                result.add(pubExpiryIntervalProperty);
+            }
+            return result;
+        }
+
+        private boolean tryRetain() {
+            while (true) {
+                int cnt = refCnt.get();
+                if (cnt <= 0) {
+                    return false;
+                }
+                if (refCnt.compareAndSet(cnt, cnt + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release() {
+            if (refCnt.decrementAndGet() == 0) {
+                buf.release();
+            }
+        }
+    }
+}
@@ -17,12 +17,19 @@ package org.thingsboard.mqtt.broker.service.mqtt.retain;
 
 import org.thingsboard.mqtt.broker.exception.RetainMsgTrieClearException;
 
+import java.util.Iterator;
 import java.util.List;
 
 public interface RetainMsgTrie<T> {
 
     List<T> get(String topicFilter);
 
+    /**
+     * Lazily walks the trie for the topic filter instead of collecting all the matching values upfront.
+     * The iterator is weakly consistent: values put or deleted during the iteration may or may not be returned.
+     */
+    Iterator<T> iterator(String topicFilter);
+
     void put(String topic, T val);
 
     void delete(String topic);
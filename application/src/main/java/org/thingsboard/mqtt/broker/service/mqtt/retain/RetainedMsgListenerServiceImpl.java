@@ -33,6 +33,7 @@ import org.thingsboard.mqtt.broker.util.MqttPropertiesUtil;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -48,21 +49,25 @@ public class RetainedMsgListenerServiceImpl implements RetainedMsgListenerServic
     private final ServiceInfoProvider serviceInfoProvider;
     private final StatsManager statsManager;
     private final RetainedMsgSystemRequestProcessor retainedMsgSystemRequestProcessor;
+    private final RetainedMsgOffHeapStore retainedMsgOffHeapStore;
 
     private ConcurrentMap<String, RetainedMsg> retainedMessagesMap;
 
     @Override
     public void init(Map<String, RetainedMsg> retainedMsgMap) {
-        this.retainedMessagesMap = new ConcurrentHashMap<>(retainedMsgMap);
-        statsManager.registerRetainedMsgStats(retainedMessagesMap);
+        ConcurrentMap<String, RetainedMsg> restoredMessagesMap = new ConcurrentHashMap<>(retainedMsgMap.size());
 
         log.info("Restoring stored retained messages for {} topics.", retainedMsgMap.size());
         retainedMsgMap.forEach((topic, retainedMsg) -> {
             if (log.isTraceEnabled()) {
                 log.trace("[{}] Restoring retained msg - {}.", topic, retainedMsg);
             }
-            retainedMsgService.saveRetainedMsg(topic, retainedMsg);
+            RetainedMsg storedRetainedMsg = retainedMsgOffHeapStore.store(retainedMsg);
+            restoredMessagesMap.put(topic, storedRetainedMsg);
+            retainedMsgService.saveRetainedMsg(topic, storedRetainedMsg);
         });
+        this.retainedMessagesMap = restoredMessagesMap;
+        statsManager.registerRetainedMsgStats(retainedMessagesMap);
     }
 
     @Override
@@ -109,8 +114,9 @@ public class RetainedMsgListenerServiceImpl implements RetainedMsgListenerServic
         if (log.isTraceEnabled()) {
             log.trace("[{}] Executing cacheRetainedMsg {}.", topic, retainedMsg);
         }
-        retainedMsgService.saveRetainedMsg(topic, retainedMsg);
-        retainedMessagesMap.put(topic, retainedMsg);
+        RetainedMsg storedRetainedMsg = retainedMsgOffHeapStore.store(retainedMsg);
+        retainedMsgService.saveRetainedMsg(topic, storedRetainedMsg);
+        retainedMsgOffHeapStore.release(retainedMessagesMap.put(topic, storedRetainedMsg));
     }
 
     @Override
@@ -141,7 +147,7 @@ public class RetainedMsgListenerServiceImpl implements RetainedMsgListenerServic
             log.trace("[{}] Executing clearRetainedMsg", topic);
         }
         retainedMsgService.clearRetainedMsg(topic);
-        retainedMessagesMap.remove(topic);
+        retainedMsgOffHeapStore.release(retainedMessagesMap.remove(topic));
     }
 
     @Override
@@ -152,7 +158,7 @@ public class RetainedMsgListenerServiceImpl implements RetainedMsgListenerServic
         if (retainedMessagesMap == null) {
             return null;
         }
-        RetainedMsg retainedMsg = retainedMessagesMap.getOrDefault(topic, null);
+        RetainedMsg retainedMsg = toHeapRetainedMsg(retainedMessagesMap.getOrDefault(topic, null));
         if (retainedMsg != null) {
             return MqttPropertiesUtil
                     .isRetainedMsgExpired(retainedMsg, System.currentTimeMillis()) ? null : RetainedMsgDto.newInstance(retainedMsg);
@@ -170,10 +176,23 @@ public class RetainedMsgListenerServiceImpl implements RetainedMsgListenerServic
                 .values()
                 .stream()
                 .filter(retainedMsg -> MqttPropertiesUtil.isRetainedMsgNotExpired(retainedMsg, currentTs))
+                .map(this::toHeapRetainedMsg)
+                .filter(Objects::nonNull)
                 .toList();
         return new ArrayList<>(collect);
     }
 
+    /**
+     * Off-heap retained msg is copied to the heap for the callers that read its content outside the delivery path,
+     * null is returned if it was replaced or cleared meanwhile
+     */
+    private RetainedMsg toHeapRetainedMsg(RetainedMsg retainedMsg) {
+        if (retainedMsg instanceof OffHeapRetainedMsg offHeapRetainedMsg) {
+            return offHeapRetainedMsg.copyToHeap();
+        }
+        return retainedMsg;
+    }
+
     @Override
     public void distributeRequestUsingRetainedMsg(RetainedMsg retainedMsg) {
         if (log.isTraceEnabled()) {
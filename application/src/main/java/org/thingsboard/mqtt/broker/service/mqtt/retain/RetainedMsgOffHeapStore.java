@@ -0,0 +1,85 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.retain;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+
+/**
+ * Moves the payloads and MQTT properties of the cached retained messages off the heap.
+ * The memory is taken from a dedicated pooled direct allocator, so the retained messages are packed into
+ * the arena chunks and do not share the pools and thread caches with the network buffers.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RetainedMsgOffHeapStore {
+
+    private final StatsManager statsManager;
+
+    @Setter
+    @Value("${mqtt.retain-msg.off-heap.enabled:false}")
+    private boolean enabled;
+    @Setter
+    @Value("${mqtt.retain-msg.off-heap.arenas:2}")
+    private int arenas;
+
+    private PooledByteBufAllocator allocator;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        allocator = new PooledByteBufAllocator(true, 0, Math.max(1, arenas),
+                PooledByteBufAllocator.defaultPageSize(), PooledByteBufAllocator.defaultMaxOrder(), 0, 0, false);
+        statsManager.registerRetainedMsgOffHeapStats(allocator.metric());
+        log.info("Retained messages payloads are stored off-heap using {} arenas", Math.max(1, arenas));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the retained msg which content is copied off-heap or the same retained msg if the store is disabled
+     */
+    public RetainedMsg store(RetainedMsg retainedMsg) {
+        if (!enabled || retainedMsg == null || retainedMsg instanceof OffHeapRetainedMsg) {
+            return retainedMsg;
+        }
+        return new OffHeapRetainedMsg(retainedMsg, allocator);
+    }
+
+    /**
+     * Frees the off-heap memory of the retained msg that is not cached anymore
+     */
+    public void release(RetainedMsg retainedMsg) {
+        if (retainedMsg instanceof OffHeapRetainedMsg offHeapRetainedMsg) {
+            offHeapRetainedMsg.release();
+        }
+    }
+
+    public long getUsedMemory() {
+        return allocator != null ? allocator.metric().usedDirectMemory() : 0;
+    }
+}
@@ -17,6 +17,7 @@ package org.thingsboard.mqtt.broker.service.mqtt.retain;
 
 import org.thingsboard.mqtt.broker.exception.RetainMsgTrieClearException;
 
+import java.util.Iterator;
 import java.util.List;
 
 public interface RetainedMsgService {
@@ -27,5 +28,7 @@ public interface RetainedMsgService {
 
     List<RetainedMsg> getRetainedMessages(String topicFilter);
 
+    Iterator<RetainedMsg> getRetainedMessagesIterator(String topicFilter);
+
     void clearEmptyTopicNodes() throws RetainMsgTrieClearException;
 }
@@ -15,9 +15,14 @@
  */
 package org.thingsboard.mqtt.broker.service.processing;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
+import io.netty.buffer.ByteBuf;
 import jakarta.annotation.PostConstruct;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -46,13 +51,16 @@ import org.thingsboard.mqtt.broker.service.mqtt.persistence.MsgPersistenceManage
 import org.thingsboard.mqtt.broker.service.processing.data.MsgSubscriptions;
 import org.thingsboard.mqtt.broker.service.processing.data.PersistentMsgSubscriptions;
 import org.thingsboard.mqtt.broker.service.processing.downlink.DownLinkProxy;
+import org.thingsboard.mqtt.broker.service.stats.SharedSubscriptionDistributionStats;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgProcessingTimerStats;
 import org.thingsboard.mqtt.broker.service.subscription.ClientSubscription;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
+import org.thingsboard.mqtt.broker.service.subscription.TopicFilterMatchVisitor;
 import org.thingsboard.mqtt.broker.service.subscription.ValueWithTopicFilter;
 import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscription;
 import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionCacheService;
+import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionGroupSnapshot;
 import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionProcessingStrategy;
 import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionProcessingStrategyFactory;
 import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptions;
@@ -62,10 +70,12 @@ import org.thingsboard.mqtt.broker.util.MqttPropertiesUtil;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -91,15 +101,35 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
     private final RateLimitService rateLimitService;
 
     private MessagesStats producerStats;
+    private Cache<QueuedPublisherTopic, Boolean> queuedPublisherTopics;
     private PublishMsgProcessingTimerStats publishMsgProcessingTimerStats;
+    private SharedSubscriptionDistributionStats sharedSubscriptionDistributionStats;
 
     @Value("${mqtt.msg-subscriptions-parallel-processing:false}")
     private boolean processSubscriptionsInParallel;
+    @Setter
+    @Value("${mqtt.local-fast-path.enabled:false}")
+    private boolean localFastPathEnabled;
+    @Setter
+    @Value("${mqtt.local-fast-path.max-subscribers:100}")
+    private int localFastPathMaxSubscribers;
+    @Value("${mqtt.local-fast-path.queued-publisher-expiry-ms:60000}")
+    private long queuedPublisherExpiryMs;
+    @Value("${mqtt.local-fast-path.queued-publishers-max-size:100000}")
+    private long queuedPublishersMaxSize;
+    @Setter
+    @Value("${queue.basic-downlink-msg.batch-targets-enabled:false}")
+    private boolean batchRemoteBasicMsgTargets;
 
     @PostConstruct
     public void init() {
         this.producerStats = statsManager.createMsgDispatcherPublishStats();
+        this.queuedPublisherTopics = CacheBuilder.newBuilder()
+                .expireAfterAccess(queuedPublisherExpiryMs, TimeUnit.MILLISECONDS)
+                .maximumSize(queuedPublishersMaxSize)
+                .build();
         this.publishMsgProcessingTimerStats = statsManager.getPublishMsgProcessingTimerStats();
+        this.sharedSubscriptionDistributionStats = statsManager.getSharedSubscriptionDistributionStats();
     }
 
     @Override
@@ -109,12 +139,71 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
         tbMessageStatsReportClient.reportStats(INCOMING_MSGS);
         tbMessageStatsReportClient.reportClientSendStats(sessionInfo.getClientId(), publishMsg.getQos());
         callback = statsManager.wrapTbQueueCallback(callback, producerStats);
+        if (localFastPathEnabled && processedLocally(publishMsgProto, callback)) {
+            return;
+        }
 
         DefaultTbQueueMsgHeaders headers = createHeaders(publishMsg);
         TbProtoQueueMsg<PublishMsgProto> msgProto = new TbProtoQueueMsg<>(publishMsgProto.getTopicName(), publishMsgProto, headers);
         publishMsgQueuePublisher.sendMsg(msgProto, callback);
     }
 
+    /**
+     * Delivers QoS 0 message right away when every subscriber is a non-shared subscription of a client connected to this node,
+     * so the message needs neither durability nor routing to another node and can skip the round trip through the queue.
+     * Once a message of the publisher to the topic is sent to the queue, the following ones are sent there as well
+     * until the publisher stays idle on the topic for the expiry period, so a message on the fast path never overtakes
+     * the previous one that is still in the queue. It also saves the subscriptions lookup for such messages.
+     */
+    boolean processedLocally(PublishMsgProto publishMsgProto, TbQueueCallback callback) {
+        if (publishMsgProto.getQos() != MqttQoS.AT_MOST_ONCE.value()) {
+            return false;
+        }
+        String senderClientId = ProtoConverter.getClientId(publishMsgProto);
+        QueuedPublisherTopic publisherTopic = new QueuedPublisherTopic(senderClientId, publishMsgProto.getTopicName());
+        if (queuedPublisherTopics.getIfPresent(publisherTopic) != null) {
+            return false;
+        }
+        List<ValueWithTopicFilter<ClientSubscription>> clientSubscriptions =
+                subscriptionService.getSubscriptions(publishMsgProto.getTopicName());
+        if (clientSubscriptions.size() > localFastPathMaxSubscribers || !allSubscribersLocal(clientSubscriptions)) {
+            queuedPublisherTopics.put(publisherTopic, Boolean.TRUE);
+            return false;
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("[{}] Processing msg locally for {} subscriptions", senderClientId, clientSubscriptions.size());
+        }
+        if (rateLimitService.isTotalMsgsLimitEnabled() && rateLimitService.tryConsumeAsMuchAsPossibleTotalMsgs(1) == 0) {
+            log.debug("No available tokens left for total msgs bucket. Skipping locally processed msg");
+            tbMessageStatsReportClient.reportStats(DROPPED_MSGS);
+            callback.onSuccess(null);
+            return true;
+        }
+
+        MsgSubscriptions msgSubscriptions = getAllSubscriptionsForPubMsg(publishMsgProto, senderClientId, clientSubscriptions);
+        if (msgSubscriptions == null) {
+            tbMessageStatsReportClient.reportStats(DROPPED_MSGS);
+        } else {
+            processBasicAndCollectPersistentSubscriptions(msgSubscriptions, publishMsgProto);
+        }
+        callback.onSuccess(null);
+        return true;
+    }
+
+    private boolean allSubscribersLocal(List<ValueWithTopicFilter<ClientSubscription>> clientSubscriptions) {
+        String serviceId = serviceInfoProvider.getServiceId();
+        for (ValueWithTopicFilter<ClientSubscription> clientSubscription : clientSubscriptions) {
+            if (clientSubscription.getValue().getShareName() != null) {
+                return false;
+            }
+            ClientSessionInfo clientSessionInfo = clientSessionCache.getClientSessionInfo(clientSubscription.getValue().getClientId());
+            if (clientSessionInfo != null && !serviceId.equals(clientSessionInfo.getServiceId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void processPublishMsg(PublishMsgWithId publishMsgWithId, PublishMsgCallback callback) {
         PublishMsgProto publishMsgProto = publishMsgWithId.getPublishMsgProto();
@@ -158,11 +247,20 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
         );
         long startTime = System.nanoTime();
 
-        if (!CollectionUtils.isEmpty(msgSubscriptions.getCommonSubscriptions())) {
-            processSubscriptions(msgSubscriptions.getCommonSubscriptions(), publishMsgProto, persistentSubscriptions);
-        }
-        if (!CollectionUtils.isEmpty(msgSubscriptions.getTargetDeviceSharedSubscriptions())) {
-            processSubscriptions(msgSubscriptions.getTargetDeviceSharedSubscriptions(), publishMsgProto, persistentSubscriptions);
+        Map<String, List<Subscription>> remoteSubscriptions = initRemoteSubscriptionsMap();
+        ByteBuf payload = ProtoConverter.wrapPayload(publishMsgProto);
+        try {
+            if (!CollectionUtils.isEmpty(msgSubscriptions.getCommonSubscriptions())) {
+                processSubscriptions(msgSubscriptions.getCommonSubscriptions(), publishMsgProto, payload, persistentSubscriptions, remoteSubscriptions);
+            }
+            if (!CollectionUtils.isEmpty(msgSubscriptions.getTargetDeviceSharedSubscriptions())) {
+                processSubscriptions(msgSubscriptions.getTargetDeviceSharedSubscriptions(), publishMsgProto, payload, persistentSubscriptions, remoteSubscriptions);
+            }
+            if (!CollectionUtils.isEmpty(remoteSubscriptions)) {
+                deliverToRemoteServices(publishMsgProto, payload, remoteSubscriptions);
+            }
+        } finally {
+            payload.release();
         }
 
         if (publishMsgProcessingTimerStats != null) {
@@ -171,17 +269,18 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
         return persistentSubscriptions;
     }
 
-    private void processSubscriptions(List<Subscription> subscriptions, PublishMsgProto publishMsgProto,
-                                      final PersistentMsgSubscriptions persistentMsgSubscriptions) {
+    private void processSubscriptions(List<Subscription> subscriptions, PublishMsgProto publishMsgProto, ByteBuf payload,
+                                      final PersistentMsgSubscriptions persistentMsgSubscriptions,
+                                      Map<String, List<Subscription>> remoteSubscriptions) {
         boolean nonPersistentByPubQos = publishMsgProto.getQos() == MqttQoS.AT_MOST_ONCE.value();
         if (nonPersistentByPubQos) {
             if (processSubscriptionsInParallel) {
                 subscriptions
                         .parallelStream()
-                        .forEach(subscription -> deliver(publishMsgProto, subscription));
+                        .forEach(subscription -> deliver(publishMsgProto, payload, subscription, remoteSubscriptions));
             } else {
                 for (Subscription subscription : subscriptions) {
-                    deliver(publishMsgProto, subscription);
+                    deliver(publishMsgProto, payload, subscription, remoteSubscriptions);
                 }
             }
         } else {
@@ -193,24 +292,29 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
                         .forEach(subscription -> processSubscription(
                                 subscription,
                                 publishMsgProto,
+                                payload,
                                 persistentMsgSubscriptions.getApplicationSubscriptions(),
-                                persistentMsgSubscriptions.getDeviceSubscriptions())
+                                persistentMsgSubscriptions.getDeviceSubscriptions(),
+                                remoteSubscriptions)
                         );
             } else {
                 for (Subscription subscription : subscriptions) {
                     processSubscription(
                             subscription,
                             publishMsgProto,
+                            payload,
                             persistentMsgSubscriptions.getApplicationSubscriptions(),
-                            persistentMsgSubscriptions.getDeviceSubscriptions()
+                            persistentMsgSubscriptions.getDeviceSubscriptions(),
+                            remoteSubscriptions
                     );
                 }
             }
         }
     }
 
-    private void processSubscription(Subscription subscription, PublishMsgProto publishMsgProto,
-                                     List<Subscription> applicationSubscriptions, List<Subscription> deviceSubscriptions) {
+    private void processSubscription(Subscription subscription, PublishMsgProto publishMsgProto, ByteBuf payload,
+                                     List<Subscription> applicationSubscriptions, List<Subscription> deviceSubscriptions,
+                                     Map<String, List<Subscription>> remoteSubscriptions) {
         if (isPersistentBySubInfo(subscription)) {
             if (ClientType.APPLICATION == subscription.getClientSessionInfo().getType()) {
                 applicationSubscriptions.add(subscription);
@@ -218,8 +322,15 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
                 deviceSubscriptions.add(subscription);
             }
         } else {
-            deliver(publishMsgProto, subscription);
+            deliver(publishMsgProto, payload, subscription, remoteSubscriptions);
+        }
+    }
+
+    private Map<String, List<Subscription>> initRemoteSubscriptionsMap() {
+        if (!batchRemoteBasicMsgTargets) {
+            return null;
         }
+        return processSubscriptionsInParallel ? new ConcurrentHashMap<>() : new HashMap<>();
     }
 
     private List<Subscription> initSubscriptionListIfNull(List<Subscription> subscriptions, int size) {
@@ -234,9 +345,29 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
         return topicSharedSubscriptions == null ? new HashSet<>() : topicSharedSubscriptions;
     }
 
+    /**
+     * Matched subscriptions are collected per client right from the subscription lookup. The total msgs rate limits
+     * need the number of matches before any of them is taken, so the matches are listed first when the limits are enabled.
+     */
     MsgSubscriptions getAllSubscriptionsForPubMsg(PublishMsgProto publishMsgProto, String senderClientId) {
-        List<ValueWithTopicFilter<ClientSubscription>> clientSubscriptions =
-                subscriptionService.getSubscriptions(publishMsgProto.getTopicName());
+        if (rateLimitService.isTotalMsgsLimitEnabled()) {
+            return getAllSubscriptionsForPubMsg(publishMsgProto, senderClientId, subscriptionService.getSubscriptions(publishMsgProto.getTopicName()));
+        }
+        boolean sharedSubscriptionsInitialized = sharedSubscriptionCacheService.sharedSubscriptionsInitialized();
+        MatchedSubscriptionsCollector collector = new MatchedSubscriptionsCollector(senderClientId, sharedSubscriptionsInitialized);
+        subscriptionService.forEachSubscription(publishMsgProto.getTopicName(), collector);
+        if (collector.getMatchedCount() == 0) {
+            log.trace("Found 0 subscriptions for [{}] msg", publishMsgProto);
+            return null;
+        }
+        if (sharedSubscriptionsInitialized) {
+            return newMsgSubscriptions(collector.getCommonSubscriptions(), collector.getTopicSharedSubscriptions(), publishMsgProto);
+        }
+        return new MsgSubscriptions(collector.getCommonSubscriptions(), null, null);
+    }
+
+    private MsgSubscriptions getAllSubscriptionsForPubMsg(PublishMsgProto publishMsgProto, String senderClientId,
+                                                          List<ValueWithTopicFilter<ClientSubscription>> clientSubscriptions) {
         int clientSubscriptionsSize = clientSubscriptions.size();
         if (clientSubscriptionsSize == 0) {
             log.trace("Found 0 subscriptions for [{}] msg", publishMsgProto);
@@ -255,13 +386,7 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
                 topicSharedSubscriptions = addSubscription(clientSubscription, commonClientSubscriptions, topicSharedSubscriptions);
             }
 
-            SharedSubscriptions sharedSubscriptions = sharedSubscriptionCacheService.get(topicSharedSubscriptions);
-
-            return new MsgSubscriptions(
-                    collectCommonSubscriptions(commonClientSubscriptions, senderClientId),
-                    sharedSubscriptions == null ? null : sharedSubscriptions.getApplicationSubscriptions(),
-                    getTargetDeviceSharedSubscriptions(sharedSubscriptions, publishMsgProto.getQos())
-            );
+            return newMsgSubscriptions(collectCommonSubscriptions(commonClientSubscriptions, senderClientId), topicSharedSubscriptions, publishMsgProto);
         } else {
             return new MsgSubscriptions(
                     collectCommonSubscriptions(clientSubscriptions, senderClientId),
@@ -271,6 +396,26 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
         }
     }
 
+    private MsgSubscriptions newMsgSubscriptions(List<Subscription> commonSubscriptions, Set<TopicSharedSubscription> topicSharedSubscriptions,
+                                                 PublishMsgProto publishMsgProto) {
+        SharedSubscriptionGroupSnapshot snapshot = getSingleGroupSnapshot(topicSharedSubscriptions);
+        if (snapshot != null) {
+            return new MsgSubscriptions(
+                    commonSubscriptions,
+                    snapshot.getApplicationSubscriptions(),
+                    getTargetDeviceSharedSubscriptions(snapshot, publishMsgProto)
+            );
+        }
+
+        SharedSubscriptions sharedSubscriptions = sharedSubscriptionCacheService.get(topicSharedSubscriptions);
+
+        return new MsgSubscriptions(
+                commonSubscriptions,
+                sharedSubscriptions == null ? null : sharedSubscriptions.getApplicationSubscriptions(),
+                getTargetDeviceSharedSubscriptions(sharedSubscriptions, publishMsgProto)
+        );
+    }
+
     List<ValueWithTopicFilter<ClientSubscription>> applyTotalMsgsRateLimits(List<ValueWithTopicFilter<ClientSubscription>> clientSubscriptions) {
         if (rateLimitService.isTotalMsgsLimitEnabled() && clientSubscriptions.size() > 1) {
             int availableTokens = (int) rateLimitService.tryConsumeAsMuchAsPossibleTotalMsgs(clientSubscriptions.size());
@@ -301,12 +446,35 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
         return topicSharedSubscriptions;
     }
 
-    private List<Subscription> getTargetDeviceSharedSubscriptions(SharedSubscriptions sharedSubscriptions, int qos) {
+    private List<Subscription> getTargetDeviceSharedSubscriptions(SharedSubscriptions sharedSubscriptions, PublishMsgProto publishMsgProto) {
         if (sharedSubscriptions == null || CollectionUtils.isEmpty(sharedSubscriptions.getDeviceSubscriptions())) {
             return null;
         }
         List<SharedSubscription> sharedSubscriptionList = toSharedSubscriptionList(sharedSubscriptions.getDeviceSubscriptions());
-        return collectOneSubscriptionFromEveryDeviceSharedSubscription(sharedSubscriptionList, qos);
+        return collectOneSubscriptionFromEveryDeviceSharedSubscription(sharedSubscriptionList, publishMsgProto);
+    }
+
+    /**
+     * Messages matching one share group are served from its snapshot. When several groups match, the subscriptions
+     * of the same client are merged across the groups, so the snapshots are not used.
+     */
+    private SharedSubscriptionGroupSnapshot getSingleGroupSnapshot(Set<TopicSharedSubscription> topicSharedSubscriptions) {
+        if (topicSharedSubscriptions == null || topicSharedSubscriptions.size() != 1) {
+            return null;
+        }
+        return sharedSubscriptionCacheService.getSnapshot(topicSharedSubscriptions.iterator().next());
+    }
+
+    List<Subscription> getTargetDeviceSharedSubscriptions(SharedSubscriptionGroupSnapshot snapshot, PublishMsgProto publishMsgProto) {
+        if (!snapshot.hasDeviceSubscriptions()) {
+            return null;
+        }
+        if (!snapshot.hasConnectedDeviceSubscriptions()) {
+            log.info("[{}] No active subscription found for shared subscription - all are persisted and disconnected", snapshot.getTopicSharedSubscription());
+            return List.of(createDummySubscription(snapshot.getTopicSharedSubscription(), publishMsgProto.getQos()));
+        }
+        SharedSubscriptionProcessingStrategy strategy = sharedSubscriptionProcessingStrategyFactory.newInstance();
+        return List.of(logSelection(snapshot.getTopicSharedSubscription(), strategy.analyze(snapshot, publishMsgProto)));
     }
 
     List<SharedSubscription> toSharedSubscriptionList(Set<Subscription> sharedSubscriptions) {
@@ -333,25 +501,32 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
         return msgSubscriptions;
     }
 
-    private List<Subscription> collectOneSubscriptionFromEveryDeviceSharedSubscription(List<SharedSubscription> sharedSubscriptions, int qos) {
+    private List<Subscription> collectOneSubscriptionFromEveryDeviceSharedSubscription(List<SharedSubscription> sharedSubscriptions, PublishMsgProto publishMsgProto) {
         List<Subscription> result = new ArrayList<>(sharedSubscriptions.size());
         for (SharedSubscription sharedSubscription : sharedSubscriptions) {
-            result.add(getSubscription(sharedSubscription, qos));
+            result.add(getSubscription(sharedSubscription, publishMsgProto));
         }
         return result;
     }
 
-    private Subscription getSubscription(SharedSubscription sharedSubscription, int qos) {
+    private Subscription getSubscription(SharedSubscription sharedSubscription, PublishMsgProto publishMsgProto) {
         Subscription anyActive = findAnyConnectedSubscription(sharedSubscription.getSubscriptions());
         if (anyActive == null) {
             log.info("[{}] No active subscription found for shared subscription - all are persisted and disconnected", sharedSubscription.getTopicSharedSubscription());
-            return createDummySubscription(sharedSubscription, qos);
+            return createDummySubscription(sharedSubscription.getTopicSharedSubscription(), publishMsgProto.getQos());
         } else {
             SharedSubscriptionProcessingStrategy strategy = sharedSubscriptionProcessingStrategyFactory.newInstance();
-            return strategy.analyze(sharedSubscription);
+            return logSelection(sharedSubscription.getTopicSharedSubscription(), strategy.analyze(sharedSubscription, publishMsgProto));
         }
     }
 
+    private Subscription logSelection(TopicSharedSubscription topicSharedSubscription, Subscription subscription) {
+        if (sharedSubscriptionDistributionStats != null && subscription != null) {
+            sharedSubscriptionDistributionStats.logSelection(topicSharedSubscription, subscription.getClientSessionInfo().getClientId());
+        }
+        return subscription;
+    }
+
     Subscription findAnyConnectedSubscription(List<Subscription> subscriptions) {
         if (CollectionUtils.isEmpty(subscriptions)) {
             return null;
@@ -363,19 +538,19 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
                 .orElse(null);
     }
 
-    private Subscription createDummySubscription(SharedSubscription sharedSubscription, int qos) {
+    private Subscription createDummySubscription(TopicSharedSubscription topicSharedSubscription, int qos) {
         return new Subscription(
-                sharedSubscription.getTopicSharedSubscription().getTopicFilter(),
+                topicSharedSubscription.getTopicFilter(),
                 qos,
-                createDummyClientSession(sharedSubscription),
-                sharedSubscription.getTopicSharedSubscription().getShareName(),
+                createDummyClientSession(topicSharedSubscription),
+                topicSharedSubscription.getShareName(),
                 SubscriptionOptions.newInstance(),
                 -1
         );
     }
 
-    private ClientSessionInfo createDummyClientSession(SharedSubscription sharedSubscription) {
-        ClientInfo clientInfo = ClientSessionInfoFactory.getClientInfo(sharedSubscription.getTopicSharedSubscription().getKey());
+    private ClientSessionInfo createDummyClientSession(TopicSharedSubscription topicSharedSubscription) {
+        ClientInfo clientInfo = ClientSessionInfoFactory.getClientInfo(topicSharedSubscription.getKey());
         return ClientSessionInfo.builder()
                 .connected(false)
                 .serviceId(serviceInfoProvider.getServiceId())
@@ -392,33 +567,38 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
         Map<String, Subscription> map = Maps.newHashMapWithExpectedSize(clientSubscriptionWithTopicFilterList.size());
 
         for (var clientSubsWithTopicFilter : clientSubscriptionWithTopicFilterList) {
-            boolean noLocalOptionMet = isNoLocalOptionMet(clientSubsWithTopicFilter, senderClientId);
-            if (noLocalOptionMet) {
-                if (log.isDebugEnabled()) {
-                    log.debug("[{}] No local option is met for sender client!", senderClientId);
-                }
-                tbMessageStatsReportClient.reportStats(DROPPED_MSGS);
-                continue;
-            }
+            collectSubscription(map, clientSubsWithTopicFilter.getValue(), clientSubsWithTopicFilter.getTopicFilter(), senderClientId);
+        }
+        return map.isEmpty() ? null : new ArrayList<>(map.values());
+    }
 
-            Subscription subscription = convertToSubscription(clientSubsWithTopicFilter);
-            if (subscription == null) {
-                continue;
+    private void collectSubscription(Map<String, Subscription> map, ClientSubscription clientSubscription, String topicFilter,
+                                     String senderClientId) {
+        boolean noLocalOptionMet = isNoLocalOptionMet(clientSubscription, senderClientId);
+        if (noLocalOptionMet) {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] No local option is met for sender client!", senderClientId);
             }
+            tbMessageStatsReportClient.reportStats(DROPPED_MSGS);
+            return;
+        }
 
-            var clientId = subscription.getClientId();
-            var value = map.get(clientId);
-            if (value != null) {
-                map.put(clientId, getSubscriptionWithHigherQosAndAllSubscriptionIds(value, subscription));
-            } else {
-                map.put(clientId, subscription);
-            }
+        Subscription subscription = convertToSubscription(clientSubscription, topicFilter);
+        if (subscription == null) {
+            return;
+        }
+
+        var clientId = subscription.getClientId();
+        var value = map.get(clientId);
+        if (value != null) {
+            map.put(clientId, getSubscriptionWithHigherQosAndAllSubscriptionIds(value, subscription));
+        } else {
+            map.put(clientId, subscription);
         }
-        return map.isEmpty() ? null : new ArrayList<>(map.values());
     }
 
-    private Subscription convertToSubscription(ValueWithTopicFilter<ClientSubscription> clientSubscription) {
-        String clientId = clientSubscription.getValue().getClientId();
+    private Subscription convertToSubscription(ClientSubscription clientSubscription, String topicFilter) {
+        String clientId = clientSubscription.getClientId();
         ClientSessionInfo clientSessionInfo = clientSessionCache.getClientSessionInfo(clientId);
         if (clientSessionInfo == null) {
             if (log.isDebugEnabled()) {
@@ -427,21 +607,19 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
             return null;
         }
         return new Subscription(
-                clientSubscription.getTopicFilter(),
-                clientSubscription.getValue().getQos(),
+                topicFilter,
+                clientSubscription.getQos(),
                 clientSessionInfo,
-                clientSubscription.getValue().getShareName(),
-                clientSubscription.getValue().getOptions(),
-                clientSubscription.getValue().getSubscriptionId());
+                clientSubscription.getShareName(),
+                clientSubscription.getOptions(),
+                clientSubscription.getSubscriptionId());
     }
 
-    private boolean isNoLocalOptionMet(ValueWithTopicFilter<ClientSubscription> clientSubscriptionWithTopicFilter,
-                                       String senderClientId) {
-        return clientSubscriptionWithTopicFilter
-                .getValue()
+    private boolean isNoLocalOptionMet(ClientSubscription clientSubscription, String senderClientId) {
+        return clientSubscription
                 .getOptions()
                 .isNoLocalOptionMet(
-                        clientSubscriptionWithTopicFilter.getValue().getClientId(),
+                        clientSubscription.getClientId(),
                         senderClientId
                 );
     }
@@ -454,11 +632,72 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
         return subscription.getClientSessionInfo().isPersistent() && subscription.getQos() != MqttQoS.AT_MOST_ONCE.value();
     }
 
-    private void deliver(PublishMsgProto publishMsgProto, Subscription subscription) {
-        downLinkProxy.sendBasicMsg(subscription, publishMsgProto);
+    private void deliver(PublishMsgProto publishMsgProto, ByteBuf payload, Subscription subscription,
+                         Map<String, List<Subscription>> remoteSubscriptions) {
+        if (remoteSubscriptions != null) {
+            String targetServiceId = subscription.getServiceId();
+            if (targetServiceId != null && !serviceInfoProvider.getServiceId().equals(targetServiceId)) {
+                remoteSubscriptions.computeIfAbsent(targetServiceId, id -> initArrayList(1)).add(subscription);
+                return;
+            }
+        }
+        downLinkProxy.sendBasicMsg(subscription, publishMsgProto, payload);
+    }
+
+    /**
+     * Single target groups are sent in the per-client format so nodes that do not unpack down-link targets yet still get them.
+     */
+    private void deliverToRemoteServices(PublishMsgProto publishMsgProto, ByteBuf payload,
+                                         Map<String, List<Subscription>> remoteSubscriptions) {
+        remoteSubscriptions.forEach((targetServiceId, subscriptions) -> {
+            if (subscriptions.size() == 1) {
+                downLinkProxy.sendBasicMsg(subscriptions.get(0), publishMsgProto, payload);
+            } else {
+                downLinkProxy.sendBasicMsg(targetServiceId, subscriptions, publishMsgProto);
+            }
+        });
     }
 
     private DefaultTbQueueMsgHeaders createHeaders(PublishMsg publishMsg) {
         return MqttPropertiesUtil.createHeaders(publishMsg);
     }
+
+    private record QueuedPublisherTopic(String clientId, String topic) {
+    }
+
+    /**
+     * Collects the common subscriptions per client and the shared subscription groups of the matches.
+     * Shared subscriptions are taken as common ones until the shared subscriptions cache is initialized.
+     */
+    private class MatchedSubscriptionsCollector implements TopicFilterMatchVisitor<ClientSubscription> {
+
+        private final String senderClientId;
+        private final boolean collectSharedSubscriptions;
+        private final Map<String, Subscription> commonSubscriptions = new HashMap<>();
+        @Getter
+        private Set<TopicSharedSubscription> topicSharedSubscriptions;
+        @Getter
+        private int matchedCount;
+
+        private MatchedSubscriptionsCollector(String senderClientId, boolean collectSharedSubscriptions) {
+            this.senderClientId = senderClientId;
+            this.collectSharedSubscriptions = collectSharedSubscriptions;
+        }
+
+        @Override
+        public void visit(ClientSubscription clientSubscription, String topicFilter) {
+            matchedCount++;
+            var shareName = clientSubscription.getShareName();
+            if (collectSharedSubscriptions && !StringUtils.isEmpty(shareName)) {
+                topicSharedSubscriptions = initTopicSharedSubscriptionSetIfNull(topicSharedSubscriptions);
+                topicSharedSubscriptions.add(new TopicSharedSubscription(topicFilter, shareName));
+            } else {
+                collectSubscription(commonSubscriptions, clientSubscription, topicFilter, senderClientId);
+            }
+        }
+
+        private List<Subscription> getCommonSubscriptions() {
+            return commonSubscriptions.isEmpty() ? null : new ArrayList<>(commonSubscriptions.values());
+        }
+    }
 }
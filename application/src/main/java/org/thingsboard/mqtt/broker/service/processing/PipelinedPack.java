@@ -0,0 +1,73 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.processing;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * State of the pack polled by a pipelined queue consumer while it is in flight.
+ * Accessed only from the consumer thread.
+ *
+ * @param <C> processing context of one pack iteration
+ */
+@Getter
+public abstract class PipelinedPack<C> {
+
+    /**
+     * Offsets to commit per partition (last polled offset + 1) once the pack is processed.
+     */
+    private final Map<Integer, Long> partitionOffsets;
+    private final int packSize;
+    private final long pollNanos;
+
+    private C ctx;
+    private int iterationMsgCount;
+    private long iterationStartTime;
+    private boolean processed;
+
+    protected PipelinedPack(Map<Integer, Long> partitionOffsets, int packSize, long pollNanos) {
+        this.partitionOffsets = partitionOffsets;
+        this.packSize = packSize;
+        this.pollNanos = pollNanos;
+    }
+
+    protected abstract boolean isIterationProcessed(C ctx);
+
+    public void startIteration(C ctx, int iterationMsgCount) {
+        this.ctx = ctx;
+        this.iterationMsgCount = iterationMsgCount;
+        this.iterationStartTime = System.currentTimeMillis();
+    }
+
+    public boolean isStarted() {
+        return ctx != null;
+    }
+
+    public boolean isIterationFinished(long packProcessingTimeout) {
+        return isIterationProcessed(ctx) || System.currentTimeMillis() - iterationStartTime >= packProcessingTimeout;
+    }
+
+    public long getIterationTimeLeft(long packProcessingTimeout) {
+        return Math.max(0, packProcessingTimeout - (System.currentTimeMillis() - iterationStartTime));
+    }
+
+    public void markProcessed() {
+        this.processed = true;
+    }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.processing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
+import org.thingsboard.mqtt.broker.queue.TbQueueMsg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
+public class PipelinedPackUtil {
+
+    public static Map<Integer, Long> toPartitionOffsets(List<? extends TbQueueMsg> msgs) {
+        Map<Integer, Long> partitionOffsets = new HashMap<>();
+        for (var msg : msgs) {
+            if (msg.getOffset() >= 0) {
+                partitionOffsets.merge(msg.getPartition(), msg.getOffset() + 1, Math::max);
+            }
+        }
+        return partitionOffsets;
+    }
+
+    /**
+     * Removes the processed packs from the head of the in-flight packs and asynchronously commits the offsets up to the last of them.
+     * Packs polled before a rebalance may hold partitions that are owned by another consumer now, committing them could move back
+     * the offsets committed by the new owner, so only the partitions assigned to the consumer are committed.
+     *
+     * @return removed packs in the poll order
+     */
+    public static <P extends PipelinedPack<?>> List<P> commitProcessedPacks(TbQueueControlledOffsetConsumer<?> consumer, Deque<P> inFlightPacks) {
+        if (inFlightPacks.isEmpty() || !inFlightPacks.peekFirst().isProcessed()) {
+            return Collections.emptyList();
+        }
+        List<P> committedPacks = new ArrayList<>();
+        Map<Integer, Long> offsetsToCommit = new HashMap<>();
+        while (!inFlightPacks.isEmpty() && inFlightPacks.peekFirst().isProcessed()) {
+            P pack = inFlightPacks.pollFirst();
+            // packs are polled in order, so offsets of the later pack supersede the earlier ones
+            offsetsToCommit.putAll(pack.getPartitionOffsets());
+            committedPacks.add(pack);
+        }
+        Set<Integer> assignedPartitions = consumer.getAssignedPartitions();
+        offsetsToCommit.forEach((partition, offset) -> {
+            if (assignedPartitions.contains(partition)) {
+                consumer.commit(partition, offset);
+            } else if (log.isDebugEnabled()) {
+                log.debug("[{}] Skipping commit of offset {} for revoked partition {}", consumer.getTopic(), offset, partition);
+            }
+        });
+        return committedPacks;
+    }
+
+}
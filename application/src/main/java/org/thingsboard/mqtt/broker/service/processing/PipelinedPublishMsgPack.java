@@ -0,0 +1,44 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.processing;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+public class PipelinedPublishMsgPack extends PipelinedPack<PackProcessingContext> {
+
+    private final AckStrategy ackStrategy;
+    private final SubmitStrategy submitStrategy;
+
+    public PipelinedPublishMsgPack(AckStrategy ackStrategy, SubmitStrategy submitStrategy,
+                                   Map<Integer, Long> partitionOffsets, int packSize, long pollNanos) {
+        super(partitionOffsets, packSize, pollNanos);
+        this.ackStrategy = ackStrategy;
+        this.submitStrategy = submitStrategy;
+    }
+
+    public void startIteration(PackProcessingContext ctx) {
+        startIteration(ctx, ctx.getPendingMap().size());
+    }
+
+    @Override
+    protected boolean isIterationProcessed(PackProcessingContext ctx) {
+        return ctx.isProcessed();
+    }
+
+}
@@ -26,13 +26,17 @@ import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
 import org.thingsboard.mqtt.broker.common.util.ThingsBoardExecutors;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
 import org.thingsboard.mqtt.broker.queue.TbQueueConsumer;
+import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
 import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
 import org.thingsboard.mqtt.broker.queue.provider.PublishMsgQueueFactory;
 import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
 import org.thingsboard.mqtt.broker.service.stats.PublishMsgConsumerStats;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -48,7 +52,7 @@ public class PublishMsgConsumerServiceImpl implements PublishMsgConsumerService
 
     public static final long MAX_VALUE = 1_000_000_000L;
 
-    private final List<TbQueueConsumer<TbProtoQueueMsg<PublishMsgProto>>> publishMsgConsumers = new ArrayList<>();
+    private final List<TbQueueControlledOffsetConsumer<TbProtoQueueMsg<PublishMsgProto>>> publishMsgConsumers = new ArrayList<>();
     private final MsgDispatcherService msgDispatcherService;
     private final PublishMsgQueueFactory publishMsgQueueFactory;
     private final AckStrategyFactory ackStrategyFactory;
@@ -68,6 +72,10 @@ public class PublishMsgConsumerServiceImpl implements PublishMsgConsumerService
     private long pollDuration;
     @Value("${queue.msg-all.pack-processing-timeout}")
     private long packProcessingTimeout;
+    @Value("${queue.msg-all.pipelined-processing.enabled:false}")
+    private boolean pipelinedProcessingEnabled;
+    @Value("${queue.msg-all.pipelined-processing.max-in-flight-packs:4}")
+    private int maxInFlightPacks;
 
     @PostConstruct
     public void init() {
@@ -79,10 +87,14 @@ public class PublishMsgConsumerServiceImpl implements PublishMsgConsumerService
         for (int i = 0; i < consumersCount; i++) {
             String consumerId = serviceInfoProvider.getServiceId() + "-" + i;
             // TODO: think about the fact that all consumed messages can be processed multiple time (if kafka is disconnected while msgs are processing)
-            TbQueueConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer = publishMsgQueueFactory.createConsumer(consumerId);
+            TbQueueControlledOffsetConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer = publishMsgQueueFactory.createConsumer(consumerId);
             publishMsgConsumers.add(consumer);
             consumer.subscribe();
-            launchConsumer(consumerId, consumer);
+            if (pipelinedProcessingEnabled) {
+                launchPipelinedConsumer(consumerId, consumer);
+            } else {
+                launchConsumer(consumerId, consumer);
+            }
         }
     }
 
@@ -132,6 +144,7 @@ public class PublishMsgConsumerServiceImpl implements PublishMsgConsumerService
 
                         if (decision.isCommit()) {
                             consumer.commitSync();
+                            stats.logPackCommitLatency(msgs.size(), System.nanoTime() - packProcessingStart, TimeUnit.NANOSECONDS);
                             break;
                         } else {
                             submitStrategy.update(decision.getReprocessMap());
@@ -155,14 +168,115 @@ public class PublishMsgConsumerServiceImpl implements PublishMsgConsumerService
         });
     }
 
+    /**
+     * Keeps up to {@code maxInFlightPacks} packs in processing. Packs are polled and submitted without waiting for the previous ones,
+     * while the offsets are committed asynchronously only up to the last pack that is fully processed together with all packs before it.
+     * Ack strategy decisions are applied per pack, so retries of one pack do not block polling unless the in-flight limit is reached.
+     */
+    private void launchPipelinedConsumer(String consumerId, TbQueueControlledOffsetConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer) {
+        PublishMsgConsumerStats stats = statsManager.createPublishMsgConsumerStats(consumerId);
+        final AtomicLong counter = new AtomicLong(0);
+        consumersExecutor.submit(() -> {
+            Deque<PipelinedPublishMsgPack> inFlightPacks = new ArrayDeque<>(maxInFlightPacks);
+            while (!stopped) {
+                try {
+                    processInFlightPacks(inFlightPacks, stats);
+                    commitProcessedPacks(consumer, inFlightPacks, stats);
+                    if (inFlightPacks.size() >= maxInFlightPacks) {
+                        PipelinedPublishMsgPack headPack = inFlightPacks.peekFirst();
+                        headPack.getCtx().await(Math.min(headPack.getIterationTimeLeft(packProcessingTimeout), pollDuration), TimeUnit.MILLISECONDS);
+                        continue;
+                    }
+
+                    List<TbProtoQueueMsg<PublishMsgProto>> msgs = consumer.poll(pollDuration);
+                    if (msgs.isEmpty()) {
+                        continue;
+                    }
+                    long pollNanos = System.nanoTime();
+                    List<TbProtoQueueMsg<PublishMsgProto>> msgsAfterRateLimits = applyRateLimits(msgs);
+
+                    long packId = counter.incrementAndGet();
+                    if (packId == MAX_VALUE) {
+                        counter.set(0);
+                    }
+                    SubmitStrategy submitStrategy = submitStrategyFactory.newInstance(consumerId);
+                    submitStrategy.init(toPendingPubMsgWithIdMap(msgsAfterRateLimits, packId));
+                    var pack = new PipelinedPublishMsgPack(ackStrategyFactory.newInstance(consumerId), submitStrategy,
+                            PipelinedPackUtil.toPartitionOffsets(msgs), msgsAfterRateLimits.size(), pollNanos);
+                    inFlightPacks.addLast(pack);
+                    submitPipelinedPackIteration(pack, stats);
+                } catch (Exception e) {
+                    if (!stopped) {
+                        log.error("[{}] Failed to process messages from queue.", consumerId, e);
+                        try {
+                            Thread.sleep(pollDuration);
+                        } catch (InterruptedException e2) {
+                            if (log.isDebugEnabled()) {
+                                log.debug("[{}] Failed to wait until the server has capacity to handle new requests", consumerId, e2);
+                            }
+                        }
+                    }
+                }
+            }
+            log.info("[{}] Publish Msg Consumer stopped.", consumerId);
+        });
+    }
+
+    void processInFlightPacks(Deque<PipelinedPublishMsgPack> inFlightPacks, PublishMsgConsumerStats stats) {
+        for (PipelinedPublishMsgPack pack : inFlightPacks) {
+            if (pack.isProcessed() || !pack.isIterationFinished(packProcessingTimeout)) {
+                continue;
+            }
+            PackProcessingContext ctx = pack.getCtx();
+            PackProcessingResult result = new PackProcessingResult(ctx);
+            ctx.cleanup();
+            ProcessingDecision decision = pack.getAckStrategy().analyze(result);
+
+            stats.log(pack.getIterationMsgCount(), result, decision.isCommit());
+
+            if (decision.isCommit()) {
+                pack.markProcessed();
+                stats.logPackProcessingTime(pack.getPackSize(), System.nanoTime() - pack.getPollNanos(), TimeUnit.NANOSECONDS);
+            } else {
+                pack.getSubmitStrategy().update(decision.getReprocessMap());
+                submitPipelinedPackIteration(pack, stats);
+            }
+        }
+    }
+
+    void commitProcessedPacks(TbQueueControlledOffsetConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer,
+                              Deque<PipelinedPublishMsgPack> inFlightPacks, PublishMsgConsumerStats stats) {
+        for (PipelinedPublishMsgPack pack : PipelinedPackUtil.commitProcessedPacks(consumer, inFlightPacks)) {
+            stats.logPackCommitLatency(pack.getPackSize(), System.nanoTime() - pack.getPollNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void submitPipelinedPackIteration(PipelinedPublishMsgPack pack, PublishMsgConsumerStats stats) {
+        PackProcessingContext ctx = new PackProcessingContext(pack.getSubmitStrategy().getPendingMap());
+        pack.startIteration(ctx);
+        pack.getSubmitStrategy().process(msg -> {
+            long msgProcessingStart = System.nanoTime();
+            msgDispatcherService.processPublishMsg(msg, new BasePublishMsgCallback(msg.getId(), ctx));
+            stats.logMsgProcessingTime(System.nanoTime() - msgProcessingStart, TimeUnit.NANOSECONDS);
+        });
+    }
+
     private List<TbProtoQueueMsg<PublishMsgProto>> applyRateLimits(TbQueueConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer,
                                                                    List<TbProtoQueueMsg<PublishMsgProto>> msgs) {
+        List<TbProtoQueueMsg<PublishMsgProto>> msgsAfterRateLimits = applyRateLimits(msgs);
+        if (msgsAfterRateLimits.isEmpty()) {
+            consumer.commitSync();
+            return null;
+        }
+        return msgsAfterRateLimits;
+    }
+
+    private List<TbProtoQueueMsg<PublishMsgProto>> applyRateLimits(List<TbProtoQueueMsg<PublishMsgProto>> msgs) {
         if (rateLimitService.isTotalMsgsLimitEnabled()) {
             int availableTokens = (int) rateLimitService.tryConsumeAsMuchAsPossibleTotalMsgs(msgs.size());
             if (availableTokens == 0) {
                 log.debug("No available tokens left for total msgs bucket during consumer polling. Skipping {} messages", msgs.size());
-                consumer.commitSync();
-                return null;
+                return Collections.emptyList();
             }
             if (log.isDebugEnabled() && availableTokens < msgs.size()) {
                 log.debug("Hitting total messages rate limits on consumer polling. Skipping {} messages", msgs.size() - availableTokens);
@@ -15,15 +15,26 @@
  */
 package org.thingsboard.mqtt.broker.service.processing.downlink;
 
+import io.netty.buffer.ByteBuf;
 import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
 
+import java.util.List;
+
 public interface DownLinkProxy {
 
     void sendBasicMsg(String targetServiceId, String clientId, PublishMsgProto msg);
 
-    void sendBasicMsg(Subscription subscription, PublishMsgProto msg);
+    /**
+     * @param payload the message payload shared by all local subscribers, it is retained for the delivery and stays owned by the caller
+     */
+    void sendBasicMsg(Subscription subscription, PublishMsgProto msg, ByteBuf payload);
+
+    /**
+     * Sends the message to all subscriptions of clients connected to the target node as one down-link message
+     */
+    void sendBasicMsg(String targetServiceId, List<Subscription> subscriptions, PublishMsgProto msg);
 
     void sendPersistentMsg(String targetServiceId, String clientId, DevicePublishMsg devicePublishMsg);
 
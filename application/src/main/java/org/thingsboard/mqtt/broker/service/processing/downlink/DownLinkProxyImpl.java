@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.service.processing.downlink;
 
+import io.netty.buffer.ByteBuf;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -25,6 +26,8 @@ import org.thingsboard.mqtt.broker.service.processing.downlink.basic.BasicDownLi
 import org.thingsboard.mqtt.broker.service.processing.downlink.persistent.PersistentDownLinkProcessor;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
 
+import java.util.List;
+
 import static org.thingsboard.mqtt.broker.adaptor.ProtoConverter.updatePublishMsg;
 
 @Slf4j
@@ -51,14 +54,19 @@ public class DownLinkProxyImpl implements DownLinkProxy {
     }
 
     @Override
-    public void sendBasicMsg(Subscription subscription, PublishMsgProto msg) {
+    public void sendBasicMsg(Subscription subscription, PublishMsgProto msg, ByteBuf payload) {
         if (belongsToThisNode(subscription.getServiceId())) {
-            basicDownLinkProcessor.process(subscription, msg);
+            basicDownLinkProcessor.process(subscription, msg, payload);
         } else {
             queuePublisher.publishBasicMsg(subscription.getServiceId(), subscription.getClientId(), updatePublishMsg(subscription, msg));
         }
     }
 
+    @Override
+    public void sendBasicMsg(String targetServiceId, List<Subscription> subscriptions, PublishMsgProto msg) {
+        queuePublisher.publishBasicMsg(targetServiceId, subscriptions, msg);
+    }
+
     @Override
     public void sendPersistentMsg(String targetServiceId, String clientId, DevicePublishMsg devicePublishMsg) {
         if (belongsToThisNode(targetServiceId)) {
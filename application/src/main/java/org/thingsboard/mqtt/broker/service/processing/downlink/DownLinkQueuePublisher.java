@@ -17,10 +17,15 @@ package org.thingsboard.mqtt.broker.service.processing.downlink;
 
 import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.service.subscription.Subscription;
+
+import java.util.List;
 
 interface DownLinkQueuePublisher {
 
     void publishBasicMsg(String targetServiceId, String clientId, QueueProtos.PublishMsgProto msg);
 
+    void publishBasicMsg(String targetServiceId, List<Subscription> subscriptions, QueueProtos.PublishMsgProto msg);
+
     void publishPersistentMsg(String targetServiceId, String clientId, DevicePublishMsg msg);
 }
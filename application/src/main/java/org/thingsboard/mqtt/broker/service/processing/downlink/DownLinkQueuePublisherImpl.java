@@ -33,8 +33,10 @@ import org.thingsboard.mqtt.broker.queue.provider.DownLinkBasicPublishMsgQueueFa
 import org.thingsboard.mqtt.broker.queue.provider.DownLinkPersistentPublishMsgQueueFactory;
 import org.thingsboard.mqtt.broker.queue.publish.TbPublishServiceImpl;
 import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
+import org.thingsboard.mqtt.broker.service.subscription.Subscription;
 import org.thingsboard.mqtt.broker.util.MqttPropertiesUtil;
 
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 
 @Slf4j
@@ -52,6 +54,8 @@ class DownLinkQueuePublisherImpl implements DownLinkQueuePublisher {
 
     @Value("${mqtt.handler.downlink_msg_callback_threads:2}")
     private int threadsCount;
+    @Value("${queue.basic-downlink-msg.batch-max-targets:1000}")
+    private int batchMaxTargets;
 
     private TbPublishServiceImpl<QueueProtos.ClientPublishMsgProto> basicPublisher;
     private TbPublishServiceImpl<QueueProtos.DevicePublishMsgProto> persistentPublisher;
@@ -103,6 +107,39 @@ class DownLinkQueuePublisherImpl implements DownLinkQueuePublisher {
         );
     }
 
+    @Override
+    public void publishBasicMsg(String targetServiceId, List<Subscription> subscriptions, QueueProtos.PublishMsgProto msg) {
+        String topic = downLinkPublisherHelper.getBasicDownLinkServiceTopic(targetServiceId);
+        for (int from = 0; from < subscriptions.size(); from += batchMaxTargets) {
+            List<Subscription> batch = subscriptions.subList(from, Math.min(from + batchMaxTargets, subscriptions.size()));
+            QueueProtos.ClientPublishMsgProto.Builder builder = QueueProtos.ClientPublishMsgProto.newBuilder().setPublishMsg(msg);
+            for (Subscription subscription : batch) {
+                builder.addTargets(ProtoConverter.toDownLinkTargetProto(subscription, msg));
+            }
+            int targetsCount = batch.size();
+            basicPublisher.send(new TbProtoQueueMsg<>(msg.getTopicName(), builder.build()),
+                    new TbQueueCallback() {
+                        @Override
+                        public void onSuccess(TbQueueMsgMetadata metadata) {
+                            if (isTraceEnabled) {
+                                callbackProcessor.submit(() ->
+                                        log.trace("[{}] Successfully published BASIC msg for {} clients to {} service.",
+                                                msg.getTopicName(), targetsCount, targetServiceId));
+                            }
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            callbackProcessor.submit(() ->
+                                    log.warn("[{}] Failed to publish BASIC msg for {} clients to {} service.",
+                                            msg.getTopicName(), targetsCount, targetServiceId, t));
+                        }
+                    },
+                    topic
+            );
+        }
+    }
+
     @Override
     public void publishPersistentMsg(String targetServiceId, String clientId, DevicePublishMsg devicePublishMsg) {
         String topic = downLinkPublisherHelper.getPersistentDownLinkServiceTopic(targetServiceId);
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.service.processing.downlink.basic;
 
+import io.netty.buffer.ByteBuf;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +23,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import org.thingsboard.mqtt.broker.adaptor.ProtoConverter;
 import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
 import org.thingsboard.mqtt.broker.common.data.BrokerConstants;
 import org.thingsboard.mqtt.broker.common.util.ThingsBoardExecutors;
@@ -91,7 +93,11 @@ public class BasicDownLinkConsumerImpl implements BasicDownLinkConsumer {
 
                     for (TbProtoQueueMsg<QueueProtos.ClientPublishMsgProto> msg : msgs) {
                         QueueProtos.ClientPublishMsgProto clientPublishMsgProto = msg.getValue();
-                        processor.process(clientPublishMsgProto.getClientId(), clientPublishMsgProto.getPublishMsg());
+                        if (clientPublishMsgProto.getTargetsCount() == 0) {
+                            processor.process(clientPublishMsgProto.getClientId(), clientPublishMsgProto.getPublishMsg());
+                        } else {
+                            processTargets(clientPublishMsgProto);
+                        }
                     }
                     consumer.commitSync();
                 } catch (Exception e) {
@@ -109,6 +115,18 @@ public class BasicDownLinkConsumerImpl implements BasicDownLinkConsumer {
         });
     }
 
+    private void processTargets(QueueProtos.ClientPublishMsgProto clientPublishMsgProto) {
+        QueueProtos.PublishMsgProto publishMsg = clientPublishMsgProto.getPublishMsg();
+        ByteBuf payload = ProtoConverter.wrapPayload(publishMsg);
+        try {
+            for (QueueProtos.DownLinkTargetProto target : clientPublishMsgProto.getTargetsList()) {
+                processor.process(target, publishMsg, payload);
+            }
+        } finally {
+            payload.release();
+        }
+    }
+
     @PreDestroy
     public void destroy() {
         stopped = true;
@@ -15,6 +15,8 @@
  */
 package org.thingsboard.mqtt.broker.service.processing.downlink.basic;
 
+import io.netty.buffer.ByteBuf;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.DownLinkTargetProto;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
 
@@ -22,6 +24,8 @@ public interface BasicDownLinkProcessor {
 
     void process(String clientId, PublishMsgProto msg);
 
-    void process(Subscription subscription, PublishMsgProto msg);
+    void process(Subscription subscription, PublishMsgProto msg, ByteBuf payload);
+
+    void process(DownLinkTargetProto target, PublishMsgProto msg, ByteBuf payload);
 
 }
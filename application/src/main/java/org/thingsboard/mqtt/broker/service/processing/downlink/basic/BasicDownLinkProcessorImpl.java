@@ -15,10 +15,13 @@
  */
 package org.thingsboard.mqtt.broker.service.processing.downlink.basic;
 
+import io.netty.buffer.ByteBuf;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.thingsboard.mqtt.broker.actors.client.messages.mqtt.MqttDisconnectMsg;
+import org.thingsboard.mqtt.broker.adaptor.ProtoConverter;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.DownLinkTargetProto;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
 import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
 import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
@@ -61,7 +64,7 @@ public class BasicDownLinkProcessorImpl implements BasicDownLinkProcessor {
     }
 
     @Override
-    public void process(Subscription subscription, PublishMsgProto msg) {
+    public void process(Subscription subscription, PublishMsgProto msg, ByteBuf payload) {
         ClientSessionCtx clientSessionCtx = clientSessionCtxService.getClientSessionCtx(subscription.getClientId());
         if (clientSessionCtx == null) {
             if (log.isTraceEnabled()) {
@@ -70,13 +73,39 @@ public class BasicDownLinkProcessorImpl implements BasicDownLinkProcessor {
             return;
         }
         if (rateLimitService.checkOutgoingLimits(subscription.getClientId(), msg)) {
-            publishMsgDeliveryService.sendPublishMsgProtoToClient(clientSessionCtx, msg, subscription);
+            publishMsgDeliveryService.sendPublishMsgProtoToClient(clientSessionCtx, msg, subscription, payload);
         } else {
             disconnectOnRateLimits(subscription.getClientId(), clientSessionCtx.getSessionId());
         }
         clientLogger.logEvent(subscription.getClientId(), this.getClass(), "Delivered msg to basic client");
     }
 
+    @Override
+    public void process(DownLinkTargetProto target, PublishMsgProto msg, ByteBuf payload) {
+        String clientId = target.getClientId();
+        ClientSessionCtx clientSessionCtx = clientSessionCtxService.getClientSessionCtx(clientId);
+        if (clientSessionCtx == null) {
+            if (log.isTraceEnabled()) {
+                log.trace("[{}] No client session on the node while processing basic downlink target.", clientId);
+            }
+            return;
+        }
+        if (rateLimitService.checkOutgoingLimits(clientId, withTargetQos(target, msg))) {
+            publishMsgDeliveryService.sendPublishMsgProtoToClient(clientSessionCtx, msg, target, payload);
+        } else {
+            disconnectOnRateLimits(clientId, clientSessionCtx.getSessionId());
+        }
+        clientLogger.logEvent(clientId, this.getClass(), "Delivered msg to basic client");
+    }
+
+    /**
+     * Target QoS is already downgraded to the subscription QoS, so the outgoing limits are checked against it
+     * the same way as for the per-client messages updated in {@link ProtoConverter#updatePublishMsg}.
+     */
+    private PublishMsgProto withTargetQos(DownLinkTargetProto target, PublishMsgProto msg) {
+        return msg.getQos() == target.getQos() ? msg : msg.toBuilder().setQos(target.getQos()).build();
+    }
+
     private void disconnectOnRateLimits(String clientId, UUID sessionId) {
         clientMqttActorManager.disconnect(clientId, new MqttDisconnectMsg(sessionId, new DisconnectReason(DisconnectReasonType.ON_RATE_LIMITS)));
     }
@@ -0,0 +1,85 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.security.authorization;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Publish and subscribe authorization rules of one client session compiled into matchers,
+ * with bounded caches of the verdicts for the already checked topics.
+ */
+public class AuthRulesMatcher {
+
+    @Getter
+    private final List<AuthRulePatterns> authRulePatterns;
+    private final TopicRulesMatcher pubMatcher;
+    private final TopicRulesMatcher subMatcher;
+    private final int verdictCacheMaxSize;
+
+    private final ConcurrentMap<String, Boolean> pubVerdicts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Boolean> subVerdicts = new ConcurrentHashMap<>();
+
+    public AuthRulesMatcher(List<AuthRulePatterns> authRulePatterns, int verdictCacheMaxSize) {
+        this.authRulePatterns = authRulePatterns;
+        this.pubMatcher = new TopicRulesMatcher(collectPatterns(authRulePatterns, true));
+        this.subMatcher = new TopicRulesMatcher(collectPatterns(authRulePatterns, false));
+        this.verdictCacheMaxSize = verdictCacheMaxSize;
+    }
+
+    public boolean isCompiledFrom(List<AuthRulePatterns> authRulePatterns) {
+        return this.authRulePatterns == authRulePatterns;
+    }
+
+    public boolean isPubAuthorized(String topic) {
+        return isAuthorized(topic, pubMatcher, pubVerdicts);
+    }
+
+    public boolean isSubAuthorized(String topic) {
+        return isAuthorized(topic, subMatcher, subVerdicts);
+    }
+
+    int getPubVerdictsCount() {
+        return pubVerdicts.size();
+    }
+
+    private boolean isAuthorized(String topic, TopicRulesMatcher matcher, ConcurrentMap<String, Boolean> verdicts) {
+        Boolean verdict = verdicts.get(topic);
+        if (verdict != null) {
+            return verdict;
+        }
+        boolean authorized = matcher.matches(topic);
+        // once the cache is full only the already cached topics are served from it, the rest are matched every time
+        if (verdicts.size() < verdictCacheMaxSize) {
+            verdicts.put(topic, authorized);
+        }
+        return authorized;
+    }
+
+    private static List<Pattern> collectPatterns(List<AuthRulePatterns> authRulePatterns, boolean pub) {
+        return authRulePatterns.stream()
+                .map(patterns -> pub ? patterns.getPubPatterns() : patterns.getSubPatterns())
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+}
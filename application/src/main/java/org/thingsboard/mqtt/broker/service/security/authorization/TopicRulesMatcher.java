@@ -0,0 +1,192 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.security.authorization;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+/**
+ * Matches a topic against a set of authorization rule patterns with a single pass over the topic where possible.
+ * Literal rules (e.g. "sensors/temp") and literal prefixes followed by ".*" (e.g. "sensors/.*") are put into a character trie,
+ * ".*" matches everything. Other regular expressions starting with a literal prefix are attached to the trie node of the prefix,
+ * so only the ones whose prefix matches the topic are evaluated; the rest are combined into one alternation.
+ */
+@Slf4j
+class TopicRulesMatcher {
+
+    private static final String ANY_SUFFIX = ".*";
+    private static final String REGEX_META_CHARS = "\\.[]{}()<>*+-=!?^$|";
+    private static final String QUANTIFIER_CHARS = "?*+{";
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\([1-9]|k<)");
+
+    private final boolean matchAll;
+    private final Node root = new Node();
+    private final List<Pattern> regexPatterns;
+
+    TopicRulesMatcher(List<Pattern> patterns) {
+        boolean matchAll = false;
+        List<Pattern> regexPatterns = new ArrayList<>();
+        for (Pattern pattern : patterns) {
+            String regex = pattern.pattern();
+            if (pattern.flags() != 0) {
+                regexPatterns.add(pattern);
+            } else if (ANY_SUFFIX.equals(regex)) {
+                matchAll = true;
+            } else if (isLiteral(regex)) {
+                root.add(regex).literalEnd = true;
+            } else if (regex.endsWith(ANY_SUFFIX) && isLiteral(regex.substring(0, regex.length() - ANY_SUFFIX.length()))) {
+                root.add(regex.substring(0, regex.length() - ANY_SUFFIX.length())).prefixEnd = true;
+            } else {
+                String literalPrefix = getLiteralPrefix(regex);
+                if (literalPrefix.isEmpty()) {
+                    regexPatterns.add(pattern);
+                } else {
+                    root.add(literalPrefix).patterns.add(pattern);
+                }
+            }
+        }
+        this.matchAll = matchAll;
+        this.regexPatterns = combine(regexPatterns);
+    }
+
+    boolean matches(String topic) {
+        if (matchAll && !containsLineTerminator(topic, 0)) {
+            return true;
+        }
+        if (matchesTrie(topic)) {
+            return true;
+        }
+        return matchesAny(regexPatterns, topic);
+    }
+
+    private boolean matchesTrie(String topic) {
+        Node node = root;
+        for (int i = 0; i < topic.length(); i++) {
+            // ".*" does not match line terminators, same as the regular expression it replaces
+            if (node.prefixEnd && !containsLineTerminator(topic, i)) {
+                return true;
+            }
+            if (matchesAny(node.patterns, topic)) {
+                return true;
+            }
+            node = node.children.get(topic.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.literalEnd || node.prefixEnd || matchesAny(node.patterns, topic);
+    }
+
+    private static boolean matchesAny(List<Pattern> patterns, String topic) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(topic).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Regular expressions without back references are evaluated as one alternation, so the topic is scanned by a single matcher.
+     */
+    private static List<Pattern> combine(List<Pattern> patterns) {
+        if (patterns.size() < 2) {
+            return patterns;
+        }
+        List<Pattern> result = new ArrayList<>();
+        List<Pattern> combinable = new ArrayList<>();
+        for (Pattern pattern : patterns) {
+            if (pattern.flags() != 0 || BACK_REFERENCE.matcher(pattern.pattern()).find()) {
+                result.add(pattern);
+            } else {
+                combinable.add(pattern);
+            }
+        }
+        if (combinable.size() < 2) {
+            result.addAll(combinable);
+            return result;
+        }
+        try {
+            result.add(Pattern.compile(combinable.stream()
+                    .map(pattern -> "(?:" + pattern.pattern() + ")")
+                    .collect(Collectors.joining("|"))));
+        } catch (PatternSyntaxException e) {
+            log.debug("Failed to combine authorization rule patterns {}", combinable, e);
+            result.addAll(combinable);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the characters every topic matched by the regex starts with, or an empty string when there is no such prefix
+     * (e.g. the regex has a top-level alternation or starts with a meta character).
+     */
+    private static String getLiteralPrefix(String regex) {
+        if (regex.indexOf('|') >= 0) {
+            return "";
+        }
+        int end = 0;
+        while (end < regex.length() && REGEX_META_CHARS.indexOf(regex.charAt(end)) < 0) {
+            end++;
+        }
+        // a quantifier makes the preceding character optional or repeatable, so it is not a part of the prefix
+        if (end < regex.length() && end > 0 && QUANTIFIER_CHARS.indexOf(regex.charAt(end)) >= 0) {
+            end--;
+        }
+        return regex.substring(0, end);
+    }
+
+    private static boolean isLiteral(String regex) {
+        for (int i = 0; i < regex.length(); i++) {
+            if (REGEX_META_CHARS.indexOf(regex.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsLineTerminator(String topic, int fromIndex) {
+        for (int i = fromIndex; i < topic.length(); i++) {
+            char c = topic.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private final List<Pattern> patterns = new ArrayList<>();
+        private boolean literalEnd;
+        private boolean prefixEnd;
+
+        private Node add(String value) {
+            Node node = this;
+            for (int i = 0; i < value.length(); i++) {
+                node = node.children.computeIfAbsent(value.charAt(i), c -> new Node());
+            }
+            return node;
+        }
+    }
+}
@@ -56,6 +56,8 @@ public class DefaultDeviceProcessorStats implements DeviceProcessorStats {
 
     private final ResettableTimer clientIdPackProcessingTimer;
     private final ResettableTimer packProcessingTimer;
+    private final ResettableTimer redisOverlapTimer;
+    private final ResettableTimer redisAwaitTimer;
 
     private final AtomicLong totalPackSize = new AtomicLong();
 
@@ -76,6 +78,8 @@ public class DefaultDeviceProcessorStats implements DeviceProcessorStats {
 
         this.clientIdPackProcessingTimer = new ResettableTimer(statsFactory.createTimer(statsKey + ".processing.time", CONSUMER_ID_TAG, consumerId));
         this.packProcessingTimer = new ResettableTimer(statsFactory.createTimer(statsKey + ".pack.processing.time", CONSUMER_ID_TAG, consumerId));
+        this.redisOverlapTimer = new ResettableTimer(statsFactory.createTimer(statsKey + ".redis.overlap.time", CONSUMER_ID_TAG, consumerId));
+        this.redisAwaitTimer = new ResettableTimer(statsFactory.createTimer(statsKey + ".redis.await.time", CONSUMER_ID_TAG, consumerId));
     }
 
     @Override
@@ -116,6 +120,16 @@ public class DefaultDeviceProcessorStats implements DeviceProcessorStats {
         totalPackSize.addAndGet(packSize);
     }
 
+    @Override
+    public void logRedisOverlapTime(long amount, TimeUnit unit) {
+        redisOverlapTimer.logTime(amount, unit);
+    }
+
+    @Override
+    public void logRedisAwaitTime(long amount, TimeUnit unit) {
+        redisAwaitTimer.logTime(amount, unit);
+    }
+
     @Override
     public List<StatsCounter> getStatsCounters() {
         return counters;
@@ -131,6 +145,16 @@ public class DefaultDeviceProcessorStats implements DeviceProcessorStats {
         return packProcessingTimer.getAvg();
     }
 
+    @Override
+    public double getAvgRedisOverlapTime() {
+        return redisOverlapTimer.getAvg();
+    }
+
+    @Override
+    public double getAvgRedisAwaitTime() {
+        return redisAwaitTimer.getAvg();
+    }
+
     @Override
     public double getAvgPackSize() {
         return Math.ceil((double) totalPackSize.get() / packProcessingTimer.getCount());
@@ -141,6 +165,8 @@ public class DefaultDeviceProcessorStats implements DeviceProcessorStats {
         counters.forEach(StatsCounter::clear);
         clientIdPackProcessingTimer.reset();
         packProcessingTimer.reset();
+        redisOverlapTimer.reset();
+        redisAwaitTimer.reset();
         totalPackSize.getAndSet(0);
     }
 }
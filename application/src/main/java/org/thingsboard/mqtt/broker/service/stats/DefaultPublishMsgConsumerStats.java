@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.COMMITTED_MSGS;
 import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.FAILED_ITERATIONS;
 import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.FAILED_MSGS;
 import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.SUCCESSFUL_ITERATIONS;
@@ -54,8 +55,11 @@ public class DefaultPublishMsgConsumerStats implements PublishMsgConsumerStats {
     private final StatsCounter successIterationsCounter;
     private final StatsCounter failedIterationsCounter;
 
+    private final StatsCounter committedMsgCounter;
+
     private final ResettableTimer msgProcessingTimer;
     private final ResettableTimer packProcessingTimer;
+    private final ResettableTimer packCommitLatencyTimer;
 
     private final AtomicLong totalPackSize = new AtomicLong();
 
@@ -70,12 +74,14 @@ public class DefaultPublishMsgConsumerStats implements PublishMsgConsumerStats {
         this.tmpFailedMsgCounter = statsFactory.createStatsCounter(statsKey, TMP_FAILED, CONSUMER_ID_TAG, consumerId);
         this.successIterationsCounter = statsFactory.createStatsCounter(statsKey, SUCCESSFUL_ITERATIONS, CONSUMER_ID_TAG, consumerId);
         this.failedIterationsCounter = statsFactory.createStatsCounter(statsKey, FAILED_ITERATIONS, CONSUMER_ID_TAG, consumerId);
+        this.committedMsgCounter = statsFactory.createStatsCounter(statsKey, COMMITTED_MSGS, CONSUMER_ID_TAG, consumerId);
 
         counters = List.of(totalMsgCounter, successMsgCounter, timeoutMsgCounter, failedMsgCounter, tmpTimeoutMsgCounter, tmpFailedMsgCounter,
-                successIterationsCounter, failedIterationsCounter);
+                successIterationsCounter, failedIterationsCounter, committedMsgCounter);
 
         this.msgProcessingTimer = new ResettableTimer(statsFactory.createTimer(statsKey + ".processing.time", CONSUMER_ID_TAG, consumerId));
         this.packProcessingTimer = new ResettableTimer(statsFactory.createTimer(statsKey + ".pack.processing.time", CONSUMER_ID_TAG, consumerId));
+        this.packCommitLatencyTimer = new ResettableTimer(statsFactory.createTimer(statsKey + ".pack.commit.latency", CONSUMER_ID_TAG, consumerId));
     }
 
     @Override
@@ -116,6 +122,12 @@ public class DefaultPublishMsgConsumerStats implements PublishMsgConsumerStats {
         totalPackSize.addAndGet(packSize);
     }
 
+    @Override
+    public void logPackCommitLatency(int packSize, long amount, TimeUnit unit) {
+        packCommitLatencyTimer.logTime(amount, unit);
+        committedMsgCounter.add(packSize);
+    }
+
     @Override
     public double getAvgPackProcessingTime() {
         return packProcessingTimer.getAvg();
@@ -126,6 +138,11 @@ public class DefaultPublishMsgConsumerStats implements PublishMsgConsumerStats {
         return Math.ceil((double) totalPackSize.get() / packProcessingTimer.getCount());
     }
 
+    @Override
+    public double getAvgPackCommitLatency() {
+        return packCommitLatencyTimer.getAvg();
+    }
+
     @Override
     public List<StatsCounter> getStatsCounters() {
         return counters;
@@ -141,6 +158,7 @@ public class DefaultPublishMsgConsumerStats implements PublishMsgConsumerStats {
         counters.forEach(StatsCounter::clear);
         msgProcessingTimer.reset();
         packProcessingTimer.reset();
+        packCommitLatencyTimer.reset();
         totalPackSize.getAndSet(0);
     }
 }
@@ -0,0 +1,74 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats;
+
+import org.thingsboard.mqtt.broker.common.stats.StatsCounter;
+import org.thingsboard.mqtt.broker.common.stats.StatsFactory;
+import org.thingsboard.mqtt.broker.service.subscription.shared.TopicSharedSubscription;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.SHARED_SUBSCRIPTION_SELECTIONS;
+
+public class DefaultSharedSubscriptionDistributionStats implements SharedSubscriptionDistributionStats {
+    private final ConcurrentMap<TopicSharedSubscription, ConcurrentMap<String, LongAdder>> distribution = new ConcurrentHashMap<>();
+
+    private final List<StatsCounter> counters;
+
+    private final StatsCounter selectionsCounter;
+
+    public DefaultSharedSubscriptionDistributionStats(StatsFactory statsFactory) {
+        String statsKey = StatsType.SHARED_SUBSCRIPTION_DISTRIBUTION.getPrintName();
+        this.selectionsCounter = statsFactory.createStatsCounter(statsKey, SHARED_SUBSCRIPTION_SELECTIONS);
+
+        counters = List.of(selectionsCounter);
+    }
+
+    @Override
+    public void logSelection(TopicSharedSubscription topicSharedSubscription, String clientId) {
+        selectionsCounter.increment();
+        distribution.computeIfAbsent(topicSharedSubscription, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(clientId, id -> new LongAdder())
+                .increment();
+    }
+
+    @Override
+    public List<StatsCounter> getStatsCounters() {
+        return counters;
+    }
+
+    @Override
+    public Map<TopicSharedSubscription, Map<String, Long>> getDistribution() {
+        Map<TopicSharedSubscription, Map<String, Long>> result = new HashMap<>();
+        distribution.forEach((topicSharedSubscription, members) -> {
+            Map<String, Long> memberCounts = new HashMap<>();
+            members.forEach((clientId, count) -> memberCounts.put(clientId, count.sum()));
+            result.put(topicSharedSubscription, memberCounts);
+        });
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        counters.forEach(StatsCounter::clear);
+        distribution.clear();
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats;
+
+import org.thingsboard.mqtt.broker.common.stats.StatsCounter;
+import org.thingsboard.mqtt.broker.common.stats.StatsFactory;
+
+import java.util.List;
+
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.CACHE_HITS;
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.CACHE_INVALIDATIONS;
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.CACHE_MISSES;
+
+public class DefaultSubscriptionCacheStats implements SubscriptionCacheStats {
+    private final List<StatsCounter> counters;
+
+    private final StatsCounter hitCounter;
+    private final StatsCounter missCounter;
+    private final StatsCounter invalidationCounter;
+
+    public DefaultSubscriptionCacheStats(StatsFactory statsFactory) {
+        String statsKey = StatsType.SUBSCRIPTION_CACHE.getPrintName();
+        this.hitCounter = statsFactory.createStatsCounter(statsKey, CACHE_HITS);
+        this.missCounter = statsFactory.createStatsCounter(statsKey, CACHE_MISSES);
+        this.invalidationCounter = statsFactory.createStatsCounter(statsKey, CACHE_INVALIDATIONS);
+
+        counters = List.of(hitCounter, missCounter, invalidationCounter);
+    }
+
+    @Override
+    public void logHit() {
+        hitCounter.increment();
+    }
+
+    @Override
+    public void logMiss() {
+        missCounter.increment();
+    }
+
+    @Override
+    public void logInvalidations(int invalidatedTopics) {
+        invalidationCounter.add(invalidatedTopics);
+    }
+
+    @Override
+    public List<StatsCounter> getStatsCounters() {
+        return counters;
+    }
+
+    @Override
+    public void reset() {
+        counters.forEach(StatsCounter::clear);
+    }
+}
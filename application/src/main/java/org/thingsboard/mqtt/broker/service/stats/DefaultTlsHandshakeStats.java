@@ -0,0 +1,85 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats;
+
+import org.thingsboard.mqtt.broker.common.stats.StatsCounter;
+import org.thingsboard.mqtt.broker.common.stats.StatsFactory;
+
+import java.util.List;
+
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.FAILED_TLS_HANDSHAKES;
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.LISTENER_TAG;
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.RESUMED_TLS_HANDSHAKES;
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.TLS_HANDSHAKES;
+
+public class DefaultTlsHandshakeStats implements TlsHandshakeStats {
+    private final String listenerName;
+
+    private final List<StatsCounter> counters;
+
+    private final StatsCounter handshakeCounter;
+    private final StatsCounter resumedHandshakeCounter;
+    private final StatsCounter failedHandshakeCounter;
+
+    public DefaultTlsHandshakeStats(String listenerName, StatsFactory statsFactory) {
+        this.listenerName = listenerName;
+        String statsKey = StatsType.TLS_HANDSHAKE.getPrintName();
+        this.handshakeCounter = statsFactory.createStatsCounter(statsKey, TLS_HANDSHAKES, LISTENER_TAG, listenerName);
+        this.resumedHandshakeCounter = statsFactory.createStatsCounter(statsKey, RESUMED_TLS_HANDSHAKES, LISTENER_TAG, listenerName);
+        this.failedHandshakeCounter = statsFactory.createStatsCounter(statsKey, FAILED_TLS_HANDSHAKES, LISTENER_TAG, listenerName);
+
+        counters = List.of(handshakeCounter, resumedHandshakeCounter, failedHandshakeCounter);
+    }
+
+    @Override
+    public String getListenerName() {
+        return listenerName;
+    }
+
+    @Override
+    public void logHandshake(boolean resumed) {
+        handshakeCounter.increment();
+        if (resumed) {
+            resumedHandshakeCounter.increment();
+        }
+    }
+
+    @Override
+    public void logResumedHandshakes(int count) {
+        resumedHandshakeCounter.add(count);
+    }
+
+    @Override
+    public void logFailedHandshake() {
+        failedHandshakeCounter.increment();
+    }
+
+    @Override
+    public List<StatsCounter> getStatsCounters() {
+        return counters;
+    }
+
+    @Override
+    public double getResumptionRate() {
+        int handshakes = handshakeCounter.get();
+        return handshakes > 0 ? resumedHandshakeCounter.get() * 100.0 / handshakes : 0;
+    }
+
+    @Override
+    public void reset() {
+        counters.forEach(StatsCounter::clear);
+    }
+}
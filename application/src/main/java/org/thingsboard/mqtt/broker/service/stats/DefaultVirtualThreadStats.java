@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats;
+
+import org.thingsboard.mqtt.broker.common.stats.StatsCounter;
+import org.thingsboard.mqtt.broker.common.stats.StatsFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.PINNED_VIRTUAL_THREADS;
+
+public class DefaultVirtualThreadStats implements VirtualThreadStats {
+
+    private final List<StatsCounter> counters;
+
+    private final StatsCounter pinnedCounter;
+    private final LongAdder pinnedTimeNanos = new LongAdder();
+    private final AtomicLong maxPinnedTimeNanos = new AtomicLong();
+
+    public DefaultVirtualThreadStats(StatsFactory statsFactory) {
+        String statsKey = StatsType.VIRTUAL_THREADS.getPrintName();
+        this.pinnedCounter = statsFactory.createStatsCounter(statsKey, PINNED_VIRTUAL_THREADS);
+
+        counters = List.of(pinnedCounter);
+    }
+
+    @Override
+    public void logPinned(long pinnedTimeNanos) {
+        pinnedCounter.increment();
+        this.pinnedTimeNanos.add(pinnedTimeNanos);
+        maxPinnedTimeNanos.accumulateAndGet(pinnedTimeNanos, Math::max);
+    }
+
+    @Override
+    public List<StatsCounter> getStatsCounters() {
+        return counters;
+    }
+
+    @Override
+    public double getAvgPinnedTimeMs() {
+        int pinned = pinnedCounter.get();
+        return pinned > 0 ? toMs(pinnedTimeNanos.sum()) / pinned : 0;
+    }
+
+    @Override
+    public double getMaxPinnedTimeMs() {
+        return toMs(maxPinnedTimeNanos.get());
+    }
+
+    @Override
+    public void reset() {
+        counters.forEach(StatsCounter::clear);
+        pinnedTimeNanos.reset();
+        maxPinnedTimeNanos.set(0);
+    }
+
+    private static double toMs(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
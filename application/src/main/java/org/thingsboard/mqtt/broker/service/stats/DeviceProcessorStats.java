@@ -30,12 +30,20 @@ public interface DeviceProcessorStats {
 
     void logClientIdPacksProcessingTime(int packSize, long amount, TimeUnit unit);
 
+    void logRedisOverlapTime(long amount, TimeUnit unit);
+
+    void logRedisAwaitTime(long amount, TimeUnit unit);
+
     List<StatsCounter> getStatsCounters();
 
     double getAvgClientIdMsgPackProcessingTime();
 
     double getAvgPackProcessingTime();
 
+    double getAvgRedisOverlapTime();
+
+    double getAvgRedisAwaitTime();
+
     double getAvgPackSize();
 
     void reset();
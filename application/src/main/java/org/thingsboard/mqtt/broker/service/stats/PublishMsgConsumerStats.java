@@ -30,6 +30,8 @@ public interface PublishMsgConsumerStats {
 
     void logPackProcessingTime(int packSize, long amount, TimeUnit unit);
 
+    void logPackCommitLatency(int packSize, long amount, TimeUnit unit);
+
     List<StatsCounter> getStatsCounters();
 
     double getAvgMsgProcessingTime();
@@ -38,5 +40,7 @@ public interface PublishMsgConsumerStats {
 
     double getAvgPackSize();
 
+    double getAvgPackCommitLatency();
+
     void reset();
 }
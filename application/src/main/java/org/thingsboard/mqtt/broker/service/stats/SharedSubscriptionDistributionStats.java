@@ -0,0 +1,35 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats;
+
+import org.thingsboard.mqtt.broker.common.stats.StatsCounter;
+import org.thingsboard.mqtt.broker.service.subscription.shared.TopicSharedSubscription;
+
+import java.util.List;
+import java.util.Map;
+
+public interface SharedSubscriptionDistributionStats {
+    void logSelection(TopicSharedSubscription topicSharedSubscription, String clientId);
+
+    List<StatsCounter> getStatsCounters();
+
+    /**
+     * Number of messages sent to every member of every DEVICE share group since the last reset.
+     */
+    Map<TopicSharedSubscription, Map<String, Long>> getDistribution();
+
+    void reset();
+}
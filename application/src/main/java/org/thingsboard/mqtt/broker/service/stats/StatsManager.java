@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.service.stats;
 
+import io.netty.buffer.ByteBufAllocatorMetric;
 import org.thingsboard.mqtt.broker.common.stats.MessagesStats;
 import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.data.ApplicationSharedSubscriptionJob;
@@ -40,6 +41,8 @@ public interface StatsManager {
 
     DeviceProcessorStats createDeviceProcessorStats(String consumerId);
 
+    TlsHandshakeStats createTlsHandshakeStats(String listenerName);
+
     ApplicationProcessorStats createApplicationProcessorStats(String clientId);
 
     ApplicationProcessorStats createSharedApplicationProcessorStats(String clientId, TopicSharedSubscription subscription);
@@ -48,6 +51,12 @@ public interface StatsManager {
 
     RetainedMsgConsumerStats getRetainedMsgConsumerStats();
 
+    SubscriptionCacheStats getSubscriptionCacheStats();
+
+    SharedSubscriptionDistributionStats getSharedSubscriptionDistributionStats();
+
+    VirtualThreadStats getVirtualThreadStats();
+
     void clearApplicationProcessorStats(String clientId);
 
     void clearSharedApplicationProcessorStats(String clientId);
@@ -74,6 +83,8 @@ public interface StatsManager {
 
     void registerRetainedMsgStats(Map<?, ?> retainedMessagesMap);
 
+    void registerRetainedMsgOffHeapStats(ByteBufAllocatorMetric allocatorMetric);
+
     void registerActiveApplicationProcessorsStats(Map<?, ?> processingFuturesMap);
 
     void registerActiveSharedApplicationProcessorsStats(Map<String, List<ApplicationSharedSubscriptionJob>> processingFuturesMap);
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.service.stats;
 
+import io.netty.buffer.ByteBufAllocatorMetric;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.AllArgsConstructor;
@@ -48,6 +49,7 @@ import org.thingsboard.mqtt.broker.service.subscription.shared.TopicSharedSubscr
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.LongSummaryStatistics;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -69,6 +71,7 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
     private final List<PublishMsgConsumerStats> managedPublishMsgConsumerStats = new CopyOnWriteArrayList<>();
     private final List<ClientSessionEventConsumerStats> managedClientSessionEventConsumerStats = new CopyOnWriteArrayList<>();
     private final List<DeviceProcessorStats> managedDeviceProcessorStats = new CopyOnWriteArrayList<>();
+    private final List<TlsHandshakeStats> managedTlsHandshakeStats = new CopyOnWriteArrayList<>();
     private final Map<String, ApplicationProcessorStats> managedApplicationProcessorStats = new ConcurrentHashMap<>();
     private final Map<String, List<String>> sharedSubscriptionCompoundClientIds = new ConcurrentHashMap<>();
     private final Map<String, ResettableTimer> managedQueueProducers = new ConcurrentHashMap<>();
@@ -77,6 +80,9 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
 
     private ClientSubscriptionConsumerStats managedClientSubscriptionConsumerStats;
     private RetainedMsgConsumerStats retainedMsgConsumerStats;
+    private SubscriptionCacheStats subscriptionCacheStats;
+    private SharedSubscriptionDistributionStats sharedSubscriptionDistributionStats;
+    private VirtualThreadStats virtualThreadStats;
     private ClientActorStats clientActorStats;
 
     @Value("${stats.application-processor.enabled}")
@@ -89,6 +95,9 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
         this.timerStats = new TimerStats(statsFactory);
         this.managedClientSubscriptionConsumerStats = new DefaultClientSubscriptionConsumerStats(statsFactory);
         this.retainedMsgConsumerStats = new DefaultRetainedMsgConsumerStats(statsFactory);
+        this.subscriptionCacheStats = new DefaultSubscriptionCacheStats(statsFactory);
+        this.sharedSubscriptionDistributionStats = new DefaultSharedSubscriptionDistributionStats(statsFactory);
+        this.virtualThreadStats = new DefaultVirtualThreadStats(statsFactory);
         this.clientActorStats = new DefaultClientActorStats(statsFactory);
     }
 
@@ -143,6 +152,16 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
         return stats;
     }
 
+    @Override
+    public TlsHandshakeStats createTlsHandshakeStats(String listenerName) {
+        if (log.isTraceEnabled()) {
+            log.trace("Creating TlsHandshakeStats, listenerName - {}.", listenerName);
+        }
+        TlsHandshakeStats stats = new DefaultTlsHandshakeStats(listenerName, statsFactory);
+        managedTlsHandshakeStats.add(stats);
+        return stats;
+    }
+
     @Override
     public ApplicationProcessorStats createApplicationProcessorStats(String clientId) {
         if (log.isTraceEnabled()) {
@@ -191,6 +210,21 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
         return retainedMsgConsumerStats;
     }
 
+    @Override
+    public SubscriptionCacheStats getSubscriptionCacheStats() {
+        return subscriptionCacheStats;
+    }
+
+    @Override
+    public SharedSubscriptionDistributionStats getSharedSubscriptionDistributionStats() {
+        return sharedSubscriptionDistributionStats;
+    }
+
+    @Override
+    public VirtualThreadStats getVirtualThreadStats() {
+        return virtualThreadStats;
+    }
+
     @Override
     public void clearApplicationProcessorStats(String clientId) {
         if (log.isTraceEnabled()) {
@@ -314,6 +348,15 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
         gauges.add(new Gauge(StatsType.RETAINED_MESSAGES.getPrintName(), retainedMessagesMap::size));
     }
 
+    @Override
+    public void registerRetainedMsgOffHeapStats(ByteBufAllocatorMetric allocatorMetric) {
+        if (log.isTraceEnabled()) {
+            log.trace("Registering RetainedMsgOffHeapStats.");
+        }
+        statsFactory.createGauge(StatsType.RETAINED_MSG_OFF_HEAP_MEMORY.getPrintName(), allocatorMetric, ByteBufAllocatorMetric::usedDirectMemory);
+        gauges.add(new Gauge(StatsType.RETAINED_MSG_OFF_HEAP_MEMORY.getPrintName(), allocatorMetric::usedDirectMemory));
+    }
+
     @Override
     public void registerActiveApplicationProcessorsStats(Map<?, ?> processingFuturesMap) {
         if (log.isTraceEnabled()) {
@@ -438,8 +481,9 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
             String countersStats = stats.getStatsCounters().stream()
                     .map(statsCounter -> statsCounter.getName() + " = [" + statsCounter.get() + "]")
                     .collect(Collectors.joining(" "));
-            log.info("[{}][{}] Average pack size - {}, pack processing time - {}, msg processing time - {} ms, counters stats: {}", StatsType.PUBLISH_MSG_CONSUMER.getPrintName(), stats.getConsumerId(),
-                    stats.getAvgPackSize(), stats.getAvgPackProcessingTime(), stats.getAvgMsgProcessingTime(), countersStats);
+            log.info("[{}][{}] Average pack size - {}, pack processing time - {}, msg processing time - {} ms, pack commit latency - {} ms, counters stats: {}",
+                    StatsType.PUBLISH_MSG_CONSUMER.getPrintName(), stats.getConsumerId(), stats.getAvgPackSize(), stats.getAvgPackProcessingTime(),
+                    stats.getAvgMsgProcessingTime(), stats.getAvgPackCommitLatency(), countersStats);
             stats.reset();
         }
 
@@ -453,8 +497,19 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
             String statsStr = stats.getStatsCounters().stream()
                     .map(statsCounter -> statsCounter.getName() + " = [" + statsCounter.get() + "]")
                     .collect(Collectors.joining(" "));
-            log.info("[{}][{}] Average pack size - {}, pack processing time - {}, client msgs processing time - {} ms, counters stats: {}", StatsType.DEVICE_PROCESSOR.getPrintName(), stats.getConsumerId(),
-                    stats.getAvgPackSize(), stats.getAvgPackProcessingTime(), stats.getAvgClientIdMsgPackProcessingTime(), statsStr);
+            log.info("[{}][{}] Average pack size - {}, pack processing time - {}, client msgs processing time - {} ms, " +
+                            "consumer work overlapping Redis - {} ms, consumer await for Redis - {} ms, counters stats: {}", StatsType.DEVICE_PROCESSOR.getPrintName(), stats.getConsumerId(),
+                    stats.getAvgPackSize(), stats.getAvgPackProcessingTime(), stats.getAvgClientIdMsgPackProcessingTime(),
+                    stats.getAvgRedisOverlapTime(), stats.getAvgRedisAwaitTime(), statsStr);
+            stats.reset();
+        }
+
+        for (TlsHandshakeStats stats : managedTlsHandshakeStats) {
+            String statsStr = stats.getStatsCounters().stream()
+                    .map(statsCounter -> statsCounter.getName() + " = [" + statsCounter.get() + "]")
+                    .collect(Collectors.joining(" "));
+            log.info("[{}][{}] Resumption rate - {}%, counters stats: {}", StatsType.TLS_HANDSHAKE.getPrintName(), stats.getListenerName(),
+                    String.format("%.1f", stats.getResumptionRate()), statsStr);
             stats.reset();
         }
 
@@ -490,6 +545,31 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
         log.info("[{}] Stats: {}", StatsType.RETAINED_MSG_CONSUMER.getPrintName(), retainedMsgStatsStr);
         retainedMsgConsumerStats.reset();
 
+        String subscriptionCacheStatsStr = subscriptionCacheStats.getStatsCounters().stream()
+                .map(statsCounter -> statsCounter.getName() + " = [" + statsCounter.get() + "]")
+                .collect(Collectors.joining(" "));
+        log.info("[{}] Stats: {}", StatsType.SUBSCRIPTION_CACHE.getPrintName(), subscriptionCacheStatsStr);
+        subscriptionCacheStats.reset();
+
+        sharedSubscriptionDistributionStats.getDistribution().forEach((topicSharedSubscription, members) -> {
+            LongSummaryStatistics membersStats = members.values().stream().mapToLong(Long::longValue).summaryStatistics();
+            log.info("[{}][{}] Members - {}, msgs per member: min - {}, max - {}, avg - {}", StatsType.SHARED_SUBSCRIPTION_DISTRIBUTION.getPrintName(),
+                    topicSharedSubscription.getKey(), membersStats.getCount(), membersStats.getMin(), membersStats.getMax(),
+                    String.format("%.1f", membersStats.getAverage()));
+            if (log.isDebugEnabled()) {
+                log.debug("[{}][{}] Msgs per member: {}", StatsType.SHARED_SUBSCRIPTION_DISTRIBUTION.getPrintName(), topicSharedSubscription.getKey(), members);
+            }
+        });
+        sharedSubscriptionDistributionStats.reset();
+
+        String virtualThreadStatsStr = virtualThreadStats.getStatsCounters().stream()
+                .map(statsCounter -> statsCounter.getName() + " = [" + statsCounter.get() + "]")
+                .collect(Collectors.joining(" "));
+        log.info("[{}] Average pinned time - {} ms, max pinned time - {} ms, counters stats: {}", StatsType.VIRTUAL_THREADS.getPrintName(),
+                String.format("%.1f", virtualThreadStats.getAvgPinnedTimeMs()), String.format("%.1f", virtualThreadStats.getMaxPinnedTimeMs()),
+                virtualThreadStatsStr);
+        virtualThreadStats.reset();
+
         StringBuilder gaugeLogBuilder = new StringBuilder();
         for (Gauge gauge : gauges) {
             gaugeLogBuilder.append(gauge.getName()).append(" = [").append(gauge.getValueSupplier().get().intValue()).append("] ");
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.service.stats;
 
+import io.netty.buffer.ByteBufAllocatorMetric;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
@@ -69,6 +70,11 @@ public class StatsManagerStub implements StatsManager, ActorStatsManager, Produc
         return StubDeviceProcessorStats.STUB_DEVICE_PROCESSOR_STATS;
     }
 
+    @Override
+    public TlsHandshakeStats createTlsHandshakeStats(String listenerName) {
+        return StubTlsHandshakeStats.STUB_TLS_HANDSHAKE_STATS;
+    }
+
     @Override
     public ApplicationProcessorStats createApplicationProcessorStats(String clientId) {
         return StubApplicationProcessorStats.STUB_APPLICATION_PROCESSOR_STATS;
@@ -89,6 +95,21 @@ public class StatsManagerStub implements StatsManager, ActorStatsManager, Produc
         return StubRetainedMsgConsumerStats.STUB_RETAINED_MSG_CONSUMER_STATS;
     }
 
+    @Override
+    public SubscriptionCacheStats getSubscriptionCacheStats() {
+        return StubSubscriptionCacheStats.STUB_SUBSCRIPTION_CACHE_STATS;
+    }
+
+    @Override
+    public SharedSubscriptionDistributionStats getSharedSubscriptionDistributionStats() {
+        return StubSharedSubscriptionDistributionStats.STUB_SHARED_SUBSCRIPTION_DISTRIBUTION_STATS;
+    }
+
+    @Override
+    public VirtualThreadStats getVirtualThreadStats() {
+        return StubVirtualThreadStats.STUB_VIRTUAL_THREAD_STATS;
+    }
+
     @Override
     public void clearApplicationProcessorStats(String clientId) {
     }
@@ -135,6 +156,11 @@ public class StatsManagerStub implements StatsManager, ActorStatsManager, Produc
 
     }
 
+    @Override
+    public void registerRetainedMsgOffHeapStats(ByteBufAllocatorMetric allocatorMetric) {
+
+    }
+
     @Override
     public void registerClientSubscriptionsStats(Map<?, ?> clientSubscriptionsMap) {
     }
@@ -27,6 +27,7 @@ public enum StatsType {
     ALL_CLIENT_SESSIONS("allClientSessions"),
     CLIENT_SUBSCRIPTIONS("clientSubscriptions"),
     RETAINED_MESSAGES("retainedMessages"),
+    RETAINED_MSG_OFF_HEAP_MEMORY("retainedMsgOffHeapMemory"),
     SUBSCRIPTION_TRIE_NODES("subscriptionTrieNodes"),
     RETAIN_MSG_TRIE_NODES("retainMsgTrieNodes"),
     ACTIVE_APP_PROCESSORS("activeAppProcessors"),
@@ -38,6 +39,10 @@ public enum StatsType {
     CLIENT_SUBSCRIPTIONS_CONSUMER("clientSubscriptionsConsumer"),
     RETAINED_MSG_CONSUMER("retainedMsgConsumer"),
     CLIENT_ACTOR("clientActor"),
+    SUBSCRIPTION_CACHE("subscriptionCache"),
+    TLS_HANDSHAKE("tlsHandshake"),
+    SHARED_SUBSCRIPTION_DISTRIBUTION("sharedSubscriptionDistribution"),
+    VIRTUAL_THREADS("virtualThreads"),
 
     SUBSCRIPTION_LOOKUP("subscriptionLookup"),
     RETAINED_MSG_LOOKUP("retainedMsgLookup"),
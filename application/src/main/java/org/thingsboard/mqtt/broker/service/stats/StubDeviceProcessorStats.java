@@ -44,6 +44,14 @@ public class StubDeviceProcessorStats implements DeviceProcessorStats {
     public void logClientIdPacksProcessingTime(int packSize, long amount, TimeUnit unit) {
     }
 
+    @Override
+    public void logRedisOverlapTime(long amount, TimeUnit unit) {
+    }
+
+    @Override
+    public void logRedisAwaitTime(long amount, TimeUnit unit) {
+    }
+
     @Override
     public List<StatsCounter> getStatsCounters() {
         return Collections.emptyList();
@@ -59,6 +67,16 @@ public class StubDeviceProcessorStats implements DeviceProcessorStats {
         return 0;
     }
 
+    @Override
+    public double getAvgRedisOverlapTime() {
+        return 0;
+    }
+
+    @Override
+    public double getAvgRedisAwaitTime() {
+        return 0;
+    }
+
     @Override
     public double getAvgPackSize() {
         return 0;
@@ -47,6 +47,10 @@ public class StubPublishMsgConsumerStats implements PublishMsgConsumerStats {
     public void logPackProcessingTime(int packSize, long amount, TimeUnit unit) {
     }
 
+    @Override
+    public void logPackCommitLatency(int packSize, long amount, TimeUnit unit) {
+    }
+
     @Override
     public List<StatsCounter> getStatsCounters() {
         return Collections.emptyList();
@@ -67,6 +71,11 @@ public class StubPublishMsgConsumerStats implements PublishMsgConsumerStats {
         return 0;
     }
 
+    @Override
+    public double getAvgPackCommitLatency() {
+        return 0;
+    }
+
     @Override
     public void reset() {
     }
@@ -0,0 +1,60 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats;
+
+import org.thingsboard.mqtt.broker.common.stats.StatsCounter;
+
+import java.util.Collections;
+import java.util.List;
+
+public class StubTlsHandshakeStats implements TlsHandshakeStats {
+
+    public static final StubTlsHandshakeStats STUB_TLS_HANDSHAKE_STATS = new StubTlsHandshakeStats();
+
+    private StubTlsHandshakeStats() {
+    }
+
+    @Override
+    public String getListenerName() {
+        return "STUB_LISTENER";
+    }
+
+    @Override
+    public void logHandshake(boolean resumed) {
+    }
+
+    @Override
+    public void logResumedHandshakes(int count) {
+    }
+
+    @Override
+    public void logFailedHandshake() {
+    }
+
+    @Override
+    public List<StatsCounter> getStatsCounters() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public double getResumptionRate() {
+        return 0;
+    }
+
+    @Override
+    public void reset() {
+    }
+}
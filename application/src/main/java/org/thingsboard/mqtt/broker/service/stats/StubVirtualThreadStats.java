@@ -0,0 +1,52 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats;
+
+import org.thingsboard.mqtt.broker.common.stats.StatsCounter;
+
+import java.util.Collections;
+import java.util.List;
+
+public class StubVirtualThreadStats implements VirtualThreadStats {
+
+    public static final StubVirtualThreadStats STUB_VIRTUAL_THREAD_STATS = new StubVirtualThreadStats();
+
+    private StubVirtualThreadStats() {
+    }
+
+    @Override
+    public void logPinned(long pinnedTimeNanos) {
+    }
+
+    @Override
+    public List<StatsCounter> getStatsCounters() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public double getAvgPinnedTimeMs() {
+        return 0;
+    }
+
+    @Override
+    public double getMaxPinnedTimeMs() {
+        return 0;
+    }
+
+    @Override
+    public void reset() {
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats;
+
+import org.thingsboard.mqtt.broker.common.stats.StatsCounter;
+
+import java.util.List;
+
+public interface TlsHandshakeStats {
+    String getListenerName();
+
+    void logHandshake(boolean resumed);
+
+    /**
+     * Adds resumptions of already logged handshakes, for the engines that only expose them as a total count.
+     */
+    void logResumedHandshakes(int count);
+
+    void logFailedHandshake();
+
+    List<StatsCounter> getStatsCounters();
+
+    /**
+     * Percentage of the successful handshakes that resumed a previous session.
+     */
+    double getResumptionRate();
+
+    void reset();
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.common.util.ThingsBoardExecutors;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Listens to the JFR events about virtual threads pinned to their carrier threads (e.g. blocking inside synchronized blocks)
+ * and reports them to the stats, so that the subsystems running on virtual threads can be checked for pinning.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VirtualThreadPinningMonitor {
+
+    private static final String VIRTUAL_THREAD_PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final StatsManager statsManager;
+
+    @Value("${stats.virtual-threads.pinning-monitor.enabled:false}")
+    private boolean enabled;
+    @Value("${stats.virtual-threads.pinning-monitor.threshold-ms:20}")
+    private long thresholdMs;
+
+    private VirtualThreadStats virtualThreadStats;
+    private RecordingStream recordingStream;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (!ThingsBoardExecutors.isVirtualThreadsSupported()) {
+            log.info("Virtual threads are not supported by the JVM {}, pinning monitor is not started", Runtime.version());
+            return;
+        }
+        virtualThreadStats = statsManager.getVirtualThreadStats();
+        try {
+            recordingStream = new RecordingStream();
+            recordingStream.enable(VIRTUAL_THREAD_PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            recordingStream.onEvent(VIRTUAL_THREAD_PINNED_EVENT, this::onPinnedEvent);
+            recordingStream.startAsync();
+            log.info("Started virtual threads pinning monitor with threshold {} ms", thresholdMs);
+        } catch (Exception e) {
+            log.warn("Failed to start virtual threads pinning monitor", e);
+        }
+    }
+
+    void onPinnedEvent(RecordedEvent event) {
+        virtualThreadStats.logPinned(event.getDuration().toNanos());
+        if (log.isDebugEnabled()) {
+            log.debug("Virtual thread [{}] was pinned for {} ms at {}", event.getThread() != null ? event.getThread().getJavaName() : null,
+                    event.getDuration().toMillis(), getTopFrame(event));
+        }
+    }
+
+    private String getTopFrame(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return null;
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        if (frames.isEmpty()) {
+            return null;
+        }
+        RecordedFrame frame = frames.get(0);
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+}
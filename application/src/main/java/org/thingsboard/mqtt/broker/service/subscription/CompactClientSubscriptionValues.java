@@ -0,0 +1,252 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+
+/**
+ * Node values stored as encoded longs, see {@link CompactSubscriptionCodec}.
+ * Up to {@link #MAX_ARRAY_SIZE} subscriptions are kept in a copy-on-write array,
+ * larger nodes switch to an open-addressing table keyed by the client handle and go back to the array once they shrink.
+ * Writers are serialized on the node, readers never lock and decode every matched entry into a new {@link ClientSubscription}.
+ */
+class CompactClientSubscriptionValues implements TrieNodeValues<ClientSubscription> {
+
+    static final int MAX_ARRAY_SIZE = 16;
+
+    private static final long[] EMPTY = new long[0];
+    private static final long FREE = 0;
+    private static final long TOMBSTONE = -1;
+
+    private final CompactSubscriptionCodec codec;
+
+    // either long[] or HashTable
+    private volatile Object entries = EMPTY;
+
+    CompactClientSubscriptionValues(CompactSubscriptionCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public boolean addOrReplace(ClientSubscription value) {
+        long entry = codec.encode(value);
+        long replaced;
+        synchronized (this) {
+            Object current = entries;
+            if (current instanceof long[] array) {
+                replaced = addOrReplace(array, entry);
+            } else {
+                HashTable table = (HashTable) current;
+                replaced = table.put(entry);
+                if (table.needsRehash()) {
+                    entries = table.rehash();
+                }
+            }
+        }
+        if (replaced != FREE) {
+            codec.release(replaced);
+            return false;
+        }
+        return true;
+    }
+
+    private long addOrReplace(long[] array, long entry) {
+        int clientHandle = CompactSubscriptionCodec.clientHandle(entry);
+        for (int i = 0; i < array.length; i++) {
+            if (CompactSubscriptionCodec.clientHandle(array[i]) == clientHandle) {
+                long[] copy = array.clone();
+                copy[i] = entry;
+                entries = copy;
+                return array[i];
+            }
+        }
+        if (array.length == MAX_ARRAY_SIZE) {
+            HashTable table = new HashTable(MAX_ARRAY_SIZE * 2);
+            for (long existing : array) {
+                table.put(existing);
+            }
+            table.put(entry);
+            entries = table;
+        } else {
+            long[] copy = Arrays.copyOf(array, array.length + 1);
+            copy[array.length] = entry;
+            entries = copy;
+        }
+        return FREE;
+    }
+
+    @Override
+    public int removeIf(Predicate<ClientSubscription> filter) {
+        long[] removed;
+        synchronized (this) {
+            Object current = entries;
+            removed = current instanceof long[] array ? removeIf(array, filter) : removeIf((HashTable) current, filter);
+        }
+        for (long entry : removed) {
+            codec.release(entry);
+        }
+        return removed.length;
+    }
+
+    private long[] removeIf(long[] array, Predicate<ClientSubscription> filter) {
+        long[] kept = new long[array.length];
+        long[] removed = new long[array.length];
+        int keptCount = 0;
+        int removedCount = 0;
+        for (long entry : array) {
+            if (filter.test(codec.decode(entry))) {
+                removed[removedCount++] = entry;
+            } else {
+                kept[keptCount++] = entry;
+            }
+        }
+        if (removedCount > 0) {
+            entries = keptCount == 0 ? EMPTY : Arrays.copyOf(kept, keptCount);
+        }
+        return Arrays.copyOf(removed, removedCount);
+    }
+
+    private long[] removeIf(HashTable table, Predicate<ClientSubscription> filter) {
+        long[] removed = new long[table.size];
+        int removedCount = 0;
+        for (int i = 0; i < table.slots.length(); i++) {
+            long entry = table.slots.get(i);
+            if (entry != FREE && entry != TOMBSTONE && filter.test(codec.decode(entry))) {
+                table.slots.set(i, TOMBSTONE);
+                table.size--;
+                table.tombstones++;
+                removed[removedCount++] = entry;
+            }
+        }
+        if (table.size <= MAX_ARRAY_SIZE / 2) {
+            entries = table.toArray();
+        } else if (table.needsRehash()) {
+            entries = table.rehash();
+        }
+        return Arrays.copyOf(removed, removedCount);
+    }
+
+    @Override
+    public void forEach(TopicFilterMatchVisitor<ClientSubscription> visitor, String topicFilter) {
+        Object current = entries;
+        if (current instanceof long[] array) {
+            for (long entry : array) {
+                visitor.visit(codec.decode(entry), topicFilter);
+            }
+        } else {
+            AtomicLongArray slots = ((HashTable) current).slots;
+            for (int i = 0; i < slots.length(); i++) {
+                long entry = slots.get(i);
+                if (entry != FREE && entry != TOMBSTONE) {
+                    visitor.visit(codec.decode(entry), topicFilter);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        Object current = entries;
+        return current instanceof long[] array ? array.length == 0 : ((HashTable) current).size == 0;
+    }
+
+    /**
+     * Linear probing table, modified only under the owner's lock.
+     * Slots are written through {@link AtomicLongArray} so that concurrent readers see whole entries.
+     */
+    private static final class HashTable {
+
+        private final AtomicLongArray slots;
+        private final int mask;
+        private volatile int size;
+        private int tombstones;
+
+        private HashTable(int capacity) {
+            this.slots = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+        }
+
+        /**
+         * @return replaced entry of the same client or {@link #FREE}
+         */
+        private long put(long entry) {
+            int clientHandle = CompactSubscriptionCodec.clientHandle(entry);
+            int firstTombstone = -1;
+            int i = spread(clientHandle) & mask;
+            while (true) {
+                long existing = slots.get(i);
+                if (existing == FREE) {
+                    break;
+                }
+                if (existing == TOMBSTONE) {
+                    if (firstTombstone == -1) {
+                        firstTombstone = i;
+                    }
+                } else if (CompactSubscriptionCodec.clientHandle(existing) == clientHandle) {
+                    slots.set(i, entry);
+                    return existing;
+                }
+                i = (i + 1) & mask;
+            }
+            if (firstTombstone != -1) {
+                slots.set(firstTombstone, entry);
+                tombstones--;
+            } else {
+                slots.set(i, entry);
+            }
+            size++;
+            return FREE;
+        }
+
+        private boolean needsRehash() {
+            return (size + tombstones) * 4 > slots.length() * 3;
+        }
+
+        private HashTable rehash() {
+            int capacity = slots.length();
+            while (size * 2 > capacity) {
+                capacity *= 2;
+            }
+            HashTable table = new HashTable(capacity);
+            for (int i = 0; i < slots.length(); i++) {
+                long entry = slots.get(i);
+                if (entry != FREE && entry != TOMBSTONE) {
+                    table.put(entry);
+                }
+            }
+            return table;
+        }
+
+        private long[] toArray() {
+            long[] array = new long[size];
+            int count = 0;
+            for (int i = 0; i < slots.length(); i++) {
+                long entry = slots.get(i);
+                if (entry != FREE && entry != TOMBSTONE) {
+                    array[count++] = entry;
+                }
+            }
+            return array;
+        }
+
+        private static int spread(int clientHandle) {
+            int h = clientHandle * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
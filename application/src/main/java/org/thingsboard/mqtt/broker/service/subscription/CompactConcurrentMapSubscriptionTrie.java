@@ -0,0 +1,46 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+
+/**
+ * {@link ConcurrentMapSubscriptionTrie} that keeps node values as primitive longs instead of
+ * sets of {@link ClientSubscription} objects, trading a small decode cost on lookup for a much smaller heap footprint.
+ */
+@Service
+@ConditionalOnProperty(prefix = "mqtt.subscription-trie", value = "type", havingValue = "COMPACT")
+public class CompactConcurrentMapSubscriptionTrie extends ConcurrentMapSubscriptionTrie<ClientSubscription> {
+
+    private final CompactSubscriptionCodec codec;
+
+    @Autowired
+    public CompactConcurrentMapSubscriptionTrie(StatsManager statsManager) {
+        this(statsManager, new CompactSubscriptionCodec());
+    }
+
+    CompactConcurrentMapSubscriptionTrie(StatsManager statsManager, CompactSubscriptionCodec codec) {
+        super(statsManager, () -> new CompactClientSubscriptionValues(codec));
+        this.codec = codec;
+    }
+
+    int getClientIdsCount() {
+        return codec.getClientIdsCount();
+    }
+}
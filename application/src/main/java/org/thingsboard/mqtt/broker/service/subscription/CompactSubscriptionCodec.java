@@ -0,0 +1,194 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription;
+
+import org.thingsboard.mqtt.broker.common.data.subscription.SubscriptionOptions;
+import org.thingsboard.mqtt.broker.common.data.subscription.SubscriptionOptions.RetainHandlingPolicy;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes {@link ClientSubscription} into a single non-zero positive long: the interned client id handle
+ * in the high 32 bits and the packed attributes in the low 32 bits. Qos and subscription options take
+ * the lowest bits, share name and subscription id are interned as a pair only when they are present.
+ * <p>
+ * Handles are reference counted by the encoded entries. A released handle keeps its value and is handed out
+ * again only after the reuse delay, so lock-free readers that still hold an old entry never decode it
+ * into another client's subscription.
+ */
+class CompactSubscriptionCodec {
+
+    static final long DEFAULT_HANDLE_REUSE_DELAY_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int QOS_MASK = 0b11;
+    private static final int NO_LOCAL_BIT = 1 << 2;
+    private static final int RETAIN_AS_PUBLISH_BIT = 1 << 3;
+    private static final int RETAIN_HANDLING_SHIFT = 4;
+    private static final int RETAIN_HANDLING_MASK = 0b11;
+    private static final int OPTIONS_SHIFT = 2;
+    private static final int OPTIONS_MASK = 0b1111;
+    private static final int NULL_OPTIONS_BIT = 1 << 6;
+    private static final int EXTENSION_BIT = 1 << 7;
+    private static final int EXTENSION_SHIFT = 8;
+    private static final int MAX_EXTENSION_HANDLE = (1 << (Integer.SIZE - EXTENSION_SHIFT)) - 1;
+    private static final long ATTRIBUTES_MASK = 0xFFFFFFFFL;
+
+    private static final SubscriptionOptions[] OPTIONS = new SubscriptionOptions[OPTIONS_MASK + 1];
+
+    static {
+        for (RetainHandlingPolicy retainHandling : RetainHandlingPolicy.values()) {
+            for (int flags = 0; flags < 4; flags++) {
+                SubscriptionOptions options = new SubscriptionOptions((flags & 1) != 0, (flags & 2) != 0, retainHandling);
+                OPTIONS[packOptions(options) >> OPTIONS_SHIFT] = options;
+            }
+        }
+    }
+
+    private final HandleTable<String> clientIds;
+    private final HandleTable<Extension> extensions;
+
+    CompactSubscriptionCodec() {
+        this(DEFAULT_HANDLE_REUSE_DELAY_MS);
+    }
+
+    CompactSubscriptionCodec(long handleReuseDelayMs) {
+        this.clientIds = new HandleTable<>(handleReuseDelayMs, Integer.MAX_VALUE);
+        this.extensions = new HandleTable<>(handleReuseDelayMs, MAX_EXTENSION_HANDLE);
+    }
+
+    /**
+     * Acquires the handles for the subscription, the result must be passed to {@link #release(long)} once it is not stored anymore.
+     */
+    long encode(ClientSubscription subscription) {
+        int attributes = (subscription.getQos() & QOS_MASK) |
+                (subscription.getOptions() == null ? NULL_OPTIONS_BIT : packOptions(subscription.getOptions()));
+        if (subscription.getShareName() != null || subscription.getSubscriptionId() != -1) {
+            int extensionHandle = extensions.acquire(new Extension(subscription.getShareName(), subscription.getSubscriptionId()));
+            attributes |= EXTENSION_BIT | (extensionHandle << EXTENSION_SHIFT);
+        }
+        int clientHandle = clientIds.acquire(subscription.getClientId());
+        return ((long) clientHandle << Integer.SIZE) | (attributes & ATTRIBUTES_MASK);
+    }
+
+    ClientSubscription decode(long entry) {
+        int attributes = (int) entry;
+        SubscriptionOptions options = (attributes & NULL_OPTIONS_BIT) != 0 ? null :
+                OPTIONS[(attributes >> OPTIONS_SHIFT) & OPTIONS_MASK];
+        String shareName = null;
+        int subscriptionId = -1;
+        if ((attributes & EXTENSION_BIT) != 0) {
+            Extension extension = extensions.get(attributes >>> EXTENSION_SHIFT);
+            shareName = extension.shareName();
+            subscriptionId = extension.subscriptionId();
+        }
+        return new ClientSubscription(clientIds.get(clientHandle(entry)), attributes & QOS_MASK, shareName, options, subscriptionId);
+    }
+
+    void release(long entry) {
+        int attributes = (int) entry;
+        if ((attributes & EXTENSION_BIT) != 0) {
+            extensions.release(attributes >>> EXTENSION_SHIFT);
+        }
+        clientIds.release(clientHandle(entry));
+    }
+
+    static int clientHandle(long entry) {
+        return (int) (entry >>> Integer.SIZE);
+    }
+
+    int getClientIdsCount() {
+        return clientIds.size();
+    }
+
+    private static int packOptions(SubscriptionOptions options) {
+        return (options.isNoLocal() ? NO_LOCAL_BIT : 0) |
+                (options.isRetainAsPublish() ? RETAIN_AS_PUBLISH_BIT : 0) |
+                ((options.getRetainHandling().value() & RETAIN_HANDLING_MASK) << RETAIN_HANDLING_SHIFT);
+    }
+
+    private record Extension(String shareName, int subscriptionId) {
+    }
+
+    private record ReleasedHandle(int handle, long releasedTs) {
+    }
+
+    private static final class HandleTable<K> {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final long reuseDelayMs;
+        private final int maxHandle;
+        private final Map<K, Integer> handles = new HashMap<>();
+        private final ArrayDeque<ReleasedHandle> releasedHandles = new ArrayDeque<>();
+        private volatile Object[] values = new Object[INITIAL_CAPACITY];
+        private int[] refCounts = new int[INITIAL_CAPACITY];
+        private int nextHandle = 1;
+
+        private HandleTable(long reuseDelayMs, int maxHandle) {
+            this.reuseDelayMs = reuseDelayMs;
+            this.maxHandle = maxHandle;
+        }
+
+        synchronized int acquire(K value) {
+            Integer handle = handles.get(value);
+            if (handle == null) {
+                handle = nextFreeHandle();
+                handles.put(value, handle);
+                values[handle] = value;
+            }
+            refCounts[handle]++;
+            return handle;
+        }
+
+        synchronized void release(int handle) {
+            if (--refCounts[handle] == 0) {
+                handles.remove(values[handle]);
+                releasedHandles.add(new ReleasedHandle(handle, System.currentTimeMillis()));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        K get(int handle) {
+            return (K) values[handle];
+        }
+
+        synchronized int size() {
+            return handles.size();
+        }
+
+        private int nextFreeHandle() {
+            ReleasedHandle released = releasedHandles.peek();
+            if (released != null && System.currentTimeMillis() - released.releasedTs() >= reuseDelayMs) {
+                releasedHandles.poll();
+                return released.handle();
+            }
+            if (nextHandle > maxHandle) {
+                throw new IllegalStateException("Out of subscription handles, max handle " + maxHandle);
+            }
+            int handle = nextHandle++;
+            if (handle == values.length) {
+                int newCapacity = (int) Math.min((long) handle * 2, (long) maxHandle + 1);
+                refCounts = Arrays.copyOf(refCounts, newCapacity);
+                values = Arrays.copyOf(values, newCapacity);
+            }
+            return handle;
+        }
+    }
+}
@@ -15,22 +15,20 @@
  */
 package org.thingsboard.mqtt.broker.service.subscription;
 
-import com.google.common.collect.Sets;
 import lombok.AllArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.thingsboard.mqtt.broker.common.data.BrokerConstants;
 import org.thingsboard.mqtt.broker.exception.SubscriptionTrieClearException;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.Stack;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -40,15 +38,17 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
+@ConditionalOnProperty(prefix = "mqtt.subscription-trie", value = "type", havingValue = "CONCURRENT_MAP", matchIfMissing = true)
 public class ConcurrentMapSubscriptionTrie<T> implements SubscriptionTrie<T> {
 
     private final AtomicInteger size;
     private final AtomicLong nodesCount;
-    private final Node<T> root = new Node<>();
+    private final Supplier<TrieNodeValues<T>> valuesFactory;
+    private final Node<T> root;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     @Setter
@@ -56,8 +56,14 @@ public class ConcurrentMapSubscriptionTrie<T> implements SubscriptionTrie<T> {
     private int waitForClearLockMs;
 
     public ConcurrentMapSubscriptionTrie(StatsManager statsManager) {
+        this(statsManager, ConcurrentSetTrieNodeValues::new);
+    }
+
+    protected ConcurrentMapSubscriptionTrie(StatsManager statsManager, Supplier<TrieNodeValues<T>> valuesFactory) {
         this.size = statsManager.createSubscriptionSizeCounter();
         this.nodesCount = statsManager.createSubscriptionTrieNodesCounter();
+        this.valuesFactory = valuesFactory;
+        this.root = new Node<>(BrokerConstants.NULL_CHAR_STR, valuesFactory.get());
     }
 
     @Override
@@ -72,12 +78,12 @@ public class ConcurrentMapSubscriptionTrie<T> implements SubscriptionTrie<T> {
         while (!topicPositions.isEmpty()) {
             TopicPosition<T> topicPosition = topicPositions.pop();
             if (topicPosition.segmentStartIndex > topic.length()) {
-                result.addAll(wrapValuesWithTopicFilter(topicPosition.prevTopicFilter, topicPosition.node.values));
+                addValuesWithTopicFilter(result, topicPosition.prevTopicFilter, topicPosition.node.values);
 
                 Node<T> multiLevelWildcardSubs = topicPosition.node.children.get(BrokerConstants.MULTI_LEVEL_WILDCARD);
                 if (multiLevelWildcardSubs != null) {
                     String currentTopicFilter = appendSegment(topicPosition.prevTopicFilter, BrokerConstants.MULTI_LEVEL_WILDCARD);
-                    result.addAll(wrapValuesWithTopicFilter(currentTopicFilter, multiLevelWildcardSubs.values));
+                    addValuesWithTopicFilter(result, currentTopicFilter, multiLevelWildcardSubs.values);
                 }
                 continue;
             }
@@ -89,7 +95,7 @@ public class ConcurrentMapSubscriptionTrie<T> implements SubscriptionTrie<T> {
                 Node<T> multiLevelWildcardSubs = childNodes.get(BrokerConstants.MULTI_LEVEL_WILDCARD);
                 if (multiLevelWildcardSubs != null) {
                     String currentTopicFilter = appendSegment(topicPosition.prevTopicFilter, BrokerConstants.MULTI_LEVEL_WILDCARD);
-                    result.addAll(wrapValuesWithTopicFilter(currentTopicFilter, multiLevelWildcardSubs.values));
+                    addValuesWithTopicFilter(result, currentTopicFilter, multiLevelWildcardSubs.values);
                 }
                 Node<T> singleLevelWildcardSubs = childNodes.get(BrokerConstants.SINGLE_LEVEL_WILDCARD);
                 if (singleLevelWildcardSubs != null) {
@@ -107,16 +113,69 @@ public class ConcurrentMapSubscriptionTrie<T> implements SubscriptionTrie<T> {
         return result;
     }
 
+    /**
+     * Same matching rules as {@link #get(String)}, but the topic is tokenized once into offsets,
+     * child nodes are looked up without creating segment substrings, the traversal stack is reused
+     * per thread and matched values are handed to the visitor instead of being collected into lists.
+     */
+    @Override
+    public void forEachMatch(String topic, TopicFilterMatchVisitor<T> visitor) {
+        if (topic == null) {
+            throw new IllegalArgumentException("Topic cannot be null");
+        }
+        TopicTraversalContext ctx = TopicTraversalContext.acquire(topic);
+        try {
+            traverse(ctx, visitor);
+        } finally {
+            ctx.release();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void traverse(TopicTraversalContext ctx, TopicFilterMatchVisitor<T> visitor) {
+        ctx.push(root, 0);
+        while (ctx.isNotEmpty()) {
+            int level = ctx.peekLevel();
+            Node<T> node = (Node<T>) ctx.pop();
+
+            if (level == ctx.getSegmentsCount()) {
+                visitValues(node, visitor);
+                Node<T> multiLevelWildcardSubs = node.children.get(BrokerConstants.MULTI_LEVEL_WILDCARD);
+                if (multiLevelWildcardSubs != null) {
+                    visitValues(multiLevelWildcardSubs, visitor);
+                }
+                continue;
+            }
+            ConcurrentMap<String, Node<T>> childNodes = node.children;
+
+            if (level != 0 || !ctx.isStartsWith$()) {
+                Node<T> multiLevelWildcardSubs = childNodes.get(BrokerConstants.MULTI_LEVEL_WILDCARD);
+                if (multiLevelWildcardSubs != null) {
+                    visitValues(multiLevelWildcardSubs, visitor);
+                }
+                Node<T> singleLevelWildcardSubs = childNodes.get(BrokerConstants.SINGLE_LEVEL_WILDCARD);
+                if (singleLevelWildcardSubs != null) {
+                    ctx.push(singleLevelWildcardSubs, level + 1);
+                }
+            }
+
+            Node<T> segmentNode = childNodes.get(ctx.segmentKey(level));
+            if (segmentNode != null) {
+                ctx.push(segmentNode, level + 1);
+            }
+        }
+    }
+
+    private void visitValues(Node<T> node, TopicFilterMatchVisitor<T> visitor) {
+        node.values.forEach(visitor, node.topicFilter);
+    }
+
     private boolean notStartingWith$(String topic, TopicPosition<T> topicPosition) {
         return topicPosition.segmentStartIndex != 0 || topic.charAt(0) != '$';
     }
 
-    private List<ValueWithTopicFilter<T>> wrapValuesWithTopicFilter(String topicFilter, Collection<T> values) {
-        List<ValueWithTopicFilter<T>> result = new ArrayList<>(values.size());
-        for (T value : values) {
-            result.add(new ValueWithTopicFilter<>(value, topicFilter));
-        }
-        return result;
+    private void addValuesWithTopicFilter(List<ValueWithTopicFilter<T>> result, String topicFilter, TrieNodeValues<T> values) {
+        values.forEach((value, valueTopicFilter) -> result.add(new ValueWithTopicFilter<>(value, valueTopicFilter)), topicFilter);
     }
 
     @Override
@@ -137,26 +196,19 @@ public class ConcurrentMapSubscriptionTrie<T> implements SubscriptionTrie<T> {
 
     private void put(Node<T> x, String key, T val, int segmentStartIndex) {
         if (segmentStartIndex > key.length()) {
-            addOrReplace(x.values, val);
+            if (x.values.addOrReplace(val)) {
+                size.getAndIncrement();
+            }
         } else {
             String segment = getSegment(key, segmentStartIndex);
             Node<T> nextNode = x.children.computeIfAbsent(segment, s -> {
                 nodesCount.incrementAndGet();
-                return new Node<>();
+                return new Node<>(appendSegment(x.topicFilter, s), valuesFactory.get());
             });
             put(nextNode, key, val, getNextSegmentStartIndex(segmentStartIndex, segment));
         }
     }
 
-    private void addOrReplace(Set<T> values, T val) {
-        if (!values.add(val)) {
-            values.remove(val);
-            values.add(val);
-        } else {
-            size.getAndIncrement();
-        }
-    }
-
     @Override
     public boolean delete(String topicFilter, Predicate<T> deletionFilter) {
         if (log.isTraceEnabled()) {
@@ -167,18 +219,15 @@ public class ConcurrentMapSubscriptionTrie<T> implements SubscriptionTrie<T> {
         }
         Node<T> x = getDeleteNode(root, topicFilter, 0);
         if (x != null) {
-            Set<T> valuesToDelete = x.values.stream().filter(deletionFilter).collect(Collectors.toSet());
-            if (valuesToDelete.isEmpty()) {
+            int deleted = x.values.removeIf(deletionFilter);
+            if (deleted == 0) {
                 return false;
             }
-            if (valuesToDelete.size() > 1) {
+            if (deleted > 1) {
                 log.error("There are more than one value to delete!");
             }
-            boolean deleted = x.values.removeAll(valuesToDelete);
-            if (deleted) {
-                size.decrementAndGet();
-            }
-            return deleted;
+            size.decrementAndGet();
+            return true;
         }
         return false;
     }
@@ -268,9 +317,12 @@ public class ConcurrentMapSubscriptionTrie<T> implements SubscriptionTrie<T> {
 
     private static class Node<T> {
         private final ConcurrentMap<String, Node<T>> children = new ConcurrentHashMap<>();
-        private final Set<T> values = Sets.newConcurrentHashSet();
+        private final TrieNodeValues<T> values;
+        private final String topicFilter;
 
-        public Node() {
+        public Node(String topicFilter, TrieNodeValues<T> values) {
+            this.topicFilter = topicFilter;
+            this.values = values;
         }
 
         @Override
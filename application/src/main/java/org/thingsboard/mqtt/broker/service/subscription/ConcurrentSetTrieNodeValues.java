@@ -0,0 +1,70 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription;
+
+import com.google.common.collect.Sets;
+
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+class ConcurrentSetTrieNodeValues<T> implements TrieNodeValues<T> {
+
+    private final Set<T> values = Sets.newConcurrentHashSet();
+
+    @Override
+    public boolean addOrReplace(T value) {
+        if (!values.add(value)) {
+            values.remove(value);
+            values.add(value);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int removeIf(Predicate<T> filter) {
+        Set<T> valuesToDelete = values.stream().filter(filter).collect(Collectors.toSet());
+        if (valuesToDelete.isEmpty()) {
+            return 0;
+        }
+        return values.removeAll(valuesToDelete) ? valuesToDelete.size() : 0;
+    }
+
+    @Override
+    public void forEach(TopicFilterMatchVisitor<T> visitor, String topicFilter) {
+        for (T value : values) {
+            visitor.visit(value, topicFilter);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return values.equals(((ConcurrentSetTrieNodeValues<?>) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+}
@@ -0,0 +1,362 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.thingsboard.mqtt.broker.common.data.BrokerConstants;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Subscription trie without locks and without the periodic clear of empty nodes.
+ * <p>
+ * Values and the number of linked children of every node are kept in an immutable {@link NodeState}
+ * replaced with CAS. A node whose state becomes empty is marked as removed and unlinked from its parent right away.
+ * Writers that meet a removed node retry from the root, readers never block and at worst see a node that is being unlinked.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "mqtt.subscription-trie", value = "type", havingValue = "LOCK_FREE")
+public class LockFreeSubscriptionTrie<T> implements SubscriptionTrie<T> {
+
+    private final AtomicInteger size;
+    private final AtomicLong nodesCount;
+    private final Node<T> root = new Node<>(null, null, BrokerConstants.NULL_CHAR_STR);
+
+    public LockFreeSubscriptionTrie(StatsManager statsManager) {
+        this.size = statsManager.createSubscriptionSizeCounter();
+        this.nodesCount = statsManager.createSubscriptionTrieNodesCounter();
+    }
+
+    @Override
+    public List<ValueWithTopicFilter<T>> get(String topic) {
+        List<ValueWithTopicFilter<T>> result = new ArrayList<>();
+        forEachMatch(topic, (value, topicFilter) -> result.add(new ValueWithTopicFilter<>(value, topicFilter)));
+        return result;
+    }
+
+    @Override
+    public void forEachMatch(String topic, TopicFilterMatchVisitor<T> visitor) {
+        if (topic == null) {
+            throw new IllegalArgumentException("Topic cannot be null");
+        }
+        TopicTraversalContext ctx = TopicTraversalContext.acquire(topic);
+        try {
+            traverse(ctx, visitor);
+        } finally {
+            ctx.release();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void traverse(TopicTraversalContext ctx, TopicFilterMatchVisitor<T> visitor) {
+        ctx.push(root, 0);
+        while (ctx.isNotEmpty()) {
+            int level = ctx.peekLevel();
+            Node<T> node = (Node<T>) ctx.pop();
+
+            if (level == ctx.getSegmentsCount()) {
+                visitValues(node, visitor);
+                Node<T> multiLevelWildcardSubs = node.children.get(BrokerConstants.MULTI_LEVEL_WILDCARD);
+                if (multiLevelWildcardSubs != null) {
+                    visitValues(multiLevelWildcardSubs, visitor);
+                }
+                continue;
+            }
+            ConcurrentMap<String, Node<T>> childNodes = node.children;
+
+            if (level != 0 || !ctx.isStartsWith$()) {
+                Node<T> multiLevelWildcardSubs = childNodes.get(BrokerConstants.MULTI_LEVEL_WILDCARD);
+                if (multiLevelWildcardSubs != null) {
+                    visitValues(multiLevelWildcardSubs, visitor);
+                }
+                Node<T> singleLevelWildcardSubs = childNodes.get(BrokerConstants.SINGLE_LEVEL_WILDCARD);
+                if (singleLevelWildcardSubs != null) {
+                    ctx.push(singleLevelWildcardSubs, level + 1);
+                }
+            }
+
+            Node<T> segmentNode = childNodes.get(ctx.segmentKey(level));
+            if (segmentNode != null) {
+                ctx.push(segmentNode, level + 1);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void visitValues(Node<T> node, TopicFilterMatchVisitor<T> visitor) {
+        for (Object value : node.state.get().values) {
+            visitor.visit((T) value, node.topicFilter);
+        }
+    }
+
+    @Override
+    public void put(String topicFilter, T val) {
+        if (log.isTraceEnabled()) {
+            log.trace("Executing put [{}] [{}]", topicFilter, val);
+        }
+        if (topicFilter == null || val == null) {
+            throw new IllegalArgumentException("Topic filter or value cannot be null");
+        }
+        while (true) {
+            Node<T> node = getOrCreateNode(topicFilter);
+            if (node != null && addOrReplace(node, val)) {
+                return;
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("[{}] Node was removed concurrently, retrying put", topicFilter);
+            }
+        }
+    }
+
+    private Node<T> getOrCreateNode(String topicFilter) {
+        Node<T> node = root;
+        int segmentStartIndex = 0;
+        while (segmentStartIndex <= topicFilter.length()) {
+            String segment = getSegment(topicFilter, segmentStartIndex);
+            node = getOrCreateChild(node, segment);
+            if (node == null) {
+                return null;
+            }
+            segmentStartIndex = getNextSegmentStartIndex(segmentStartIndex, segment);
+        }
+        return node;
+    }
+
+    private Node<T> getOrCreateChild(Node<T> parent, String segment) {
+        while (true) {
+            Node<T> child = parent.children.get(segment);
+            if (child != null) {
+                if (!child.state.get().removed) {
+                    return child;
+                }
+                unlink(child);
+                continue;
+            }
+            if (!reserveChild(parent)) {
+                return null;
+            }
+            Node<T> newChild = new Node<>(parent, segment, appendSegment(parent.topicFilter, segment));
+            if (parent.children.putIfAbsent(segment, newChild) == null) {
+                nodesCount.incrementAndGet();
+                return newChild;
+            }
+            releaseChild(parent);
+        }
+    }
+
+    private boolean addOrReplace(Node<T> node, T val) {
+        while (true) {
+            NodeState current = node.state.get();
+            if (current.removed) {
+                return false;
+            }
+            int index = indexOf(current.values, val);
+            Object[] newValues;
+            if (index == -1) {
+                newValues = Arrays.copyOf(current.values, current.values.length + 1);
+                newValues[current.values.length] = val;
+            } else {
+                newValues = current.values.clone();
+                newValues[index] = val;
+            }
+            if (node.state.compareAndSet(current, new NodeState(newValues, current.childrenCount, false))) {
+                if (index == -1) {
+                    size.getAndIncrement();
+                }
+                return true;
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean delete(String topicFilter, Predicate<T> deletionFilter) {
+        if (log.isTraceEnabled()) {
+            log.trace("Executing delete [{}]", topicFilter);
+        }
+        if (topicFilter == null || deletionFilter == null) {
+            throw new IllegalArgumentException("Topic filter or deletionFilter cannot be null");
+        }
+        Node<T> node = getNode(topicFilter);
+        while (node != null) {
+            NodeState current = node.state.get();
+            if (current.removed) {
+                // removed concurrently, the path may have been recreated
+                unlink(node);
+                node = getNode(topicFilter);
+                continue;
+            }
+            Object[] remainingValues = Arrays.stream(current.values)
+                    .filter(value -> !deletionFilter.test((T) value))
+                    .toArray();
+            int deletedCount = current.values.length - remainingValues.length;
+            if (deletedCount == 0) {
+                return false;
+            }
+            if (deletedCount > 1) {
+                log.error("There are more than one value to delete!");
+            }
+            NodeState updated = new NodeState(remainingValues, current.childrenCount, false);
+            if (node.state.compareAndSet(current, updated)) {
+                size.addAndGet(-deletedCount);
+                if (updated.isEmpty()) {
+                    tryRemove(node);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clearEmptyNodes() {
+        if (log.isTraceEnabled()) {
+            log.trace("Executing clearEmptyNodes, nothing to clear - empty nodes are removed on delete");
+        }
+    }
+
+    private Node<T> getNode(String topicFilter) {
+        Node<T> node = root;
+        int segmentStartIndex = 0;
+        while (node != null && segmentStartIndex <= topicFilter.length()) {
+            String segment = getSegment(topicFilter, segmentStartIndex);
+            node = node.children.get(segment);
+            segmentStartIndex = getNextSegmentStartIndex(segmentStartIndex, segment);
+        }
+        return node;
+    }
+
+    private boolean reserveChild(Node<T> node) {
+        while (true) {
+            NodeState current = node.state.get();
+            if (current.removed) {
+                return false;
+            }
+            if (node.state.compareAndSet(current, new NodeState(current.values, current.childrenCount + 1, false))) {
+                return true;
+            }
+        }
+    }
+
+    private void releaseChild(Node<T> node) {
+        while (true) {
+            NodeState current = node.state.get();
+            NodeState updated = new NodeState(current.values, current.childrenCount - 1, false);
+            if (node.state.compareAndSet(current, updated)) {
+                if (updated.isEmpty()) {
+                    tryRemove(node);
+                }
+                return;
+            }
+        }
+    }
+
+    private void tryRemove(Node<T> node) {
+        if (node == root) {
+            return;
+        }
+        NodeState current = node.state.get();
+        if (current.isEmpty() && node.state.compareAndSet(current, NodeState.REMOVED)) {
+            unlink(node);
+        }
+    }
+
+    private void unlink(Node<T> node) {
+        Node<T> parent = node.parent;
+        if (parent.children.remove(node.segment, node)) {
+            nodesCount.decrementAndGet();
+            releaseChild(parent);
+        }
+    }
+
+    private int indexOf(Object[] values, T val) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(val)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int getNextSegmentStartIndex(int segmentStartIndex, String segment) {
+        return segmentStartIndex + segment.length() + 1;
+    }
+
+    private String getSegment(String key, int segmentStartIndex) {
+        int nextDelimiterIndex = key.indexOf(BrokerConstants.TOPIC_DELIMITER, segmentStartIndex);
+
+        return nextDelimiterIndex == -1 ?
+                key.substring(segmentStartIndex)
+                : key.substring(segmentStartIndex, nextDelimiterIndex);
+    }
+
+    private String appendSegment(String topicFilter, String segment) {
+        if (topicFilter.equals(BrokerConstants.NULL_CHAR_STR)) {
+            return segment;
+        }
+        return topicFilter + BrokerConstants.TOPIC_DELIMITER + segment;
+    }
+
+    private static class Node<T> {
+        private final ConcurrentMap<String, Node<T>> children = new ConcurrentHashMap<>();
+        private final AtomicReference<NodeState> state = new AtomicReference<>(NodeState.EMPTY);
+        private final Node<T> parent;
+        private final String segment;
+        private final String topicFilter;
+
+        Node(Node<T> parent, String segment, String topicFilter) {
+            this.parent = parent;
+            this.segment = segment;
+            this.topicFilter = topicFilter;
+        }
+    }
+
+    /**
+     * Immutable snapshot of a node. {@code childrenCount} is incremented before a child is linked
+     * and decremented after it is unlinked, so a node is never removed while a child is being added to it.
+     */
+    private static class NodeState {
+        private static final Object[] NO_VALUES = new Object[0];
+        private static final NodeState EMPTY = new NodeState(NO_VALUES, 0, false);
+        private static final NodeState REMOVED = new NodeState(NO_VALUES, 0, true);
+
+        private final Object[] values;
+        private final int childrenCount;
+        private final boolean removed;
+
+        private NodeState(Object[] values, int childrenCount, boolean removed) {
+            this.values = values;
+            this.childrenCount = childrenCount;
+            this.removed = removed;
+        }
+
+        private boolean isEmpty() {
+            return !removed && values.length == 0 && childrenCount == 0;
+        }
+    }
+}
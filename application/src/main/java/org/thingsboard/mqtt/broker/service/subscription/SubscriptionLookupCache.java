@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.mqtt.broker.common.data.BrokerConstants;
+import org.thingsboard.mqtt.broker.service.stats.SubscriptionCacheStats;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of subscription lookup results per concrete topic.
+ * <p>
+ * Every change of the subscription trie must be reported with {@link #invalidate(String)} after it is applied,
+ * so only topics that the changed topic filter can match are evicted.
+ * A lookup that raced with such a change never leaves its (possibly stale) result in the cache.
+ */
+@Slf4j
+public class SubscriptionLookupCache<T> {
+
+    private final ConcurrentMap<String, List<ValueWithTopicFilter<T>>> cache = new ConcurrentHashMap<>();
+    private final AtomicLong modificationSeq = new AtomicLong();
+    private final int maxSize;
+    private final SubscriptionCacheStats stats;
+
+    public SubscriptionLookupCache(int maxSize, SubscriptionCacheStats stats) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Subscription lookup cache max size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.stats = stats;
+    }
+
+    public List<ValueWithTopicFilter<T>> get(String topic, Function<String, List<ValueWithTopicFilter<T>>> lookup) {
+        List<ValueWithTopicFilter<T>> cached = cache.get(topic);
+        if (cached != null) {
+            stats.logHit();
+            return cached;
+        }
+        stats.logMiss();
+
+        long seq = modificationSeq.get();
+        List<ValueWithTopicFilter<T>> result = Collections.unmodifiableList(lookup.apply(topic));
+        if (cache.size() >= maxSize) {
+            evictAny();
+        }
+        cache.put(topic, result);
+        if (modificationSeq.get() != seq) {
+            // trie was changed during the lookup, the result may be outdated
+            cache.remove(topic, result);
+        }
+        return result;
+    }
+
+    public void invalidate(String topicFilter) {
+        modificationSeq.incrementAndGet();
+        int invalidated = 0;
+        if (isWildcardTopicFilter(topicFilter)) {
+            for (String topic : cache.keySet()) {
+                if (matches(topicFilter, topic) && cache.remove(topic) != null) {
+                    invalidated++;
+                }
+            }
+        } else if (cache.remove(topicFilter) != null) {
+            invalidated++;
+        }
+        if (invalidated > 0) {
+            if (log.isTraceEnabled()) {
+                log.trace("[{}] Invalidated {} cached topics", topicFilter, invalidated);
+            }
+            stats.logInvalidations(invalidated);
+        }
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private void evictAny() {
+        Iterator<String> iterator = cache.keySet().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private boolean isWildcardTopicFilter(String topicFilter) {
+        return topicFilter.contains(BrokerConstants.MULTI_LEVEL_WILDCARD) || topicFilter.contains(BrokerConstants.SINGLE_LEVEL_WILDCARD);
+    }
+
+    static boolean matches(String topicFilter, String topic) {
+        if (!topic.isEmpty() && topic.charAt(0) == '$' && !topicFilter.isEmpty()
+                && (topicFilter.charAt(0) == '+' || topicFilter.charAt(0) == '#')) {
+            return false;
+        }
+        int filterIndex = 0;
+        int topicIndex = 0;
+        while (true) {
+            int filterSegmentEnd = segmentEnd(topicFilter, filterIndex);
+            int filterSegmentLength = filterSegmentEnd - filterIndex;
+            if (filterSegmentLength == 1 && topicFilter.charAt(filterIndex) == '#') {
+                return true;
+            }
+            int topicSegmentEnd = segmentEnd(topic, topicIndex);
+            boolean singleLevelWildcard = filterSegmentLength == 1 && topicFilter.charAt(filterIndex) == '+';
+            if (!singleLevelWildcard && (filterSegmentLength != topicSegmentEnd - topicIndex
+                    || !topicFilter.regionMatches(filterIndex, topic, topicIndex, filterSegmentLength))) {
+                return false;
+            }
+            boolean filterEnded = filterSegmentEnd == topicFilter.length();
+            boolean topicEnded = topicSegmentEnd == topic.length();
+            if (filterEnded) {
+                return topicEnded;
+            }
+            filterIndex = filterSegmentEnd + 1;
+            topicIndex = topicSegmentEnd + 1;
+            if (topicEnded) {
+                // 'sport/#' matches 'sport', nothing else can match a shorter topic
+                return topicFilter.length() - filterIndex == 1 && topicFilter.charAt(filterIndex) == '#';
+            }
+        }
+    }
+
+    private static int segmentEnd(String str, int segmentStart) {
+        int nextDelimiterIndex = str.indexOf(BrokerConstants.TOPIC_DELIMITER, segmentStart);
+        return nextDelimiterIndex == -1 ? str.length() : nextDelimiterIndex;
+    }
+}
@@ -24,6 +24,12 @@ public interface SubscriptionTrie<T> {
 
     List<ValueWithTopicFilter<T>> get(String topic);
 
+    default void forEachMatch(String topic, TopicFilterMatchVisitor<T> visitor) {
+        for (ValueWithTopicFilter<T> valueWithTopicFilter : get(topic)) {
+            visitor.visit(valueWithTopicFilter.getValue(), valueWithTopicFilter.getTopicFilter());
+        }
+    }
+
     void put(String topicFilter, T val);
 
     boolean delete(String topicFilter, Predicate<T> deletionFilter);
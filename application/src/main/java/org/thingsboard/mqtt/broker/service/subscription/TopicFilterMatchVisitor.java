@@ -0,0 +1,28 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription;
+
+/**
+ * Receives every value matched by {@link SubscriptionTrie#forEachMatch(String, TopicFilterMatchVisitor)}
+ * together with the topic filter it was stored under. Implementations must not keep references
+ * to the trie internals and should be cheap, as they are called on the lookup thread.
+ */
+@FunctionalInterface
+public interface TopicFilterMatchVisitor<T> {
+
+    void visit(T value, String topicFilter);
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription;
+
+import org.thingsboard.mqtt.broker.common.data.BrokerConstants;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-thread scratch state for allocation-free trie lookups: the topic split into segment offsets
+ * and a stack of (node, level) pairs still to visit. Arrays only grow, so after warm-up a lookup does not allocate.
+ */
+class TopicTraversalContext {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final ThreadLocal<TopicTraversalContext> CONTEXT = ThreadLocal.withInitial(TopicTraversalContext::new);
+
+    private final SegmentKey segmentKey = new SegmentKey();
+    private int[] segmentStarts = new int[INITIAL_CAPACITY];
+    private int[] segmentEnds = new int[INITIAL_CAPACITY];
+    private Object[] nodes = new Object[INITIAL_CAPACITY];
+    private int[] levels = new int[INITIAL_CAPACITY];
+    private String topic;
+    private int segmentsCount;
+    private int stackSize;
+    private boolean startsWith$;
+    private boolean inUse;
+
+    static TopicTraversalContext acquire(String topic) {
+        TopicTraversalContext ctx = CONTEXT.get();
+        if (ctx.inUse) {
+            // visitor is doing a nested lookup on the same thread
+            ctx = new TopicTraversalContext();
+        }
+        ctx.init(topic);
+        return ctx;
+    }
+
+    private void init(String topic) {
+        this.inUse = true;
+        this.topic = topic;
+        this.startsWith$ = !topic.isEmpty() && topic.charAt(0) == '$';
+        this.segmentsCount = 0;
+        int segmentStart = 0;
+        while (true) {
+            int nextDelimiterIndex = topic.indexOf(BrokerConstants.TOPIC_DELIMITER, segmentStart);
+            int segmentEnd = nextDelimiterIndex == -1 ? topic.length() : nextDelimiterIndex;
+            addSegment(segmentStart, segmentEnd);
+            if (nextDelimiterIndex == -1) {
+                break;
+            }
+            segmentStart = nextDelimiterIndex + 1;
+        }
+    }
+
+    private void addSegment(int start, int end) {
+        if (segmentsCount == segmentStarts.length) {
+            segmentStarts = Arrays.copyOf(segmentStarts, segmentsCount * 2);
+            segmentEnds = Arrays.copyOf(segmentEnds, segmentsCount * 2);
+        }
+        segmentStarts[segmentsCount] = start;
+        segmentEnds[segmentsCount] = end;
+        segmentsCount++;
+    }
+
+    int getSegmentsCount() {
+        return segmentsCount;
+    }
+
+    boolean isStartsWith$() {
+        return startsWith$;
+    }
+
+    void push(Object node, int level) {
+        if (stackSize == nodes.length) {
+            nodes = Arrays.copyOf(nodes, stackSize * 2);
+            levels = Arrays.copyOf(levels, stackSize * 2);
+        }
+        nodes[stackSize] = node;
+        levels[stackSize] = level;
+        stackSize++;
+    }
+
+    boolean isNotEmpty() {
+        return stackSize > 0;
+    }
+
+    int peekLevel() {
+        return levels[stackSize - 1];
+    }
+
+    Object pop() {
+        Object node = nodes[--stackSize];
+        nodes[stackSize] = null;
+        return node;
+    }
+
+    /**
+     * @return key for the children map lookup of the segment at the given level, valid until the next call
+     */
+    Object segmentKey(int level) {
+        return segmentKey.set(topic, segmentStarts[level], segmentEnds[level]);
+    }
+
+    void release() {
+        if (stackSize > 0) {
+            Arrays.fill(nodes, 0, stackSize, null);
+            stackSize = 0;
+        }
+        topic = null;
+        segmentKey.topic = null;
+        inUse = false;
+    }
+
+    /**
+     * Mutable lookup key that views a segment of the topic without copying it. It only works as
+     * the argument of {@link ConcurrentHashMap#get(Object)}: its hash code is the one of the
+     * equivalent {@link String} and the map always calls {@code equals} on the lookup key.
+     */
+    private static class SegmentKey {
+        private String topic;
+        private int start;
+        private int length;
+        private int hash;
+
+        private SegmentKey set(String topic, int start, int end) {
+            this.topic = topic;
+            this.start = start;
+            this.length = end - start;
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + topic.charAt(i);
+            }
+            this.hash = h;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof String segment
+                    && segment.length() == length
+                    && topic.regionMatches(start, segment, 0, length);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription;
+
+import java.util.function.Predicate;
+
+/**
+ * Values stored in a single node of {@link ConcurrentMapSubscriptionTrie}.
+ * Reads must be safe without locking, writes may be serialized by the implementation.
+ */
+interface TrieNodeValues<T> {
+
+    /**
+     * @return true if the value was added, false if an equal value was replaced
+     */
+    boolean addOrReplace(T value);
+
+    /**
+     * @return number of removed values
+     */
+    int removeIf(Predicate<T> filter);
+
+    void forEach(TopicFilterMatchVisitor<T> visitor, String topicFilter);
+
+    boolean isEmpty();
+
+}
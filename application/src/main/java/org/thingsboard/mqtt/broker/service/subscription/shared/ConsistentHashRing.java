@@ -0,0 +1,83 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription.shared;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import lombok.Getter;
+import org.thingsboard.mqtt.broker.service.subscription.Subscription;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Hash ring over the members of a share group. Every member is placed on the ring several times (virtual nodes)
+ * by the hash of its client id, so all broker nodes build the same ring for the same members and adding or removing
+ * a member moves only the keys of its own ring segments.
+ */
+class ConsistentHashRing {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    @Getter
+    private final List<Subscription> subscriptions;
+    private final long[] points;
+    private final Subscription[] owners;
+
+    ConsistentHashRing(List<Subscription> subscriptions, int virtualNodes) {
+        this.subscriptions = subscriptions;
+        int size = subscriptions.size() * virtualNodes;
+        long[][] ring = new long[size][2];
+        int i = 0;
+        for (int memberIdx = 0; memberIdx < subscriptions.size(); memberIdx++) {
+            String clientId = subscriptions.get(memberIdx).getClientSessionInfo().getClientId();
+            for (int node = 0; node < virtualNodes; node++) {
+                ring[i][0] = hash(clientId + "#" + node);
+                ring[i][1] = memberIdx;
+                i++;
+            }
+        }
+        Arrays.sort(ring, Comparator.comparingLong(point -> point[0]));
+
+        this.points = new long[size];
+        this.owners = new Subscription[size];
+        for (i = 0; i < size; i++) {
+            points[i] = ring[i][0];
+            owners[i] = subscriptions.get((int) ring[i][1]);
+        }
+    }
+
+    boolean isBuiltFrom(List<Subscription> subscriptions) {
+        return this.subscriptions == subscriptions || this.subscriptions.equals(subscriptions);
+    }
+
+    Subscription get(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int idx = Arrays.binarySearch(points, hash(key));
+        if (idx < 0) {
+            idx = -idx - 1;
+        }
+        return owners[idx == points.length ? 0 : idx];
+    }
+
+    static long hash(String value) {
+        return HASH_FUNCTION.hashString(value, StandardCharsets.UTF_8).asLong();
+    }
+}
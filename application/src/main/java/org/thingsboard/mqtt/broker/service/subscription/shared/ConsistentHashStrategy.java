@@ -0,0 +1,58 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription.shared;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+import org.thingsboard.mqtt.broker.service.subscription.Subscription;
+
+import java.util.List;
+
+/**
+ * Sends all messages with the same key (publisher client id or topic) to the same connected member of the group,
+ * keeping the order of messages per key while the group members do not change
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ConsistentHashStrategy implements SharedSubscriptionProcessingStrategy {
+
+    private final SharedSubscriptionProcessor sharedSubscriptionProcessor;
+    private final ConsistentHashKeyType keyType;
+
+    @Override
+    public Subscription analyze(SharedSubscription sharedSubscription, PublishMsgProto publishMsgProto) {
+        List<Subscription> connectedSubscriptions = sharedSubscription.getSubscriptions().stream()
+                .filter(subscription -> subscription.getClientSessionInfo().isConnected())
+                .toList();
+        return sharedSubscriptionProcessor.processConsistentHash(sharedSubscription.getTopicSharedSubscription(),
+                connectedSubscriptions, getHashKey(publishMsgProto));
+    }
+
+    @Override
+    public Subscription analyze(SharedSubscriptionGroupSnapshot snapshot, PublishMsgProto publishMsgProto) {
+        return sharedSubscriptionProcessor.processConsistentHash(snapshot.getTopicSharedSubscription(),
+                snapshot.getConnectedDeviceSubscriptions(), getHashKey(publishMsgProto));
+    }
+
+    String getHashKey(PublishMsgProto publishMsgProto) {
+        if (ConsistentHashKeyType.CLIENT_ID == keyType && !publishMsgProto.getClientId().isEmpty()) {
+            return publishMsgProto.getClientId();
+        }
+        return publishMsgProto.getTopicName();
+    }
+
+}
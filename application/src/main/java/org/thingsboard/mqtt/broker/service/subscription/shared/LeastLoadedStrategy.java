@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription.shared;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionCtxService;
+import org.thingsboard.mqtt.broker.service.subscription.Subscription;
+import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the connected member with the fewest in-flight and delayed messages, members with a non-writable channel are picked
+ * only when all members are not writable. The scan starts from a rotating position, so idle members are picked in turns.
+ * The load is known only for the members connected to this node, the members connected to other nodes are treated as idle.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class LeastLoadedStrategy implements SharedSubscriptionProcessingStrategy {
+
+    private static final long NOT_WRITABLE_LOAD = Integer.MAX_VALUE;
+
+    private final ClientSessionCtxService clientSessionCtxService;
+    private final AtomicInteger startIndex = new AtomicInteger();
+
+    @Override
+    public Subscription analyze(SharedSubscription sharedSubscription, PublishMsgProto publishMsgProto) {
+        return selectLeastLoaded(sharedSubscription.getSubscriptions());
+    }
+
+    @Override
+    public Subscription analyze(SharedSubscriptionGroupSnapshot snapshot, PublishMsgProto publishMsgProto) {
+        return selectLeastLoaded(snapshot.getConnectedDeviceSubscriptions());
+    }
+
+    Subscription selectLeastLoaded(List<Subscription> subscriptions) {
+        int size = subscriptions.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = (startIndex.getAndIncrement() & Integer.MAX_VALUE) % size;
+        Subscription leastLoaded = null;
+        long minLoad = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Subscription subscription = subscriptions.get((start + i) % size);
+            if (!subscription.getClientSessionInfo().isConnected()) {
+                continue;
+            }
+            long load = getLoad(subscription);
+            if (load < minLoad) {
+                leastLoaded = subscription;
+                minLoad = load;
+                if (load == 0) {
+                    break;
+                }
+            }
+        }
+        return leastLoaded;
+    }
+
+    private long getLoad(Subscription subscription) {
+        ClientSessionCtx clientSessionCtx = clientSessionCtxService.getClientSessionCtx(subscription.getClientSessionInfo().getClientId());
+        if (clientSessionCtx == null) {
+            return 0;
+        }
+        int pendingMsgs = clientSessionCtx.getPendingMsgsCount();
+        return clientSessionCtx.isWritable() ? pendingMsgs : NOT_WRITABLE_LOAD + pendingMsgs;
+    }
+
+}
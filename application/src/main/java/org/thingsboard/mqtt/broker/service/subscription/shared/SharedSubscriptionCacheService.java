@@ -29,6 +29,11 @@ public interface SharedSubscriptionCacheService {
 
     SharedSubscriptions get(Set<TopicSharedSubscription> topicSharedSubscriptions);
 
+    /**
+     * @return snapshot of the share group or null if group snapshots are disabled or the group does not exist
+     */
+    SharedSubscriptionGroupSnapshot getSnapshot(TopicSharedSubscription topicSharedSubscription);
+
     boolean isAnyOtherDeviceClientConnected(String clientId, TopicSharedSubscription topicSharedSubscription);
 
     boolean sharedSubscriptionsInitialized();
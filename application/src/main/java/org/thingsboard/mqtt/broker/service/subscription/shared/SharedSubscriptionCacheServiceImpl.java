@@ -16,9 +16,11 @@
 package org.thingsboard.mqtt.broker.service.subscription.shared;
 
 import com.google.common.collect.Sets;
+import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.thingsboard.mqtt.broker.common.data.ClientSessionInfo;
@@ -34,6 +36,8 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -45,6 +49,18 @@ public class SharedSubscriptionCacheServiceImpl implements SharedSubscriptionCac
     private final ClientSessionCache clientSessionCache;
     @Getter
     private final ConcurrentMap<TopicSharedSubscription, SharedSubscriptions> sharedSubscriptionsMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TopicSharedSubscription, SnapshotHolder> snapshotsMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<TopicSharedSubscription>> clientSharedSubscriptionsMap = new ConcurrentHashMap<>();
+
+    @Value("${mqtt.shared-subscriptions.group-snapshots-enabled:false}")
+    private boolean groupSnapshotsEnabled;
+
+    @PostConstruct
+    public void init() {
+        if (groupSnapshotsEnabled) {
+            clientSessionCache.addSessionChangeListener(this::invalidateClientSnapshots);
+        }
+    }
 
     @Override
     public void put(String clientId, Collection<TopicSubscription> topicSubscriptions) {
@@ -78,6 +94,10 @@ public class SharedSubscriptionCacheServiceImpl implements SharedSubscriptionCac
             // to handle client type change (Device -> Application or vice versa)
             Set<Subscription> subscriptionsByClientTypeInverted = getSubscriptionsByClientTypeInverted(clientSessionInfo, sharedSubscriptions);
             removeSubscription(subscriptionsByClientTypeInverted, clientId, subscription.getTopicFilter());
+
+            if (groupSnapshotsEnabled) {
+                addClientSharedSubscription(clientId, getKey(topicSubscription));
+            }
         }
         if (log.isTraceEnabled()) {
             log.trace("Shared subscriptions updated!");
@@ -122,8 +142,12 @@ public class SharedSubscriptionCacheServiceImpl implements SharedSubscriptionCac
         if (log.isTraceEnabled()) {
             log.trace("Shared subscription removed from set!");
         }
+        if (groupSnapshotsEnabled) {
+            removeClientSharedSubscription(clientId, key);
+        }
         if (sharedSubscriptions.isEmpty()) {
             sharedSubscriptionsMap.remove(key);
+            snapshotsMap.remove(key);
             if (log.isTraceEnabled()) {
                 log.trace("[{}] Shared subscriptions removed completely!", key);
             }
@@ -143,6 +167,62 @@ public class SharedSubscriptionCacheServiceImpl implements SharedSubscriptionCac
         return new SharedSubscriptions(applicationSubscriptions, deviceSubscriptions);
     }
 
+    @Override
+    public SharedSubscriptionGroupSnapshot getSnapshot(TopicSharedSubscription topicSharedSubscription) {
+        if (!groupSnapshotsEnabled) {
+            return null;
+        }
+        SharedSubscriptions sharedSubscriptions = sharedSubscriptionsMap.get(topicSharedSubscription);
+        if (sharedSubscriptions == null) {
+            return null;
+        }
+        SnapshotHolder holder = snapshotsMap.computeIfAbsent(topicSharedSubscription, tss -> new SnapshotHolder());
+        long version = holder.version.get();
+        SharedSubscriptionGroupSnapshot snapshot = holder.snapshot;
+        if (snapshot == null || snapshot.getVersion() != version) {
+            // a concurrent change bumps the version once more, so a snapshot built from older state is rebuilt on the next call
+            snapshot = new SharedSubscriptionGroupSnapshot(topicSharedSubscription, version,
+                    Set.copyOf(filterSubscriptions(sharedSubscriptions.getApplicationSubscriptions())),
+                    List.copyOf(filterSubscriptions(sharedSubscriptions.getDeviceSubscriptions())),
+                    holder.roundRobinIndex);
+            holder.snapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    private void addClientSharedSubscription(String clientId, TopicSharedSubscription key) {
+        clientSharedSubscriptionsMap.compute(clientId, (id, keys) -> {
+            if (keys == null) {
+                keys = ConcurrentHashMap.newKeySet();
+            }
+            keys.add(key);
+            return keys;
+        });
+        invalidateSnapshot(key);
+    }
+
+    private void removeClientSharedSubscription(String clientId, TopicSharedSubscription key) {
+        clientSharedSubscriptionsMap.computeIfPresent(clientId, (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+        invalidateSnapshot(key);
+    }
+
+    void invalidateClientSnapshots(String clientId) {
+        Set<TopicSharedSubscription> keys = clientSharedSubscriptionsMap.get(clientId);
+        if (keys != null) {
+            keys.forEach(this::invalidateSnapshot);
+        }
+    }
+
+    private void invalidateSnapshot(TopicSharedSubscription key) {
+        SnapshotHolder holder = snapshotsMap.get(key);
+        if (holder != null) {
+            holder.version.incrementAndGet();
+        }
+    }
+
     @Override
     public boolean isAnyOtherDeviceClientConnected(String clientId, TopicSharedSubscription topicSharedSubscription) {
         if (log.isTraceEnabled()) {
@@ -243,4 +323,10 @@ public class SharedSubscriptionCacheServiceImpl implements SharedSubscriptionCac
         return clientSessionInfo.isAppClient() ? sharedSubscriptions.getDeviceSubscriptions() : sharedSubscriptions.getApplicationSubscriptions();
     }
 
+    private static class SnapshotHolder {
+        private final AtomicLong version = new AtomicLong();
+        private final AtomicInteger roundRobinIndex = new AtomicInteger();
+        private volatile SharedSubscriptionGroupSnapshot snapshot;
+    }
+
 }
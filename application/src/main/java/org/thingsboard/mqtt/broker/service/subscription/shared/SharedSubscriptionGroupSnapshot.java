@@ -0,0 +1,75 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription.shared;
+
+import lombok.Getter;
+import org.thingsboard.mqtt.broker.service.subscription.Subscription;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable view of one share group with the client sessions of its members resolved.
+ * It is rebuilt only when the group membership or the session of one of its members changes.
+ */
+public class SharedSubscriptionGroupSnapshot {
+
+    @Getter
+    private final TopicSharedSubscription topicSharedSubscription;
+    @Getter
+    private final long version;
+    @Getter
+    private final Set<Subscription> applicationSubscriptions;
+    @Getter
+    private final List<Subscription> deviceSubscriptions;
+    @Getter
+    private final List<Subscription> connectedDeviceSubscriptions;
+    private final AtomicInteger roundRobinIndex;
+
+    public SharedSubscriptionGroupSnapshot(TopicSharedSubscription topicSharedSubscription, long version,
+                                           Set<Subscription> applicationSubscriptions, List<Subscription> deviceSubscriptions,
+                                           AtomicInteger roundRobinIndex) {
+        this.topicSharedSubscription = topicSharedSubscription;
+        this.version = version;
+        this.applicationSubscriptions = Set.copyOf(applicationSubscriptions);
+        this.deviceSubscriptions = List.copyOf(deviceSubscriptions);
+        this.connectedDeviceSubscriptions = deviceSubscriptions.stream()
+                .filter(subscription -> subscription.getClientSessionInfo().isConnected())
+                .toList();
+        this.roundRobinIndex = roundRobinIndex;
+    }
+
+    public boolean hasDeviceSubscriptions() {
+        return !deviceSubscriptions.isEmpty();
+    }
+
+    public boolean hasConnectedDeviceSubscriptions() {
+        return !connectedDeviceSubscriptions.isEmpty();
+    }
+
+    /**
+     * @return next connected DEVICE member in round-robin order or null if none is connected
+     */
+    public Subscription nextConnectedDeviceSubscription() {
+        int size = connectedDeviceSubscriptions.size();
+        if (size == 0) {
+            return null;
+        }
+        int index = (roundRobinIndex.getAndIncrement() & Integer.MAX_VALUE) % size;
+        return connectedDeviceSubscriptions.get(index);
+    }
+}
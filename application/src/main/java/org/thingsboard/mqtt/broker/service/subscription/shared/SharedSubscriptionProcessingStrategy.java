@@ -15,10 +15,16 @@
  */
 package org.thingsboard.mqtt.broker.service.subscription.shared;
 
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
 
 public interface SharedSubscriptionProcessingStrategy {
 
-    Subscription analyze(SharedSubscription sharedSubscription);
+    Subscription analyze(SharedSubscription sharedSubscription, PublishMsgProto publishMsgProto);
+
+    /**
+     * Picks one of the connected DEVICE members of the group snapshot
+     */
+    Subscription analyze(SharedSubscriptionGroupSnapshot snapshot, PublishMsgProto publishMsgProto);
 
 }
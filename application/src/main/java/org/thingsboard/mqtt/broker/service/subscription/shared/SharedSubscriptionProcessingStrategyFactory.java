@@ -15,10 +15,12 @@
  */
 package org.thingsboard.mqtt.broker.service.subscription.shared;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionCtxService;
 
 @Slf4j
 @Component
@@ -27,14 +29,29 @@ public class SharedSubscriptionProcessingStrategyFactory {
 
     @Value("${mqtt.shared-subscriptions.processing-type:ROUND_ROBIN}")
     private SharedSubscriptionProcessingType type;
+    @Value("${mqtt.shared-subscriptions.consistent-hash.key:CLIENT_ID}")
+    private ConsistentHashKeyType consistentHashKeyType;
 
     private final SharedSubscriptionProcessor sharedSubscriptionProcessor;
+    private final ClientSessionCtxService clientSessionCtxService;
+
+    private SharedSubscriptionProcessingStrategy strategy;
+
+    @PostConstruct
+    public void init() {
+        strategy = createStrategy();
+    }
 
     public SharedSubscriptionProcessingStrategy newInstance() {
-        if (SharedSubscriptionProcessingType.ROUND_ROBIN == type) {
-            return new RoundRobinStrategy(sharedSubscriptionProcessor);
-        }
-        throw new RuntimeException("SharedSubscriptionProcessingType " + type + " is not supported!");
+        return strategy;
+    }
+
+    private SharedSubscriptionProcessingStrategy createStrategy() {
+        return switch (type) {
+            case ROUND_ROBIN -> new RoundRobinStrategy(sharedSubscriptionProcessor);
+            case LEAST_LOADED -> new LeastLoadedStrategy(clientSessionCtxService);
+            case CONSISTENT_HASH -> new ConsistentHashStrategy(sharedSubscriptionProcessor, consistentHashKeyType);
+        };
     }
 
 }
@@ -17,10 +17,19 @@ package org.thingsboard.mqtt.broker.service.subscription.shared;
 
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
 
+import java.util.List;
+
 public interface SharedSubscriptionProcessor {
 
     Subscription processRoundRobin(SharedSubscription sharedSubscription);
 
+    /**
+     * Picks the member owning the hash key on the hash ring of the group, so messages with the same key go to the same member
+     * while the group members do not change. The ring is rebuilt when the given members differ from the ones it was built from,
+     * so the members list must not be modified after it was passed
+     */
+    Subscription processConsistentHash(TopicSharedSubscription topicSharedSubscription, List<Subscription> subscriptions, String hashKey);
+
     void unsubscribe(TopicSharedSubscription topicSharedSubscription);
 
 }
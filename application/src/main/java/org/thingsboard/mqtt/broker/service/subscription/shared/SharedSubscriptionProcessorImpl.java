@@ -18,7 +18,9 @@ package org.thingsboard.mqtt.broker.service.subscription.shared;
 import com.google.common.collect.Iterables;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
 
@@ -33,6 +35,11 @@ import java.util.concurrent.ConcurrentMap;
 public class SharedSubscriptionProcessorImpl implements SharedSubscriptionProcessor {
 
     private final ConcurrentMap<TopicSharedSubscription, SharedSubscriptionIterator> sharedSubscriptionIteratorsMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TopicSharedSubscription, ConsistentHashRing> sharedSubscriptionHashRingsMap = new ConcurrentHashMap<>();
+
+    @Setter
+    @Value("${mqtt.shared-subscriptions.consistent-hash.virtual-nodes:100}")
+    private int virtualNodes;
 
     @Override
     public Subscription processRoundRobin(SharedSubscription sharedSubscription) {
@@ -41,9 +48,20 @@ public class SharedSubscriptionProcessorImpl implements SharedSubscriptionProces
         return getOneSubscription(iterator);
     }
 
+    @Override
+    public Subscription processConsistentHash(TopicSharedSubscription topicSharedSubscription, List<Subscription> subscriptions, String hashKey) {
+        ConsistentHashRing ring = sharedSubscriptionHashRingsMap.get(topicSharedSubscription);
+        if (ring == null || !ring.isBuiltFrom(subscriptions)) {
+            ring = new ConsistentHashRing(subscriptions, virtualNodes);
+            sharedSubscriptionHashRingsMap.put(topicSharedSubscription, ring);
+        }
+        return ring.get(hashKey);
+    }
+
     @Override
     public void unsubscribe(TopicSharedSubscription topicSharedSubscription) {
         sharedSubscriptionIteratorsMap.remove(topicSharedSubscription);
+        sharedSubscriptionHashRingsMap.remove(topicSharedSubscription);
     }
 
     private Iterator<Subscription> getIterator(TopicSharedSubscription key, SharedSubscription sharedSubscription) {
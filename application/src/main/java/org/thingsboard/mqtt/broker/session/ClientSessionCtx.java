@@ -128,6 +128,18 @@ public class ClientSessionCtx implements SessionContext {
         }
     }
 
+    public int getPendingMsgsCount() {
+        return publishedInFlightCtx != null ? publishedInFlightCtx.getPendingMsgsCount() : 0;
+    }
+
+    public int getClientReceiveMax() {
+        return publishedInFlightCtx != null ? publishedInFlightCtx.getClientReceiveMax() : BrokerConstants.DEFAULT_RECEIVE_MAXIMUM;
+    }
+
+    public boolean isWritable() {
+        return channel != null && channel.channel().isWritable();
+    }
+
     public void closeChannel() {
         if (log.isDebugEnabled()) {
             log.debug("[{}] Closing channel...", getClientId());
@@ -23,6 +23,7 @@ import org.thingsboard.mqtt.broker.common.data.util.BytesUtil;
 import org.thingsboard.mqtt.broker.queue.TbQueueMsgHeaders;
 import org.thingsboard.mqtt.broker.queue.common.DefaultTbQueueMsgHeaders;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
+import org.thingsboard.mqtt.broker.service.mqtt.retain.OffHeapRetainedMsg;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsg;
 
 import java.util.ArrayList;
@@ -59,6 +60,9 @@ public class MqttPropertiesUtil {
      */
 
     public static MqttProperties.IntegerProperty getPubExpiryIntervalProperty(RetainedMsg retainedMsg) {
+        if (retainedMsg instanceof OffHeapRetainedMsg offHeapRetainedMsg) {
+            return offHeapRetainedMsg.getPubExpiryIntervalProperty();
+        }
         return getPubExpiryIntervalProperty(retainedMsg.getProperties());
     }
 
@@ -310,8 +314,12 @@ public class MqttPropertiesUtil {
         return headers;
     }
 
+    /**
+     * Reads the expiry interval with {@link #getPubExpiryIntervalProperty(RetainedMsg)},
+     * so the content of the off-heap retained msg is neither decoded nor required to be still retained.
+     */
     public static MsgExpiryResult getMsgExpiryResult(RetainedMsg retainedMsg, long currentTs) {
-        return getMsgExpiryResult(retainedMsg.getProperties(), retainedMsg.getCreatedTime(), currentTs);
+        return getMsgExpiryResult(getPubExpiryIntervalProperty(retainedMsg), retainedMsg.getCreatedTime(), currentTs);
     }
 
     public static MsgExpiryResult getMsgExpiryResult(DevicePublishMsg publishMsg, long currentTs) {
@@ -319,9 +327,12 @@ public class MqttPropertiesUtil {
     }
 
     public static MsgExpiryResult getMsgExpiryResult(MqttProperties properties, long createdTime, long currentTs) {
+        return getMsgExpiryResult(getPubExpiryIntervalProperty(properties), createdTime, currentTs);
+    }
+
+    private static MsgExpiryResult getMsgExpiryResult(MqttProperties.IntegerProperty pubExpiryIntervalProperty, long createdTime, long currentTs) {
         int messageExpiryInterval;
 
-        MqttProperties.IntegerProperty pubExpiryIntervalProperty = getPubExpiryIntervalProperty(properties);
         if (pubExpiryIntervalProperty == null) {
             return new MsgExpiryResult(false, false, 0);
         } else {
@@ -21,9 +21,12 @@ import org.bouncycastle.asn1.x500.style.BCStyle;
 import org.bouncycastle.asn1.x500.style.IETFUtils;
 import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
 
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
 import java.util.Base64;
 
 public class SslUtil {
@@ -35,6 +38,18 @@ public class SslUtil {
         return IETFUtils.valueToString(cn.getFirst().getValue());
     }
 
+    /**
+     * Returns the peer certificate chain of the session. JDK engine returns {@code X509Certificate[]} while OpenSSL engine
+     * returns {@code Certificate[]} with X.509 certificates, so the array is copied instead of being cast.
+     */
+    public static X509Certificate[] getPeerCertificates(SSLSession session) throws SSLPeerUnverifiedException {
+        Certificate[] certificates = session.getPeerCertificates();
+        if (certificates instanceof X509Certificate[] x509Certificates) {
+            return x509Certificates;
+        }
+        return Arrays.copyOf(certificates, certificates.length, X509Certificate[].class);
+    }
+
     public static String getCertificateString(Certificate cert)
             throws CertificateEncodingException {
         return EncryptionUtil.certTrimNewLines(Base64.getEncoder().encodeToString(cert.getEncoded()));
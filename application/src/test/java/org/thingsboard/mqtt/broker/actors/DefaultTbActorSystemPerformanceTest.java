@@ -0,0 +1,114 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.actors;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.actors.msg.MsgType;
+import org.thingsboard.mqtt.broker.actors.msg.TbActorMsg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class DefaultTbActorSystemPerformanceTest {
+
+    private static final String DISPATCHER_ID = "perf-dispatcher";
+    private static final int DISPATCHER_THREADS = 4;
+    private static final int PRODUCERS = 4;
+    private static final int MSGS = 2_000_000;
+    private static final int[] ACTOR_COUNTS = {1, 1000, 100_000};
+
+    private static final TbActorMsg MSG = () -> MsgType.INCOMING_PUBLISH_MSG;
+
+    @Ignore("Timing comparison to run manually, the delivery itself is covered by TbActorMailboxTest")
+    @Test
+    public void testDefaultVsMpscMailbox() throws Exception {
+        for (int actorCount : ACTOR_COUNTS) {
+            long defaultNanos = measure(new TbActorSystemSettings(5, 1, 10), actorCount);
+            long mpscNanos = measure(new TbActorSystemSettings(5, 1, 10, true, 16, 64), actorCount);
+
+            System.out.printf("%d actors: default mailbox %d ns/msg, mpsc mailbox %d ns/msg%n",
+                    actorCount, defaultNanos / MSGS, mpscNanos / MSGS);
+        }
+    }
+
+    private long measure(TbActorSystemSettings settings, int actorCount) throws Exception {
+        DefaultTbActorSystem actorSystem = new DefaultTbActorSystem(settings, actorsMap -> {
+        });
+        try {
+            actorSystem.createDispatcher(DISPATCHER_ID, Executors.newFixedThreadPool(DISPATCHER_THREADS));
+            List<TbActorRef> actorRefs = new ArrayList<>(actorCount);
+            for (int i = 0; i < actorCount; i++) {
+                TbActorId actorId = new TbStringActorId("actor" + i);
+                actorRefs.add(actorSystem.createRootActor(DISPATCHER_ID, new TbActorCreator() {
+                    @Override
+                    public TbActorId createActorId() {
+                        return actorId;
+                    }
+
+                    @Override
+                    public TbActor createActor() {
+                        return new CountingActor();
+                    }
+                }));
+            }
+
+            // warm up
+            run(actorRefs, MSGS / 4);
+            return run(actorRefs, MSGS);
+        } finally {
+            actorSystem.destroy();
+        }
+    }
+
+    private long run(List<TbActorRef> actorRefs, int msgs) throws Exception {
+        CountDownLatch latch = new CountDownLatch(msgs);
+        CountingActor.latch = latch;
+        long start = System.nanoTime();
+        List<Thread> producers = new ArrayList<>();
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            int offset = producer;
+            Thread thread = new Thread(() -> {
+                for (int i = offset; i < msgs; i += PRODUCERS) {
+                    actorRefs.get(i % actorRefs.size()).tell(MSG);
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+        Assert.assertTrue(latch.await(60, TimeUnit.SECONDS));
+        long nanos = System.nanoTime() - start;
+        for (Thread thread : producers) {
+            thread.join();
+        }
+        return nanos;
+    }
+
+    private static class CountingActor extends AbstractTbActor {
+
+        private static volatile CountDownLatch latch;
+
+        @Override
+        public boolean process(TbActorMsg msg) {
+            latch.countDown();
+            return true;
+        }
+    }
+}
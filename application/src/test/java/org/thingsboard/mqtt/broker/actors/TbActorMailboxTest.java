@@ -0,0 +1,369 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.actors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.actors.msg.MsgType;
+import org.thingsboard.mqtt.broker.actors.msg.TbActorMsg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TbActorMailboxTest {
+
+    private static final String DISPATCHER_ID = "test-dispatcher";
+    private static final int PRODUCERS = 4;
+    private static final int MSGS_PER_PRODUCER = 20_000;
+
+    private DefaultTbActorSystem actorSystem;
+
+    @After
+    public void tearDown() {
+        if (actorSystem != null) {
+            actorSystem.destroy();
+        }
+    }
+
+    @Test
+    public void testMsgsProcessedInOrder() throws Exception {
+        testMsgsProcessedInOrder(new TbActorSystemSettings(5, 1, 10));
+    }
+
+    @Test
+    public void testMsgsProcessedInOrderWithMpscMailbox() throws Exception {
+        testMsgsProcessedInOrder(new TbActorSystemSettings(5, 1, 10, true, 4, 64));
+    }
+
+    private void testMsgsProcessedInOrder(TbActorSystemSettings settings) throws Exception {
+        actorSystem = new DefaultTbActorSystem(settings, actorsMap -> {
+        });
+        actorSystem.createDispatcher(DISPATCHER_ID, Executors.newFixedThreadPool(4));
+
+        CountDownLatch processedLatch = new CountDownLatch(PRODUCERS * MSGS_PER_PRODUCER);
+        OrderCheckingActor actor = new OrderCheckingActor(processedLatch);
+        TbActorRef actorRef = actorSystem.createRootActor(DISPATCHER_ID, new TbActorCreator() {
+            @Override
+            public TbActorId createActorId() {
+                return new TbStringActorId("test-actor");
+            }
+
+            @Override
+            public TbActor createActor() {
+                return actor;
+            }
+        });
+
+        List<Thread> producers = new ArrayList<>();
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            int producerId = producer;
+            Thread thread = new Thread(() -> {
+                for (int seq = 0; seq < MSGS_PER_PRODUCER; seq++) {
+                    actorRef.tell(new TestMsg(producerId, seq));
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+
+        Assert.assertTrue(processedLatch.await(30, TimeUnit.SECONDS));
+        Assert.assertFalse(actor.failed);
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            Assert.assertEquals(MSGS_PER_PRODUCER, actor.nextSeqs[producer]);
+        }
+    }
+
+    @Test
+    public void testMsgsProcessedInOrderByManyActors() throws Exception {
+        testMsgsProcessedInOrderByManyActors(new TbActorSystemSettings(5, 1, 10));
+    }
+
+    @Test
+    public void testMsgsProcessedInOrderByManyActorsWithMpscMailbox() throws Exception {
+        testMsgsProcessedInOrderByManyActors(new TbActorSystemSettings(5, 1, 10, true, 4, 64));
+    }
+
+    private void testMsgsProcessedInOrderByManyActors(TbActorSystemSettings settings) throws Exception {
+        actorSystem = new DefaultTbActorSystem(settings, actorsMap -> {
+        });
+        actorSystem.createDispatcher(DISPATCHER_ID, Executors.newFixedThreadPool(4));
+
+        int actorsCount = 1000;
+        int msgsPerActor = 100;
+        CountDownLatch processedLatch = new CountDownLatch(actorsCount * PRODUCERS * msgsPerActor);
+        List<OrderCheckingActor> actors = new ArrayList<>(actorsCount);
+        List<TbActorRef> actorRefs = new ArrayList<>(actorsCount);
+        for (int i = 0; i < actorsCount; i++) {
+            OrderCheckingActor actor = new OrderCheckingActor(processedLatch);
+            TbStringActorId actorId = new TbStringActorId("test-actor-" + i);
+            actors.add(actor);
+            actorRefs.add(actorSystem.createRootActor(DISPATCHER_ID, new TbActorCreator() {
+                @Override
+                public TbActorId createActorId() {
+                    return actorId;
+                }
+
+                @Override
+                public TbActor createActor() {
+                    return actor;
+                }
+            }));
+        }
+
+        List<Thread> producers = new ArrayList<>();
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            int producerId = producer;
+            Thread thread = new Thread(() -> {
+                for (int seq = 0; seq < msgsPerActor; seq++) {
+                    for (TbActorRef actorRef : actorRefs) {
+                        actorRef.tell(new TestMsg(producerId, seq));
+                    }
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+
+        Assert.assertTrue(processedLatch.await(30, TimeUnit.SECONDS));
+        for (OrderCheckingActor actor : actors) {
+            Assert.assertFalse(actor.failed);
+            for (int producer = 0; producer < PRODUCERS; producer++) {
+                Assert.assertEquals(msgsPerActor, actor.nextSeqs[producer]);
+            }
+        }
+    }
+
+    @Test
+    public void testAffinityMsgsProcessedOnAffinityExecutor() throws Exception {
+        testAffinityMsgsProcessedOnAffinityExecutor(new TbActorSystemSettings(5, 1, 10));
+    }
+
+    @Test
+    public void testAffinityMsgsProcessedOnAffinityExecutorWithMpscMailbox() throws Exception {
+        testAffinityMsgsProcessedOnAffinityExecutor(new TbActorSystemSettings(5, 1, 10, true, 4, 64));
+    }
+
+    private void testAffinityMsgsProcessedOnAffinityExecutor(TbActorSystemSettings settings) throws Exception {
+        actorSystem = new DefaultTbActorSystem(settings, actorsMap -> {
+        });
+        actorSystem.createDispatcher(DISPATCHER_ID, Executors.newFixedThreadPool(2));
+        ExecutorService affinityExecutorService = Executors.newSingleThreadExecutor();
+        Thread affinityThread = affinityExecutorService.submit(Thread::currentThread).get();
+        AffinityExecutor affinityExecutor = new AffinityExecutor() {
+            @Override
+            public boolean inExecutorThread() {
+                return Thread.currentThread() == affinityThread;
+            }
+
+            @Override
+            public void execute(Runnable command) {
+                affinityExecutorService.execute(command);
+            }
+        };
+
+        int msgs = 10_000;
+        CountDownLatch processedLatch = new CountDownLatch(msgs);
+        ThreadCheckingActor actor = new ThreadCheckingActor(affinityThread, processedLatch);
+        TbActorRef actorRef = actorSystem.createRootActor(DISPATCHER_ID, new TbActorCreator() {
+            @Override
+            public TbActorId createActorId() {
+                return new TbStringActorId("test-actor");
+            }
+
+            @Override
+            public TbActor createActor() {
+                return actor;
+            }
+        });
+        // even sequence numbers are accepted by the affinity filter, odd ones must be handed over to the dispatcher
+        ((TbActorCtx) actorRef).bindToExecutor(affinityExecutor, msg -> ((TestMsg) msg).seq() % 2 == 0);
+
+        Thread producer = new Thread(() -> {
+            for (int seq = 0; seq < msgs / 2; seq++) {
+                actorRef.tell(new TestMsg(0, seq));
+            }
+        });
+        producer.start();
+        affinityExecutorService.submit(() -> {
+            for (int seq = 0; seq < msgs / 2; seq++) {
+                actorRef.tell(new TestMsg(1, seq));
+            }
+        }).get();
+        producer.join();
+
+        try {
+            Assert.assertTrue(processedLatch.await(30, TimeUnit.SECONDS));
+            Assert.assertFalse(actor.failed);
+            Assert.assertTrue(actor.processedOnAffinityThread > 0);
+        } finally {
+            affinityExecutorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testQueuedMsgsNotifiedOnActorStop() throws Exception {
+        testQueuedMsgsNotifiedOnActorStop(new TbActorSystemSettings(5, 1, 10));
+    }
+
+    @Test
+    public void testQueuedMsgsNotifiedOnActorStopWithMpscMailbox() throws Exception {
+        testQueuedMsgsNotifiedOnActorStop(new TbActorSystemSettings(5, 1, 10, true, 4, 64));
+    }
+
+    private void testQueuedMsgsNotifiedOnActorStop(TbActorSystemSettings settings) throws Exception {
+        actorSystem = new DefaultTbActorSystem(settings, actorsMap -> {
+        });
+        actorSystem.createDispatcher(DISPATCHER_ID, Executors.newFixedThreadPool(2));
+
+        int queuedMsgs = 100;
+        CountDownLatch processingStartedLatch = new CountDownLatch(1);
+        CountDownLatch unblockLatch = new CountDownLatch(1);
+        CountDownLatch stoppedLatch = new CountDownLatch(queuedMsgs);
+        AtomicInteger processed = new AtomicInteger();
+        TbActorId actorId = new TbStringActorId("test-actor");
+        TbActorRef actorRef = actorSystem.createRootActor(DISPATCHER_ID, new TbActorCreator() {
+            @Override
+            public TbActorId createActorId() {
+                return actorId;
+            }
+
+            @Override
+            public TbActor createActor() {
+                return new AbstractTbActor() {
+                    @Override
+                    public boolean process(TbActorMsg msg) {
+                        processed.incrementAndGet();
+                        processingStartedLatch.countDown();
+                        try {
+                            unblockLatch.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return true;
+                    }
+                };
+            }
+        });
+
+        actorRef.tell(new StopAwareMsg(new CountDownLatch(1)));
+        Assert.assertTrue(processingStartedLatch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < queuedMsgs; i++) {
+            actorRef.tell(new StopAwareMsg(stoppedLatch));
+        }
+
+        actorSystem.stop(actorId);
+        unblockLatch.countDown();
+
+        Assert.assertTrue(stoppedLatch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, processed.get());
+    }
+
+    private record StopAwareMsg(CountDownLatch stoppedLatch) implements TbActorMsg {
+        @Override
+        public MsgType getMsgType() {
+            return MsgType.INCOMING_PUBLISH_MSG;
+        }
+
+        @Override
+        public void onTbActorStopped(TbActorId actorId) {
+            stoppedLatch.countDown();
+        }
+    }
+
+    private record TestMsg(int producerId, int seq) implements TbActorMsg {
+        @Override
+        public MsgType getMsgType() {
+            return MsgType.INCOMING_PUBLISH_MSG;
+        }
+    }
+
+    private static class ThreadCheckingActor extends AbstractTbActor {
+
+        private final Thread affinityThread;
+        private final CountDownLatch processedLatch;
+        private final AtomicBoolean processing = new AtomicBoolean();
+        private final int[] nextSeqs = new int[2];
+        private int processedOnAffinityThread;
+        private volatile boolean failed;
+
+        ThreadCheckingActor(Thread affinityThread, CountDownLatch processedLatch) {
+            this.affinityThread = affinityThread;
+            this.processedLatch = processedLatch;
+        }
+
+        @Override
+        public boolean process(TbActorMsg msg) {
+            if (!processing.compareAndSet(false, true)) {
+                failed = true;
+            }
+            TestMsg testMsg = (TestMsg) msg;
+            if (nextSeqs[testMsg.producerId()]++ != testMsg.seq()) {
+                failed = true;
+            }
+            boolean onAffinityThread = Thread.currentThread() == affinityThread;
+            if (onAffinityThread) {
+                processedOnAffinityThread++;
+                // only messages accepted by the filter may be processed on the affinity executor
+                if (testMsg.seq() % 2 != 0) {
+                    failed = true;
+                }
+            }
+            processing.set(false);
+            processedLatch.countDown();
+            return true;
+        }
+    }
+
+    private static class OrderCheckingActor extends AbstractTbActor {
+
+        private final CountDownLatch processedLatch;
+        private final AtomicBoolean processing = new AtomicBoolean();
+        private final int[] nextSeqs = new int[PRODUCERS];
+        private volatile boolean failed;
+
+        OrderCheckingActor(CountDownLatch processedLatch) {
+            this.processedLatch = processedLatch;
+        }
+
+        @Override
+        public boolean process(TbActorMsg msg) {
+            // messages of one actor must never be processed concurrently and must keep the order of every producer
+            if (!processing.compareAndSet(false, true)) {
+                failed = true;
+            }
+            TestMsg testMsg = (TestMsg) msg;
+            if (nextSeqs[testMsg.producerId()]++ != testMsg.seq()) {
+                failed = true;
+            }
+            processing.set(false);
+            processedLatch.countDown();
+            return true;
+        }
+    }
+}
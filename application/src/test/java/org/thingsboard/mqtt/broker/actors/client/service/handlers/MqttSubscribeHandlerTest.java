@@ -15,6 +15,8 @@
  */
 package org.thingsboard.mqtt.broker.actors.client.service.handlers;
 
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.mqtt.MqttProperties;
 import io.netty.handler.codec.mqtt.MqttReasonCodes;
 import io.netty.handler.codec.mqtt.MqttVersion;
@@ -22,6 +24,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.test.context.ContextConfiguration;
@@ -45,21 +48,27 @@ import org.thingsboard.mqtt.broker.service.mqtt.PublishMsgDeliveryService;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.MsgPersistenceManager;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.ApplicationPersistenceProcessor;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsg;
+import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsgOffHeapStore;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsgService;
 import org.thingsboard.mqtt.broker.service.security.authorization.AuthRulePatterns;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 import org.thingsboard.mqtt.broker.service.subscription.shared.TopicSharedSubscription;
 import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
 import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
+import org.thingsboard.mqtt.broker.util.MqttPropertiesUtil;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.IntStream;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.BiFunction;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -68,6 +77,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -389,7 +399,7 @@ public class MqttSubscribeHandlerTest {
         ClientInfo clientInfo = mock(ClientInfo.class);
         when(sessionInfo.getClientInfo()).thenReturn(clientInfo);
 
-        when(authorizationRuleService.isSubAuthorized(any(), any())).thenReturn(true);
+        when(authorizationRuleService.isSubAuthorized(any(), any(), any())).thenReturn(true);
 
         MqttSubscribeMsg msg = new MqttSubscribeMsg(UUID.randomUUID(), 1, getTopicSubscriptions());
         mqttSubscribeHandler.process(ctx, msg);
@@ -405,8 +415,8 @@ public class MqttSubscribeHandlerTest {
     public void givenMqttSubscribeMsg_whenCollectMqttReasonCodes_thenReturnExpectedResult() {
         when(ctx.getMqttVersion()).thenReturn(MqttVersion.MQTT_5);
         doThrow(DataValidationException.class).when(topicValidationService).validateTopicFilter(eq("topic1"));
-        when(authorizationRuleService.isSubAuthorized(eq("topic2"), any())).thenReturn(false);
-        when(authorizationRuleService.isSubAuthorized(eq("topic3"), any())).thenReturn(true);
+        when(authorizationRuleService.isSubAuthorized(any(), eq("topic2"), any())).thenReturn(false);
+        when(authorizationRuleService.isSubAuthorized(any(), eq("topic3"), any())).thenReturn(true);
 
         List<TopicSubscription> topicSubscriptions = getTopicSubscriptions();
         MqttSubscribeMsg msg = new MqttSubscribeMsg(UUID.randomUUID(), 1, topicSubscriptions);
@@ -418,7 +428,7 @@ public class MqttSubscribeHandlerTest {
     @Test
     public void givenMqttSubscribeMsgWithApplicationSharedSubscriptionAndNoEntityCreated_whenCollectMqttReasonCodes_thenReturnExpectedResult() {
         when(ctx.getMqttVersion()).thenReturn(MqttVersion.MQTT_5);
-        when(authorizationRuleService.isSubAuthorized(eq("tf1"), any())).thenReturn(true);
+        when(authorizationRuleService.isSubAuthorized(any(), eq("tf1"), any())).thenReturn(true);
         SessionInfo sessionInfo = SessionInfo.builder().sessionExpiryInterval(123000).cleanStart(false).build();
         when(ctx.getSessionInfo()).thenReturn(sessionInfo);
         when(ctx.getClientType()).thenReturn(ClientType.APPLICATION);
@@ -434,7 +444,7 @@ public class MqttSubscribeHandlerTest {
     @Test
     public void givenMqttSubscribeMsgWithApplicationSharedSubscriptionAndEntityCreated_whenCollectMqttReasonCodes_thenReturnExpectedResult() {
         when(ctx.getMqttVersion()).thenReturn(MqttVersion.MQTT_5);
-        when(authorizationRuleService.isSubAuthorized(eq("tf1"), any())).thenReturn(true);
+        when(authorizationRuleService.isSubAuthorized(any(), eq("tf1"), any())).thenReturn(true);
         SessionInfo sessionInfo = SessionInfo.builder().sessionExpiryInterval(123000).cleanStart(false).build();
         when(ctx.getSessionInfo()).thenReturn(sessionInfo);
         when(ctx.getClientType()).thenReturn(ClientType.APPLICATION);
@@ -463,7 +473,7 @@ public class MqttSubscribeHandlerTest {
     @Test
     public void givenMqttSubscribeMsgWithSubscriptionIdentifier_whenCollectMqttReasonCodes_thenReturnSubscriptionIdIsSupported() {
         when(ctx.getMqttVersion()).thenReturn(MqttVersion.MQTT_5);
-        when(authorizationRuleService.isSubAuthorized(any(), any())).thenReturn(true);
+        when(authorizationRuleService.isSubAuthorized(any(), any(), any())).thenReturn(true);
 
         MqttSubscribeMsg msg = getMqttSubscribeMsg();
         List<MqttReasonCodes.SubAck> reasonCodes = mqttSubscribeHandler.collectMqttReasonCodes(ctx, msg);
@@ -648,6 +658,119 @@ public class MqttSubscribeHandlerTest {
         return new TopicSubscription(topic, qos, options);
     }
 
+    @Test
+    public void givenManyRetainedMessages_whenStreamRetainedMessages_thenAllSentInChunksOnEventLoop() {
+        EmbeddedChannel channel = mockChannel();
+        when(ctx.getClientReceiveMax()).thenReturn(BrokerConstants.DEFAULT_RECEIVE_MAXIMUM);
+        when(retainedMsgService.getRetainedMessagesIterator("tf/#")).thenReturn(newRetainedMsgs(250).iterator());
+        mqttSubscribeHandler.setRetainedMsgChunkSize(100);
+
+        mqttSubscribeHandler.streamRetainedMessages(ctx, List.of(getTopicSubscription("tf/#", 1)));
+        verify(publishMsgDeliveryService, never()).sendPublishRetainedMsgToClient(any(), any());
+
+        channel.runPendingTasks();
+        verify(publishMsgDeliveryService, times(250)).sendPublishRetainedMsgToClient(eq(ctx), any());
+        verify(rateLimitService, times(3)).isTotalMsgsLimitEnabled();
+    }
+
+    @Test
+    public void givenNoAvailableReceiveMaximum_whenStreamRetainedMessages_thenDeliveryPausedUntilReceiveMaximumFreed() {
+        EmbeddedChannel channel = mockChannel();
+        when(ctx.getClientReceiveMax()).thenReturn(10);
+        when(ctx.getPendingMsgsCount()).thenReturn(10);
+        when(retainedMsgService.getRetainedMessagesIterator("tf/#")).thenReturn(newRetainedMsgs(15).iterator());
+        mqttSubscribeHandler.setRetainedMsgChunkSize(100);
+        mqttSubscribeHandler.setRetainedMsgPauseMs(0);
+
+        mqttSubscribeHandler.streamRetainedMessages(ctx, List.of(getTopicSubscription("tf/#", 1)));
+        channel.runPendingTasks();
+        verify(publishMsgDeliveryService, never()).sendPublishRetainedMsgToClient(any(), any());
+
+        when(ctx.getPendingMsgsCount()).thenReturn(0);
+        channel.runScheduledPendingTasks();
+        verify(publishMsgDeliveryService, times(10)).sendPublishRetainedMsgToClient(eq(ctx), any());
+
+        channel.runPendingTasks();
+        verify(publishMsgDeliveryService, times(15)).sendPublishRetainedMsgToClient(eq(ctx), any());
+    }
+
+    @Test
+    public void givenClosedChannel_whenStreamRetainedMessages_thenNothingSent() {
+        EmbeddedChannel channel = mockChannel();
+        when(retainedMsgService.getRetainedMessagesIterator("tf/#")).thenReturn(newRetainedMsgs(5).iterator());
+
+        mqttSubscribeHandler.streamRetainedMessages(ctx, List.of(getTopicSubscription("tf/#", 1)));
+        channel.close();
+        channel.runPendingTasks();
+
+        verify(publishMsgDeliveryService, never()).sendPublishRetainedMsgToClient(any(), any());
+    }
+
+    @Test
+    public void givenOffHeapRetainedMsgReleasedAfterLookup_whenGetRetainedMessages_thenOnlyLiveMsgReturned() {
+        RetainedMsgOffHeapStore offHeapStore = newOffHeapStore();
+        RetainedMsg released = offHeapStore.store(newRetainedMsgWithExpiry("released"));
+        RetainedMsg live = offHeapStore.store(newRetainedMsgWithExpiry("live"));
+        when(retainedMsgService.getRetainedMessages("tf/#")).thenAnswer(invocation -> {
+            List<RetainedMsg> found = List.of(released, live);
+            offHeapStore.release(released);
+            return found;
+        });
+
+        List<RetainedMsg> result = mqttSubscribeHandler.getRetainedMessagesForTopicSubscription(getTopicSubscription("tf/#", 1));
+
+        assertEquals(1, result.size());
+        assertEquals("live", new String(result.get(0).getPayload(), StandardCharsets.UTF_8));
+        assertNotNull(MqttPropertiesUtil.getPubExpiryIntervalProperty(result.get(0).getProperties()));
+    }
+
+    @Test
+    public void givenOffHeapRetainedMsgReleasedAfterLookup_whenStreamRetainedMessages_thenRemainingMsgsSent() {
+        EmbeddedChannel channel = mockChannel();
+        when(ctx.getClientReceiveMax()).thenReturn(BrokerConstants.DEFAULT_RECEIVE_MAXIMUM);
+        RetainedMsgOffHeapStore offHeapStore = newOffHeapStore();
+        RetainedMsg released = offHeapStore.store(newRetainedMsgWithExpiry("released"));
+        RetainedMsg live = offHeapStore.store(newRetainedMsgWithExpiry("live"));
+        when(retainedMsgService.getRetainedMessagesIterator("tf/#")).thenAnswer(invocation -> {
+            Iterator<RetainedMsg> found = List.of(released, live).iterator();
+            offHeapStore.release(released);
+            return found;
+        });
+        mqttSubscribeHandler.setRetainedMsgChunkSize(100);
+
+        mqttSubscribeHandler.streamRetainedMessages(ctx, List.of(getTopicSubscription("tf/#", 1)));
+        channel.runPendingTasks();
+
+        ArgumentCaptor<RetainedMsg> sentCaptor = ArgumentCaptor.forClass(RetainedMsg.class);
+        verify(publishMsgDeliveryService, times(1)).sendPublishRetainedMsgToClient(eq(ctx), sentCaptor.capture());
+        assertEquals("live", new String(sentCaptor.getValue().getPayload(), StandardCharsets.UTF_8));
+    }
+
+    private RetainedMsgOffHeapStore newOffHeapStore() {
+        RetainedMsgOffHeapStore offHeapStore = new RetainedMsgOffHeapStore(mock(StatsManager.class));
+        offHeapStore.setEnabled(true);
+        offHeapStore.setArenas(1);
+        offHeapStore.init();
+        return offHeapStore;
+    }
+
+    private RetainedMsg newRetainedMsgWithExpiry(String payload) {
+        MqttProperties properties = new MqttProperties();
+        properties.add(new MqttProperties.IntegerProperty(BrokerConstants.PUB_EXPIRY_INTERVAL_PROP_ID, 60));
+        return new RetainedMsg("tf/1", payload.getBytes(StandardCharsets.UTF_8), 1, properties, System.currentTimeMillis());
+    }
+
+    private EmbeddedChannel mockChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        when(ctx.getChannel()).thenReturn(channel.pipeline().firstContext());
+        when(ctx.isWritable()).thenReturn(true);
+        return channel;
+    }
+
+    private List<RetainedMsg> newRetainedMsgs(int count) {
+        return IntStream.range(0, count).mapToObj(i -> newRetainedMsg("msg" + i, 1)).toList();
+    }
+
     private RetainedMsg newRetainedMsg(String payload, int qos, long ts) {
         return new RetainedMsg("#", payload.getBytes(StandardCharsets.UTF_8), qos, MqttProperties.NO_PROPERTIES, ts);
     }
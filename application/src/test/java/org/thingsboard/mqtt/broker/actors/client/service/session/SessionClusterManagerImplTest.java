@@ -16,6 +16,7 @@
 package org.thingsboard.mqtt.broker.actors.client.service.session;
 
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -31,12 +32,14 @@ import org.thingsboard.mqtt.broker.actors.client.messages.ConnectionRequestInfo;
 import org.thingsboard.mqtt.broker.actors.client.service.subscription.ClientSubscriptionService;
 import org.thingsboard.mqtt.broker.cache.CacheNameResolver;
 import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
+import org.thingsboard.mqtt.broker.common.data.BasicCallback;
 import org.thingsboard.mqtt.broker.common.data.ClientInfo;
 import org.thingsboard.mqtt.broker.common.data.ClientSession;
 import org.thingsboard.mqtt.broker.common.data.ClientType;
 import org.thingsboard.mqtt.broker.common.data.ConnectionInfo;
 import org.thingsboard.mqtt.broker.common.data.SessionInfo;
 import org.thingsboard.mqtt.broker.dao.timeseries.TimeseriesService;
+import org.thingsboard.mqtt.broker.exception.ConnectFastPathConflictException;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
 import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
 import org.thingsboard.mqtt.broker.queue.TbQueueProducer;
@@ -44,16 +47,20 @@ import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
 import org.thingsboard.mqtt.broker.queue.provider.ClientSessionEventQueueFactory;
 import org.thingsboard.mqtt.broker.service.limits.RateLimitCacheService;
 import org.thingsboard.mqtt.broker.service.mqtt.client.disconnect.DisconnectClientCommandService;
+import org.thingsboard.mqtt.broker.service.mqtt.client.event.ConnectionResponse;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.MsgPersistenceManager;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.topic.ApplicationRemovedEventService;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.topic.ApplicationTopicService;
 import org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory;
 
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -149,6 +156,46 @@ public class SessionClusterManagerImplTest {
         verify(sessionClusterManager, times(1)).updateClientSession(any(), any(), any());
     }
 
+    @Test
+    public void givenNoSession_whenProcessLocalConnectionRequest_thenCompleteLocalResponse() throws Exception {
+        SessionInfo sessionInfo = getSessionInfo("clientId");
+        SettableFuture<ConnectionResponse> localResponseFuture = SettableFuture.create();
+
+        doAnswer(invocation -> {
+            invocation.getArgument(2, BasicCallback.class).onSuccess();
+            return null;
+        }).when(clientSessionService).saveClientSession(any(), any(), any());
+
+        sessionClusterManager.processConnectionRequest(sessionInfo,
+                new ConnectionRequestInfo(UUID.randomUUID(), System.currentTimeMillis(), null, localResponseFuture));
+
+        ConnectionResponse connectionResponse = localResponseFuture.get(1, TimeUnit.SECONDS);
+        Assert.assertTrue(connectionResponse.isSuccess());
+        Assert.assertFalse(connectionResponse.isSessionPresent());
+        verify(clientSessionService, times(1)).saveClientSession(any(), any(), any());
+    }
+
+    @Test
+    public void givenPresentSession_whenProcessLocalConnectionRequest_thenRejectWithConflict() throws Exception {
+        SessionInfo sessionInfoNew = getSessionInfo("clientId1");
+        SessionInfo sessionInfoOld = getSessionInfo("clientId2");
+        SettableFuture<ConnectionResponse> localResponseFuture = SettableFuture.create();
+
+        doReturn(getClientSession(true, sessionInfoOld)).when(clientSessionService).getClientSession(any());
+
+        sessionClusterManager.processConnectionRequest(sessionInfoNew,
+                new ConnectionRequestInfo(UUID.randomUUID(), System.currentTimeMillis(), null, localResponseFuture));
+
+        try {
+            localResponseFuture.get(1, TimeUnit.SECONDS);
+            Assert.fail("Conflict is expected");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ConnectFastPathConflictException);
+        }
+        verify(disconnectClientCommandService, never()).disconnectOnSessionConflict(any(), any(), any(), eq(true));
+        verify(sessionClusterManager, never()).updateClientSession(any(), any(), any());
+    }
+
     @Test
     public void givenPresentPersistentSession_whenUpdateClientSession_thenVerify() {
         SessionInfo sessionInfoNew = getSessionInfo("clientId", ClientType.DEVICE, true);
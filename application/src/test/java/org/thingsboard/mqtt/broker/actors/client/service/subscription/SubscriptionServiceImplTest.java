@@ -23,17 +23,23 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.thingsboard.mqtt.broker.common.data.subscription.TopicSubscription;
 import org.thingsboard.mqtt.broker.exception.SubscriptionTrieClearException;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+import org.thingsboard.mqtt.broker.service.stats.SubscriptionCacheStats;
+import org.thingsboard.mqtt.broker.service.stats.timer.SubscriptionTimerStats;
 import org.thingsboard.mqtt.broker.service.subscription.ClientSubscription;
 import org.thingsboard.mqtt.broker.service.subscription.SubscriptionTrie;
+import org.thingsboard.mqtt.broker.service.subscription.TopicFilterMatchVisitor;
 
+import java.util.ArrayList;
 import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @Slf4j
 @RunWith(MockitoJUnitRunner.class)
@@ -73,6 +79,43 @@ public class SubscriptionServiceImplTest {
         verify(subscriptionTrie, times(1)).clearEmptyNodes();
     }
 
+    @Test
+    public void givenTokenizedLookupEnabled_whenForEachSubscription_thenMatchesVisitedWithoutList() {
+        when(statsManager.getSubscriptionTimerStats()).thenReturn(mock(SubscriptionTimerStats.class));
+        SubscriptionServiceImpl service = new SubscriptionServiceImpl(subscriptionTrie, statsManager);
+        service.setTokenizedLookupEnabled(true);
+        service.init();
+        TopicFilterMatchVisitor<ClientSubscription> visitor = mock(TopicFilterMatchVisitor.class);
+
+        service.forEachSubscription("topic/1", visitor);
+
+        verify(subscriptionTrie, times(1)).forEachMatch("topic/1", visitor);
+        verify(subscriptionTrie, never()).get(any());
+    }
+
+    @Test
+    public void givenLookupCacheEnabled_whenGetSubscriptionsForSameTopic_thenTrieIsQueriedUntilMatchingSubscribe() {
+        when(statsManager.getSubscriptionCacheStats()).thenReturn(mock(SubscriptionCacheStats.class));
+        when(statsManager.getSubscriptionTimerStats()).thenReturn(mock(SubscriptionTimerStats.class));
+        when(subscriptionTrie.get("topic/1")).thenReturn(new ArrayList<>());
+        SubscriptionServiceImpl service = new SubscriptionServiceImpl(subscriptionTrie, statsManager);
+        service.setLookupCacheEnabled(true);
+        service.setLookupCacheMaxSize(10);
+        service.init();
+
+        service.getSubscriptions("topic/1");
+        service.getSubscriptions("topic/1");
+        verify(subscriptionTrie, times(1)).get("topic/1");
+
+        service.subscribe("clientId", Set.of(new TopicSubscription("topic/2", 1)));
+        service.getSubscriptions("topic/1");
+        verify(subscriptionTrie, times(1)).get("topic/1");
+
+        service.subscribe("clientId", Set.of(new TopicSubscription("topic/+", 1)));
+        service.getSubscriptions("topic/1");
+        verify(subscriptionTrie, times(2)).get("topic/1");
+    }
+
     @Test(expected = SubscriptionTrieClearException.class)
     public void givenClientTopics_whenClearEmptyTopicNodes_thenThrowException() throws SubscriptionTrieClearException {
         doThrow(SubscriptionTrieClearException.class).when(subscriptionTrie).clearEmptyNodes();
@@ -0,0 +1,197 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+import org.thingsboard.mqtt.broker.service.stats.TlsHandshakeStats;
+import org.thingsboard.mqtt.broker.ssl.config.SslCredentials;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.TrustManagerFactory;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AbstractMqttHandlerProviderTest {
+
+    private static final char[] KEY_PASSWORD = "password".toCharArray();
+
+    private static SelfSignedCertificate certificate;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        certificate = new SelfSignedCertificate();
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        certificate.delete();
+    }
+
+    @Test
+    public void givenJdkEngineAndTls12Protocol_whenHandshakeWithTls13Client_thenTls13Negotiated() throws Exception {
+        TestMqttHandlerProvider provider = newProvider(TlsEngineType.JDK);
+
+        SslHandler sslHandler = handshake(provider);
+
+        assertEquals("TLSv1.3", sslHandler.engine().getSession().getProtocol());
+        verify(provider.handshakeStats).logHandshake(false);
+    }
+
+    @Test
+    public void givenOpenSslEngineAndTls12Protocol_whenHandshakeWithTls13Client_thenTls13Negotiated() throws Exception {
+        Assume.assumeTrue(OpenSsl.isAvailable());
+        TestMqttHandlerProvider provider = newProvider(TlsEngineType.OPENSSL);
+
+        SslHandler sslHandler = handshake(provider);
+
+        assertEquals("TLSv1.3", sslHandler.engine().getSession().getProtocol());
+        verify(provider.handshakeStats).logHandshake(false);
+    }
+
+    @Test
+    public void givenJdkEngine_whenGetSslHandlerSeveralTimes_thenContextCreatedOnce() throws Exception {
+        TestMqttHandlerProvider provider = newProvider(TlsEngineType.JDK);
+
+        provider.getSslHandler(null);
+        provider.getSslHandler(null);
+
+        verify(provider.sslCredentials, times(1)).createKeyManagerFactory();
+    }
+
+    private SslHandler handshake(TestMqttHandlerProvider provider) throws Exception {
+        SslHandler serverSslHandler = provider.getSslHandler(null);
+        EmbeddedChannel server = new EmbeddedChannel(serverSslHandler);
+        SslContext clientSslContext = SslContextBuilder.forClient()
+                .sslProvider(SslProvider.JDK)
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .protocols("TLSv1.3", "TLSv1.2")
+                .build();
+        SslHandler clientSslHandler = clientSslContext.newHandler(ByteBufAllocator.DEFAULT);
+        EmbeddedChannel client = new EmbeddedChannel(clientSslHandler);
+
+        for (int i = 0; i < 10 && !(serverSslHandler.handshakeFuture().isDone() && clientSslHandler.handshakeFuture().isDone()); i++) {
+            transfer(client, server);
+            transfer(server, client);
+        }
+
+        assertTrue(serverSslHandler.handshakeFuture().isSuccess());
+        assertTrue(clientSslHandler.handshakeFuture().isSuccess());
+        client.finishAndReleaseAll();
+        server.finishAndReleaseAll();
+        return serverSslHandler;
+    }
+
+    private void transfer(EmbeddedChannel from, EmbeddedChannel to) {
+        ByteBuf msg;
+        while ((msg = from.readOutbound()) != null) {
+            to.writeInbound(msg);
+        }
+    }
+
+    private TestMqttHandlerProvider newProvider(TlsEngineType tlsEngineType) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("server", certificate.key(), KEY_PASSWORD, new Certificate[]{certificate.cert()});
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, KEY_PASSWORD);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+
+        SslCredentials sslCredentials = mock(SslCredentials.class);
+        when(sslCredentials.createKeyManagerFactory()).thenReturn(kmf);
+        when(sslCredentials.createTrustManagerFactory()).thenReturn(tmf);
+
+        TlsHandshakeStats handshakeStats = mock(TlsHandshakeStats.class);
+        StatsManager statsManager = mock(StatsManager.class);
+        when(statsManager.createTlsHandshakeStats(any())).thenReturn(handshakeStats);
+
+        TestMqttHandlerProvider provider = new TestMqttHandlerProvider(tlsEngineType, sslCredentials, handshakeStats);
+        ReflectionTestUtils.setField(provider, AbstractMqttHandlerProvider.class, "statsManager", statsManager, StatsManager.class);
+        provider.initHandshakeStats();
+        return provider;
+    }
+
+    private static class TestMqttHandlerProvider extends AbstractMqttHandlerProvider {
+
+        private final TlsEngineType tlsEngineType;
+        private final SslCredentials sslCredentials;
+        private final TlsHandshakeStats handshakeStats;
+
+        TestMqttHandlerProvider(TlsEngineType tlsEngineType, SslCredentials sslCredentials, TlsHandshakeStats handshakeStats) {
+            this.tlsEngineType = tlsEngineType;
+            this.sslCredentials = sslCredentials;
+            this.handshakeStats = handshakeStats;
+        }
+
+        @Override
+        protected String getSslProtocol() {
+            return "TLSv1.2";
+        }
+
+        @Override
+        protected SslCredentials getSslCredentials() {
+            return sslCredentials;
+        }
+
+        @Override
+        protected String getListenerName() {
+            return "test";
+        }
+
+        @Override
+        protected TlsEngineType getTlsEngineType() {
+            return tlsEngineType;
+        }
+
+        @Override
+        protected int getSessionCacheSize() {
+            return 100;
+        }
+
+        @Override
+        protected int getSessionTimeout() {
+            return 60;
+        }
+
+        @Override
+        protected boolean isSessionTicketsEnabled() {
+            return true;
+        }
+    }
+}
@@ -243,6 +243,31 @@ public class AuthRulePatternsServiceSuiteTest {
         Assert.assertEquals(0, authorizationRuleService.getPublishAuthMap().size());
     }
 
+    @Test
+    public void testCompiledRulesValidationAndEvict() {
+        authorizationRuleService.setCompiledRulesEnabled(true);
+        authorizationRuleService.setVerdictCacheMaxSize(10);
+        List<AuthRulePatterns> authRulePatterns = List.of(
+                new AuthRulePatterns(List.of(Pattern.compile("2/.*")), List.of(Pattern.compile("1/.*"))),
+                AuthRulePatterns.newInstance(Collections.emptyList())
+        );
+        Assert.assertFalse(authorizationRuleService.isPubAuthorized(CLIENT_ID, "1/", authRulePatterns));
+        Assert.assertTrue(authorizationRuleService.isSubAuthorized(CLIENT_ID, "1/123", authRulePatterns));
+        Assert.assertTrue(authorizationRuleService.isPubAuthorized(CLIENT_ID, "2/", authRulePatterns));
+        Assert.assertFalse(authorizationRuleService.isSubAuthorized(CLIENT_ID, "2/123", authRulePatterns));
+        Assert.assertFalse(authorizationRuleService.isPubAuthorized(CLIENT_ID, "3/123", authRulePatterns));
+        Assert.assertTrue(authorizationRuleService.getPublishAuthMap().isEmpty());
+        Assert.assertTrue(authorizationRuleService.getAuthRulesMatchers().get(CLIENT_ID).isCompiledFrom(authRulePatterns));
+
+        List<AuthRulePatterns> newAuthRulePatterns = List.of(AuthRulePatterns.newInstance(List.of(Pattern.compile("3/.*"))));
+        Assert.assertTrue(authorizationRuleService.isPubAuthorized(CLIENT_ID, "3/123", newAuthRulePatterns));
+        Assert.assertFalse(authorizationRuleService.isPubAuthorized(CLIENT_ID, "2/", newAuthRulePatterns));
+
+        authorizationRuleService.evict(CLIENT_ID);
+
+        Assert.assertTrue(authorizationRuleService.getAuthRulesMatchers().isEmpty());
+    }
+
     private ClientTypeSslMqttCredentials newClientTypeSslMqttCredentials(SslMqttCredentials sslMqttCredentials) {
         return new ClientTypeSslMqttCredentials(ClientType.DEVICE, sslMqttCredentials, "credentialsName");
     }
@@ -0,0 +1,28 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.integration;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Connect storm benchmark with the connect fast-path enabled. Compare the connections/s it logs
+ * with the one of {@link ConnectStormIntegrationTestCase} that goes through the client session event topic.
+ */
+@TestPropertySource(properties = {
+        "queue.client-session-event.connect-fast-path.enabled=true"
+})
+public class ConnectFastPathIntegrationTestCase extends ConnectStormIntegrationTestCase {
+}
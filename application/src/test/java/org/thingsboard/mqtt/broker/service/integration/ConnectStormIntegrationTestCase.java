@@ -0,0 +1,91 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.integration;
+
+import io.netty.handler.codec.mqtt.MqttVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootContextLoader;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.thingsboard.mqtt.MqttClient;
+import org.thingsboard.mqtt.MqttClientConfig;
+import org.thingsboard.mqtt.broker.AbstractPubSubIntegrationTest;
+import org.thingsboard.mqtt.broker.dao.DaoSqlTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connect storm benchmark: all the clients connect at the same time, as it happens after a load-balancer failover.
+ * The listener uses the native transport with several SO_REUSEPORT acceptors (falls back to NIO with one acceptor
+ * when the native library is not available).
+ */
+@Slf4j
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@ContextConfiguration(classes = ConnectStormIntegrationTestCase.class, loader = SpringBootContextLoader.class)
+@TestPropertySource(properties = {
+        "listener.tcp.netty.transport_type=EPOLL",
+        "listener.tcp.netty.acceptors_count=2",
+        "listener.tcp.netty.pooled_direct_allocator=true"
+})
+@DaoSqlTest
+@RunWith(SpringRunner.class)
+public class ConnectStormIntegrationTestCase extends AbstractPubSubIntegrationTest {
+
+    private static final int CLIENTS_COUNT = 200;
+
+    @Test
+    public void givenManyClients_whenConnectingAtTheSameTime_thenAllClientsAreConnected() throws Throwable {
+        List<MqttClient> clients = new ArrayList<>(CLIENTS_COUNT);
+        List<Future<?>> connectFutures = new ArrayList<>(CLIENTS_COUNT);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CLIENTS_COUNT; i++) {
+            MqttClient client = MqttClient.create(getConfig("connect_storm_" + i), null);
+            clients.add(client);
+            connectFutures.add(client.connect(LOCALHOST, mqttPort));
+        }
+        for (Future<?> connectFuture : connectFutures) {
+            connectFuture.get(30, TimeUnit.SECONDS);
+        }
+        long connectTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        log.info("Connected {} clients in {} ms, {} connections/s", CLIENTS_COUNT, connectTimeMs,
+                connectTimeMs > 0 ? CLIENTS_COUNT * 1000L / connectTimeMs : CLIENTS_COUNT);
+
+        for (MqttClient client : clients) {
+            Assert.assertTrue(client.isConnected());
+            client.disconnect();
+        }
+    }
+
+    private MqttClientConfig getConfig(String clientId) {
+        MqttClientConfig config = new MqttClientConfig();
+        config.setClientId(clientId);
+        config.setCleanSession(true);
+        config.setProtocolVersion(MqttVersion.MQTT_3_1_1);
+        config.setReconnect(false);
+        return config;
+    }
+
+}
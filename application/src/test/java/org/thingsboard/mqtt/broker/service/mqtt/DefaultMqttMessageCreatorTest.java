@@ -15,10 +15,18 @@
  */
 package org.thingsboard.mqtt.broker.service.mqtt;
 
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.thingsboard.mqtt.broker.adaptor.ProtoConverter;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+
+import java.nio.charset.StandardCharsets;
 
 public class DefaultMqttMessageCreatorTest {
 
@@ -53,4 +61,27 @@ public class DefaultMqttMessageCreatorTest {
         Assert.assertEquals("test/", responseInfo);
     }
 
+    @Test
+    public void givenSharedPayload_whenCreatePubMsgForSeveralClients_thenPayloadIsSharedAndReleasedWithLastMsg() {
+        PublishMsgProto publishMsgProto = PublishMsgProto.newBuilder()
+                .setPayload(ByteString.copyFrom("payload", StandardCharsets.UTF_8))
+                .build();
+        ByteBuf payload = ProtoConverter.wrapPayload(publishMsgProto);
+
+        MqttPublishMessage first = mqttMessageCreator.createPubMsg(payload.retainedDuplicate(), 0, false, "test/topic", 1, MqttProperties.NO_PROPERTIES);
+        MqttPublishMessage second = mqttMessageCreator.createPubMsg(payload.retainedDuplicate(), 1, false, "test/topic", 2, MqttProperties.NO_PROPERTIES);
+        payload.release();
+
+        Assert.assertEquals("payload", first.payload().toString(StandardCharsets.UTF_8));
+        Assert.assertEquals("payload", second.payload().toString(StandardCharsets.UTF_8));
+        Assert.assertTrue(first.payload().isReadOnly());
+        Assert.assertSame(payload, first.payload().unwrap());
+        Assert.assertSame(payload, second.payload().unwrap());
+
+        first.release();
+        Assert.assertEquals(1, payload.refCnt());
+        second.release();
+        Assert.assertEquals(0, payload.refCnt());
+    }
+
 }
@@ -0,0 +1,91 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt;
+
+import com.google.protobuf.ByteString;
+import com.sun.management.ThreadMXBean;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.adaptor.ProtoConverter;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+
+public class PublishMsgFanOutPerformanceTest {
+
+    private static final int PAYLOAD_SIZE = 1024;
+    private static final int DELIVERED_MESSAGES = 1_000_000;
+    private static final int[] SUBSCRIBERS = {1, 100, 10_000};
+
+    private final DefaultMqttMessageCreator mqttMessageCreator = new DefaultMqttMessageCreator();
+
+    @Ignore("Allocation comparison to run manually, the sharing itself is covered by DefaultMqttMessageCreatorTest")
+    @Test
+    public void testCopiedVsSharedPayloadAllocations() {
+        byte[] payloadBytes = new byte[PAYLOAD_SIZE];
+        ThreadLocalRandom.current().nextBytes(payloadBytes);
+        PublishMsgProto publishMsgProto = PublishMsgProto.newBuilder()
+                .setTopicName("test/topic")
+                .setQos(0)
+                .setPayload(ByteString.copyFrom(payloadBytes))
+                .build();
+
+        for (int subscribers : SUBSCRIBERS) {
+            // payload copied for every subscriber, as it was done before sharing the payload
+            long copied = allocatedBytesPerDeliveredMsg(publishMsgProto, subscribers, (msg, ignored) -> {
+                ByteBuf payload = Unpooled.buffer();
+                payload.writeBytes(msg.getPayload().toByteArray());
+                return payload;
+            });
+            long shared = allocatedBytesPerDeliveredMsg(publishMsgProto, subscribers, (msg, payload) -> payload.retainedDuplicate());
+
+            System.out.printf("%d subscribers, %d bytes payload: copied %d bytes/msg, shared %d bytes/msg%n",
+                    subscribers, PAYLOAD_SIZE, copied, shared);
+        }
+    }
+
+    private long allocatedBytesPerDeliveredMsg(PublishMsgProto publishMsgProto, int subscribers,
+                                               BiFunction<PublishMsgProto, ByteBuf, ByteBuf> payloadProvider) {
+        int iterations = Math.max(1, DELIVERED_MESSAGES / subscribers);
+        fanOut(publishMsgProto, subscribers, iterations, payloadProvider);
+
+        ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        fanOut(publishMsgProto, subscribers, iterations, payloadProvider);
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return allocated / ((long) iterations * subscribers);
+    }
+
+    private void fanOut(PublishMsgProto publishMsgProto, int subscribers, int iterations,
+                        BiFunction<PublishMsgProto, ByteBuf, ByteBuf> payloadProvider) {
+        for (int i = 0; i < iterations; i++) {
+            ByteBuf payload = ProtoConverter.wrapPayload(publishMsgProto);
+            for (int j = 0; j < subscribers; j++) {
+                MqttPublishMessage mqttPubMsg = mqttMessageCreator.createPubMsg(payloadProvider.apply(publishMsgProto, payload),
+                        publishMsgProto.getQos(), false, publishMsgProto.getTopicName(), j, MqttProperties.NO_PROPERTIES);
+                mqttPubMsg.release();
+            }
+            payload.release();
+        }
+    }
+}
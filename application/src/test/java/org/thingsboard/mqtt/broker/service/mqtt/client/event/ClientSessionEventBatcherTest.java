@@ -0,0 +1,57 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.client.event;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ClientSessionEventBatcherTest {
+
+    @Test
+    public void givenFullBatch_whenAdd_thenBatchSent() {
+        List<List<Integer>> sent = new ArrayList<>();
+        ClientSessionEventBatcher<String, Integer> batcher = new ClientSessionEventBatcher<>(3, (key, items) -> sent.add(items));
+
+        batcher.add("a", 1);
+        batcher.add("a", 2);
+        Assert.assertTrue(sent.isEmpty());
+        batcher.add("a", 3);
+
+        Assert.assertEquals(List.of(List.of(1, 2, 3)), sent);
+    }
+
+    @Test
+    public void givenNotFullBatches_whenFlush_thenBatchPerKeySent() {
+        Map<String, List<Integer>> sent = new ConcurrentHashMap<>();
+        ClientSessionEventBatcher<String, Integer> batcher = new ClientSessionEventBatcher<>(10, sent::put);
+
+        batcher.add("a", 1);
+        batcher.add("b", 2);
+        batcher.add("a", 3);
+        batcher.flush();
+
+        Assert.assertEquals(Map.of("a", List.of(1, 3), "b", List.of(2)), sent);
+
+        sent.clear();
+        batcher.flush();
+        Assert.assertTrue(sent.isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.client.event;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+public class RequestTimeoutWheelTest {
+
+    @Test
+    public void givenPendingRequests_whenExpire_thenOnlyDueRequestsExpired() {
+        RequestTimeoutWheel wheel = new RequestTimeoutWheel(100, 1000);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        wheel.add(first, 10_500);
+        wheel.add(second, 11_000);
+
+        List<UUID> expired = new ArrayList<>();
+        Assert.assertEquals(0, wheel.expire(10_000, expired::add));
+        Assert.assertEquals(1, wheel.expire(10_500, expired::add));
+        Assert.assertEquals(List.of(first), expired);
+        Assert.assertEquals(1, wheel.expire(11_050, expired::add));
+        Assert.assertEquals(List.of(first, second), expired);
+    }
+
+    @Test
+    public void givenCompletedRequest_whenExpire_thenNotCounted() {
+        RequestTimeoutWheel wheel = new RequestTimeoutWheel(100, 1000);
+        UUID completed = UUID.randomUUID();
+        UUID pending = UUID.randomUUID();
+        wheel.add(completed, 10_200);
+        wheel.add(pending, 10_200);
+
+        Set<UUID> pendingRequests = Set.of(pending);
+        Assert.assertEquals(1, wheel.expire(10_300, pendingRequests::contains));
+    }
+
+    @Test
+    public void givenLongPauseBetweenExpirations_whenExpire_thenAllDueRequestsExpired() {
+        RequestTimeoutWheel wheel = new RequestTimeoutWheel(100, 1000);
+        wheel.expire(10_000, requestId -> true);
+        for (int i = 0; i < 10; i++) {
+            wheel.add(UUID.randomUUID(), 10_100 + i * 100);
+        }
+
+        Assert.assertEquals(10, wheel.expire(50_000, requestId -> true));
+        Assert.assertEquals(0, wheel.expire(50_100, requestId -> true));
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.persistence.application;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.thingsboard.mqtt.broker.actors.client.state.ClientActorStateInfo;
+import org.thingsboard.mqtt.broker.actors.client.state.SessionState;
+import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
+import org.thingsboard.mqtt.broker.common.data.BasicCallback;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+import org.thingsboard.mqtt.broker.queue.TbQueueAdmin;
+import org.thingsboard.mqtt.broker.queue.TbQueueMultiplexedConsumer;
+import org.thingsboard.mqtt.broker.queue.common.DefaultTbQueueMsgHeaders;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+import org.thingsboard.mqtt.broker.queue.provider.ApplicationPersistenceMsgQueueFactory;
+import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
+import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
+import org.thingsboard.mqtt.broker.service.mqtt.PublishMsgDeliveryService;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.ApplicationMsgAcknowledgeStrategyFactory;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.ApplicationPersistedMsgCtx;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.ApplicationPersistedMsgCtxService;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.ApplicationProcessingDecision;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.ApplicationSubmitStrategyFactory;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.BurstSubmitStrategy;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.topic.ApplicationTopicService;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.util.ApplicationClientHelperService;
+import org.thingsboard.mqtt.broker.service.stats.ApplicationProcessorStats;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
+import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
+import org.thingsboard.mqtt.broker.session.MsgIdSequence;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {ApplicationPersistenceProcessorImpl.class, ApplicationPersistenceProcessorImplMultiplexedTest.Config.class})
+@TestPropertySource(properties = {
+        "queue.application-persisted-msg.poll-interval=10",
+        "queue.application-persisted-msg.pack-processing-timeout=20000",
+        "queue.application-persisted-msg.multiplexed-consumers.enabled=true",
+        "queue.application-persisted-msg.multiplexed-consumers.consumers-count=1"
+})
+public class ApplicationPersistenceProcessorImplMultiplexedTest {
+
+    private static final String CLIENT_ID = "app";
+    private static final String TOPIC = "tbmq.msg.app.app";
+    private static final String CONSUMER_GROUP = "application-persisted-msg-consumer-group-app";
+
+    private static final TbQueueMultiplexedConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer = mockConsumer();
+    private static final AtomicBoolean msgPolled = new AtomicBoolean();
+
+    @MockBean
+    ApplicationMsgAcknowledgeStrategyFactory acknowledgeStrategyFactory;
+    @MockBean
+    ApplicationSubmitStrategyFactory submitStrategyFactory;
+    @MockBean
+    PublishMsgDeliveryService publishMsgDeliveryService;
+    @MockBean
+    TbQueueAdmin queueAdmin;
+    @MockBean
+    StatsManager statsManager;
+    @MockBean
+    ApplicationPersistedMsgCtxService unacknowledgedPersistedMsgCtxService;
+    @MockBean
+    ClientMqttActorManager clientMqttActorManager;
+    @MockBean
+    ServiceInfoProvider serviceInfoProvider;
+    @MockBean
+    ClientLogger clientLogger;
+    @MockBean
+    ApplicationTopicService applicationTopicService;
+    @MockBean
+    ApplicationClientHelperService appClientHelperService;
+
+    @SpyBean
+    ApplicationPersistenceProcessorImpl applicationPersistenceProcessor;
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ApplicationPersistenceMsgQueueFactory applicationPersistenceMsgQueueFactory() {
+            ApplicationPersistenceMsgQueueFactory factory = mock(ApplicationPersistenceMsgQueueFactory.class);
+            when(factory.createMultiplexedConsumer(anyString())).thenReturn(consumer);
+            return factory;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TbQueueMultiplexedConsumer<TbProtoQueueMsg<PublishMsgProto>> mockConsumer() {
+        TbQueueMultiplexedConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer = mock(TbQueueMultiplexedConsumer.class);
+        when(consumer.poll(anyLong())).thenAnswer(invocation -> {
+            Thread.sleep(5);
+            if (msgPolled.compareAndSet(false, true)) {
+                PublishMsgProto publishMsgProto = PublishMsgProto.newBuilder().setTopicName("test").setQos(1).setClientId("pub").build();
+                return Map.of(TOPIC, List.of(new TbProtoQueueMsg<>("test", publishMsgProto, new DefaultTbQueueMsgHeaders(), 0, 10)));
+            }
+            return Collections.emptyMap();
+        });
+        return consumer;
+    }
+
+    @Before
+    public void setUp() {
+        msgPolled.set(true);
+        when(applicationTopicService.createTopic(CLIENT_ID)).thenReturn(TOPIC);
+        when(appClientHelperService.getAppConsumerGroup(CLIENT_ID)).thenReturn(CONSUMER_GROUP);
+        doAnswer(invocation -> {
+            Consumer<Optional<Long>> onSuccess = invocation.getArgument(3);
+            onSuccess.accept(Optional.of(10L));
+            return null;
+        }).when(queueAdmin).getCommittedOffset(eq(CONSUMER_GROUP), eq(TOPIC), eq(0), any(), any());
+        doAnswer(invocation -> {
+            BasicCallback callback = invocation.getArgument(4);
+            callback.onSuccess();
+            return null;
+        }).when(queueAdmin).commitOffset(any(), any(), eq(0), anyLong(), any());
+        when(unacknowledgedPersistedMsgCtxService.loadPersistedMsgCtx(CLIENT_ID)).thenReturn(new ApplicationPersistedMsgCtx());
+        when(statsManager.createApplicationProcessorStats(CLIENT_ID)).thenReturn(mock(ApplicationProcessorStats.class));
+        when(submitStrategyFactory.newInstance(CLIENT_ID)).thenReturn(new BurstSubmitStrategy(CLIENT_ID));
+        when(acknowledgeStrategyFactory.newInstance(CLIENT_ID)).thenReturn(result -> new ApplicationProcessingDecision(true, Collections.emptyMap()));
+    }
+
+    @Test
+    public void givenMultiplexedConsumer_whenPackAcknowledged_thenCommitOffsetAndResumePartition() {
+        ClientActorStateInfo clientState = mockClientState();
+        ClientSessionCtx clientSessionCtx = clientState.getCurrentSessionCtx();
+
+        applicationPersistenceProcessor.startProcessingPersistedMessages(clientState);
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> verify(consumer).assign(TOPIC, 0, 10L));
+
+        msgPolled.set(false);
+        ArgumentCaptor<PublishMsg> publishMsgCaptor = ArgumentCaptor.forClass(PublishMsg.class);
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                verify(publishMsgDeliveryService).sendPublishMsgToClientWithoutFlush(eq(clientSessionCtx), publishMsgCaptor.capture()));
+        verify(consumer).pause(TOPIC, 0);
+        verify(queueAdmin, never()).commitOffset(any(), any(), eq(0), anyLong(), any());
+
+        applicationPersistenceProcessor.processPubAck(CLIENT_ID, publishMsgCaptor.getValue().getPacketId());
+
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+            verify(queueAdmin).commitOffset(eq(CONSUMER_GROUP), eq(TOPIC), eq(0), eq(11L), any());
+            verify(consumer).resume(TOPIC, 0);
+        });
+
+        applicationPersistenceProcessor.stopProcessingPersistedMessages(CLIENT_ID);
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> verify(consumer).unassign(TOPIC, 0));
+
+        applicationPersistenceProcessor.startProcessingPersistedMessages(mockClientState());
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> verify(consumer).assign(TOPIC, 0, 11L));
+        verify(queueAdmin, times(1)).getCommittedOffset(eq(CONSUMER_GROUP), eq(TOPIC), eq(0), any(), any());
+
+        applicationPersistenceProcessor.stopProcessingPersistedMessages(CLIENT_ID);
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> verify(consumer, times(2)).unassign(TOPIC, 0));
+    }
+
+    private ClientActorStateInfo mockClientState() {
+        UUID sessionId = UUID.randomUUID();
+        ClientSessionCtx clientSessionCtx = mock(ClientSessionCtx.class);
+        when(clientSessionCtx.getClientId()).thenReturn(CLIENT_ID);
+        when(clientSessionCtx.getSessionId()).thenReturn(sessionId);
+        when(clientSessionCtx.getMsgIdSeq()).thenReturn(new MsgIdSequence());
+        when(clientSessionCtx.getChannel()).thenReturn(mock(ChannelHandlerContext.class));
+        ClientActorStateInfo clientState = mock(ClientActorStateInfo.class);
+        when(clientState.getClientId()).thenReturn(CLIENT_ID);
+        when(clientState.getCurrentSessionCtx()).thenReturn(clientSessionCtx);
+        when(clientState.getCurrentSessionId()).thenReturn(sessionId);
+        when(clientState.getCurrentSessionState()).thenReturn(SessionState.CONNECTED);
+        return clientState;
+    }
+}
@@ -32,16 +32,20 @@ import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionCach
 import org.thingsboard.mqtt.broker.service.processing.downlink.DownLinkProxy;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 
 @RunWith(SpringRunner.class)
@@ -77,6 +81,28 @@ public class DeviceMsgProcessorImplTest {
         then(deviceMsgService).should().saveAndReturnPreviousPacketId(TEST_CLIENT_ID, pack.messages(), false);
     }
 
+    @Test
+    public void givenSeveralClientMsgPacks_whenPersistClientDeviceMessages_thenVerifyOneBatchServiceInvocation() {
+        // GIVEN
+        var firstPack = new ClientIdMessagesPack(TEST_CLIENT_ID, List.of(getDevicePublishMsgWithBlankPacketId()));
+        var secondPack = new ClientIdMessagesPack("otherClientId", List.of(getDevicePublishMsgWithBlankPacketId()));
+
+        Map<String, CompletionStage<Integer>> futures = Map.of(
+                TEST_CLIENT_ID, CompletableFuture.completedFuture(1),
+                "otherClientId", CompletableFuture.completedFuture(2));
+        given(deviceMsgService.saveAndReturnPreviousPacketIds(anyMap())).willReturn(futures);
+
+        // WHEN
+        var result = deviceMsgProcessor.persistClientDeviceMessages(List.of(firstPack, secondPack));
+
+        // THEN
+        assertThat(result).isSameAs(futures);
+        then(deviceMsgService).should().saveAndReturnPreviousPacketIds(Map.of(
+                TEST_CLIENT_ID, firstPack.messages(),
+                "otherClientId", secondPack.messages()));
+        then(deviceMsgService).should(never()).saveAndReturnPreviousPacketId(any(), anyList(), anyBoolean());
+    }
+
     @Test
     public void givenClientIdAndMessagesWithValidPacketIds_whenDeliverClientDeviceMessages_thenVerifySuccessServicesInvocations() {
         // GIVEN
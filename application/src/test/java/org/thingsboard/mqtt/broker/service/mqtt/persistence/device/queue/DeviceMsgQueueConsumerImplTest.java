@@ -0,0 +1,168 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.persistence.device.queue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
+import org.thingsboard.mqtt.broker.queue.provider.DevicePersistenceMsgQueueFactory;
+import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.ClientIdMessagesPack;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.DeviceAckStrategy;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.DeviceMsgAcknowledgeStrategyFactory;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.DeviceMsgPersistenceSubmitStrategyFactory;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.DeviceMsgProcessor;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.DevicePackProcessingContext;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.DeviceProcessingDecision;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.DevicePublishMsgListAndPrevPacketId;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.DeviceSubmitStrategy;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.processing.PipelinedDevicePack;
+import org.thingsboard.mqtt.broker.service.stats.DeviceProcessorStats;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DeviceMsgQueueConsumerImplTest {
+
+    @Mock
+    DevicePersistenceMsgQueueFactory devicePersistenceMsgQueueFactory;
+    @Mock
+    DeviceMsgAcknowledgeStrategyFactory ackStrategyFactory;
+    @Mock
+    DeviceMsgPersistenceSubmitStrategyFactory submitStrategyFactory;
+    @Mock
+    DeviceMsgProcessor deviceMsgProcessor;
+    @Mock
+    StatsManager statsManager;
+    @Mock
+    ServiceInfoProvider serviceInfoProvider;
+    @Mock
+    ClientLogger clientLogger;
+    @Mock
+    DeviceProcessorStats stats;
+
+    DeviceMsgQueueConsumerImpl deviceMsgQueueConsumer;
+
+    @Before
+    public void setUp() {
+        deviceMsgQueueConsumer = new DeviceMsgQueueConsumerImpl(devicePersistenceMsgQueueFactory, ackStrategyFactory,
+                submitStrategyFactory, deviceMsgProcessor, statsManager, serviceInfoProvider, clientLogger);
+        ReflectionTestUtils.setField(deviceMsgQueueConsumer, "packProcessingTimeout", 20000L);
+    }
+
+    @Test
+    public void givenPacksOfSameClient_whenHasEarlierPackOfSameClients_thenOnlyLaterUnprocessedPackIsBlocked() {
+        PipelinedDevicePack first = newPack(Set.of("c1", "c2"), Map.of(0, 10L));
+        PipelinedDevicePack second = newPack(Set.of("c2"), Map.of(0, 20L));
+        PipelinedDevicePack third = newPack(Set.of("c3"), Map.of(0, 30L));
+        Deque<PipelinedDevicePack> inFlightPacks = new ArrayDeque<>(List.of(first, second, third));
+
+        assertThat(deviceMsgQueueConsumer.hasEarlierPackOfSameClients(inFlightPacks, first)).isFalse();
+        assertThat(deviceMsgQueueConsumer.hasEarlierPackOfSameClients(inFlightPacks, second)).isTrue();
+        assertThat(deviceMsgQueueConsumer.hasEarlierPackOfSameClients(inFlightPacks, third)).isFalse();
+
+        first.markProcessed();
+        assertThat(deviceMsgQueueConsumer.hasEarlierPackOfSameClients(inFlightPacks, second)).isFalse();
+    }
+
+    @Test
+    public void givenEarlierPackInProgress_whenProcessInFlightPacks_thenPackOfSameClientIsNotPersisted() {
+        DeviceSubmitStrategy firstSubmitStrategy = mock(DeviceSubmitStrategy.class);
+        PipelinedDevicePack first = new PipelinedDevicePack(mock(DeviceAckStrategy.class), firstSubmitStrategy,
+                Set.of("c1"), Map.of(0, 10L), 1, System.nanoTime());
+        first.startIteration(new DevicePackProcessingContext(new ConcurrentHashMap<>(Map.of("c1", newClientPack("c1")))), 1);
+
+        DeviceSubmitStrategy secondSubmitStrategy = mock(DeviceSubmitStrategy.class);
+        PipelinedDevicePack second = new PipelinedDevicePack(mock(DeviceAckStrategy.class), secondSubmitStrategy,
+                Set.of("c1"), Map.of(0, 20L), 1, System.nanoTime());
+
+        DeviceSubmitStrategy thirdSubmitStrategy = mock(DeviceSubmitStrategy.class);
+        when(thirdSubmitStrategy.getPendingMap()).thenReturn(new ConcurrentHashMap<>(Map.of("c2", newClientPack("c2"))));
+        PipelinedDevicePack third = new PipelinedDevicePack(mock(DeviceAckStrategy.class), thirdSubmitStrategy,
+                Set.of("c2"), Map.of(0, 30L), 1, System.nanoTime());
+
+        Deque<PipelinedDevicePack> inFlightPacks = new ArrayDeque<>(List.of(first, second, third));
+
+        deviceMsgQueueConsumer.processInFlightPacks(inFlightPacks, stats);
+
+        assertThat(first.isProcessed()).isFalse();
+        assertThat(second.isStarted()).isFalse();
+        assertThat(third.isStarted()).isTrue();
+        verify(secondSubmitStrategy, never()).process(any());
+        verify(thirdSubmitStrategy).process(any());
+        verify(deviceMsgProcessor, times(1)).persistClientDeviceMessages(anyCollection());
+    }
+
+    @Test
+    public void givenEarlierPackPersisted_whenProcessInFlightPacks_thenMessagesAreDeliveredAndPackOfSameClientIsPersisted() {
+        DeviceAckStrategy ackStrategy = mock(DeviceAckStrategy.class);
+        when(ackStrategy.analyze(any())).thenReturn(new DeviceProcessingDecision(true, Collections.emptyMap()));
+        PipelinedDevicePack first = new PipelinedDevicePack(ackStrategy, mock(DeviceSubmitStrategy.class),
+                Set.of("c1"), Map.of(0, 10L), 1, System.nanoTime());
+        ClientIdMessagesPack firstClientPack = newClientPack("c1");
+        DevicePackProcessingContext ctx = new DevicePackProcessingContext(new ConcurrentHashMap<>(Map.of("c1", firstClientPack)));
+        first.startIteration(ctx, 1);
+        ctx.onSuccess("c1", 5);
+
+        DeviceSubmitStrategy secondSubmitStrategy = mock(DeviceSubmitStrategy.class);
+        when(secondSubmitStrategy.getPendingMap()).thenReturn(new ConcurrentHashMap<>(Map.of("c1", newClientPack("c1"))));
+        PipelinedDevicePack second = new PipelinedDevicePack(mock(DeviceAckStrategy.class), secondSubmitStrategy,
+                Set.of("c1"), Map.of(0, 20L), 1, System.nanoTime());
+
+        Deque<PipelinedDevicePack> inFlightPacks = new ArrayDeque<>(List.of(first, second));
+
+        deviceMsgQueueConsumer.processInFlightPacks(inFlightPacks, stats);
+
+        assertThat(first.isProcessed()).isTrue();
+        assertThat(second.isStarted()).isTrue();
+        verify(deviceMsgProcessor).deliverClientDeviceMessages("c1", new DevicePublishMsgListAndPrevPacketId(firstClientPack.messages(), 5));
+        verify(secondSubmitStrategy).process(any());
+        verify(stats).log(eq(1), any(), eq(true));
+        verify(stats).logClientIdPacksProcessingTime(eq(1), anyLong(), any());
+    }
+
+    private PipelinedDevicePack newPack(Set<String> clientIds, Map<Integer, Long> partitionOffsets) {
+        return new PipelinedDevicePack(mock(DeviceAckStrategy.class), mock(DeviceSubmitStrategy.class),
+                clientIds, partitionOffsets, 1, System.nanoTime());
+    }
+
+    private ClientIdMessagesPack newClientPack(String clientId) {
+        return new ClientIdMessagesPack(clientId, Collections.emptyList());
+    }
+
+}
@@ -26,8 +26,11 @@ import org.thingsboard.mqtt.broker.exception.RetainMsgTrieClearException;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 
 import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -410,4 +413,39 @@ public class ConcurrentMapRetainMsgTrieTest {
         Assert.assertEquals(0, retainMsgTrie.size());
     }
 
+    @Test
+    public void testIteratorReturnsSameValuesAsGet() {
+        retainMsgTrie.put("1/11/3", "test1");
+        retainMsgTrie.put("1/22/3", "test2");
+        retainMsgTrie.put("1/22/4", "test3");
+        retainMsgTrie.put("1", "test4");
+        retainMsgTrie.put("2/11/3", "test5");
+        retainMsgTrie.put("/1/11", "test6");
+        retainMsgTrie.put("$SYS/1", "test7");
+        retainMsgTrie.put("1/$SYS", "test8");
+
+        for (String topicFilter : List.of("#", "+", "1/#", "+/+/3", "1/+/#", "+/22/+", "/+/11", "$SYS/#", "+/$SYS", "1/11/3", "3/#")) {
+            List<String> iterated = new ArrayList<>();
+            retainMsgTrie.iterator(topicFilter).forEachRemaining(iterated::add);
+
+            Assert.assertEquals(topicFilter, iterated.size(), new HashSet<>(iterated).size());
+            Assert.assertEquals(topicFilter, new HashSet<>(retainMsgTrie.get(topicFilter)), new HashSet<>(iterated));
+        }
+    }
+
+    @Test
+    public void testIteratorOverManyTopics() {
+        for (int i = 0; i < 10_000; i++) {
+            retainMsgTrie.put("site/" + (i % 10) + "/device/" + i, "msg" + i);
+        }
+
+        Iterator<String> iterator = retainMsgTrie.iterator("site/+/device/#");
+        Set<String> result = new HashSet<>();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        Assert.assertEquals(10_000, result.size());
+        Assert.assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
 }
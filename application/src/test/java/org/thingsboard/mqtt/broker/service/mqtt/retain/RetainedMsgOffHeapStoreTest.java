@@ -0,0 +1,164 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.retain;
+
+import io.netty.handler.codec.mqtt.MqttProperties;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.service.mqtt.DefaultMqttMessageCreator;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+import org.thingsboard.mqtt.broker.util.MqttPropertiesUtil;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class RetainedMsgOffHeapStoreTest {
+
+    private static final byte[] PAYLOAD = "{\"temperature\":25}".getBytes(StandardCharsets.UTF_8);
+
+    private StatsManager statsManager;
+    private RetainedMsgOffHeapStore retainedMsgOffHeapStore;
+
+    @Before
+    public void setUp() {
+        statsManager = mock(StatsManager.class);
+        retainedMsgOffHeapStore = new RetainedMsgOffHeapStore(statsManager);
+        retainedMsgOffHeapStore.setEnabled(true);
+        retainedMsgOffHeapStore.setArenas(1);
+        retainedMsgOffHeapStore.init();
+    }
+
+    @Test
+    public void givenStoreDisabled_whenStore_thenSameMsgReturned() {
+        RetainedMsgOffHeapStore disabledStore = new RetainedMsgOffHeapStore(statsManager);
+        disabledStore.init();
+        RetainedMsg retainedMsg = new RetainedMsg("t/1", PAYLOAD, 1);
+
+        assertSame(retainedMsg, disabledStore.store(retainedMsg));
+        assertEquals(0, disabledStore.getUsedMemory());
+    }
+
+    @Test
+    public void givenRetainedMsg_whenStore_thenContentMovedOffHeapAndReadBack() {
+        verify(statsManager).registerRetainedMsgOffHeapStats(any());
+        MqttProperties properties = new MqttProperties();
+        properties.add(new MqttProperties.StringProperty(MqttProperties.MqttPropertyType.CONTENT_TYPE.value(), "application/json"));
+        MqttProperties.UserProperties userProperties = new MqttProperties.UserProperties();
+        userProperties.add("key", "value");
+        properties.add(userProperties);
+        MqttPropertiesUtil.addMsgExpiryIntervalToProps(properties, 60);
+        RetainedMsg retainedMsg = new RetainedMsg("t/1", PAYLOAD, 1, properties, 123L);
+
+        RetainedMsg stored = retainedMsgOffHeapStore.store(retainedMsg);
+
+        assertTrue(stored instanceof OffHeapRetainedMsg);
+        assertTrue(retainedMsgOffHeapStore.getUsedMemory() > 0);
+        assertEquals("t/1", stored.getTopic());
+        assertEquals(1, stored.getQos());
+        assertEquals(123L, stored.getCreatedTime());
+        assertArrayEquals(PAYLOAD, stored.getPayload());
+        assertEquals("application/json", MqttPropertiesUtil.getContentTypeValue(stored.getProperties()));
+        assertEquals("value", MqttPropertiesUtil.getUserProperties(stored.getProperties()).value().get(0).value);
+        assertEquals(60, (int) MqttPropertiesUtil.getPubExpiryIntervalProperty(stored).value());
+        assertEquals(60, (int) MqttPropertiesUtil.getPubExpiryIntervalProperty(stored.getProperties()).value());
+        assertSame(stored, retainedMsgOffHeapStore.store(stored));
+    }
+
+    @Test
+    public void givenStoredMsg_whenWithQosAndProps_thenContentShared() {
+        RetainedMsg stored = retainedMsgOffHeapStore.store(new RetainedMsg("t/1", PAYLOAD, 1));
+        MqttProperties properties = new MqttProperties();
+        MqttPropertiesUtil.addSubscriptionIdToProps(properties, 5);
+
+        RetainedMsg view = stored.withQosAndProps(0, properties);
+
+        assertTrue(view instanceof OffHeapRetainedMsg);
+        assertEquals(0, view.getQos());
+        assertSame(properties, view.getProperties());
+        String payload = ((OffHeapRetainedMsg) view).readContent((payloadBuf, props) -> {
+            assertSame(properties, props);
+            return payloadBuf.toString(StandardCharsets.UTF_8);
+        });
+        assertEquals(new String(PAYLOAD, StandardCharsets.UTF_8), payload);
+    }
+
+    @Test
+    public void givenStoredMsg_whenWithQos_thenPropertiesCopied() {
+        MqttProperties properties = new MqttProperties();
+        properties.add(new MqttProperties.StringProperty(MqttProperties.MqttPropertyType.CONTENT_TYPE.value(), "application/json"));
+        OffHeapRetainedMsg stored = (OffHeapRetainedMsg) retainedMsgOffHeapStore.store(new RetainedMsg("t/1", PAYLOAD, 1, properties));
+
+        OffHeapRetainedMsg view = stored.withQos(0);
+        MqttPropertiesUtil.addSubscriptionIdToProps(view.getProperties(), 5);
+
+        assertEquals(0, view.getQos());
+        assertEquals("application/json", MqttPropertiesUtil.getContentTypeValue(view.getProperties()));
+        assertTrue(stored.getProperties().getProperties(MqttProperties.MqttPropertyType.SUBSCRIPTION_IDENTIFIER.value()).isEmpty());
+        assertArrayEquals(PAYLOAD, view.getPayload());
+    }
+
+    @Test
+    public void givenStoredMsg_whenCreatePubRetainMsg_thenPayloadCopiedFromOffHeap() {
+        RetainedMsg stored = retainedMsgOffHeapStore.store(new RetainedMsg("t/1", PAYLOAD, 1));
+
+        MqttPublishMessage mqttPubMsg = new DefaultMqttMessageCreator().createPubRetainMsg(1, stored.withQosAndProps(1, new MqttProperties()));
+
+        assertTrue(mqttPubMsg.fixedHeader().isRetain());
+        assertEquals("t/1", mqttPubMsg.variableHeader().topicName());
+        assertEquals(new String(PAYLOAD, StandardCharsets.UTF_8), mqttPubMsg.payload().toString(StandardCharsets.UTF_8));
+        mqttPubMsg.release();
+    }
+
+    @Test
+    public void givenStoredMsg_whenRelease_thenContentReleasedAndPayloadNotAvailable() {
+        OffHeapRetainedMsg stored = (OffHeapRetainedMsg) retainedMsgOffHeapStore.store(new RetainedMsg("t/1", PAYLOAD, 1));
+        RetainedMsg view = stored.withQosAndProps(1, new MqttProperties());
+
+        retainedMsgOffHeapStore.release(stored);
+        retainedMsgOffHeapStore.release(stored);
+
+        assertTrue(stored.isReleased());
+        assertThrows(IllegalStateException.class, view::getPayload);
+        assertThrows(IllegalStateException.class, stored::getProperties);
+        assertNull(((OffHeapRetainedMsg) view).readContent((payloadBuf, props) -> payloadBuf));
+        assertNull(stored.withQos(1));
+        assertNull(stored.copyToHeap());
+        assertNull(new DefaultMqttMessageCreator().createPubRetainMsg(1, view));
+    }
+
+    @Test
+    public void givenManyMsgsOnSameTopic_whenStoreAndRelease_thenMemoryReused() {
+        RetainedMsg previous = retainedMsgOffHeapStore.store(new RetainedMsg("t/1", PAYLOAD, 1));
+        long usedMemory = retainedMsgOffHeapStore.getUsedMemory();
+        for (int i = 0; i < 10_000; i++) {
+            RetainedMsg stored = retainedMsgOffHeapStore.store(new RetainedMsg("t/1", PAYLOAD, 1));
+            retainedMsgOffHeapStore.release(previous);
+            previous = stored;
+        }
+        assertArrayEquals(PAYLOAD, previous.getPayload());
+        assertEquals(usedMemory, retainedMsgOffHeapStore.getUsedMemory());
+    }
+}
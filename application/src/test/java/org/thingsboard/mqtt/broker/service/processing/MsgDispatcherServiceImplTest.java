@@ -29,6 +29,7 @@ import org.thingsboard.mqtt.broker.common.data.ClientSessionInfo;
 import org.thingsboard.mqtt.broker.common.data.ClientType;
 import org.thingsboard.mqtt.broker.common.data.subscription.SubscriptionOptions;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
 import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
 import org.thingsboard.mqtt.broker.service.historical.stats.TbMessageStatsReportClient;
 import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
@@ -40,6 +41,7 @@ import org.thingsboard.mqtt.broker.service.processing.downlink.DownLinkProxy;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 import org.thingsboard.mqtt.broker.service.subscription.ClientSubscription;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
+import org.thingsboard.mqtt.broker.service.subscription.TopicFilterMatchVisitor;
 import org.thingsboard.mqtt.broker.service.subscription.ValueWithTopicFilter;
 import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscription;
 import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionCacheService;
@@ -54,10 +56,16 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(SpringRunner.class)
@@ -100,6 +108,8 @@ public class MsgDispatcherServiceImplTest {
         clientSessionInfo = mock(ClientSessionInfo.class);
 
         when(rateLimitService.isTotalMsgsLimitEnabled()).thenReturn(false);
+        msgDispatcherService.setBatchRemoteBasicMsgTargets(false);
+        msgDispatcherService.init();
     }
 
     @Test
@@ -347,15 +357,18 @@ public class MsgDispatcherServiceImplTest {
                 )
         );
 
-        when(subscriptionService.getSubscriptions(topic)).thenReturn(List.of(
+        mockForEachSubscription(topic, List.of(
                 newValueWithTopicFilter("clientId1", 0, "g1", "topic/+"),
                 newValueWithTopicFilter("clientId2", 0, "g1", "topic/+"),
                 newValueWithTopicFilter("clientId3", 1, "topic/#"),
-                newValueWithTopicFilter("clientId4", 2, "#")
+                newValueWithTopicFilter("clientId4", 2, "#"),
+                newValueWithTopicFilter("clientId4", 1, "topic/+")
         ));
 
         MsgSubscriptions msgSubscriptions = msgDispatcherService.getAllSubscriptionsForPubMsg(publishMsgProto, "clientId");
 
+        verify(subscriptionService, never()).getSubscriptions(any());
+
         assertNull(msgSubscriptions.getTargetDeviceSharedSubscriptions());
         assertEquals(2, msgSubscriptions.getAllApplicationSharedSubscriptions().size());
         assertEquals(2, msgSubscriptions.getCommonSubscriptions().size());
@@ -365,6 +378,27 @@ public class MsgDispatcherServiceImplTest {
 
         List<String> appClientIds = getClientIds(msgSubscriptions.getAllApplicationSharedSubscriptions().stream());
         assertTrue(appClientIds.containsAll(List.of("clientId1", "clientId2")));
+
+        Subscription clientId4Subscription = msgSubscriptions.getCommonSubscriptions().stream()
+                .filter(subscription -> "clientId4".equals(subscription.getClientId()))
+                .findFirst().orElseThrow();
+        assertEquals(2, clientId4Subscription.getQos());
+    }
+
+    @Test
+    public void testGetAllSubscriptionsForPubMsg_whenTotalMsgsLimitEnabled() {
+        when(rateLimitService.isTotalMsgsLimitEnabled()).thenReturn(true);
+        when(rateLimitService.tryConsumeAsMuchAsPossibleTotalMsgs(eq(2L))).thenReturn(1L);
+        mockClientSessionCacheGetClientSession("clientId1", newClientSessionInfo("clientId1", "broker-0"));
+        when(subscriptionService.getSubscriptions("topic/test")).thenReturn(List.of(
+                newValueWithTopicFilter("clientId1", 0, "topic/+"),
+                newValueWithTopicFilter("clientId2", 1, "topic/#")));
+
+        MsgSubscriptions msgSubscriptions = msgDispatcherService.getAllSubscriptionsForPubMsg(newPublishMsgProto(0), "publisher");
+
+        verify(subscriptionService, never()).forEachSubscription(any(), any());
+        assertEquals(1, msgSubscriptions.getCommonSubscriptions().size());
+        assertEquals("clientId1", msgSubscriptions.getCommonSubscriptions().get(0).getClientId());
     }
 
     @Test
@@ -448,6 +482,118 @@ public class MsgDispatcherServiceImplTest {
         assertTrue(appClientIds.containsAll(List.of("clientId1", "clientId2")));
     }
 
+    @Test
+    public void testProcessedLocally_whenAllSubscribersOnThisNode() {
+        enableLocalFastPath();
+        when(subscriptionService.getSubscriptions("topic/test")).thenReturn(List.of(
+                newValueWithTopicFilter("clientId1", 0, "topic/+"),
+                newValueWithTopicFilter("clientId2", 1, "topic/#")));
+        mockClientSessionCacheGetClientSession("clientId1", newClientSessionInfo("clientId1", "broker-0"));
+        mockClientSessionCacheGetClientSession("clientId2", newClientSessionInfo("clientId2", "broker-0"));
+        TbQueueCallback callback = mock(TbQueueCallback.class);
+
+        assertTrue(msgDispatcherService.processedLocally(newPublishMsgProto(0), callback));
+
+        verify(downLinkProxy, times(2)).sendBasicMsg(any(Subscription.class), any(), any());
+        verify(callback).onSuccess(null);
+    }
+
+    @Test
+    public void testProcessedLocally_whenSubscriberOnAnotherNode() {
+        enableLocalFastPath();
+        when(subscriptionService.getSubscriptions("topic/test")).thenReturn(List.of(
+                newValueWithTopicFilter("clientId1", 0, "topic/+"),
+                newValueWithTopicFilter("clientId2", 0, "topic/#")));
+        mockClientSessionCacheGetClientSession("clientId1", newClientSessionInfo("clientId1", "broker-0"));
+        mockClientSessionCacheGetClientSession("clientId2", newClientSessionInfo("clientId2", "broker-1"));
+        TbQueueCallback callback = mock(TbQueueCallback.class);
+
+        assertFalse(msgDispatcherService.processedLocally(newPublishMsgProto(0), callback));
+
+        verify(downLinkProxy, never()).sendBasicMsg(any(Subscription.class), any(), any());
+        verify(callback, never()).onSuccess(any());
+    }
+
+    @Test
+    public void testProcessedLocally_whenSharedSubscriptionOrQosAboveZero() {
+        enableLocalFastPath();
+        when(subscriptionService.getSubscriptions("topic/test")).thenReturn(List.of(
+                newValueWithTopicFilter("clientId1", 0, "g1", "topic/+")));
+        mockClientSessionCacheGetClientSession("clientId1", newClientSessionInfo("clientId1", "broker-0"));
+        TbQueueCallback callback = mock(TbQueueCallback.class);
+
+        assertFalse(msgDispatcherService.processedLocally(newPublishMsgProto(0), callback));
+        assertFalse(msgDispatcherService.processedLocally(newPublishMsgProto(1), callback));
+
+        verify(downLinkProxy, never()).sendBasicMsg(any(Subscription.class), any(), any());
+        verify(callback, never()).onSuccess(any());
+    }
+
+    @Test
+    public void testProcessedLocally_whenPreviousMsgOfPublisherWasQueued() {
+        enableLocalFastPath();
+        when(subscriptionService.getSubscriptions("topic/test")).thenReturn(List.of(
+                newValueWithTopicFilter("clientId1", 0, "topic/+")));
+        mockClientSessionCacheGetClientSession("clientId1", newClientSessionInfo("clientId1", "broker-1"));
+        TbQueueCallback callback = mock(TbQueueCallback.class);
+
+        assertFalse(msgDispatcherService.processedLocally(newPublishMsgProto(0), callback));
+
+        mockClientSessionCacheGetClientSession("clientId1", newClientSessionInfo("clientId1", "broker-0"));
+
+        assertFalse(msgDispatcherService.processedLocally(newPublishMsgProto(0), callback));
+
+        verify(subscriptionService, times(1)).getSubscriptions("topic/test");
+        verify(downLinkProxy, never()).sendBasicMsg(any(Subscription.class), any(), any());
+        verify(callback, never()).onSuccess(any());
+    }
+
+    @Test
+    public void testProcessBasicAndCollectPersistentSubscriptions_whenBatchRemoteTargets() {
+        msgDispatcherService.setBatchRemoteBasicMsgTargets(true);
+        when(serviceInfoProvider.getServiceId()).thenReturn("broker-0");
+        Subscription local = new Subscription("topic/+", 0, newClientSessionInfo("clientId1", "broker-0"));
+        Subscription remote1 = new Subscription("topic/+", 0, newClientSessionInfo("clientId2", "broker-1"));
+        Subscription remote2 = new Subscription("topic/#", 1, newClientSessionInfo("clientId3", "broker-1"));
+        Subscription remote3 = new Subscription("topic/#", 0, newClientSessionInfo("clientId4", "broker-2"));
+        QueueProtos.PublishMsgProto publishMsgProto = newPublishMsgProto(0);
+
+        msgDispatcherService.processBasicAndCollectPersistentSubscriptions(
+                new MsgSubscriptions(List.of(local, remote1, remote2, remote3), null, null), publishMsgProto);
+
+        verify(downLinkProxy).sendBasicMsg(eq(local), eq(publishMsgProto), any());
+        verify(downLinkProxy).sendBasicMsg(eq(remote3), eq(publishMsgProto), any());
+        verify(downLinkProxy).sendBasicMsg(eq("broker-1"), eq(List.of(remote1, remote2)), eq(publishMsgProto));
+        verify(downLinkProxy, times(2)).sendBasicMsg(any(Subscription.class), any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockForEachSubscription(String topic, List<ValueWithTopicFilter<ClientSubscription>> clientSubscriptions) {
+        doAnswer(invocation -> {
+            TopicFilterMatchVisitor<ClientSubscription> visitor = invocation.getArgument(1);
+            clientSubscriptions.forEach(clientSubscription -> visitor.visit(clientSubscription.getValue(), clientSubscription.getTopicFilter()));
+            return null;
+        }).when(subscriptionService).forEachSubscription(eq(topic), any());
+    }
+
+    private void enableLocalFastPath() {
+        msgDispatcherService.setLocalFastPathEnabled(true);
+        msgDispatcherService.setLocalFastPathMaxSubscribers(100);
+        when(serviceInfoProvider.getServiceId()).thenReturn("broker-0");
+    }
+
+    private ClientSessionInfo newClientSessionInfo(String clientId, String serviceId) {
+        return ClientSessionInfo.builder().clientId(clientId).serviceId(serviceId).type(ClientType.DEVICE).connected(true).build();
+    }
+
+    private QueueProtos.PublishMsgProto newPublishMsgProto(int qos) {
+        return QueueProtos.PublishMsgProto.newBuilder()
+                .setTopicName("topic/test")
+                .setQos(qos)
+                .setClientId("publisher")
+                .build();
+    }
+
     private List<String> getClientIds(Stream<Subscription> msgSubscriptions) {
         return msgSubscriptions
                 .map(subscription -> subscription.getClientSessionInfo().getClientId())
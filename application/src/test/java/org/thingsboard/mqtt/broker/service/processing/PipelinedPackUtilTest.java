@@ -0,0 +1,99 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.processing;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
+import org.thingsboard.mqtt.broker.queue.common.DefaultTbQueueMsgHeaders;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PipelinedPackUtilTest {
+
+    @Mock
+    TbQueueControlledOffsetConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer;
+
+    @Test
+    public void givenMsgsFromSeveralPartitions_whenToPartitionOffsets_thenNextOffsetPerPartitionIsReturned() {
+        List<TbProtoQueueMsg<PublishMsgProto>> msgs = List.of(newMsg(0, 10), newMsg(1, 3), newMsg(0, 12), newMsg(1, -1));
+
+        assertThat(PipelinedPackUtil.toPartitionOffsets(msgs)).isEqualTo(Map.of(0, 13L, 1, 4L));
+    }
+
+    @Test
+    public void givenContiguousProcessedPacks_whenCommitProcessedPacks_thenHighestOffsetsAreCommitted() {
+        PipelinedPublishMsgPack first = newPack(Map.of(0, 10L, 1, 5L));
+        PipelinedPublishMsgPack second = newPack(Map.of(0, 20L));
+        PipelinedPublishMsgPack third = newPack(Map.of(0, 30L, 1, 15L));
+        PipelinedPublishMsgPack fourth = newPack(Map.of(1, 25L));
+        first.markProcessed();
+        second.markProcessed();
+        fourth.markProcessed();
+        Deque<PipelinedPublishMsgPack> inFlightPacks = new ArrayDeque<>(List.of(first, second, third, fourth));
+        when(consumer.getAssignedPartitions()).thenReturn(Set.of(0, 1));
+
+        List<PipelinedPublishMsgPack> committedPacks = PipelinedPackUtil.commitProcessedPacks(consumer, inFlightPacks);
+
+        assertThat(committedPacks).containsExactly(first, second);
+        assertThat(inFlightPacks).containsExactly(third, fourth);
+        verify(consumer).commit(0, 20L);
+        verify(consumer).commit(1, 5L);
+        verify(consumer, times(2)).commit(anyInt(), anyLong());
+    }
+
+    @Test
+    public void givenPartitionRevokedWhilePackInFlight_whenCommitProcessedPacks_thenRevokedPartitionIsNotCommitted() {
+        PipelinedPublishMsgPack pack = newPack(Map.of(0, 10L, 1, 5L));
+        pack.markProcessed();
+        Deque<PipelinedPublishMsgPack> inFlightPacks = new ArrayDeque<>(List.of(pack));
+        when(consumer.getAssignedPartitions()).thenReturn(Set.of(1));
+
+        PipelinedPackUtil.commitProcessedPacks(consumer, inFlightPacks);
+
+        assertThat(inFlightPacks).isEmpty();
+        verify(consumer).commit(1, 5L);
+        verify(consumer, never()).commit(eq(0), anyLong());
+    }
+
+    private PipelinedPublishMsgPack newPack(Map<Integer, Long> partitionOffsets) {
+        return new PipelinedPublishMsgPack(mock(AckStrategy.class), mock(SubmitStrategy.class), partitionOffsets, 1, System.nanoTime());
+    }
+
+    private TbProtoQueueMsg<PublishMsgProto> newMsg(int partition, long offset) {
+        return new TbProtoQueueMsg<>("test", PublishMsgProto.getDefaultInstance(), new DefaultTbQueueMsgHeaders(), partition, offset);
+    }
+
+}
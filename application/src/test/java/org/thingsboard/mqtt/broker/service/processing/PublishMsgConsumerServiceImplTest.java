@@ -0,0 +1,164 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.processing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
+import org.thingsboard.mqtt.broker.queue.common.DefaultTbQueueMsgHeaders;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+import org.thingsboard.mqtt.broker.queue.provider.PublishMsgQueueFactory;
+import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
+import org.thingsboard.mqtt.broker.service.stats.PublishMsgConsumerStats;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PublishMsgConsumerServiceImplTest {
+
+    @Mock
+    MsgDispatcherService msgDispatcherService;
+    @Mock
+    PublishMsgQueueFactory publishMsgQueueFactory;
+    @Mock
+    AckStrategyFactory ackStrategyFactory;
+    @Mock
+    SubmitStrategyFactory submitStrategyFactory;
+    @Mock
+    ServiceInfoProvider serviceInfoProvider;
+    @Mock
+    StatsManager statsManager;
+    @Mock
+    RateLimitService rateLimitService;
+    @Mock
+    TbQueueControlledOffsetConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer;
+    @Mock
+    PublishMsgConsumerStats stats;
+
+    PublishMsgConsumerServiceImpl publishMsgConsumerService;
+
+    @Before
+    public void setUp() {
+        publishMsgConsumerService = new PublishMsgConsumerServiceImpl(msgDispatcherService, publishMsgQueueFactory, ackStrategyFactory,
+                submitStrategyFactory, serviceInfoProvider, statsManager, rateLimitService);
+    }
+
+    @Test
+    public void givenHeadPackNotProcessed_whenCommitProcessedPacks_thenNothingIsCommitted() {
+        PipelinedPublishMsgPack first = newPack(Map.of(0, 10L));
+        PipelinedPublishMsgPack second = newPack(Map.of(0, 20L));
+        second.markProcessed();
+        Deque<PipelinedPublishMsgPack> inFlightPacks = new ArrayDeque<>();
+        inFlightPacks.add(first);
+        inFlightPacks.add(second);
+
+        publishMsgConsumerService.commitProcessedPacks(consumer, inFlightPacks, stats);
+
+        assertThat(inFlightPacks).containsExactly(first, second);
+        verify(consumer, never()).commit(anyInt(), anyLong());
+    }
+
+    @Test
+    public void givenContiguousProcessedPacks_whenCommitProcessedPacks_thenHighestOffsetsAreCommitted() {
+        PipelinedPublishMsgPack first = newPack(Map.of(0, 10L, 1, 5L));
+        PipelinedPublishMsgPack second = newPack(Map.of(0, 20L));
+        PipelinedPublishMsgPack third = newPack(Map.of(0, 30L, 1, 15L));
+        first.markProcessed();
+        second.markProcessed();
+        Deque<PipelinedPublishMsgPack> inFlightPacks = new ArrayDeque<>();
+        inFlightPacks.add(first);
+        inFlightPacks.add(second);
+        inFlightPacks.add(third);
+        when(consumer.getAssignedPartitions()).thenReturn(Set.of(0, 1));
+
+        publishMsgConsumerService.commitProcessedPacks(consumer, inFlightPacks, stats);
+
+        assertThat(inFlightPacks).containsExactly(third);
+        verify(consumer).commit(0, 20L);
+        verify(consumer).commit(1, 5L);
+        verify(stats, times(2)).logPackCommitLatency(anyInt(), anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void givenProcessedIteration_whenProcessInFlightPacks_thenPackIsMarkedProcessed() {
+        AckStrategy ackStrategy = mock(AckStrategy.class);
+        when(ackStrategy.analyze(any())).thenReturn(new ProcessingDecision(true, Collections.emptyMap()));
+        PipelinedPublishMsgPack pack = new PipelinedPublishMsgPack(ackStrategy, mock(SubmitStrategy.class), Map.of(0, 1L), 0, System.nanoTime());
+        pack.startIteration(new PackProcessingContext(new ConcurrentHashMap<>()));
+        Deque<PipelinedPublishMsgPack> inFlightPacks = new ArrayDeque<>();
+        inFlightPacks.add(pack);
+
+        publishMsgConsumerService.processInFlightPacks(inFlightPacks, stats);
+
+        assertThat(pack.isProcessed()).isTrue();
+        verify(stats).log(eq(0), any(), eq(true));
+    }
+
+    @Test
+    public void givenRetryDecision_whenProcessInFlightPacks_thenPackIsResubmitted() {
+        UUID msgId = UUID.randomUUID();
+        PublishMsgWithId msg = new PublishMsgWithId(msgId, PublishMsgProto.getDefaultInstance(), new DefaultTbQueueMsgHeaders());
+        Map<UUID, PublishMsgWithId> reprocessMap = Map.of(msgId, msg);
+
+        AckStrategy ackStrategy = mock(AckStrategy.class);
+        when(ackStrategy.analyze(any())).thenReturn(new ProcessingDecision(false, reprocessMap));
+        SubmitStrategy submitStrategy = mock(SubmitStrategy.class);
+        when(submitStrategy.getPendingMap()).thenReturn(new ConcurrentHashMap<>(reprocessMap));
+
+        PipelinedPublishMsgPack pack = new PipelinedPublishMsgPack(ackStrategy, submitStrategy, Map.of(0, 1L), 1, System.nanoTime());
+        pack.startIteration(new PackProcessingContext(new ConcurrentHashMap<>()));
+        Deque<PipelinedPublishMsgPack> inFlightPacks = new ArrayDeque<>();
+        inFlightPacks.add(pack);
+
+        publishMsgConsumerService.processInFlightPacks(inFlightPacks, stats);
+
+        assertThat(pack.isProcessed()).isFalse();
+        assertThat(pack.getCtx().getPendingMap()).containsOnlyKeys(msgId);
+        verify(submitStrategy).update(reprocessMap);
+        verify(submitStrategy).process(any());
+        verify(stats).log(eq(0), any(), anyBoolean());
+    }
+
+    private PipelinedPublishMsgPack newPack(Map<Integer, Long> partitionOffsets) {
+        return new PipelinedPublishMsgPack(mock(AckStrategy.class), mock(SubmitStrategy.class), partitionOffsets, 1, System.nanoTime());
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.service.processing.downlink;
 
+import io.netty.buffer.Unpooled;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -28,6 +29,8 @@ import org.thingsboard.mqtt.broker.service.processing.downlink.basic.BasicDownLi
 import org.thingsboard.mqtt.broker.service.processing.downlink.persistent.PersistentDownLinkProcessor;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
 
+import java.util.List;
+
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -93,9 +96,9 @@ public class DownLinkProxyImplTest {
         QueueProtos.PublishMsgProto publishMsgProto = QueueProtos.PublishMsgProto.newBuilder().build();
 
         when(serviceInfoProvider.getServiceId()).thenReturn(serviceId);
-        downLinkProxy.sendBasicMsg(subscription, publishMsgProto);
+        downLinkProxy.sendBasicMsg(subscription, publishMsgProto, Unpooled.EMPTY_BUFFER);
 
-        verify(basicDownLinkProcessor, times(1)).process(eq(subscription), eq(publishMsgProto));
+        verify(basicDownLinkProcessor, times(1)).process(eq(subscription), eq(publishMsgProto), eq(Unpooled.EMPTY_BUFFER));
     }
 
     @Test
@@ -108,11 +111,25 @@ public class DownLinkProxyImplTest {
         QueueProtos.PublishMsgProto publishMsgProto = QueueProtos.PublishMsgProto.newBuilder().build();
 
         when(serviceInfoProvider.getServiceId()).thenReturn("broker-1");
-        downLinkProxy.sendBasicMsg(subscription, publishMsgProto);
+        downLinkProxy.sendBasicMsg(subscription, publishMsgProto, Unpooled.EMPTY_BUFFER);
 
         verify(queuePublisher, times(1)).publishBasicMsg(eq(serviceId), eq(clientId), eq(publishMsgProto));
     }
 
+    @Test
+    public void givenPubMsgWithSubscriptionsForSubscribersOnDifferentBroker_whenSendBasicMsg_thenPublishOneMsgToAnotherBroker() {
+        String serviceId = "broker-0";
+        List<Subscription> subscriptions = List.of(
+                new Subscription("#", 1, ClientSessionInfo.builder().serviceId(serviceId).clientId("clientId1").build()),
+                new Subscription("#", 0, ClientSessionInfo.builder().serviceId(serviceId).clientId("clientId2").build())
+        );
+        QueueProtos.PublishMsgProto publishMsgProto = QueueProtos.PublishMsgProto.newBuilder().build();
+
+        downLinkProxy.sendBasicMsg(serviceId, subscriptions, publishMsgProto);
+
+        verify(queuePublisher, times(1)).publishBasicMsg(eq(serviceId), eq(subscriptions), eq(publishMsgProto));
+    }
+
     @Test
     public void givenPubMsgForSubscriberOnSameBroker_whenSendPersistentMsg_thenPublishMsgToSubscriber() {
         String serviceId = "broker-0";
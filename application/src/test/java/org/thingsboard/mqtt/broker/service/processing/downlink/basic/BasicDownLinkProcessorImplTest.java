@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.service.processing.downlink.basic;
 
+import io.netty.buffer.Unpooled;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -33,6 +34,7 @@ import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
 import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -109,9 +111,9 @@ public class BasicDownLinkProcessorImplTest {
 
         when(clientSessionCtxService.getClientSessionCtx(clientId)).thenReturn(null);
 
-        basicDownLinkProcessor.process(getSubscription(clientId), publishMsgProto);
+        basicDownLinkProcessor.process(getSubscription(clientId), publishMsgProto, Unpooled.EMPTY_BUFFER);
 
-        verify(publishMsgDeliveryService, never()).sendPublishMsgProtoToClient(any(), any(), any());
+        verify(publishMsgDeliveryService, never()).sendPublishMsgProtoToClient(any(), any(), any(Subscription.class), any());
         verify(clientMqttActorManager, never()).disconnect(any(), any());
     }
 
@@ -123,9 +125,9 @@ public class BasicDownLinkProcessorImplTest {
         when(clientSessionCtxService.getClientSessionCtx(clientId)).thenReturn(new ClientSessionCtx());
         when(rateLimitService.checkOutgoingLimits(clientId, publishMsgProto)).thenReturn(true);
 
-        basicDownLinkProcessor.process(getSubscription(clientId), publishMsgProto);
+        basicDownLinkProcessor.process(getSubscription(clientId), publishMsgProto, Unpooled.EMPTY_BUFFER);
 
-        verify(publishMsgDeliveryService, times(1)).sendPublishMsgProtoToClient(any(), any(), any());
+        verify(publishMsgDeliveryService, times(1)).sendPublishMsgProtoToClient(any(), any(), any(Subscription.class), any());
         verify(clientMqttActorManager, never()).disconnect(any(), any());
     }
 
@@ -137,12 +139,57 @@ public class BasicDownLinkProcessorImplTest {
         when(clientSessionCtxService.getClientSessionCtx(clientId)).thenReturn(new ClientSessionCtx());
         when(rateLimitService.checkOutgoingLimits(clientId, publishMsgProto)).thenReturn(false);
 
-        basicDownLinkProcessor.process(getSubscription(clientId), publishMsgProto);
+        basicDownLinkProcessor.process(getSubscription(clientId), publishMsgProto, Unpooled.EMPTY_BUFFER);
 
-        verify(publishMsgDeliveryService, never()).sendPublishMsgProtoToClient(any(), any(), any());
+        verify(publishMsgDeliveryService, never()).sendPublishMsgProtoToClient(any(), any(), any(Subscription.class), any());
         verify(clientMqttActorManager, times(1)).disconnect(any(), any());
     }
 
+    @Test
+    public void givenDownLinkTargetAndPublishMsg_whenProcessAndRateLimitsNotReached_thenPublishMsg() {
+        String clientId = "clientId";
+        QueueProtos.PublishMsgProto publishMsgProto = QueueProtos.PublishMsgProto.newBuilder().setQos(1).build();
+        QueueProtos.DownLinkTargetProto target = QueueProtos.DownLinkTargetProto.newBuilder().setClientId(clientId).setQos(1).build();
+
+        when(clientSessionCtxService.getClientSessionCtx(clientId)).thenReturn(new ClientSessionCtx());
+        when(rateLimitService.checkOutgoingLimits(clientId, publishMsgProto)).thenReturn(true);
+
+        basicDownLinkProcessor.process(target, publishMsgProto, Unpooled.EMPTY_BUFFER);
+
+        verify(publishMsgDeliveryService, times(1)).sendPublishMsgProtoToClient(any(), eq(publishMsgProto), eq(target), any());
+        verify(clientMqttActorManager, never()).disconnect(any(), any());
+    }
+
+    @Test
+    public void givenDownLinkTargetWithDowngradedQos_whenProcessAndRateLimitsReached_thenDisconnect() {
+        String clientId = "clientId";
+        QueueProtos.PublishMsgProto publishMsgProto = QueueProtos.PublishMsgProto.newBuilder().setQos(1).build();
+        QueueProtos.DownLinkTargetProto target = QueueProtos.DownLinkTargetProto.newBuilder().setClientId(clientId).setQos(0).build();
+
+        when(clientSessionCtxService.getClientSessionCtx(clientId)).thenReturn(new ClientSessionCtx());
+        when(rateLimitService.checkOutgoingLimits(clientId, publishMsgProto)).thenReturn(true);
+        when(rateLimitService.checkOutgoingLimits(clientId, publishMsgProto.toBuilder().setQos(0).build())).thenReturn(false);
+
+        basicDownLinkProcessor.process(target, publishMsgProto, Unpooled.EMPTY_BUFFER);
+
+        verify(publishMsgDeliveryService, never()).sendPublishMsgProtoToClient(any(), any(), any(QueueProtos.DownLinkTargetProto.class), any());
+        verify(clientMqttActorManager, times(1)).disconnect(eq(clientId), any());
+    }
+
+    @Test
+    public void givenDownLinkTargetAndPublishMsg_whenProcessAndNoSession_thenDoNothing() {
+        String clientId = "clientId";
+        QueueProtos.PublishMsgProto publishMsgProto = QueueProtos.PublishMsgProto.newBuilder().build();
+        QueueProtos.DownLinkTargetProto target = QueueProtos.DownLinkTargetProto.newBuilder().setClientId(clientId).build();
+
+        when(clientSessionCtxService.getClientSessionCtx(clientId)).thenReturn(null);
+
+        basicDownLinkProcessor.process(target, publishMsgProto, Unpooled.EMPTY_BUFFER);
+
+        verify(publishMsgDeliveryService, never()).sendPublishMsgProtoToClient(any(), any(), any(QueueProtos.DownLinkTargetProto.class), any());
+        verify(clientMqttActorManager, never()).disconnect(any(), any());
+    }
+
     private Subscription getSubscription(String clientId) {
         return new Subscription("topic", 1, ClientSessionInfo.builder().clientId(clientId).build());
     }
@@ -0,0 +1,96 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.security.authorization;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+public class AuthRulesMatcherPerformanceTest {
+
+    private static final int CHECKS = 200_000;
+    private static final int TOPICS = 1000;
+    private static final int[] RULE_COUNTS = {5, 20, 50};
+
+    @Ignore("Timing comparison to run manually, the verdicts are covered by AuthRulesMatcherTest")
+    @Test
+    public void testRegexScanVsCompiledRules() {
+        for (int ruleCount : RULE_COUNTS) {
+            List<Pattern> patterns = getPatterns(ruleCount);
+            List<String> topics = getTopics(ruleCount);
+
+            // every rule regex is evaluated until the first match, as it is done without compiled rules
+            long regexNanos = measure(topics, topic -> patterns.stream().anyMatch(pattern -> pattern.matcher(topic).matches()));
+
+            TopicRulesMatcher matcher = new TopicRulesMatcher(patterns);
+            long compiledNanos = measure(topics, matcher::matches);
+
+            System.out.printf("%d rules: regex scan %d ns/check, compiled %d ns/check%n",
+                    ruleCount, regexNanos / CHECKS, compiledNanos / CHECKS);
+        }
+    }
+
+    private long measure(List<String> topics, Predicate<String> check) {
+        for (int i = 0; i < CHECKS; i++) {
+            check.test(topics.get(i % TOPICS));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < CHECKS; i++) {
+            check.test(topics.get(i % TOPICS));
+        }
+        return System.nanoTime() - start;
+    }
+
+    // mostly literal and prefix rules with a few regular expressions, like the rules of typical credentials
+    private List<Pattern> getPatterns(int ruleCount) {
+        List<Pattern> patterns = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            switch (i % 5) {
+                case 0:
+                    patterns.add(Pattern.compile("devices/" + i + "/telemetry"));
+                    break;
+                case 4:
+                    patterns.add(Pattern.compile("gateways/" + i + "/[^/]+/attributes"));
+                    break;
+                default:
+                    patterns.add(Pattern.compile("sensors/" + i + "/.*"));
+            }
+        }
+        return patterns;
+    }
+
+    private List<String> getTopics(int ruleCount) {
+        List<String> topics = new ArrayList<>(TOPICS);
+        for (int i = 0; i < TOPICS; i++) {
+            int rule = i % (ruleCount + 1);
+            switch (rule % 5) {
+                case 0:
+                    topics.add("devices/" + rule + "/telemetry");
+                    break;
+                case 4:
+                    topics.add("gateways/" + rule + "/device" + i + "/attributes");
+                    break;
+                default:
+                    topics.add("sensors/" + rule + "/temperature/" + i);
+            }
+        }
+        return topics;
+    }
+}
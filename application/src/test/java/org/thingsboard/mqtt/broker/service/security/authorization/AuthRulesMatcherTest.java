@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.security.authorization;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+public class AuthRulesMatcherTest {
+
+    @Test
+    public void testLiteralAndPrefixRules() {
+        AuthRulesMatcher matcher = newMatcher(List.of("sensors/temp", "devices/.*"));
+
+        Assert.assertTrue(matcher.isPubAuthorized("sensors/temp"));
+        Assert.assertFalse(matcher.isPubAuthorized("sensors/temp/1"));
+        Assert.assertFalse(matcher.isPubAuthorized("sensors/tem"));
+        Assert.assertTrue(matcher.isPubAuthorized("devices/"));
+        Assert.assertTrue(matcher.isPubAuthorized("devices/1/telemetry"));
+        Assert.assertFalse(matcher.isPubAuthorized("devices"));
+        Assert.assertFalse(matcher.isPubAuthorized("devices/1\n"));
+    }
+
+    @Test
+    public void testMatchAllRule() {
+        AuthRulesMatcher matcher = newMatcher(List.of(".*"));
+
+        Assert.assertTrue(matcher.isPubAuthorized(""));
+        Assert.assertTrue(matcher.isPubAuthorized("any/topic"));
+        Assert.assertFalse(matcher.isPubAuthorized("any\ntopic"));
+    }
+
+    @Test
+    public void testRegexRules() {
+        AuthRulesMatcher matcher = newMatcher(List.of("sensors/[0-9]+/temp", "(a|b)/\\1", ".*abc-123.*", "devices/.*"));
+
+        Assert.assertTrue(matcher.isPubAuthorized("sensors/12/temp"));
+        Assert.assertFalse(matcher.isPubAuthorized("sensors/x/temp"));
+        Assert.assertTrue(matcher.isPubAuthorized("a/a"));
+        Assert.assertFalse(matcher.isPubAuthorized("a/b"));
+        Assert.assertTrue(matcher.isPubAuthorized("123abc-123/1"));
+        Assert.assertTrue(matcher.isPubAuthorized("devices/1"));
+        Assert.assertFalse(matcher.isPubAuthorized("other"));
+    }
+
+    @Test
+    public void testPubAndSubRulesAreSeparate() {
+        AuthRulesMatcher matcher = new AuthRulesMatcher(List.of(
+                new AuthRulePatterns(List.of(Pattern.compile("2/.*")), List.of(Pattern.compile("1/.*"))),
+                AuthRulePatterns.newInstance(List.of())
+        ), 10);
+
+        Assert.assertFalse(matcher.isPubAuthorized("1/"));
+        Assert.assertTrue(matcher.isSubAuthorized("1/123"));
+        Assert.assertTrue(matcher.isPubAuthorized("2/"));
+        Assert.assertFalse(matcher.isSubAuthorized("2/123"));
+    }
+
+    @Test
+    public void testSameVerdictsAsRegexMatching() {
+        List<String> rules = List.of("test/.*", "test/1", "tes", "(?i)upper/.*", "x/[^/]+/y", ".*/end", "a.b", "a\\.c/.*",
+                "ab?c", "ab+/x", "ab{2}", "q|r/.*", "sensors/[0-9]+/temp");
+        List<Pattern> patterns = rules.stream().map(Pattern::compile).collect(Collectors.toList());
+        AuthRulesMatcher matcher = newMatcher(rules);
+
+        List<String> topics = List.of("", "test", "test/", "test/1", "tes", "tesx", "UPPER/1", "upper", "x/1/y", "x/1/2/y",
+                "1/end", "end", "axb", "a.b", "a.c/1", "axc/1", "test/\n", "a.b\n",
+                "a", "ac", "abc", "abbc", "ab/x", "abbb/x", "abb", "abbb", "q", "r/1", "q/1", "sensors/1/temp", "sensors/temp");
+        for (String topic : topics) {
+            boolean expected = patterns.stream().anyMatch(pattern -> pattern.matcher(topic).matches());
+            Assert.assertEquals(topic, expected, matcher.isPubAuthorized(topic));
+        }
+    }
+
+    @Test
+    public void testSameVerdictsAsRegexMatchingForManyRules() {
+        List<Pattern> patterns = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            patterns.add(Pattern.compile("devices/" + i + "/telemetry"));
+            patterns.add(Pattern.compile("sensors/" + i + "/.*"));
+            patterns.add(Pattern.compile("gateways/" + i + "/[^/]+/attributes"));
+        }
+        TopicRulesMatcher matcher = new TopicRulesMatcher(patterns);
+
+        for (int i = 0; i < 60; i++) {
+            for (String topic : List.of("devices/" + i + "/telemetry", "devices/" + i + "/telemetry/1", "sensors/" + i + "/temp",
+                    "sensors/" + i, "gateways/" + i + "/device/attributes", "gateways/" + i + "/a/b/attributes")) {
+                boolean expected = patterns.stream().anyMatch(pattern -> pattern.matcher(topic).matches());
+                Assert.assertEquals(topic, expected, matcher.matches(topic));
+            }
+        }
+    }
+
+    @Test
+    public void testCompiledFrom() {
+        List<AuthRulePatterns> authRulePatterns = List.of(AuthRulePatterns.newInstance(List.of(Pattern.compile("1/.*"))));
+        AuthRulesMatcher matcher = new AuthRulesMatcher(authRulePatterns, 10);
+
+        Assert.assertTrue(matcher.isCompiledFrom(authRulePatterns));
+        Assert.assertFalse(matcher.isCompiledFrom(List.of(AuthRulePatterns.newInstance(List.of(Pattern.compile("1/.*"))))));
+    }
+
+    @Test
+    public void testVerdictCacheIsBounded() {
+        AuthRulesMatcher matcher = newMatcher(List.of("1/.*"), 2);
+
+        Assert.assertTrue(matcher.isPubAuthorized("1/1"));
+        Assert.assertFalse(matcher.isPubAuthorized("2/1"));
+        Assert.assertTrue(matcher.isPubAuthorized("1/2"));
+        Assert.assertTrue(matcher.isPubAuthorized("1/1"));
+        Assert.assertFalse(matcher.isPubAuthorized("2/1"));
+
+        Assert.assertEquals(2, matcher.getPubVerdictsCount());
+    }
+
+    private AuthRulesMatcher newMatcher(List<String> rules) {
+        return newMatcher(rules, 100);
+    }
+
+    private AuthRulesMatcher newMatcher(List<String> rules, int verdictCacheMaxSize) {
+        List<Pattern> patterns = rules.stream().map(Pattern::compile).collect(Collectors.toList());
+        return new AuthRulesMatcher(List.of(AuthRulePatterns.newInstance(patterns)), verdictCacheMaxSize);
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats;
+
+import io.micrometer.core.instrument.Counter;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.common.stats.StatsCounter;
+import org.thingsboard.mqtt.broker.common.stats.StatsFactory;
+import org.thingsboard.mqtt.broker.common.util.ThingsBoardExecutors;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DefaultVirtualThreadStatsTest {
+
+    private DefaultVirtualThreadStats virtualThreadStats;
+
+    @Before
+    public void setUp() {
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        when(statsFactory.createStatsCounter(anyString(), anyString()))
+                .thenAnswer(invocation -> new StatsCounter(new AtomicInteger(), mock(Counter.class), invocation.getArgument(1)));
+        virtualThreadStats = new DefaultVirtualThreadStats(statsFactory);
+    }
+
+    @Test
+    public void givenPinnedEvents_whenGetStats_thenAvgAndMaxCalculated() {
+        virtualThreadStats.logPinned(TimeUnit.MILLISECONDS.toNanos(10));
+        virtualThreadStats.logPinned(TimeUnit.MILLISECONDS.toNanos(30));
+
+        assertEquals(2, virtualThreadStats.getStatsCounters().get(0).get());
+        assertEquals(20.0, virtualThreadStats.getAvgPinnedTimeMs(), 0.001);
+        assertEquals(30.0, virtualThreadStats.getMaxPinnedTimeMs(), 0.001);
+    }
+
+    @Test
+    public void givenPinnedEvents_whenReset_thenStatsCleared() {
+        virtualThreadStats.logPinned(TimeUnit.MILLISECONDS.toNanos(10));
+
+        virtualThreadStats.reset();
+
+        assertEquals(0, virtualThreadStats.getStatsCounters().get(0).get());
+        assertEquals(0.0, virtualThreadStats.getAvgPinnedTimeMs(), 0.001);
+        assertEquals(0.0, virtualThreadStats.getMaxPinnedTimeMs(), 0.001);
+    }
+
+    @Test
+    public void givenVirtualThreadExecutor_whenSubmitTask_thenTaskExecutedOnNamedThread() throws Exception {
+        ExecutorService executor = ThingsBoardExecutors.initCachedExecutorService("virtual-threads-test", true);
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicReference<String> threadName = new AtomicReference<>();
+            executor.execute(() -> {
+                threadName.set(Thread.currentThread().getName());
+                latch.countDown();
+            });
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(threadName.get().startsWith("virtual-threads-test"));
+        } finally {
+            ThingsBoardExecutors.shutdownAndAwaitTermination(executor, "Virtual threads test");
+        }
+    }
+}
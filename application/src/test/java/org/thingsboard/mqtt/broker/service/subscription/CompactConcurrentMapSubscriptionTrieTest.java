@@ -0,0 +1,137 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.mqtt.broker.common.data.subscription.SubscriptionOptions;
+import org.thingsboard.mqtt.broker.common.data.subscription.SubscriptionOptions.RetainHandlingPolicy;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CompactConcurrentMapSubscriptionTrieTest {
+
+    private static final List<String> TOPIC_FILTERS = List.of(
+            "home/+/temperature", "home/livingroom/temperature", "home/#", "#", "+/+", "$SYS/#", "sport/tennis/player1/#");
+    private static final List<String> TOPICS = List.of(
+            "home/livingroom/temperature", "home/kitchen/temperature", "home", "sport", "sport/tennis/player1", "$SYS/broker/uptime");
+
+    private CompactConcurrentMapSubscriptionTrie subscriptionTrie;
+    private AtomicInteger subscriptionCounter;
+
+    @Before
+    public void before() {
+        this.subscriptionCounter = new AtomicInteger(0);
+        this.subscriptionTrie = new CompactConcurrentMapSubscriptionTrie(mockStatsManager(subscriptionCounter), new CompactSubscriptionCodec(0));
+    }
+
+    @Test
+    public void testAttributesAreDecoded() {
+        SubscriptionOptions options = new SubscriptionOptions(true, true, RetainHandlingPolicy.DONT_SEND_AT_SUBSCRIBE);
+        subscriptionTrie.put("a/b", new ClientSubscription("client1", 2, "group", options, 5));
+        subscriptionTrie.put("a/b", new ClientSubscription("client2", 1, null, null));
+        subscriptionTrie.put("a/+", new ClientSubscription("client1", 0, null, SubscriptionOptions.newInstance()));
+
+        Assert.assertEquals(Set.of(
+                        "a/b|client1|2|group|" + options + "|5",
+                        "a/b|client2|1|null|null|-1",
+                        "a/+|client1|0|null|" + SubscriptionOptions.newInstance() + "|-1"),
+                toStrings(subscriptionTrie.get("a/b")));
+        Assert.assertEquals(3, subscriptionCounter.get());
+    }
+
+    @Test
+    public void testReplaceSameClient() {
+        subscriptionTrie.put("a/b", new ClientSubscription("client1", 0, null, SubscriptionOptions.newInstance()));
+        subscriptionTrie.put("a/b", new ClientSubscription("client1", 1, "group", SubscriptionOptions.newInstance(), 3));
+
+        List<ValueWithTopicFilter<ClientSubscription>> result = subscriptionTrie.get("a/b");
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(1, result.get(0).getValue().getQos());
+        Assert.assertEquals("group", result.get(0).getValue().getShareName());
+        Assert.assertEquals(1, subscriptionCounter.get());
+        Assert.assertEquals(1, subscriptionTrie.getClientIdsCount());
+    }
+
+    @Test
+    public void testGrowIntoHashAndShrinkBack() {
+        int clients = CompactClientSubscriptionValues.MAX_ARRAY_SIZE * 10;
+        for (int i = 0; i < clients; i++) {
+            subscriptionTrie.put("a/b", new ClientSubscription("client" + i, i % 3, null, SubscriptionOptions.newInstance()));
+        }
+        subscriptionTrie.put("a/b", new ClientSubscription("client7", 2, null, SubscriptionOptions.newInstance()));
+        Assert.assertEquals(clients, subscriptionTrie.get("a/b").size());
+        Assert.assertEquals(clients, subscriptionCounter.get());
+
+        for (int i = 0; i < clients; i++) {
+            String clientId = "client" + i;
+            Assert.assertTrue(subscriptionTrie.delete("a/b", val -> clientId.equals(val.getClientId())));
+            Assert.assertEquals(clients - i - 1, subscriptionTrie.get("a/b").size());
+        }
+        Assert.assertFalse(subscriptionTrie.delete("a/b", val -> true));
+        Assert.assertEquals(0, subscriptionCounter.get());
+        Assert.assertEquals(0, subscriptionTrie.getClientIdsCount());
+    }
+
+    @Test
+    public void testSameResultsAsConcurrentMapTrie() {
+        ConcurrentMapSubscriptionTrie<ClientSubscription> referenceTrie = new ConcurrentMapSubscriptionTrie<>(mockStatsManager(new AtomicInteger()));
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        for (int i = 0; i < 20_000; i++) {
+            String topicFilter = TOPIC_FILTERS.get(r.nextInt(TOPIC_FILTERS.size()));
+            String clientId = "client" + r.nextInt(100);
+            if (r.nextInt(3) == 0) {
+                boolean deleted = subscriptionTrie.delete(topicFilter, val -> clientId.equals(val.getClientId()));
+                Assert.assertEquals(referenceTrie.delete(topicFilter, val -> clientId.equals(val.getClientId())), deleted);
+            } else {
+                ClientSubscription subscription = new ClientSubscription(clientId, r.nextInt(3),
+                        r.nextBoolean() ? null : "group" + r.nextInt(3),
+                        new SubscriptionOptions(r.nextBoolean(), r.nextBoolean(), RetainHandlingPolicy.valueOf(r.nextInt(3))),
+                        r.nextBoolean() ? -1 : r.nextInt(10));
+                subscriptionTrie.put(topicFilter, subscription);
+                referenceTrie.put(topicFilter, subscription);
+            }
+        }
+        for (String topic : TOPICS) {
+            Assert.assertEquals(toStrings(referenceTrie.get(topic)), toStrings(subscriptionTrie.get(topic)));
+        }
+    }
+
+    private static Set<String> toStrings(List<ValueWithTopicFilter<ClientSubscription>> values) {
+        return values.stream()
+                .map(v -> v.getTopicFilter() + "|" + v.getValue().getClientId() + "|" + v.getValue().getQos() + "|" +
+                        v.getValue().getShareName() + "|" + v.getValue().getOptions() + "|" + v.getValue().getSubscriptionId())
+                .collect(Collectors.toSet());
+    }
+
+    private static StatsManager mockStatsManager(AtomicInteger subscriptionCounter) {
+        StatsManager statsManagerMock = Mockito.mock(StatsManager.class);
+        Mockito.when(statsManagerMock.createSubscriptionSizeCounter()).thenReturn(subscriptionCounter);
+        Mockito.when(statsManagerMock.createSubscriptionTrieNodesCounter()).thenReturn(new AtomicLong());
+        return statsManagerMock;
+    }
+}
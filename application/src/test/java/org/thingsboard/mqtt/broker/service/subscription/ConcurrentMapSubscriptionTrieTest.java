@@ -468,4 +468,42 @@ public class ConcurrentMapSubscriptionTrieTest {
     }
 
 
+    @Test
+    public void testForEachMatchReturnsSameResultAsGet() {
+        subscriptionTrie.put("1/22/3", "test1");
+        subscriptionTrie.put("1/+/3", "test2");
+        subscriptionTrie.put("1/#", "test3");
+        subscriptionTrie.put("1/22/#", "test4");
+        subscriptionTrie.put("#", "test5");
+        subscriptionTrie.put("+/22/+", "test6");
+        subscriptionTrie.put("football/match//", "test7");
+        subscriptionTrie.put("football/match/+/", "test8");
+        subscriptionTrie.put("$SYS/#", "test9");
+        subscriptionTrie.put("+/monitor", "test10");
+        subscriptionTrie.put("/+", "test11");
+
+        for (String topic : List.of("1/22/3", "1/22", "1", "football/match//", "$SYS/monitor", "/finance", "a/b/c/d/e/f/g/h/i/j/k/l/m/n/o/p/q/r")) {
+            Set<ValueWithTopicFilter<String>> visited = new HashSet<>();
+            subscriptionTrie.forEachMatch(topic, (value, topicFilter) -> visited.add(new ValueWithTopicFilter<>(value, topicFilter)));
+            Assert.assertEquals(new HashSet<>(subscriptionTrie.get(topic)), visited);
+        }
+    }
+
+    @Test
+    public void testForEachMatchNestedLookup() {
+        subscriptionTrie.put("home/+/temperature", "sensor1");
+        subscriptionTrie.put("home/kitchen/+", "sensor2");
+        Set<ValueWithTopicFilter<String>> visited = new HashSet<>();
+        subscriptionTrie.forEachMatch("home/kitchen/temperature", (value, topicFilter) -> {
+            visited.add(new ValueWithTopicFilter<>(value, topicFilter));
+            subscriptionTrie.forEachMatch("home/kitchen/humidity", (nestedValue, nestedTopicFilter) ->
+                    Assert.assertEquals("sensor2", nestedValue));
+        });
+        Assert.assertEquals(Set.of(
+                        new ValueWithTopicFilter<>("sensor1", "home/+/temperature"),
+                        new ValueWithTopicFilter<>("sensor2", "home/kitchen/+")
+                ),
+                visited);
+    }
+
 }
@@ -0,0 +1,196 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+public class LockFreeSubscriptionTrieTest {
+
+    private static final List<String> TOPIC_FILTERS = List.of(
+            "home/+/temperature", "home/livingroom/temperature", "home/#", "home/livingroom/#", "#", "+/+",
+            "/+", "/#", "sport/tennis/player1/#", "sport/+", "sport/football//match", "football/match//",
+            "$SYS/#", "$SYS/broker/+", "a/b/c/d/e/f/g", "a/+/c/+/e/+/g", "a/#");
+    private static final List<String> TOPICS = List.of(
+            "home/livingroom/temperature", "home/kitchen/temperature", "home", "/finance", "sport",
+            "sport/tennis/player1", "sport/football//match", "football/match//", "$SYS/broker/uptime",
+            "a/b/c/d/e/f/g", "a/x/c/y/e/z/g");
+
+    private LockFreeSubscriptionTrie<String> subscriptionTrie;
+    private AtomicInteger subscriptionCounter;
+    private AtomicLong nodesCounter;
+
+    @Before
+    public void before() {
+        this.subscriptionCounter = new AtomicInteger(0);
+        this.nodesCounter = new AtomicLong(0);
+        this.subscriptionTrie = new LockFreeSubscriptionTrie<>(mockStatsManager(subscriptionCounter, nodesCounter));
+    }
+
+    @Test
+    public void testSaveSameSessionDifferentTopics() {
+        subscriptionTrie.put("home/+/temperature", "sensor1");
+        subscriptionTrie.put("home/+/temperature", "sensor1");
+        subscriptionTrie.put("home/livingroom/humidity", "sensor1");
+        Assert.assertEquals(1, subscriptionTrie.get("home/livingroom/temperature").size());
+        Assert.assertEquals(1, subscriptionTrie.get("home/livingroom/humidity").size());
+        Assert.assertEquals(2, subscriptionCounter.get());
+    }
+
+    @Test
+    public void testGetWithWildcards() {
+        subscriptionTrie.put("1/22/3", "test1");
+        subscriptionTrie.put("1/+/3", "test2");
+        subscriptionTrie.put("1/#", "test3");
+        subscriptionTrie.put("1/+/4", "test4");
+        subscriptionTrie.put("#", "test5");
+        subscriptionTrie.put("+/22/+", "test6");
+        Assert.assertEquals(Set.of(
+                        new ValueWithTopicFilter<>("test1", "1/22/3"),
+                        new ValueWithTopicFilter<>("test2", "1/+/3"),
+                        new ValueWithTopicFilter<>("test3", "1/#"),
+                        new ValueWithTopicFilter<>("test5", "#"),
+                        new ValueWithTopicFilter<>("test6", "+/22/+")
+                ),
+                new HashSet<>(subscriptionTrie.get("1/22/3")));
+    }
+
+    @Test
+    public void testDeleteRemovesEmptyNodes() {
+        subscriptionTrie.put("a/b/c", "test1");
+        subscriptionTrie.put("a/b", "test2");
+        Assert.assertEquals(3, nodesCounter.get());
+
+        Assert.assertTrue(subscriptionTrie.delete("a/b/c", s -> s.equals("test1")));
+        Assert.assertEquals(2, nodesCounter.get());
+        Assert.assertFalse(subscriptionTrie.delete("a/b/c", s -> s.equals("test1")));
+
+        Assert.assertTrue(subscriptionTrie.delete("a/b", s -> s.equals("test2")));
+        Assert.assertEquals(0, nodesCounter.get());
+        Assert.assertEquals(0, subscriptionCounter.get());
+        Assert.assertTrue(subscriptionTrie.get("a/b").isEmpty());
+
+        subscriptionTrie.put("a/b/c", "test1");
+        Assert.assertEquals(1, subscriptionTrie.get("a/b/c").size());
+    }
+
+    @Test
+    public void testConcurrentChangesGiveSameResultAsConcurrentMapTrie() throws Exception {
+        ConcurrentMapSubscriptionTrie<String> referenceTrie =
+                new ConcurrentMapSubscriptionTrie<>(mockStatsManager(new AtomicInteger(), new AtomicLong()));
+
+        int writers = 8;
+        int operationsPerWriter = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                readers.add(executor.submit(() -> {
+                    await(start);
+                    ThreadLocalRandom r = ThreadLocalRandom.current();
+                    while (writing.get()) {
+                        subscriptionTrie.forEachMatch(TOPICS.get(r.nextInt(TOPICS.size())), (value, topicFilter) -> {
+                            Assert.assertNotNull(value);
+                            Assert.assertNotNull(topicFilter);
+                        });
+                    }
+                }));
+            }
+            List<Future<?>> writerFutures = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                int writerId = i;
+                writerFutures.add(executor.submit(() -> {
+                    await(start);
+                    ThreadLocalRandom r = ThreadLocalRandom.current();
+                    for (int j = 0; j < operationsPerWriter; j++) {
+                        String topicFilter = TOPIC_FILTERS.get(r.nextInt(TOPIC_FILTERS.size()));
+                        // every writer owns its own values, so the final state does not depend on interleaving
+                        String value = "client-" + writerId + "-" + r.nextInt(5);
+                        if (r.nextInt(3) == 0) {
+                            referenceTrie.put(topicFilter, value);
+                            subscriptionTrie.put(topicFilter, value);
+                        } else {
+                            Assert.assertEquals(
+                                    referenceTrie.delete(topicFilter, value::equals),
+                                    subscriptionTrie.delete(topicFilter, value::equals));
+                        }
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : writerFutures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<?> future : readers) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (String topic : TOPICS) {
+            Assert.assertEquals(topic, new HashSet<>(referenceTrie.get(topic)), new HashSet<>(subscriptionTrie.get(topic)));
+        }
+
+        for (String topicFilter : TOPIC_FILTERS) {
+            for (ValueWithTopicFilter<String> value : referenceTrie.get(topicFilter)) {
+                subscriptionTrie.delete(value.getTopicFilter(), value.getValue()::equals);
+            }
+        }
+        Assert.assertEquals(0, subscriptionCounter.get());
+        Assert.assertEquals(0, nodesCounter.get());
+    }
+
+    private static StatsManager mockStatsManager(AtomicInteger subscriptionCounter, AtomicLong nodesCounter) {
+        StatsManager statsManagerMock = Mockito.mock(StatsManager.class);
+        Mockito.when(statsManagerMock.createSubscriptionSizeCounter()).thenReturn(subscriptionCounter);
+        Mockito.when(statsManagerMock.createSubscriptionTrieNodesCounter()).thenReturn(nodesCounter);
+        return statsManagerMock;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.mqtt.broker.service.stats.SubscriptionCacheStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SubscriptionLookupCacheTest {
+
+    SubscriptionCacheStats stats;
+    SubscriptionLookupCache<String> cache;
+    AtomicInteger lookups;
+
+    @Before
+    public void setUp() {
+        stats = mock(SubscriptionCacheStats.class);
+        cache = new SubscriptionLookupCache<>(3, stats);
+        lookups = new AtomicInteger();
+    }
+
+    @Test
+    public void givenCachedTopic_whenGet_thenLookupIsNotRepeated() {
+        cache.get("a/b", this::lookup);
+        List<ValueWithTopicFilter<String>> result = cache.get("a/b", this::lookup);
+
+        Assert.assertEquals(1, lookups.get());
+        Assert.assertEquals(List.of(new ValueWithTopicFilter<>("a/b", "a/b")), result);
+        verify(stats, times(1)).logMiss();
+        verify(stats, times(1)).logHit();
+    }
+
+    @Test
+    public void givenCachedTopics_whenInvalidateWithWildcardFilter_thenOnlyMatchingTopicsEvicted() {
+        cache.get("home/kitchen/temperature", this::lookup);
+        cache.get("home/bedroom/temperature", this::lookup);
+        cache.get("office/kitchen/temperature", this::lookup);
+
+        cache.invalidate("home/+/temperature");
+
+        Assert.assertEquals(1, cache.size());
+        cache.get("office/kitchen/temperature", this::lookup);
+        Assert.assertEquals(3, lookups.get());
+        verify(stats).logInvalidations(2);
+    }
+
+    @Test
+    public void givenCachedTopics_whenInvalidateWithLiteralFilter_thenOnlySameTopicEvicted() {
+        cache.get("home/kitchen", this::lookup);
+        cache.get("home/bedroom", this::lookup);
+
+        cache.invalidate("home/kitchen");
+
+        Assert.assertEquals(1, cache.size());
+        cache.get("home/bedroom", this::lookup);
+        Assert.assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void givenFullCache_whenGetNewTopic_thenSizeIsBounded() {
+        for (int i = 0; i < 10; i++) {
+            cache.get("topic/" + i, this::lookup);
+        }
+        Assert.assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void givenTrieChangedDuringLookup_whenGet_thenResultNotCached() {
+        cache.get("a/b", topic -> {
+            cache.invalidate("a/#");
+            return lookup(topic);
+        });
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testMatches() {
+        Assert.assertTrue(SubscriptionLookupCache.matches("#", "a/b/c"));
+        Assert.assertTrue(SubscriptionLookupCache.matches("a/#", "a"));
+        Assert.assertTrue(SubscriptionLookupCache.matches("a/#", "a/b/c"));
+        Assert.assertTrue(SubscriptionLookupCache.matches("a/+/c", "a/b/c"));
+        Assert.assertTrue(SubscriptionLookupCache.matches("+/+", "/finance"));
+        Assert.assertTrue(SubscriptionLookupCache.matches("sport/+/+", "sport/football/"));
+        Assert.assertTrue(SubscriptionLookupCache.matches("$SYS/#", "$SYS/monitor"));
+        Assert.assertFalse(SubscriptionLookupCache.matches("a/+", "a"));
+        Assert.assertFalse(SubscriptionLookupCache.matches("a/+/c", "a/b/c/d"));
+        Assert.assertFalse(SubscriptionLookupCache.matches("a/b", "a/bb"));
+        Assert.assertFalse(SubscriptionLookupCache.matches("+", "/finance"));
+        Assert.assertFalse(SubscriptionLookupCache.matches("#", "$SYS/monitor"));
+        Assert.assertFalse(SubscriptionLookupCache.matches("+/monitor", "$SYS/monitor"));
+    }
+
+    private List<ValueWithTopicFilter<String>> lookup(String topic) {
+        lookups.incrementAndGet();
+        List<ValueWithTopicFilter<String>> result = new ArrayList<>();
+        result.add(new ValueWithTopicFilter<>(topic, topic));
+        return result;
+    }
+}
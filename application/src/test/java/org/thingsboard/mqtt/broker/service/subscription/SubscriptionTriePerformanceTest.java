@@ -17,6 +17,7 @@ package org.thingsboard.mqtt.broker.service.subscription;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.sun.management.ThreadMXBean;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Before;
@@ -28,8 +29,11 @@ import org.thingsboard.mqtt.broker.common.data.ClientInfo;
 import org.thingsboard.mqtt.broker.common.data.ClientType;
 import org.thingsboard.mqtt.broker.common.data.ConnectionInfo;
 import org.thingsboard.mqtt.broker.common.data.SessionInfo;
+import org.thingsboard.mqtt.broker.common.data.subscription.SubscriptionOptions;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -143,6 +147,86 @@ public class SubscriptionTriePerformanceTest {
         executor.shutdownNow();
     }
 
+    @Test
+    public void testGetVsForEachMatch() {
+        List<Supplier<String>> levelSuppliers = initializeLevelSuppliers();
+
+        List<String> topicFilters = initializeTopicFilters(levelSuppliers);
+        List<String> topics = topicFilters.stream().map(s -> s.replaceAll("[+#]", "test")).toList();
+
+        fillSubscriptionTrie(topicFilters);
+
+        AtomicLong matches = new AtomicLong();
+        for (int i = 0; i < NUMBER_OF_MESSAGES; i++) {
+            String topic = topics.get(i % topics.size());
+            subscriptionTrie.get(topic);
+            subscriptionTrie.forEachMatch(topic, (value, topicFilter) -> matches.incrementAndGet());
+        }
+
+        ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < NUMBER_OF_MESSAGES; i++) {
+            matches.addAndGet(subscriptionTrie.get(topics.get(i % topics.size())).size());
+        }
+        long getTime = System.nanoTime() - startTime;
+        long getAllocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        startTime = System.nanoTime();
+        for (int i = 0; i < NUMBER_OF_MESSAGES; i++) {
+            subscriptionTrie.forEachMatch(topics.get(i % topics.size()), (value, topicFilter) -> matches.incrementAndGet());
+        }
+        long forEachMatchTime = System.nanoTime() - startTime;
+        long forEachMatchAllocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("get: %d ms, %d bytes/lookup; forEachMatch: %d ms, %d bytes/lookup; matches: %d%n",
+                TimeUnit.NANOSECONDS.toMillis(getTime), getAllocated / NUMBER_OF_MESSAGES,
+                TimeUnit.NANOSECONDS.toMillis(forEachMatchTime), forEachMatchAllocated / NUMBER_OF_MESSAGES,
+                matches.get());
+    }
+
+    @Test
+    public void testClientSubscriptionsMemoryFootprint() {
+        List<Supplier<String>> levelSuppliers = initializeLevelSuppliers();
+        List<String> topicFilters = initializeTopicFilters(levelSuppliers);
+        List<String> clientIds = IntStream.range(0, NUMBER_OF_SUBSCRIBERS).mapToObj(i -> UUID.randomUUID().toString()).toList();
+
+        StatsManager statsManagerMock = Mockito.mock(StatsManager.class);
+        Mockito.when(statsManagerMock.createSubscriptionSizeCounter()).thenReturn(new AtomicInteger());
+        Mockito.when(statsManagerMock.createSubscriptionTrieNodesCounter()).thenReturn(new AtomicLong());
+
+        long concurrentMapBytes = measureClientSubscriptionsFootprint(new ConcurrentMapSubscriptionTrie<>(statsManagerMock), topicFilters, clientIds);
+        long compactBytes = measureClientSubscriptionsFootprint(new CompactConcurrentMapSubscriptionTrie(statsManagerMock), topicFilters, clientIds);
+        int subscriptions = NUMBER_OF_SUBSCRIBERS * MAX_SUBSCRIPTIONS_PER_SESSION;
+
+        System.out.printf("CONCURRENT_MAP: %d bytes/subscription; COMPACT: %d bytes/subscription%n",
+                concurrentMapBytes / subscriptions, compactBytes / subscriptions);
+    }
+
+    private long measureClientSubscriptionsFootprint(SubscriptionTrie<ClientSubscription> trie, List<String> topicFilters, List<String> clientIds) {
+        long usedBefore = usedHeap();
+        for (int i = 0; i < clientIds.size(); i++) {
+            for (int j = 0; j < MAX_SUBSCRIPTIONS_PER_SESSION; j++) {
+                String topicFilter = topicFilters.get((i * MAX_SUBSCRIPTIONS_PER_SESSION + j) % topicFilters.size());
+                trie.put(topicFilter, new ClientSubscription(clientIds.get(i), j % 3, null, SubscriptionOptions.newInstance()));
+            }
+        }
+        long usedAfter = usedHeap();
+        Reference.reachabilityFence(trie);
+        return usedAfter - usedBefore;
+    }
+
+    private long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
     private void simulateSubscribers(List<String> topicFilters, CountDownLatch processingPublishers) {
         while (processingPublishers.getCount() > 0) {
             ThreadLocalRandom r = ThreadLocalRandom.current();
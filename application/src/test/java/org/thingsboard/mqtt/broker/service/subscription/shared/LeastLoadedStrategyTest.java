@@ -0,0 +1,103 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription.shared;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.mqtt.broker.common.data.ClientSession;
+import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionCtxService;
+import org.thingsboard.mqtt.broker.service.subscription.Subscription;
+import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
+import org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory.getClientInfo;
+import static org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory.getConnectionInfo;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LeastLoadedStrategyTest {
+
+    @Mock
+    ClientSessionCtxService clientSessionCtxService;
+
+    LeastLoadedStrategy strategy;
+
+    @Before
+    public void setUp() {
+        strategy = new LeastLoadedStrategy(clientSessionCtxService);
+    }
+
+    @Test
+    public void givenMembersWithDifferentLoad_whenSelect_thenLeastLoadedSelected() {
+        mockClientSessionCtx("clientId1", 5, true);
+        mockClientSessionCtx("clientId2", 1, true);
+        mockClientSessionCtx("clientId3", 3, true);
+        List<Subscription> subscriptions = getSubscriptions("clientId1", "clientId2", "clientId3");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("clientId2", strategy.selectLeastLoaded(subscriptions).getClientSessionInfo().getClientId());
+        }
+    }
+
+    @Test
+    public void givenNotWritableMember_whenSelect_thenWritableMemberSelected() {
+        mockClientSessionCtx("clientId1", 0, false);
+        mockClientSessionCtx("clientId2", 10, true);
+        List<Subscription> subscriptions = getSubscriptions("clientId1", "clientId2");
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("clientId2", strategy.selectLeastLoaded(subscriptions).getClientSessionInfo().getClientId());
+        }
+    }
+
+    @Test
+    public void givenIdleMembers_whenSelect_thenMembersSelectedInTurns() {
+        mockClientSessionCtx("clientId1", 0, true);
+        mockClientSessionCtx("clientId2", 0, true);
+        List<Subscription> subscriptions = getSubscriptions("clientId1", "clientId2");
+
+        Set<String> selected = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            selected.add(strategy.selectLeastLoaded(subscriptions).getClientSessionInfo().getClientId());
+        }
+        assertEquals(Set.of("clientId1", "clientId2"), selected);
+    }
+
+    private void mockClientSessionCtx(String clientId, int pendingMsgs, boolean writable) {
+        ClientSessionCtx clientSessionCtx = mock(ClientSessionCtx.class);
+        when(clientSessionCtx.getPendingMsgsCount()).thenReturn(pendingMsgs);
+        when(clientSessionCtx.isWritable()).thenReturn(writable);
+        when(clientSessionCtxService.getClientSessionCtx(clientId)).thenReturn(clientSessionCtx);
+    }
+
+    private List<Subscription> getSubscriptions(String... clientIds) {
+        return Arrays.stream(clientIds)
+                .map(clientId -> Subscription.newInstance("topic", 1, new ClientSession(true, ClientSessionInfoFactory.getSessionInfo(
+                        UUID.randomUUID(), true, "SERVICE_ID", getClientInfo(clientId), getConnectionInfo(1000, 1000), 0))))
+                .toList();
+    }
+}
@@ -25,6 +25,7 @@ import org.thingsboard.mqtt.broker.common.data.ClientSessionInfo;
 import org.thingsboard.mqtt.broker.common.data.subscription.SubscriptionOptions;
 import org.thingsboard.mqtt.broker.common.data.subscription.TopicSubscription;
 import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionCache;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
 
 import java.util.Collection;
@@ -33,7 +34,9 @@ import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -79,6 +82,46 @@ public class SharedSubscriptionCacheServiceImplTest {
         sharedSubscriptionCache.getSharedSubscriptionsMap().clear();
     }
 
+    @Test
+    public void givenSnapshotsDisabled_whenGetSnapshot_thenNull() {
+        sharedSubscriptionCache.put(CLIENT_ID_1, List.of(new TopicSubscription("/test/topic/1", 1, "g1")));
+
+        assertNull(sharedSubscriptionCache.getSnapshot(new TopicSharedSubscription("/test/topic/1", "g1")));
+    }
+
+    @Test
+    public void givenDeviceGroup_whenSessionChanged_thenSnapshotRebuilt() {
+        ReflectionTestUtils.setField(sharedSubscriptionCache, "groupSnapshotsEnabled", true);
+        when(clientSessionInfo1.isAppClient()).thenReturn(false);
+        when(clientSessionInfo2.isAppClient()).thenReturn(false);
+        TopicSharedSubscription key = new TopicSharedSubscription("/test/topic/1", "g1");
+
+        sharedSubscriptionCache.put(CLIENT_ID_1, List.of(new TopicSubscription("/test/topic/1", 1, "g1")));
+        sharedSubscriptionCache.put(CLIENT_ID_2, List.of(new TopicSubscription("/test/topic/1", 1, "g1")));
+
+        SharedSubscriptionGroupSnapshot snapshot = sharedSubscriptionCache.getSnapshot(key);
+        assertSame(snapshot, sharedSubscriptionCache.getSnapshot(key));
+        assertTrue(snapshot.getApplicationSubscriptions().isEmpty());
+        assertEquals(2, snapshot.getDeviceSubscriptions().size());
+        assertEquals(CLIENT_ID_1, snapshot.nextConnectedDeviceSubscription().getClientId());
+        assertEquals(CLIENT_ID_1, snapshot.nextConnectedDeviceSubscription().getClientId());
+
+        when(clientSessionInfo2.isConnected()).thenReturn(true);
+        sharedSubscriptionCache.invalidateClientSnapshots(CLIENT_ID_2);
+
+        SharedSubscriptionGroupSnapshot rebuilt = sharedSubscriptionCache.getSnapshot(key);
+        assertNotSame(snapshot, rebuilt);
+        assertEquals(2, rebuilt.getConnectedDeviceSubscriptions().size());
+        assertFalse(rebuilt.nextConnectedDeviceSubscription().getClientId()
+                .equals(rebuilt.nextConnectedDeviceSubscription().getClientId()));
+
+        sharedSubscriptionCache.remove(CLIENT_ID_1, new TopicSubscription("/test/topic/1", 1, "g1"));
+
+        SharedSubscriptionGroupSnapshot afterRemove = sharedSubscriptionCache.getSnapshot(key);
+        assertEquals(1, afterRemove.getDeviceSubscriptions().size());
+        assertEquals(CLIENT_ID_2, afterRemove.nextConnectedDeviceSubscription().getClientId());
+    }
+
     @Test
     public void givenNonSharedSubscriptions_whenPutSubscriptions_thenNothingAdded() {
         sharedSubscriptionCache.put(CLIENT_ID_1, List.of(
@@ -26,11 +26,15 @@ import org.thingsboard.mqtt.broker.common.data.SessionInfo;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
 import org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory.getClientInfo;
 import static org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory.getConnectionInfo;
@@ -68,6 +72,56 @@ public class SharedSubscriptionProcessorImplTest {
         Assert.assertEquals(subscription2, subscription4);
     }
 
+    @Test
+    public void testSnapshotRoundRobinSelectsSameSubscriptionsAsIterator() {
+        ClientSession clientSession1 = new ClientSession(false, getSessionInfo(UUID.randomUUID(), "clientId1"));
+        ClientSession clientSession2 = new ClientSession(true, getSessionInfo(UUID.randomUUID(), "clientId2"));
+        ClientSession clientSession3 = new ClientSession(true, getSessionInfo(UUID.randomUUID(), "clientId3"));
+        List<Subscription> subscriptions = getSubscriptions(clientSession1, clientSession2, clientSession3);
+
+        SharedSubscription sharedSubscription = getSharedSubscription(subscriptions);
+        SharedSubscriptionGroupSnapshot snapshot = new SharedSubscriptionGroupSnapshot(
+                newTopicAndGroup(), 1, Set.of(), subscriptions, new AtomicInteger());
+
+        for (int i = 0; i < 6; i++) {
+            Subscription expected = subscriptionProcessor.processRoundRobin(sharedSubscription);
+            Subscription actual = snapshot.nextConnectedDeviceSubscription();
+            Assert.assertEquals(expected, actual);
+            Assert.assertTrue(actual.getClientSessionInfo().isConnected());
+        }
+    }
+
+    @Test
+    public void testProcessConsistentHash() {
+        subscriptionProcessor.setVirtualNodes(100);
+        TopicSharedSubscription topicSharedSubscription = newTopicAndGroup();
+        List<Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            subscriptions.add(Subscription.newInstance("topic", 1,
+                    new ClientSession(true, getSessionInfo(UUID.randomUUID(), "clientId" + i))));
+        }
+
+        Map<String, Subscription> selected = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            String key = "publisher" + i;
+            Subscription subscription = subscriptionProcessor.processConsistentHash(topicSharedSubscription, subscriptions, key);
+            selected.put(key, subscription);
+            Assert.assertEquals(subscription, subscriptionProcessor.processConsistentHash(topicSharedSubscription, subscriptions, key));
+        }
+        Assert.assertEquals(new HashSet<>(subscriptions), new HashSet<>(selected.values()));
+
+        Subscription removed = subscriptions.get(4);
+        List<Subscription> remaining = List.copyOf(subscriptions.subList(0, 4));
+        selected.forEach((key, subscription) -> {
+            Subscription afterRemove = subscriptionProcessor.processConsistentHash(topicSharedSubscription, remaining, key);
+            if (!subscription.equals(removed)) {
+                Assert.assertEquals(subscription, afterRemove);
+            } else {
+                Assert.assertTrue(remaining.contains(afterRemove));
+            }
+        });
+    }
+
     @Test
     public void testObjectsEquals() {
         Assert.assertEquals(newTopicAndGroup(), newTopicAndGroup());
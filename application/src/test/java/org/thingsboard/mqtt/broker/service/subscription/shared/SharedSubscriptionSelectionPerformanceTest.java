@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.subscription.shared;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.common.data.ClientSession;
+import org.thingsboard.mqtt.broker.service.subscription.Subscription;
+import org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory.getClientInfo;
+import static org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory.getConnectionInfo;
+
+public class SharedSubscriptionSelectionPerformanceTest {
+
+    private static final int SELECTIONS = 1_000_000;
+    private static final int[] GROUP_SIZES = {2, 100, 5000};
+
+    private final TopicSharedSubscription key = new TopicSharedSubscription("test/topic", "group");
+
+    @Ignore("Timing comparison to run manually, the selection itself is covered by SharedSubscriptionProcessorImplTest")
+    @Test
+    public void testIteratorVsSnapshotRoundRobin() {
+        for (int groupSize : GROUP_SIZES) {
+            List<Subscription> subscriptions = getSubscriptions(groupSize);
+            int selections = Math.max(10_000, SELECTIONS / groupSize);
+
+            SharedSubscriptionProcessorImpl processor = new SharedSubscriptionProcessorImpl();
+            // the group is regrouped on every message and compared with the cached one, as it was done before snapshots
+            long iteratorNanos = measure(selections, () ->
+                    processor.processRoundRobin(new SharedSubscription(key, new ArrayList<>(subscriptions))));
+
+            SharedSubscriptionGroupSnapshot snapshot = new SharedSubscriptionGroupSnapshot(key, 1, Set.of(), subscriptions, new AtomicInteger());
+            long snapshotNanos = measure(selections, snapshot::nextConnectedDeviceSubscription);
+
+            System.out.printf("group of %d: iterator %d ns/selection, snapshot %d ns/selection%n",
+                    groupSize, iteratorNanos / selections, snapshotNanos / selections);
+        }
+    }
+
+    private long measure(int selections, Runnable selection) {
+        for (int i = 0; i < selections; i++) {
+            selection.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < selections; i++) {
+            selection.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private List<Subscription> getSubscriptions(int groupSize) {
+        List<Subscription> subscriptions = new ArrayList<>(groupSize);
+        for (int i = 0; i < groupSize; i++) {
+            ClientSession clientSession = new ClientSession(true, ClientSessionInfoFactory.getSessionInfo(
+                    UUID.randomUUID(), true, "SERVICE_ID", getClientInfo("client" + i), getConnectionInfo(1000, 1000), 0));
+            subscriptions.add(Subscription.newInstance("test/topic", 1, clientSession));
+        }
+        return subscriptions;
+    }
+}
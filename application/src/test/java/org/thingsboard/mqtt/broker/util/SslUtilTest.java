@@ -0,0 +1,50 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.util;
+
+import org.junit.Test;
+
+import javax.net.ssl.SSLSession;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SslUtilTest {
+
+    @Test
+    public void givenX509CertificateArray_whenGetPeerCertificates_thenSameArrayReturned() throws Exception {
+        X509Certificate[] certificates = {mock(X509Certificate.class), mock(X509Certificate.class)};
+        SSLSession session = mock(SSLSession.class);
+        when(session.getPeerCertificates()).thenReturn(certificates);
+
+        assertThat(SslUtil.getPeerCertificates(session)).isSameAs(certificates);
+    }
+
+    @Test
+    public void givenCertificateArrayOfX509Certificates_whenGetPeerCertificates_thenChainIsReturnedInSameOrder() throws Exception {
+        X509Certificate clientCertificate = mock(X509Certificate.class);
+        X509Certificate caCertificate = mock(X509Certificate.class);
+        Certificate[] certificates = {clientCertificate, caCertificate};
+        SSLSession session = mock(SSLSession.class);
+        when(session.getPeerCertificates()).thenReturn(certificates);
+
+        assertThat(SslUtil.getPeerCertificates(session)).containsExactly(clientCertificate, caCertificate);
+    }
+
+}
@@ -38,4 +38,10 @@ public interface TbActorCtx extends TbActorRef {
     void broadcastToChildren(TbActorMsg msg, Predicate<TbActorId> childFilter);
 
     List<TbActorId> filterChildren(Predicate<TbActorId> childFilter);
+
+    /**
+     * Binds the mailbox to the given executor: the messages accepted by the filter are processed on it,
+     * the rest are handed over to the dispatcher of the actor keeping the order. Null executor unbinds the mailbox.
+     */
+    void bindToExecutor(AffinityExecutor executor, Predicate<TbActorMsg> msgFilter);
 }
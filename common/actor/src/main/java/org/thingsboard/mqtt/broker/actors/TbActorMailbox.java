@@ -15,12 +15,18 @@
  */
 package org.thingsboard.mqtt.broker.actors;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.jctools.queues.MpscUnboundedArrayQueue;
 import org.thingsboard.mqtt.broker.actors.msg.TbActorMsg;
 
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
@@ -45,8 +51,8 @@ public final class TbActorMailbox implements TbActorCtx {
     private final TbActorRef parentRef;
     private final TbActor actor;
     private final Dispatcher dispatcher;
-    private final ConcurrentLinkedQueue<TbActorMsg> highPriorityMsgs = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<TbActorMsg> normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+    private final Queue<TbActorMsg> highPriorityMsgs = new ConcurrentLinkedQueue<>();
+    private final Queue<TbActorMsg> normalPriorityMsgs;
     private final AtomicBoolean busy = new AtomicBoolean(FREE);
     private final AtomicBoolean ready = new AtomicBoolean(NOT_READY);
     private final AtomicBoolean destroyInProgress = new AtomicBoolean();
@@ -54,6 +60,39 @@ public final class TbActorMailbox implements TbActorCtx {
     private final boolean isTraceEnabled = log.isTraceEnabled();
     private final boolean isDebugEnabled = log.isDebugEnabled();
 
+    private static final ThreadLocal<Boolean> PROCESSING_ON_AFFINITY_EXECUTOR = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    // accessed only by the thread that holds the 'busy' flag
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int throughputBudget;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Affinity affinity;
+
+    public TbActorMailbox(TbActorSystem system, TbActorSystemSettings settings, TbActorId selfId, TbActorRef parentRef,
+                          TbActor actor, Dispatcher dispatcher) {
+        this.system = system;
+        this.settings = settings;
+        this.selfId = selfId;
+        this.parentRef = parentRef;
+        this.actor = actor;
+        this.dispatcher = dispatcher;
+        this.normalPriorityMsgs = newNormalPriorityMsgQueue(settings);
+        this.throughputBudget = settings.getActorThroughput();
+    }
+
+    /**
+     * High priority messages are rare, so only the normal priority queue is replaced with the chunked MPSC queue
+     * to keep the footprint of idle actors small.
+     */
+    private static Queue<TbActorMsg> newNormalPriorityMsgQueue(TbActorSystemSettings settings) {
+        if (settings.isMpscMailboxEnabled()) {
+            return new MpscUnboundedArrayQueue<>(Math.max(2, settings.getMailboxChunkSize()));
+        }
+        return new ConcurrentLinkedQueue<>();
+    }
+
     public void initActor() {
         dispatcher.getExecutor().execute(() -> tryInit(1));
     }
@@ -112,7 +151,7 @@ public final class TbActorMailbox implements TbActorCtx {
         if (ready.get() == READY) {
             if (newMsg || !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty()) {
                 if (busy.compareAndSet(FREE, BUSY)) {
-                    dispatcher.getExecutor().execute(this::processMailbox);
+                    scheduleProcessing();
                 } else {
                     if (isTraceEnabled) {
                         log.trace("[{}] MessageBox is busy, new msg: {}", selfId, newMsg);
@@ -130,38 +169,184 @@ public final class TbActorMailbox implements TbActorCtx {
         }
     }
 
+    /**
+     * Processes the mailbox right away when the message is enqueued on the thread of the affinity executor
+     * (e.g. by the channel handler running on the event loop), unless another mailbox is already processed on it.
+     */
+    private void scheduleProcessing() {
+        Affinity affinity = this.affinity;
+        if (affinity != null && affinity.executor().inExecutorThread() && !PROCESSING_ON_AFFINITY_EXECUTOR.get()) {
+            processMailbox();
+        } else {
+            execute(this::processMailbox);
+        }
+    }
+
+    private void execute(Runnable task) {
+        Affinity affinity = this.affinity;
+        if (affinity != null) {
+            try {
+                affinity.executor().execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                if (isDebugEnabled) {
+                    log.debug("[{}] Affinity executor rejected the task, falling back to the dispatcher", selfId);
+                }
+                this.affinity = null;
+            }
+        }
+        dispatcher.getExecutor().execute(task);
+    }
+
     private void processMailbox() {
+        Affinity affinity = this.affinity;
+        if (affinity == null || !affinity.executor().inExecutorThread()) {
+            processMailbox(null);
+            return;
+        }
+        PROCESSING_ON_AFFINITY_EXECUTOR.set(Boolean.TRUE);
+        try {
+            processMailbox(affinity.msgFilter());
+        } finally {
+            PROCESSING_ON_AFFINITY_EXECUTOR.set(Boolean.FALSE);
+        }
+    }
+
+    /**
+     * @param affinityMsgFilter not null when running on the affinity executor; the first message not accepted by it
+     *                          and the rest of the mailbox are processed on the dispatcher
+     */
+    private void processMailbox(Predicate<TbActorMsg> affinityMsgFilter) {
+        if (settings.isMpscMailboxEnabled()) {
+            processMailboxToCompletion(affinityMsgFilter);
+            return;
+        }
         boolean noMoreElements = false;
         for (int i = 0; i < settings.getActorThroughput(); i++) {
-            TbActorMsg msg = highPriorityMsgs.poll();
-            if (msg == null) {
-                msg = normalPriorityMsgs.poll();
+            if (destroyInProgress.get()) {
+                drainOnDestroy();
+                return;
             }
+            TbActorMsg msg = pollMsg();
             if (msg != null) {
-                try {
-                    if (isDebugEnabled) {
-                        log.debug("[{}] Going to process message: {}", selfId, msg);
-                    }
-                    actor.process(msg);
-                } catch (Throwable t) {
-                    if (isDebugEnabled) {
-                        log.debug("[{}] Failed to process message: {}", selfId, msg, t);
-                    }
-                    ProcessFailureStrategy strategy = actor.onProcessFailure(t);
-                    if (strategy.isStop()) {
-                        system.stop(selfId);
-                    }
+                if (affinityMsgFilter != null && !affinityMsgFilter.test(msg)) {
+                    processOnDispatcher(msg);
+                    return;
                 }
+                processMsg(msg);
             } else {
                 noMoreElements = true;
                 break;
             }
         }
         if (noMoreElements) {
-            busy.set(FREE);
-            dispatcher.getExecutor().execute(() -> tryProcessQueue(false));
+            if (releaseBusy()) {
+                return;
+            }
+            execute(() -> tryProcessQueue(false));
         } else {
-            dispatcher.getExecutor().execute(this::processMailbox);
+            execute(this::processMailbox);
+        }
+    }
+
+    /**
+     * Processes messages until the mailbox is drained, re-checking the queues after releasing the 'busy' flag
+     * instead of scheduling one more task, so that messages enqueued concurrently are picked up without an executor hop.
+     * The mailbox yields the thread only when the throughput budget is spent and there are still messages;
+     * in that case the budget is doubled up to the max throughput, and it is reset once the mailbox is drained.
+     */
+    private void processMailboxToCompletion(Predicate<TbActorMsg> affinityMsgFilter) {
+        int budget = throughputBudget;
+        int processed = 0;
+        while (true) {
+            if (destroyInProgress.get()) {
+                drainOnDestroy();
+                return;
+            }
+            if (processed >= budget && hasMsgs()) {
+                throughputBudget = Math.min(budget * 2, settings.getMaxActorThroughput());
+                execute(this::processMailbox);
+                return;
+            }
+            TbActorMsg msg = pollMsg();
+            if (msg != null) {
+                if (affinityMsgFilter != null && !affinityMsgFilter.test(msg)) {
+                    processOnDispatcher(msg);
+                    return;
+                }
+                processMsg(msg);
+                processed++;
+            } else {
+                throughputBudget = settings.getActorThroughput();
+                if (releaseBusy()) {
+                    return;
+                }
+                // a message enqueued after the last poll may have found the mailbox busy, so it is processed here
+                if (ready.get() != READY || !hasMsgs() || !busy.compareAndSet(FREE, BUSY)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // the mailbox stays busy, so the order of the messages is kept
+    private void processOnDispatcher(TbActorMsg msg) {
+        dispatcher.getExecutor().execute(() -> {
+            processMsg(msg);
+            processMailbox(null);
+        });
+    }
+
+    /**
+     * @return true if the mailbox is being destroyed and the messages left were drained by this thread instead
+     */
+    private boolean releaseBusy() {
+        busy.set(FREE);
+        if (destroyInProgress.get() && busy.compareAndSet(FREE, BUSY)) {
+            drainOnDestroy();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Must be called only by the thread that holds the 'busy' flag, since the MPSC queue allows a single consumer.
+     * The flag is never released afterwards, so the mailbox is not processed anymore.
+     */
+    private void drainOnDestroy() {
+        TbActorMsg msg;
+        while ((msg = pollMsg()) != null) {
+            try {
+                msg.onTbActorStopped(selfId);
+            } catch (Throwable t) {
+                log.warn("[{}] Failed to notify msg about actor stop: {}", selfId, msg, t);
+            }
+        }
+    }
+
+    private TbActorMsg pollMsg() {
+        TbActorMsg msg = highPriorityMsgs.poll();
+        return msg != null ? msg : normalPriorityMsgs.poll();
+    }
+
+    private boolean hasMsgs() {
+        return !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty();
+    }
+
+    private void processMsg(TbActorMsg msg) {
+        try {
+            if (isDebugEnabled) {
+                log.debug("[{}] Going to process message: {}", selfId, msg);
+            }
+            actor.process(msg);
+        } catch (Throwable t) {
+            if (isDebugEnabled) {
+                log.debug("[{}] Failed to process message: {}", selfId, msg, t);
+            }
+            ProcessFailureStrategy strategy = actor.onProcessFailure(t);
+            if (strategy.isStop()) {
+                system.stop(selfId);
+            }
         }
     }
 
@@ -205,17 +390,25 @@ public final class TbActorMailbox implements TbActorCtx {
         }
     }
 
+    @Override
+    public void bindToExecutor(AffinityExecutor executor, Predicate<TbActorMsg> msgFilter) {
+        this.affinity = executor != null ? new Affinity(executor, msgFilter) : null;
+    }
+
     public void destroy() {
         destroyInProgress.set(true);
+        affinity = null;
         dispatcher.getExecutor().execute(() -> {
             try {
                 ready.set(NOT_READY);
                 actor.destroy();
-                highPriorityMsgs.forEach(msg -> msg.onTbActorStopped(selfId));
-                normalPriorityMsgs.forEach(msg -> msg.onTbActorStopped(selfId));
             } catch (Throwable t) {
                 log.warn("[{}] Failed to destroy actor", selfId, t);
             }
+            // if the mailbox is being processed, the processing thread drains it once it sees the destroy flag
+            if (busy.compareAndSet(FREE, BUSY)) {
+                drainOnDestroy();
+            }
         });
     }
 
@@ -234,4 +427,7 @@ public final class TbActorMailbox implements TbActorCtx {
         enqueue(actorMsg, HIGH_PRIORITY);
     }
 
+    private record Affinity(AffinityExecutor executor, Predicate<TbActorMsg> msgFilter) {
+    }
+
 }
@@ -23,5 +23,22 @@ public class TbActorSystemSettings {
     private final int actorThroughput;
     private final int schedulerPoolSize;
     private final int maxActorInitAttempts;
+    private final boolean mpscMailboxEnabled;
+    private final int mailboxChunkSize;
+    private final int maxActorThroughput;
+
+    public TbActorSystemSettings(int actorThroughput, int schedulerPoolSize, int maxActorInitAttempts) {
+        this(actorThroughput, schedulerPoolSize, maxActorInitAttempts, false, 0, actorThroughput);
+    }
+
+    public TbActorSystemSettings(int actorThroughput, int schedulerPoolSize, int maxActorInitAttempts,
+                                 boolean mpscMailboxEnabled, int mailboxChunkSize, int maxActorThroughput) {
+        this.actorThroughput = actorThroughput;
+        this.schedulerPoolSize = schedulerPoolSize;
+        this.maxActorInitAttempts = maxActorInitAttempts;
+        this.mpscMailboxEnabled = mpscMailboxEnabled;
+        this.mailboxChunkSize = mailboxChunkSize;
+        this.maxActorThroughput = Math.max(actorThroughput, maxActorThroughput);
+    }
 
 }
@@ -21,5 +21,11 @@ import lombok.Data;
 public class CacheSpecs {
 
     private Integer timeToLiveInMinutes;
+    private Integer localTimeToLiveInSeconds;
+    private Integer localMaxSize;
+
+    public boolean isNearCacheEnabled() {
+        return localMaxSize != null && localMaxSize > 0;
+    }
 
 }
@@ -28,6 +28,8 @@ import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactor
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -78,6 +80,16 @@ public class ClusterAwareLettuceConnectionManager extends AbstractLettuceConnect
         return evalshaFuture;
     }
 
+    @Override
+    public <T> List<RedisFuture<T>> evalShaBatchAsync(String sha, ScriptOutputType outputType, List<byte[][]> keys, List<byte[][]> values) {
+        List<RedisFuture<T>> evalshaFutures = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            evalshaFutures.add(connection.async().evalsha(sha, outputType, keys.get(i), values.get(i)));
+        }
+        forceFlush();
+        return evalshaFutures;
+    }
+
     @Override
     public <T> RedisFuture<T> evalAsync(String script, ScriptOutputType outputType, byte[][] keys, byte[]... values) {
         RedisFuture<T> evalFuture = connection.async().eval(script, outputType, keys, values);
@@ -19,6 +19,8 @@ package org.thingsboard.mqtt.broker.cache;
 import io.lettuce.core.RedisFuture;
 import io.lettuce.core.ScriptOutputType;
 
+import java.util.List;
+
 public interface LettuceConnectionManager {
 
     String scriptLoad(String script);
@@ -29,6 +31,11 @@ public interface LettuceConnectionManager {
 
     <T> RedisFuture<T> evalShaAsync(String sha, ScriptOutputType outputType, byte[]... keys);
 
+    /**
+     * Issues one EVALSHA per keys/values pair without flushing in between and flushes the buffered commands once at the end.
+     */
+    <T> List<RedisFuture<T>> evalShaBatchAsync(String sha, ScriptOutputType outputType, List<byte[][]> keys, List<byte[][]> values);
+
     <T> RedisFuture<T> evalAsync(String script, ScriptOutputType outputType, byte[][] keys, byte[]... values);
 
     <T> RedisFuture<T> evalAsync(String script, ScriptOutputType outputType, byte[]... keys);
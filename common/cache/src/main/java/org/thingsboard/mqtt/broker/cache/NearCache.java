@@ -0,0 +1,263 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.cache;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded in-process cache (L1) in front of the Redis cache (L2).
+ * Every change of the cache is published to the other nodes, that drop the changed key from their L1.
+ * Evictions and puts done inside a transaction reach L1 and the other nodes after the commit, same as they reach Redis.
+ */
+@Slf4j
+public class NearCache implements Cache {
+
+    @Getter
+    private final Cache remoteCache;
+    private final long localTtlMs;
+    private final int localMaxSize;
+    private final BiConsumer<String, String> invalidationPublisher;
+
+    private final ConcurrentMap<String, LocalEntry> localCache = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder localMisses = new LongAdder();
+
+    /**
+     * @param invalidationPublisher publishes the cache name and the changed key, or the cache name and null when the whole cache is cleared
+     */
+    public NearCache(Cache remoteCache, long localTtlMs, int localMaxSize, BiConsumer<String, String> invalidationPublisher) {
+        this.remoteCache = remoteCache;
+        this.localTtlMs = localTtlMs;
+        this.localMaxSize = localMaxSize;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return remoteCache.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remoteCache.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = toLocalKey(key);
+        ValueWrapper localValue = getLocal(localKey);
+        if (localValue != null) {
+            return localValue;
+        }
+        ValueWrapper remoteValue = remoteCache.get(key);
+        if (remoteValue != null) {
+            putLocal(localKey, remoteValue);
+        }
+        return remoteValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper valueWrapper = get(key);
+        if (valueWrapper == null) {
+            return null;
+        }
+        Object value = valueWrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = toLocalKey(key);
+        ValueWrapper localValue = getLocal(localKey);
+        if (localValue != null) {
+            return (T) localValue.get();
+        }
+        T value = remoteCache.get(key, valueLoader);
+        putLocal(localKey, new SimpleValueWrapper(value));
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remoteCache.put(key, value);
+        String localKey = toLocalKey(key);
+        localCache.remove(localKey);
+        afterCommit(() -> {
+            putLocal(localKey, new SimpleValueWrapper(value));
+            invalidationPublisher.accept(getName(), localKey);
+        });
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existingValue = remoteCache.putIfAbsent(key, value);
+        evictLocalAndPublish(toLocalKey(key));
+        return existingValue;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remoteCache.evict(key);
+        String localKey = toLocalKey(key);
+        localCache.remove(localKey);
+        afterCommit(() -> evictLocalAndPublish(localKey));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = remoteCache.evictIfPresent(key);
+        evictLocalAndPublish(toLocalKey(key));
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        remoteCache.clear();
+        localCache.clear();
+        afterCommit(this::clearLocalAndPublish);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = remoteCache.invalidate();
+        clearLocalAndPublish();
+        return invalidated;
+    }
+
+    public void evictLocal(String localKey) {
+        localCache.remove(localKey);
+    }
+
+    public void clearLocal() {
+        localCache.clear();
+    }
+
+    public int getLocalSize() {
+        return localCache.size();
+    }
+
+    public long getLocalHits() {
+        return localHits.sum();
+    }
+
+    public long getLocalMisses() {
+        return localMisses.sum();
+    }
+
+    public void clearLocalStatistics() {
+        localHits.reset();
+        localMisses.reset();
+    }
+
+    private ValueWrapper getLocal(String localKey) {
+        LocalEntry entry = localCache.get(localKey);
+        if (entry != null) {
+            if (!entry.isExpired(System.currentTimeMillis())) {
+                localHits.increment();
+                return entry.value();
+            }
+            localCache.remove(localKey, entry);
+        }
+        localMisses.increment();
+        return null;
+    }
+
+    private void putLocal(String localKey, ValueWrapper value) {
+        if (localCache.size() >= localMaxSize) {
+            evictLocalEntries();
+        }
+        long expirationTime = localTtlMs > 0 ? System.currentTimeMillis() + localTtlMs : Long.MAX_VALUE;
+        localCache.put(localKey, new LocalEntry(value, expirationTime));
+    }
+
+    /**
+     * Drops the expired entries and, if L1 is still full, arbitrary entries until a tenth of L1 is free.
+     * Only one thread evicts at a time, the others keep putting, so L1 can exceed its size for a short time.
+     */
+    private void evictLocalEntries() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            localCache.values().removeIf(entry -> entry.isExpired(now));
+            int targetSize = localMaxSize - Math.max(1, localMaxSize / 10);
+            Iterator<String> iterator = localCache.keySet().iterator();
+            while (localCache.size() > targetSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void evictLocalAndPublish(String localKey) {
+        localCache.remove(localKey);
+        invalidationPublisher.accept(getName(), localKey);
+    }
+
+    private void clearLocalAndPublish() {
+        localCache.clear();
+        invalidationPublisher.accept(getName(), null);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private String toLocalKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    private record LocalEntry(ValueWrapper value, long expirationTime) {
+
+        boolean isExpired(long now) {
+            return now >= expirationTime;
+        }
+
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Wraps the caches that have L1 settings in their specs into {@link NearCache}, the other caches are returned as they are.
+ * Changes made on this node are published as "nodeId|cacheName|key" messages (without the key when the whole cache is cleared),
+ * the messages from the other nodes drop the changed keys from L1.
+ */
+@Slf4j
+public class NearCacheManager implements CacheManager {
+
+    private static final String SEPARATOR = "|";
+
+    private final CacheManager remoteCacheManager;
+    private final Map<String, CacheSpecs> cacheSpecs;
+    private final Consumer<String> messagePublisher;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public NearCacheManager(CacheManager remoteCacheManager, Map<String, CacheSpecs> cacheSpecs, Consumer<String> messagePublisher) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.cacheSpecs = cacheSpecs;
+        this.messagePublisher = messagePublisher;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remoteCache = remoteCacheManager.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, cacheName -> createCache(cacheName, remoteCache));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remoteCacheManager.getCacheNames();
+    }
+
+    public void onInvalidationMsg(String msg) {
+        String[] parts = msg.split("\\" + SEPARATOR, 3);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        if (caches.get(parts[1]) instanceof NearCache nearCache) {
+            if (parts.length == 3) {
+                nearCache.evictLocal(parts[2]);
+            } else {
+                nearCache.clearLocal();
+            }
+        }
+    }
+
+    private Cache createCache(String cacheName, Cache remoteCache) {
+        CacheSpecs specs = cacheSpecs.get(cacheName);
+        if (specs == null || !specs.isNearCacheEnabled()) {
+            return remoteCache;
+        }
+        log.info("[{}] Using near cache with L1 TTL {} sec and L1 max size {}", cacheName, specs.getLocalTimeToLiveInSeconds(), specs.getLocalMaxSize());
+        long localTtlMs = specs.getLocalTimeToLiveInSeconds() == null ? 0 : specs.getLocalTimeToLiveInSeconds() * 1000L;
+        return new NearCache(remoteCache, localTtlMs, specs.getLocalMaxSize(), this::publishInvalidation);
+    }
+
+    private void publishInvalidation(String cacheName, String key) {
+        String msg = key == null ? nodeId + SEPARATOR + cacheName : nodeId + SEPARATOR + cacheName + SEPARATOR + key;
+        try {
+            messagePublisher.accept(msg);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to publish near cache invalidation for key [{}]", cacheName, key, e);
+        }
+    }
+}
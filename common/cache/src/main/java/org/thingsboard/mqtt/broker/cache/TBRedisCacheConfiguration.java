@@ -23,6 +23,7 @@ import io.lettuce.core.TimeoutOptions;
 import lombok.Data;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -35,6 +36,8 @@ import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.format.support.DefaultFormattingConversionService;
 import org.thingsboard.mqtt.broker.common.data.BrokerConstants;
@@ -44,6 +47,7 @@ import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.UnifiedJedis;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -97,6 +101,12 @@ public abstract class TBRedisCacheConfiguration<C extends RedisConfiguration> {
     @Value("${cache.stats.enabled:true}")
     private boolean cacheStatsEnabled;
 
+    @Value("${cache.near-cache.enabled:false}")
+    private boolean nearCacheEnabled;
+
+    @Value("${cache.near-cache.invalidation-channel:nearCacheInvalidation}")
+    private String nearCacheInvalidationChannel;
+
     @Bean
     public JedisConnectionFactory jedisConnectionFactory() {
         return loadFactory();
@@ -154,7 +164,31 @@ public abstract class TBRedisCacheConfiguration<C extends RedisConfiguration> {
         if (cacheStatsEnabled) {
             redisCacheManagerBuilder.enableStatistics();
         }
-        return redisCacheManagerBuilder.build();
+        RedisCacheManager redisCacheManager = redisCacheManagerBuilder.build();
+        if (!nearCacheEnabled) {
+            return redisCacheManager;
+        }
+        // the wrapped manager is not a bean, so its caches are initialized here
+        redisCacheManager.initializeCaches();
+        String channel = getNearCacheInvalidationChannel();
+        return new NearCacheManager(redisCacheManager, cacheSpecsMap == null ? Map.of() : cacheSpecsMap.getCacheSpecs(),
+                msg -> redisTemplate().convertAndSend(channel, msg));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "cache.near-cache", value = "enabled", havingValue = "true")
+    public RedisMessageListenerContainer nearCacheInvalidationListenerContainer(JedisConnectionFactory cf, CacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(cf);
+        if (cacheManager instanceof NearCacheManager nearCacheManager) {
+            container.addMessageListener((message, pattern) -> nearCacheManager.onInvalidationMsg(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(getNearCacheInvalidationChannel()));
+        }
+        return container;
+    }
+
+    private String getNearCacheInvalidationChannel() {
+        return (cacheSpecsMap == null ? "" : cacheSpecsMap.getCachePrefix()) + nearCacheInvalidationChannel;
     }
 
     private RedisCacheConfiguration createRedisCacheConfigWithTtl(DefaultFormattingConversionService redisConversionService, int ttlInMinutes) {
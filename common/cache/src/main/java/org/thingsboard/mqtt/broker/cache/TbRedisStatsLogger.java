@@ -69,6 +69,14 @@ public class TbRedisStatsLogger {
     private void printCacheStats() {
         for (String cacheName : cacheManager.getCacheNames()) {
             Cache cache = cacheManager.getCache(cacheName);
+            if (cache instanceof NearCache nearCache) {
+                long hits = nearCache.getLocalHits();
+                long gets = hits + nearCache.getLocalMisses();
+                log.info("Near cache L1 [{}]: hit rate [{}] hits [{}] misses [{}] size [{}]",
+                        cache.getName(), gets == 0 ? 1.0 : (double) hits / gets, hits, nearCache.getLocalMisses(), nearCache.getLocalSize());
+                nearCache.clearLocalStatistics();
+                cache = nearCache.getRemoteCache();
+            }
             if (cache instanceof TransactionAwareCacheDecorator transactionAwareCacheDecorator) {
                 RedisCache redisCache = (RedisCache) transactionAwareCacheDecorator.getTargetCache();
                 CacheStatistics stats = redisCache.getStatistics();
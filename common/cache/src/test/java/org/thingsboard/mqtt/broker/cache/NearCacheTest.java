@@ -0,0 +1,102 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearCacheTest {
+
+    ConcurrentMapCache remoteCache;
+    List<String> publishedKeys;
+    NearCache nearCache;
+
+    @BeforeEach
+    void setUp() {
+        remoteCache = new ConcurrentMapCache("mqttClientCredentials");
+        publishedKeys = new ArrayList<>();
+        nearCache = new NearCache(remoteCache, 60_000, 10, (cacheName, key) -> publishedKeys.add(key));
+    }
+
+    @Test
+    void givenValueInRemoteCache_whenGetTwice_thenSecondGetServedFromLocalCache() {
+        remoteCache.put("key", "value");
+
+        assertThat(nearCache.get("key", String.class)).isEqualTo("value");
+        remoteCache.put("key", "changed");
+        assertThat(nearCache.get("key", String.class)).isEqualTo("value");
+
+        assertThat(nearCache.getLocalHits()).isEqualTo(1);
+        assertThat(nearCache.getLocalMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void givenCachedValue_whenEvict_thenRemovedFromBothTiersAndInvalidationPublished() {
+        nearCache.put("key", "value");
+        nearCache.evict("key");
+
+        assertThat(nearCache.get("key")).isNull();
+        assertThat(remoteCache.get("key")).isNull();
+        assertThat(publishedKeys).containsExactly("key", "key");
+    }
+
+    @Test
+    void givenCachedValue_whenInvalidate_thenNullKeyPublished() {
+        nearCache.put("key", "value");
+        nearCache.invalidate();
+
+        assertThat(nearCache.getLocalSize()).isZero();
+        assertThat(publishedKeys).containsExactly("key", null);
+    }
+
+    @Test
+    void givenFullLocalCache_whenPut_thenLocalCacheBounded() {
+        for (int i = 0; i < 100; i++) {
+            nearCache.put("key" + i, "value" + i);
+        }
+
+        assertThat(nearCache.getLocalSize()).isLessThanOrEqualTo(10);
+        assertThat(nearCache.get("key0", String.class)).isEqualTo("value0");
+    }
+
+    @Test
+    void givenInvalidationMsgFromOtherNode_whenReceived_thenLocalEntryEvicted() {
+        ConcurrentMapCacheManager remoteCacheManager = new ConcurrentMapCacheManager("mqttClientCredentials");
+        CacheSpecs specs = new CacheSpecs();
+        specs.setLocalTimeToLiveInSeconds(60);
+        specs.setLocalMaxSize(10);
+        List<String> msgs = new ArrayList<>();
+        NearCacheManager nearCacheManager = new NearCacheManager(remoteCacheManager, Map.of("mqttClientCredentials", specs), msgs::add);
+
+        NearCache cache = (NearCache) nearCacheManager.getCache("mqttClientCredentials");
+        cache.put("key", "value");
+        remoteCacheManager.getCache("mqttClientCredentials").put("key", "changed");
+
+        nearCacheManager.onInvalidationMsg(msgs.get(0));
+        assertThat(cache.get("key", String.class)).isEqualTo("value");
+
+        nearCacheManager.onInvalidationMsg("otherNode|mqttClientCredentials|key");
+        assertThat(cache.get("key", String.class)).isEqualTo("changed");
+    }
+}
@@ -19,6 +19,7 @@ import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletionStage;
 
 public interface DeviceMsgService {
@@ -26,6 +27,14 @@ public interface DeviceMsgService {
     // TODO: failOnConflict, kafka rebalancing issue. Need to be tested.
     CompletionStage<Integer> saveAndReturnPreviousPacketId(String clientId, List<DevicePublishMsg> devicePublishMessages, boolean failOnConflict);
 
+    /**
+     * Saves the messages of several clients at once. Redis calls are issued back to back, grouped by the cluster slot
+     * of the client keys, and flushed together.
+     *
+     * @return previous packet id future per clientId, every client is completed (or failed) independently
+     */
+    Map<String, CompletionStage<Integer>> saveAndReturnPreviousPacketIds(Map<String, List<DevicePublishMsg>> clientIdToMessagesMap);
+
     CompletionStage<List<DevicePublishMsg>> findPersistedMessages(String clientId);
 
     CompletionStage<String> removePersistedMessages(String clientId);
@@ -26,6 +26,8 @@ import org.thingsboard.mqtt.broker.common.data.queue.KafkaTopic;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface TbQueueAdmin {
 
@@ -52,4 +54,10 @@ public interface TbQueueAdmin {
     void deleteOldConsumerGroups(String consumerGroupPrefix, String serviceId, long currentCgSuffix);
 
     ListConsumerGroupOffsetsResult listConsumerGroupOffsets(String groupId);
+
+    Optional<Long> getCommittedOffset(String groupId, String topic, int partition);
+
+    void getCommittedOffset(String groupId, String topic, int partition, Consumer<Optional<Long>> onSuccess, Consumer<Throwable> onFailure);
+
+    void commitOffset(String groupId, String topic, int partition, long offset, BasicCallback callback);
 }
@@ -17,6 +17,7 @@ package org.thingsboard.mqtt.broker.queue;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface TbQueueControlledOffsetConsumer<T extends TbQueueMsg> extends TbQueueConsumer<T> {
 
@@ -35,4 +36,8 @@ public interface TbQueueControlledOffsetConsumer<T extends TbQueueMsg> extends T
     Optional<Long> getCommittedOffset(String topic, int partition);
 
     Map<String, String> getTopicConfigs();
+
+    Set<Integer> getAssignedPartitions();
+
+    int getPartitionForKey(String key);
 }
@@ -0,0 +1,54 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consumer that reads many topics at once with manually managed positions.
+ * Offsets are never committed by the consumer itself. Not thread-safe, all methods except {@link #wakeup()} must be called
+ * from the polling thread.
+ */
+public interface TbQueueMultiplexedConsumer<T extends TbQueueMsg> {
+
+    /**
+     * Starts reading the topic partition from the given offset, or from its end when offset is null.
+     *
+     * @return the offset the topic partition is read from
+     */
+    long assign(String topic, int partition, Long offset);
+
+    void unassign(String topic, int partition);
+
+    void pause(String topic, int partition);
+
+    void resume(String topic, int partition);
+
+    /**
+     * @return polled messages grouped by topic
+     */
+    Map<String, List<T>> poll(long durationInMillis);
+
+    /**
+     * Makes the current or the next poll return right away. Can be called from any thread.
+     */
+    void wakeup();
+
+    int getAssignedCount();
+
+    void close();
+}
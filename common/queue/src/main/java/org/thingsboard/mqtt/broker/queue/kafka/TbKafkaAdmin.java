@@ -62,6 +62,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -460,6 +461,46 @@ public class TbKafkaAdmin implements TbQueueAdmin {
         return client.listConsumerGroupOffsets(groupId);
     }
 
+    @Override
+    public Optional<Long> getCommittedOffset(String groupId, String topic, int partition) {
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        try {
+            Map<TopicPartition, OffsetAndMetadata> offsets = client.listConsumerGroupOffsets(groupId).partitionsToOffsetAndMetadata().get();
+            return Optional.ofNullable(offsets.get(topicPartition)).map(OffsetAndMetadata::offset);
+        } catch (InterruptedException | ExecutionException e) {
+            log.warn("[{}] Failed to get committed offset for {}", groupId, topicPartition, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void getCommittedOffset(String groupId, String topic, int partition, java.util.function.Consumer<Optional<Long>> onSuccess,
+                                   java.util.function.Consumer<Throwable> onFailure) {
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        client.listConsumerGroupOffsets(groupId).partitionsToOffsetAndMetadata().whenComplete((offsets, throwable) -> {
+            if (throwable == null) {
+                onSuccess.accept(Optional.ofNullable(offsets.get(topicPartition)).map(OffsetAndMetadata::offset));
+            } else {
+                onFailure.accept(throwable);
+            }
+        });
+    }
+
+    @Override
+    public void commitOffset(String groupId, String topic, int partition, long offset, BasicCallback callback) {
+        if (log.isTraceEnabled()) {
+            log.trace("[{}] Committing offset {} for {}-{}", groupId, offset, topic, partition);
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = Map.of(new TopicPartition(topic, partition), new OffsetAndMetadata(offset));
+        client.alterConsumerGroupOffsets(groupId, offsets).all().whenComplete((unused, throwable) -> {
+            if (throwable == null) {
+                callback.onSuccess();
+            } else {
+                callback.onFailure(throwable);
+            }
+        });
+    }
+
     private boolean isConsumerGroupToDelete(String consumerGroupPrefix, String serviceId, long currentCgSuffix, String consumerGroupId) {
         String prefix = getPrefix(consumerGroupPrefix);
         String cgSuffix = Long.toString(currentCgSuffix);
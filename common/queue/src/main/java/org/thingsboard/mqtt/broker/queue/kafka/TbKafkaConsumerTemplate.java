@@ -20,12 +20,14 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.utils.Utils;
 import org.thingsboard.mqtt.broker.queue.TbQueueAdmin;
 import org.thingsboard.mqtt.broker.queue.TbQueueMsg;
 import org.thingsboard.mqtt.broker.queue.common.AbstractTbQueueConsumerTemplate;
@@ -35,12 +37,16 @@ import org.thingsboard.mqtt.broker.queue.stats.Timer;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
@@ -61,6 +67,9 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
     private final long closeTimeoutMs;
     private final boolean createTopicIfNotExists;
 
+    private final Set<Integer> assignedPartitions = ConcurrentHashMap.newKeySet();
+    private volatile int numberOfPartitions;
+
     /**
      * Not thread-safe
      */
@@ -107,7 +116,20 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
         if (createTopicIfNotExists) {
             admin.createTopicIfNotExists(topic, topicConfigs);
         }
-        consumer.subscribe(Collections.singletonList(topic));
+        consumer.subscribe(Collections.singletonList(topic), new ConsumerRebalanceListener() {
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                partitions.forEach(tp -> assignedPartitions.remove(tp.partition()));
+            }
+
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                partitions.forEach(tp -> assignedPartitions.add(tp.partition()));
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Partitions assigned: {}", topic, assignedPartitions);
+                }
+            }
+        });
     }
 
     @Override
@@ -116,6 +138,8 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
             admin.createTopicIfNotExists(topic, topicConfigs);
         }
         consumer.assign(Collections.singletonList(newTopicPartition(topic, partition)));
+        assignedPartitions.clear();
+        assignedPartitions.add(partition);
     }
 
     @Override
@@ -129,6 +153,8 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
             allTopicPartitions.add(newTopicPartition(topic, i));
         }
         consumer.assign(allTopicPartitions);
+        assignedPartitions.clear();
+        allTopicPartitions.forEach(tp -> assignedPartitions.add(tp.partition()));
     }
 
     @Override
@@ -172,6 +198,7 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
 
     @Override
     protected void doUnsubscribeAndClose() {
+        assignedPartitions.clear();
         if (consumer != null) {
             consumer.unsubscribe();
             consumer.close(Duration.ofMillis(closeTimeoutMs));
@@ -200,6 +227,22 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
         return groupId;
     }
 
+    @Override
+    public Set<Integer> getAssignedPartitions() {
+        return Collections.unmodifiableSet(assignedPartitions);
+    }
+
+    /**
+     * Same partition the Kafka producer picks for a keyed record with the default partitioner.
+     */
+    @Override
+    public int getPartitionForKey(String key) {
+        if (numberOfPartitions == 0) {
+            numberOfPartitions = admin.getNumberOfPartitions(getTopic());
+        }
+        return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % numberOfPartitions;
+    }
+
     private TopicPartition newTopicPartition(String topic, int partition) {
         return new TopicPartition(topic, partition);
     }
@@ -0,0 +1,165 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.kafka;
+
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.thingsboard.mqtt.broker.queue.TbQueueMsg;
+import org.thingsboard.mqtt.broker.queue.TbQueueMultiplexedConsumer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+@Slf4j
+public class TbKafkaMultiplexedConsumerTemplate<T extends TbQueueMsg> implements TbQueueMultiplexedConsumer<T> {
+
+    private static final long DEFAULT_CLOSE_TIMEOUT = 3000;
+
+    private final KafkaConsumer<String, byte[]> consumer;
+    private final TbKafkaDecoder<T> decoder;
+    private final long closeTimeoutMs;
+    private final Set<TopicPartition> assignment = new HashSet<>();
+
+    @Builder
+    private TbKafkaMultiplexedConsumerTemplate(Properties properties, TbKafkaDecoder<T> decoder,
+                                               String clientId, long closeTimeoutMs) {
+        properties.put(ConsumerConfig.CLIENT_ID_CONFIG, clientId);
+        properties.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+
+        this.closeTimeoutMs = closeTimeoutMs > 0 ? closeTimeoutMs : DEFAULT_CLOSE_TIMEOUT;
+
+        Thread.currentThread().setContextClassLoader(this.getClass().getClassLoader());
+        this.consumer = new KafkaConsumer<>(properties);
+        this.decoder = decoder;
+    }
+
+    @Override
+    public long assign(String topic, int partition, Long offset) {
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        if (assignment.add(topicPartition)) {
+            consumer.assign(assignment);
+        }
+        consumer.resume(Collections.singleton(topicPartition));
+        if (offset != null) {
+            consumer.seek(topicPartition, offset);
+            return offset;
+        }
+        consumer.seekToEnd(Collections.singleton(topicPartition));
+        while (true) {
+            try {
+                return consumer.position(topicPartition);
+            } catch (WakeupException e) {
+                log.trace("[{}] Woken up while resolving position", topicPartition);
+            }
+        }
+    }
+
+    @Override
+    public void unassign(String topic, int partition) {
+        if (assignment.remove(new TopicPartition(topic, partition))) {
+            consumer.assign(assignment);
+        }
+    }
+
+    @Override
+    public void pause(String topic, int partition) {
+        consumer.pause(Collections.singleton(new TopicPartition(topic, partition)));
+    }
+
+    @Override
+    public void resume(String topic, int partition) {
+        consumer.resume(Collections.singleton(new TopicPartition(topic, partition)));
+    }
+
+    @Override
+    public Map<String, List<T>> poll(long durationInMillis) {
+        if (assignment.isEmpty()) {
+            sleep(durationInMillis);
+            return Collections.emptyMap();
+        }
+        ConsumerRecords<String, byte[]> records;
+        try {
+            records = consumer.poll(Duration.ofMillis(durationInMillis));
+        } catch (WakeupException e) {
+            return Collections.emptyMap();
+        }
+        if (records.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<T>> result = new HashMap<>();
+        for (TopicPartition topicPartition : records.partitions()) {
+            List<ConsumerRecord<String, byte[]>> partitionRecords = records.records(topicPartition);
+            List<T> msgs = result.computeIfAbsent(topicPartition.topic(), topic -> new ArrayList<>(partitionRecords.size()));
+            for (ConsumerRecord<String, byte[]> record : partitionRecords) {
+                msgs.add(decode(record));
+            }
+        }
+        return result;
+    }
+
+    private T decode(ConsumerRecord<String, byte[]> record) {
+        try {
+            return decoder.decode(new KafkaTbQueueMsg(record));
+        } catch (IOException e) {
+            log.error("Failed decode record: [{}]", record);
+            throw new RuntimeException("Failed to decode record: ", e);
+        }
+    }
+
+    private void sleep(long durationInMillis) {
+        try {
+            Thread.sleep(durationInMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void wakeup() {
+        consumer.wakeup();
+    }
+
+    @Override
+    public int getAssignedCount() {
+        return assignment.size();
+    }
+
+    @Override
+    public void close() {
+        assignment.clear();
+        consumer.unsubscribe();
+        consumer.close(Duration.ofMillis(closeTimeoutMs));
+    }
+}
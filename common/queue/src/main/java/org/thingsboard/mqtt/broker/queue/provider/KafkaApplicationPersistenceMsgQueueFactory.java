@@ -22,10 +22,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
 import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
+import org.thingsboard.mqtt.broker.queue.TbQueueMultiplexedConsumer;
 import org.thingsboard.mqtt.broker.queue.TbQueueProducer;
 import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
 import org.thingsboard.mqtt.broker.queue.constants.QueueConstants;
 import org.thingsboard.mqtt.broker.queue.kafka.TbKafkaConsumerTemplate;
+import org.thingsboard.mqtt.broker.queue.kafka.TbKafkaMultiplexedConsumerTemplate;
 import org.thingsboard.mqtt.broker.queue.kafka.TbKafkaProducerTemplate;
 import org.thingsboard.mqtt.broker.queue.kafka.settings.ApplicationPersistenceMsgKafkaSettings;
 import org.thingsboard.mqtt.broker.queue.kafka.settings.ApplicationSharedTopicMsgKafkaSettings;
@@ -110,6 +112,19 @@ public class KafkaApplicationPersistenceMsgQueueFactory extends AbstractQueueFac
         return createConsumer(topic, consumerGroupId, clientId, props);
     }
 
+    @Override
+    public TbQueueMultiplexedConsumer<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> createMultiplexedConsumer(String consumerId) {
+        String clientId = "application-persisted-msg-multiplexed-consumer-" + consumerId;
+        Properties props = consumerSettings.toProps(null, applicationPersistenceMsgSettings.getAdditionalConsumerConfig());
+
+        TbKafkaMultiplexedConsumerTemplate.TbKafkaMultiplexedConsumerTemplateBuilder<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> consumerBuilder = TbKafkaMultiplexedConsumerTemplate.builder();
+        consumerBuilder.properties(props);
+        consumerBuilder.clientId(kafkaPrefix + clientId);
+        consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), QueueProtos.PublishMsgProto.parseFrom(msg.getData()), msg.getHeaders(),
+                msg.getPartition(), msg.getOffset()));
+        return consumerBuilder.build();
+    }
+
     private TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> createConsumer(
             String topic, String consumerGroupId, String clientId, Properties props) {
 
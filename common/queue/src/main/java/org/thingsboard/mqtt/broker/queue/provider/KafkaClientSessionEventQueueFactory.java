@@ -89,13 +89,13 @@ public class KafkaClientSessionEventQueueFactory extends AbstractQueueFactory im
     }
 
     @Override
-    public TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>> createEventResponseConsumer(String serviceId) {
+    public TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>> createEventResponseConsumer(String serviceId, int consumerIndex) {
         TbKafkaConsumerTemplate.TbKafkaConsumerTemplateBuilder<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>> consumerBuilder = TbKafkaConsumerTemplate.builder();
         String topic = clientSessionEventResponseSettings.getKafkaTopicPrefix() + "." + serviceId;
         consumerBuilder.properties(consumerSettings.toProps(topic, clientSessionEventResponseSettings.getAdditionalConsumerConfig()));
         consumerBuilder.topic(topic);
         consumerBuilder.topicConfigs(QueueUtil.getConfigs(clientSessionEventResponseSettings.getTopicProperties()));
-        consumerBuilder.clientId(kafkaPrefix + "client-session-event-response-consumer-" + serviceId);
+        consumerBuilder.clientId(kafkaPrefix + "client-session-event-response-consumer-" + serviceId + "-" + consumerIndex);
         consumerBuilder.groupId(kafkaPrefix + "client-session-event-response-consumer-group-" + serviceId);
         consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), QueueProtos.ClientSessionEventResponseProto.parseFrom(msg.getData()), msg.getHeaders()));
         consumerBuilder.admin(queueAdmin);
@@ -24,6 +24,8 @@ public class StatsConstantNames {
     public static final String TMP_TIMEOUT = "tmpTimeout";
     public static final String TMP_FAILED = "tmpFailed";
 
+    public static final String COMMITTED_MSGS = "committedMsgs";
+
     public static final String SUCCESSFUL_PUBLISH_MSGS = "successfulPublishMsgs";
     public static final String SUCCESSFUL_PUBREL_MSGS = "successfulPubRelMsgs";
     public static final String TIMEOUT_PUBLISH_MSGS = "timeoutPublishMsgs";
@@ -47,6 +49,19 @@ public class StatsConstantNames {
     public static final String NEW_RETAINED_MSGS = "newRetainedMsgs";
     public static final String CLEARED_RETAINED_MSGS = "clearedRetainedMsgs";
 
+    public static final String CACHE_HITS = "cacheHits";
+    public static final String CACHE_MISSES = "cacheMisses";
+    public static final String CACHE_INVALIDATIONS = "cacheInvalidations";
+
+    public static final String TLS_HANDSHAKES = "tlsHandshakes";
+    public static final String RESUMED_TLS_HANDSHAKES = "resumedTlsHandshakes";
+    public static final String FAILED_TLS_HANDSHAKES = "failedTlsHandshakes";
+    public static final String LISTENER_TAG = "listener";
+
+    public static final String SHARED_SUBSCRIPTION_SELECTIONS = "sharedSubscriptionSelections";
+
+    public static final String PINNED_VIRTUAL_THREADS = "pinnedVirtualThreads";
+
     public static final String STATS_NAME_TAG = "statsName";
     public static final String QUEUE_SIZE = "queueSize";
 }
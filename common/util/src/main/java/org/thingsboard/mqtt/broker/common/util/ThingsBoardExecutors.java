@@ -18,15 +18,21 @@ package org.thingsboard.mqtt.broker.common.util;
 import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.reflect.Method;
 import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 @Slf4j
 public class ThingsBoardExecutors {
 
+    // virtual threads are looked up reflectively since the code is compiled for Java 17 and they are available since Java 21
+    private static final Method OF_VIRTUAL_METHOD = findMethod(Thread.class, "ofVirtual");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR_METHOD = findMethod(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
     /**
      * Method forked from ExecutorService to provide thread poll name
      *
@@ -66,10 +72,56 @@ public class ThingsBoardExecutors {
         }
     }
 
+    /**
+     * Falls back to the fixed thread pool of {@code threadsCount} threads when virtual threads are disabled or not supported by the JVM.
+     */
+    public static ExecutorService initExecutorService(int threadsCount, String serviceName, boolean virtualThreads) {
+        ExecutorService executor = virtualThreads ? tryNewVirtualThreadPerTaskExecutor(serviceName) : null;
+        return executor != null ? executor : initExecutorService(threadsCount, serviceName);
+    }
+
     public static ExecutorService initCachedExecutorService(String serviceName) {
         return Executors.newCachedThreadPool(ThingsBoardThreadFactory.forName(serviceName));
     }
 
+    public static ExecutorService initCachedExecutorService(String serviceName, boolean virtualThreads) {
+        return virtualThreads ? newVirtualThreadPerTaskExecutor(serviceName) : initCachedExecutorService(serviceName);
+    }
+
+    public static boolean isVirtualThreadsSupported() {
+        return OF_VIRTUAL_METHOD != null && NEW_THREAD_PER_TASK_EXECUTOR_METHOD != null;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task, so that tasks blocked on I/O
+     * (e.g. polling the queue per client) do not hold platform threads.
+     * Falls back to the cached thread pool when the JVM does not support virtual threads.
+     *
+     * @param namePrefix used to define thread name
+     * @return the newly created executor
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        ExecutorService executor = tryNewVirtualThreadPerTaskExecutor(namePrefix);
+        return executor != null ? executor : initCachedExecutorService(namePrefix);
+    }
+
+    private static ExecutorService tryNewVirtualThreadPerTaskExecutor(String namePrefix) {
+        if (!isVirtualThreadsSupported()) {
+            log.warn("[{}] Virtual threads are not supported by the JVM {}, using platform threads", namePrefix, Runtime.version());
+            return null;
+        }
+        try {
+            Object builder = OF_VIRTUAL_METHOD.invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-virtual-thread-", 1L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR_METHOD.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            log.warn("[{}] Failed to create virtual thread executor, using platform threads", namePrefix, e);
+            return null;
+        }
+    }
+
     public static ScheduledExecutorService initScheduledExecutorService(int threadsCount, String serviceName) {
         if (threadsCount <= 1) {
             return Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName(serviceName));
@@ -107,4 +159,12 @@ public class ThingsBoardExecutors {
             return defaultTimeout;
         }
     }
+
+    private static Method findMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            return clazz.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
 }
@@ -18,6 +18,7 @@ package org.thingsboard.mqtt.broker.dao.messages;
 import io.lettuce.core.RedisFuture;
 import io.lettuce.core.RedisNoScriptException;
 import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.SlotHash;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.DecoderException;
@@ -30,7 +31,6 @@ import org.springframework.stereotype.Service;
 import org.thingsboard.mqtt.broker.cache.LettuceConnectionManager;
 import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
 import org.thingsboard.mqtt.broker.common.util.DevicePublishMsgUtil;
-import org.thingsboard.mqtt.broker.common.util.JacksonUtil;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -38,8 +38,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -57,19 +60,18 @@ public class DeviceMsgServiceImpl implements DeviceMsgService {
     private static final CSVFormat IMPORT_CSV_FORMAT = CSVFormat.Builder.create()
             .setHeader().setSkipHeaderRecord(true).build();
 
-    private static final String ADD_MESSAGES_SCRIPT_SHA = "b871298e156d1e8490eef02fdc96cc28d4442e36";
+    private static final String ADD_MESSAGES_SCRIPT_SHA = "8bc690b70bf2504bf269f0ade5d243de508fdec7";
     private static final String GET_MESSAGES_SCRIPT_SHA = "e083e5645a5f268448aca2ec1d3150ee6de510ef";
     private static final String REMOVE_MESSAGES_SCRIPT_SHA = "efd7dd0e8b3ba4862b53691798fd5ff1f8f6e629";
     private static final String REMOVE_MESSAGE_SCRIPT_SHA = "af40a579a941a140cace4e5243fc0921a4c7b4b0";
-    private static final String UPDATE_PACKET_TYPE_SCRIPT_SHA = "86164ab58880b91c4aee396bb5701fd6af1b0258";
-    private static final String MIGRATE_FROM_POSTGRES_TO_REDIS_SCRIPT_SHA = "76ea84e42d6ab98e646ef8f88b99efd568721926";
+    private static final String UPDATE_PACKET_TYPE_SCRIPT_SHA = "3efbf3a52e62505827b2320b8203447694f16c63";
+    private static final String MIGRATE_FROM_POSTGRES_TO_REDIS_SCRIPT_SHA = "ca1717bf5f4807753acbac1a5a8bb06ce0ab9a3b";
 
     private static final String ADD_MESSAGES_SCRIPT = """
             local messagesKey = KEYS[1]
             local lastPacketIdKey = KEYS[2]
             local maxMessagesSize = tonumber(ARGV[1])
-            local messages = cjson.decode(ARGV[2])
-            local defaultTtl = tonumber(ARGV[3])
+            local defaultTtl = tonumber(ARGV[2])
             -- Fetch the last packetId from the key-value store
             local lastPacketId = tonumber(redis.call('GET', lastPacketIdKey)) or 0
             
@@ -87,19 +89,25 @@ public class DeviceMsgServiceImpl implements DeviceMsgService {
             -- Track the first packet ID
             local previousPacketId = lastPacketId
             
-            -- Add each message to the sorted set and as a separate key
-            for _, msg in ipairs(messages) do
+            -- Add each message (passed as a separate argument starting from ARGV[3]) to the sorted set and as a separate key
+            for i = 3, #ARGV do
+                local msg = ARGV[i]
                 lastPacketId = lastPacketId + 1
                 if lastPacketId > 0xffff then
                     lastPacketId = 1
                 end
-                msg.packetId = lastPacketId
                 score = score + 1
                 local msgKey = messagesKey .. "_" .. lastPacketId
-                local msgJson = cjson.encode(msg)
-                local msgExpiryInterval = msg.msgExpiryInterval or defaultTtl
+                -- Set the packetId in the message header (bytes 3-4), the message body is kept as is
+                local msgBytes = string.sub(msg, 1, 2) .. string.char(math.floor(lastPacketId / 256), lastPacketId % 256) .. string.sub(msg, 5)
+                -- Read the msgExpiryInterval from the message header (bytes 5-8)
+                local b1, b2, b3, b4 = string.byte(msg, 5, 8)
+                local msgExpiryInterval = ((b1 * 256 + b2) * 256 + b3) * 256 + b4
+                if msgExpiryInterval == 0 then
+                    msgExpiryInterval = defaultTtl
+                end
                 -- Store the message as a separate key with TTL
-                redis.call('SET', msgKey, msgJson, 'EX', msgExpiryInterval)
+                redis.call('SET', msgKey, msgBytes, 'EX', msgExpiryInterval)
                 -- Add the key to the sorted set using packetId as the score
                 redis.call('ZADD', messagesKey, score, msgKey)
             end
@@ -165,12 +173,18 @@ public class DeviceMsgServiceImpl implements DeviceMsgService {
             local packetId = ARGV[1]
             -- Construct the message key
             local msgKey = messagesKey .. "_" .. packetId
-            -- Fetch the message from the key-value store
-            local msgJson = redis.call('GET', msgKey)
-            if not msgJson then
+            -- Fetch the first byte of the message to detect the storage format
+            local format = redis.call('GETRANGE', msgKey, 0, 0)
+            if format == "" then
                 return "OK" -- Message not found
             end
-            -- Decode the JSON message
+            if format ~= "{" then
+                -- Patch the packet type in the binary message header (byte 2), the TTL of the key is preserved
+                redis.call('SETRANGE', msgKey, 1, string.char(2))
+                return "OK"
+            end
+            -- Decode the JSON message saved before the binary format was introduced
+            local msgJson = redis.call('GET', msgKey)
             local msg = cjson.decode(msgJson)
             -- Update the packet type
             msg.packetType = "PUBREL"
@@ -183,8 +197,7 @@ public class DeviceMsgServiceImpl implements DeviceMsgService {
     private static final String MIGRATE_FROM_POSTGRES_TO_REDIS_SCRIPT = """
             local messagesKey = KEYS[1]
             local lastPacketIdKey = KEYS[2]
-            local messages = cjson.decode(ARGV[1])
-            local defaultTtl = tonumber(ARGV[2])
+            local defaultTtl = tonumber(ARGV[1])
             local lastPacketId = 0
             
             -- Get the current maximum score in the sorted set
@@ -197,18 +210,24 @@ public class DeviceMsgServiceImpl implements DeviceMsgService {
                score = 0
             end
             
-            -- Add each message to the sorted set using packetId as the score
-            for _, msg in ipairs(messages) do
-                local msgKey = messagesKey .. "_" .. msg.packetId
-                local msgJson = cjson.encode(msg)
-                local msgExpiryInterval = msg.msgExpiryInterval or defaultTtl
+            -- Add each message (passed as a separate argument starting from ARGV[2]) to the sorted set
+            for i = 2, #ARGV do
+                local msg = ARGV[i]
+                -- Read the packetId (bytes 3-4) and the msgExpiryInterval (bytes 5-8) from the message header
+                local p1, p2, b1, b2, b3, b4 = string.byte(msg, 3, 8)
+                local packetId = p1 * 256 + p2
+                local msgExpiryInterval = ((b1 * 256 + b2) * 256 + b3) * 256 + b4
+                if msgExpiryInterval == 0 then
+                    msgExpiryInterval = defaultTtl
+                end
+                local msgKey = messagesKey .. "_" .. packetId
                 -- Store the message as a separate key with TTL
-                redis.call('SET', msgKey, msgJson, 'EX', msgExpiryInterval)
+                redis.call('SET', msgKey, msg, 'EX', msgExpiryInterval)
                 -- increase the score
                 score = score + 1
                 redis.call('ZADD', messagesKey, score, msgKey)
                 -- Update lastPacketId with the current packetId
-                lastPacketId = msg.packetId
+                lastPacketId = packetId
             end
             
             -- Update the last packetId in the key-value store
@@ -269,19 +288,52 @@ public class DeviceMsgServiceImpl implements DeviceMsgService {
         }
         byte[] messagesCacheKeyBytes = ClientIdMessagesCacheKey.toBytesKey(clientId, cachePrefix);
         byte[] lastPacketIdKeyBytes = ClientIdLastPacketIdCacheKey.toBytesKey(clientId, cachePrefix);
-        byte[] messagesBytes = JacksonUtil.writeValueAsBytes(devicePublishMessages);
-        RedisFuture<Long> prevPacketIdFuture = connectionManager.evalShaAsync(ADD_MESSAGES_SCRIPT_SHA, ScriptOutputType.INTEGER,
-                new byte[][]{messagesCacheKeyBytes, lastPacketIdKeyBytes}, messagesLimitBytes, messagesBytes, defaultTtlBytes);
+        byte[][] keys = new byte[][]{messagesCacheKeyBytes, lastPacketIdKeyBytes};
+        byte[][] args = toScriptArgs(DevicePublishMsgRedisCodec.encode(devicePublishMessages), messagesLimitBytes, defaultTtlBytes);
+        RedisFuture<Long> prevPacketIdFuture = connectionManager.evalShaAsync(ADD_MESSAGES_SCRIPT_SHA, ScriptOutputType.INTEGER, keys, args);
+        return withAddMessagesFallback(prevPacketIdFuture, keys, args);
+    }
+
+    @Override
+    public Map<String, CompletionStage<Integer>> saveAndReturnPreviousPacketIds(Map<String, List<DevicePublishMsg>> clientIdToMessagesMap) {
+        if (log.isTraceEnabled()) {
+            log.trace("Save persisted messages of {} clients", clientIdToMessagesMap.size());
+        }
+        if (clientIdToMessagesMap.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        // commands of the same slot are issued one after another, so they are buffered to the same cluster node connection
+        List<AddMessagesCommand> commands = new ArrayList<>(clientIdToMessagesMap.size());
+        clientIdToMessagesMap.forEach((clientId, devicePublishMessages) -> {
+            byte[] messagesCacheKeyBytes = ClientIdMessagesCacheKey.toBytesKey(clientId, cachePrefix);
+            byte[] lastPacketIdKeyBytes = ClientIdLastPacketIdCacheKey.toBytesKey(clientId, cachePrefix);
+            commands.add(new AddMessagesCommand(clientId, SlotHash.getSlot(messagesCacheKeyBytes),
+                    new byte[][]{messagesCacheKeyBytes, lastPacketIdKeyBytes},
+                    toScriptArgs(DevicePublishMsgRedisCodec.encode(devicePublishMessages), messagesLimitBytes, defaultTtlBytes)));
+        });
+        commands.sort(Comparator.comparingInt(AddMessagesCommand::slot));
+
+        List<RedisFuture<Long>> prevPacketIdFutures = connectionManager.evalShaBatchAsync(ADD_MESSAGES_SCRIPT_SHA, ScriptOutputType.INTEGER,
+                commands.stream().map(AddMessagesCommand::keys).toList(),
+                commands.stream().map(AddMessagesCommand::args).toList());
+
+        Map<String, CompletionStage<Integer>> result = new HashMap<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            AddMessagesCommand command = commands.get(i);
+            result.put(command.clientId(), withAddMessagesFallback(prevPacketIdFutures.get(i), command.keys(), command.args()));
+        }
+        return result;
+    }
+
+    private CompletionStage<Integer> withAddMessagesFallback(RedisFuture<Long> prevPacketIdFuture, byte[][] keys, byte[][] args) {
         return prevPacketIdFuture.exceptionallyCompose(throwable -> {
             if (throwable instanceof RedisNoScriptException) {
                 CompletableFuture<Void> loadScriptFuture = processLoadScriptAsync(throwable, ADD_MESSAGES_SCRIPT_SHA, ADD_MESSAGES_SCRIPT);
                 CompletableFuture<Long> retryFuture = loadScriptFuture.thenCompose(__ ->
-                        connectionManager.evalShaAsync(ADD_MESSAGES_SCRIPT_SHA, ScriptOutputType.INTEGER,
-                                new byte[][]{messagesCacheKeyBytes, lastPacketIdKeyBytes}, messagesLimitBytes, messagesBytes, defaultTtlBytes));
+                        connectionManager.evalShaAsync(ADD_MESSAGES_SCRIPT_SHA, ScriptOutputType.INTEGER, keys, args));
                 return retryFuture.exceptionallyCompose(retryThrowable -> {
                     log.debug("Falling back to eval due to exception on retry sha evaluation of saveAndReturnPreviousPacketId: ", retryThrowable);
-                    return connectionManager.evalAsync(ADD_MESSAGES_SCRIPT, ScriptOutputType.INTEGER,
-                            new byte[][]{messagesCacheKeyBytes, lastPacketIdKeyBytes}, messagesLimitBytes, messagesBytes, defaultTtlBytes);
+                    return connectionManager.evalAsync(ADD_MESSAGES_SCRIPT, ScriptOutputType.INTEGER, keys, args);
                 });
             }
             throw new CompletionException(throwable);
@@ -311,7 +363,7 @@ public class DeviceMsgServiceImpl implements DeviceMsgService {
             throw new CompletionException(throwable);
         }).thenApply(messages ->
                 messages.stream()
-                        .map(messageInBytes -> JacksonUtil.fromBytes(messageInBytes, DevicePublishMsg.class))
+                        .map(DevicePublishMsgRedisCodec::decode)
                         .toList());
     }
 
@@ -457,19 +509,19 @@ public class DeviceMsgServiceImpl implements DeviceMsgService {
         log.info("[{}] Adding {} messages to Redis ...", clientId, batchSize);
         byte[] messagesCacheKeyBytes = ClientIdMessagesCacheKey.toBytesKey(clientId, cachePrefix);
         byte[] lastPacketIdKeyBytes = ClientIdLastPacketIdCacheKey.toBytesKey(clientId, cachePrefix);
-        byte[] messagesBytes = JacksonUtil.writeValueAsBytes(messages);
+        byte[][] args = toScriptArgs(DevicePublishMsgRedisCodec.encode(messages), defaultTtlBytes);
         RedisFuture<String> migrateFuture = connectionManager.evalShaAsync(MIGRATE_FROM_POSTGRES_TO_REDIS_SCRIPT_SHA, ScriptOutputType.STATUS,
-                new byte[][]{messagesCacheKeyBytes, lastPacketIdKeyBytes}, messagesBytes, defaultTtlBytes);
+                new byte[][]{messagesCacheKeyBytes, lastPacketIdKeyBytes}, args);
         var result = migrateFuture.exceptionallyCompose(throwable -> {
             if (throwable instanceof RedisNoScriptException) {
                 CompletableFuture<Void> loadScriptFuture = processLoadScriptAsync(throwable, MIGRATE_FROM_POSTGRES_TO_REDIS_SCRIPT_SHA, MIGRATE_FROM_POSTGRES_TO_REDIS_SCRIPT);
                 CompletableFuture<String> retryFuture = loadScriptFuture.thenCompose(__ ->
                         connectionManager.evalShaAsync(MIGRATE_FROM_POSTGRES_TO_REDIS_SCRIPT_SHA, ScriptOutputType.STATUS,
-                                new byte[][]{messagesCacheKeyBytes, lastPacketIdKeyBytes}, messagesBytes, defaultTtlBytes));
+                                new byte[][]{messagesCacheKeyBytes, lastPacketIdKeyBytes}, args));
                 return retryFuture.exceptionallyCompose(retryThrowable -> {
                     log.debug("Falling back to eval due to exception on retry sha evaluation of writeBatchToRedis: ", retryThrowable);
                     return connectionManager.evalAsync(MIGRATE_FROM_POSTGRES_TO_REDIS_SCRIPT, ScriptOutputType.STATUS,
-                            new byte[][]{messagesCacheKeyBytes, lastPacketIdKeyBytes}, messagesBytes, defaultTtlBytes);
+                            new byte[][]{messagesCacheKeyBytes, lastPacketIdKeyBytes}, args);
                 });
             }
             throw new CompletionException(throwable);
@@ -528,6 +580,16 @@ public class DeviceMsgServiceImpl implements DeviceMsgService {
         }
     }
 
+    private record AddMessagesCommand(String clientId, int slot, byte[][] keys, byte[][] args) {
+    }
+
+    private static byte[][] toScriptArgs(byte[][] messages, byte[]... leadingArgs) {
+        byte[][] args = new byte[leadingArgs.length + messages.length][];
+        System.arraycopy(leadingArgs, 0, args, 0, leadingArgs.length);
+        System.arraycopy(messages, 0, args, leadingArgs.length, messages.length);
+        return args;
+    }
+
     private static byte[] intToBytes(int value) {
         return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
     }
@@ -0,0 +1,215 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.messages;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
+import org.thingsboard.mqtt.broker.common.data.PersistedPacketType;
+import org.thingsboard.mqtt.broker.common.data.props.UserProperties;
+import org.thingsboard.mqtt.broker.common.util.JacksonUtil;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Redis storage format of the DEVICE persisted messages.
+ * <p>
+ * Every message is stored as a fixed 8 bytes header followed by the serialized {@link QueueProtos.DevicePublishMsgProto}:
+ * <pre>
+ * | version (1) | packetType (1) | packetId (2) | msgExpiryInterval (4) | DevicePublishMsgProto bytes |
+ * </pre>
+ * All header numbers are unsigned big-endian, so the Lua scripts can read and patch the packet type and packet id
+ * with plain string operations without decoding the message itself.
+ * Messages saved before the binary format was introduced are stored as JSON and are still decoded by {@link #decode(byte[])}.
+ */
+public final class DevicePublishMsgRedisCodec {
+
+    public static final byte BINARY_FORMAT_V1 = 1;
+
+    public static final byte PUBLISH_PACKET_TYPE = 1;
+    public static final byte PUBREL_PACKET_TYPE = 2;
+
+    static final int HEADER_SIZE = 8;
+
+    private static final byte JSON_FORMAT_MARKER = '{';
+
+    private DevicePublishMsgRedisCodec() {
+    }
+
+    public static byte[] encode(DevicePublishMsg devicePublishMsg) {
+        byte[] body = toProto(devicePublishMsg).toByteArray();
+        Integer packetId = devicePublishMsg.getPacketId();
+        Integer msgExpiryInterval = devicePublishMsg.getMsgExpiryInterval();
+        return ByteBuffer.allocate(HEADER_SIZE + body.length)
+                .put(BINARY_FORMAT_V1)
+                .put(toPacketTypeCode(devicePublishMsg.getPacketType()))
+                .putShort((short) (packetId == null || packetId < 0 ? 0 : packetId))
+                .putInt(msgExpiryInterval == null || msgExpiryInterval < 0 ? 0 : msgExpiryInterval)
+                .put(body)
+                .array();
+    }
+
+    public static byte[][] encode(List<DevicePublishMsg> devicePublishMessages) {
+        byte[][] result = new byte[devicePublishMessages.size()][];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = encode(devicePublishMessages.get(i));
+        }
+        return result;
+    }
+
+    public static DevicePublishMsg decode(byte[] bytes) {
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("Failed to decode persisted message, empty value!");
+        }
+        byte version = bytes[0];
+        if (version == JSON_FORMAT_MARKER) {
+            return JacksonUtil.fromBytes(bytes, DevicePublishMsg.class);
+        }
+        if (version != BINARY_FORMAT_V1 || bytes.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("Failed to decode persisted message, unsupported format version " + version);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(1);
+        PersistedPacketType packetType = fromPacketTypeCode(buffer.get());
+        int packetId = Short.toUnsignedInt(buffer.getShort());
+        int msgExpiryInterval = buffer.getInt();
+
+        QueueProtos.DevicePublishMsgProto proto;
+        try {
+            proto = QueueProtos.DevicePublishMsgProto.parseFrom(buffer);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Failed to decode persisted message body", e);
+        }
+        return fromProto(proto, packetType, packetId, msgExpiryInterval);
+    }
+
+    private static QueueProtos.DevicePublishMsgProto toProto(DevicePublishMsg devicePublishMsg) {
+        QueueProtos.DevicePublishMsgProto.Builder builder = QueueProtos.DevicePublishMsgProto.newBuilder()
+                .setRetain(devicePublishMsg.isRetained());
+        if (devicePublishMsg.getClientId() != null) {
+            builder.setClientId(devicePublishMsg.getClientId());
+        }
+        if (devicePublishMsg.getTopicName() != null) {
+            builder.setTopicName(devicePublishMsg.getTopicName());
+        }
+        if (devicePublishMsg.getTime() != null) {
+            builder.setTime(devicePublishMsg.getTime());
+        }
+        if (devicePublishMsg.getQos() != null) {
+            builder.setQos(devicePublishMsg.getQos());
+        }
+        if (devicePublishMsg.getPayload() != null) {
+            builder.setPayload(ByteString.copyFrom(devicePublishMsg.getPayload()));
+        }
+        UserProperties userProperties = devicePublishMsg.getUserProperties();
+        if (userProperties != null) {
+            userProperties.getValues().forEach(pair -> builder.addUserProperties(QueueProtos.UserPropertyProto.newBuilder()
+                    .setKey(pair.getKey())
+                    .setValue(pair.getValue())
+                    .build()));
+        }
+        QueueProtos.MqttPropertiesProto mqttPropertiesProto = toMqttPropertiesProto(devicePublishMsg);
+        if (mqttPropertiesProto != null) {
+            builder.setMqttProperties(mqttPropertiesProto);
+        }
+        return builder.build();
+    }
+
+    private static QueueProtos.MqttPropertiesProto toMqttPropertiesProto(DevicePublishMsg devicePublishMsg) {
+        Integer payloadFormatIndicator = devicePublishMsg.getPayloadFormatIndicator();
+        String contentType = devicePublishMsg.getContentType();
+        String responseTopic = devicePublishMsg.getResponseTopic();
+        byte[] correlationData = devicePublishMsg.getCorrelationData();
+        List<Integer> subscriptionIds = devicePublishMsg.getSubscriptionIds();
+        if (payloadFormatIndicator == null && contentType == null && responseTopic == null
+                && correlationData == null && subscriptionIds == null) {
+            return null;
+        }
+        QueueProtos.MqttPropertiesProto.Builder builder = QueueProtos.MqttPropertiesProto.newBuilder();
+        if (payloadFormatIndicator != null) {
+            builder.setPayloadFormatIndicator(payloadFormatIndicator);
+        }
+        if (contentType != null) {
+            builder.setContentType(contentType);
+        }
+        if (responseTopic != null) {
+            builder.setResponseTopic(responseTopic);
+        }
+        if (correlationData != null) {
+            builder.setCorrelationData(ByteString.copyFrom(correlationData));
+        }
+        if (subscriptionIds != null) {
+            builder.addAllSubscriptionIds(subscriptionIds);
+        }
+        return builder.build();
+    }
+
+    private static DevicePublishMsg fromProto(QueueProtos.DevicePublishMsgProto proto, PersistedPacketType packetType,
+                                              int packetId, int msgExpiryInterval) {
+        DevicePublishMsg devicePublishMsg = DevicePublishMsg.builder()
+                .clientId(proto.getClientId())
+                .topicName(proto.getTopicName())
+                .time(proto.getTime())
+                .qos(proto.getQos())
+                .packetId(packetId)
+                .packetType(packetType)
+                .payload(proto.getPayload().toByteArray())
+                .properties(new MqttProperties())
+                .isRetained(proto.getRetain())
+                .build();
+        if (proto.getUserPropertiesCount() > 0) {
+            devicePublishMsg.setUserProperties(new UserProperties(proto.getUserPropertiesList().stream()
+                    .map(userProperty -> new UserProperties.StringPair(userProperty.getKey(), userProperty.getValue()))
+                    .toList()));
+        }
+        if (msgExpiryInterval > 0) {
+            devicePublishMsg.setMsgExpiryInterval(msgExpiryInterval);
+        }
+        if (proto.hasMqttProperties()) {
+            QueueProtos.MqttPropertiesProto mqttProperties = proto.getMqttProperties();
+            if (mqttProperties.hasPayloadFormatIndicator()) {
+                devicePublishMsg.setPayloadFormatIndicator(mqttProperties.getPayloadFormatIndicator());
+            }
+            if (mqttProperties.hasContentType()) {
+                devicePublishMsg.setContentType(mqttProperties.getContentType());
+            }
+            if (mqttProperties.hasResponseTopic()) {
+                devicePublishMsg.setResponseTopic(mqttProperties.getResponseTopic());
+            }
+            if (mqttProperties.hasCorrelationData()) {
+                devicePublishMsg.setCorrelationData(mqttProperties.getCorrelationData().toByteArray());
+            }
+            devicePublishMsg.setSubscriptionIds(mqttProperties.getSubscriptionIdsList());
+        }
+        return devicePublishMsg;
+    }
+
+    private static byte toPacketTypeCode(PersistedPacketType packetType) {
+        return packetType == PersistedPacketType.PUBREL ? PUBREL_PACKET_TYPE : PUBLISH_PACKET_TYPE;
+    }
+
+    private static PersistedPacketType fromPacketTypeCode(byte packetTypeCode) {
+        return switch (packetTypeCode) {
+            case PUBLISH_PACKET_TYPE -> PersistedPacketType.PUBLISH;
+            case PUBREL_PACKET_TYPE -> PersistedPacketType.PUBREL;
+            default -> throw new IllegalArgumentException("Unknown persisted packet type code " + packetTypeCode);
+        };
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.messages;
+
+import io.netty.handler.codec.mqtt.MqttProperties;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.common.data.BrokerConstants;
+import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
+import org.thingsboard.mqtt.broker.common.data.PersistedPacketType;
+import org.thingsboard.mqtt.broker.common.data.props.UserProperties;
+import org.thingsboard.mqtt.broker.common.util.JacksonUtil;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DevicePublishMsgRedisCodecTest {
+
+    @Test
+    public void givenMsgWithAllProperties_whenEncodeAndDecode_thenMsgIsRestored() {
+        DevicePublishMsg msg = newDevicePublishMsg(12345, PersistedPacketType.PUBREL, "payload".getBytes());
+        msg.setUserProperties(new UserProperties(List.of(new UserProperties.StringPair("k1", "v1"), new UserProperties.StringPair("k2", "v2"))));
+        msg.setMsgExpiryInterval(60);
+        msg.setPayloadFormatIndicator(1);
+        msg.setContentType("application/json");
+        msg.setResponseTopic("response/topic");
+        msg.setCorrelationData("correlation".getBytes());
+        msg.setSubscriptionIds(List.of(1, 2));
+
+        DevicePublishMsg decoded = DevicePublishMsgRedisCodec.decode(DevicePublishMsgRedisCodec.encode(msg));
+
+        assertThat(decoded).isEqualTo(msg);
+        assertThat(decoded.getUserProperties()).isEqualTo(msg.getUserProperties());
+        assertThat(decoded.getMsgExpiryInterval()).isEqualTo(60);
+        assertThat(decoded.getPayloadFormatIndicator()).isEqualTo(1);
+        assertThat(decoded.getContentType()).isEqualTo("application/json");
+        assertThat(decoded.getResponseTopic()).isEqualTo("response/topic");
+        assertThat(decoded.getCorrelationData()).isEqualTo("correlation".getBytes());
+        assertThat(decoded.getSubscriptionIds()).containsExactly(1, 2);
+    }
+
+    @Test
+    public void givenMsgWithoutProperties_whenEncodeAndDecode_thenNoPropertiesAreAdded() {
+        DevicePublishMsg msg = newDevicePublishMsg(1, PersistedPacketType.PUBLISH, new byte[0]);
+
+        DevicePublishMsg decoded = DevicePublishMsgRedisCodec.decode(DevicePublishMsgRedisCodec.encode(msg));
+
+        assertThat(decoded).isEqualTo(msg);
+        assertThat(decoded.getProperties().listAll()).isEmpty();
+    }
+
+    @Test
+    public void givenEncodedMsg_whenCheckHeader_thenPacketTypeAndPacketIdCanBePatchedInPlace() {
+        DevicePublishMsg msg = newDevicePublishMsg(BrokerConstants.BLANK_PACKET_ID, PersistedPacketType.PUBLISH, "payload".getBytes());
+        msg.setMsgExpiryInterval(0x01020304);
+
+        byte[] bytes = DevicePublishMsgRedisCodec.encode(msg);
+
+        assertThat(bytes[0]).isEqualTo(DevicePublishMsgRedisCodec.BINARY_FORMAT_V1);
+        assertThat(bytes[1]).isEqualTo(DevicePublishMsgRedisCodec.PUBLISH_PACKET_TYPE);
+        assertThat(bytes[2]).isEqualTo((byte) 0);
+        assertThat(bytes[3]).isEqualTo((byte) 0);
+        assertThat(new byte[]{bytes[4], bytes[5], bytes[6], bytes[7]}).isEqualTo(new byte[]{1, 2, 3, 4});
+
+        // the same patches the Lua scripts apply
+        bytes[1] = DevicePublishMsgRedisCodec.PUBREL_PACKET_TYPE;
+        bytes[2] = (byte) 0xff;
+        bytes[3] = (byte) 0xfe;
+
+        DevicePublishMsg decoded = DevicePublishMsgRedisCodec.decode(bytes);
+        assertThat(decoded.getPacketType()).isEqualTo(PersistedPacketType.PUBREL);
+        assertThat(decoded.getPacketId()).isEqualTo(0xfffe);
+        assertThat(decoded.getPayload()).isEqualTo("payload".getBytes());
+    }
+
+    @Test
+    public void givenLegacyJsonMsg_whenDecode_thenMsgIsRestored() {
+        DevicePublishMsg msg = newDevicePublishMsg(7, PersistedPacketType.PUBLISH, "payload".getBytes());
+        msg.setMsgExpiryInterval(100);
+        msg.setContentType("text/plain");
+
+        DevicePublishMsg decoded = DevicePublishMsgRedisCodec.decode(JacksonUtil.writeValueAsBytes(msg));
+
+        assertThat(decoded).isEqualTo(msg);
+        assertThat(decoded.getMsgExpiryInterval()).isEqualTo(100);
+        assertThat(decoded.getContentType()).isEqualTo("text/plain");
+    }
+
+    @Test
+    public void givenUnknownFormatVersion_whenDecode_thenExceptionIsThrown() {
+        byte[] bytes = DevicePublishMsgRedisCodec.encode(newDevicePublishMsg(1, PersistedPacketType.PUBLISH, new byte[0]));
+        bytes[0] = 42;
+
+        assertThatThrownBy(() -> DevicePublishMsgRedisCodec.decode(bytes)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void givenBinaryPayload_whenEncode_thenStoredValueIsSmallerThanJson() {
+        byte[] payload = new byte[1024];
+        new Random(0).nextBytes(payload);
+        DevicePublishMsg msg = newDevicePublishMsg(1, PersistedPacketType.PUBLISH, payload);
+
+        int binarySize = DevicePublishMsgRedisCodec.encode(msg).length;
+        int jsonSize = JacksonUtil.writeValueAsBytes(msg).length;
+
+        // JSON keeps the payload as base64 string, so it is at least a third bigger
+        assertThat(binarySize).isLessThan(payload.length + 128);
+        assertThat(jsonSize).isGreaterThan(payload.length * 4 / 3);
+    }
+
+    private DevicePublishMsg newDevicePublishMsg(int packetId, PersistedPacketType packetType, byte[] payload) {
+        return new DevicePublishMsg("clientId", "test/topic", System.currentTimeMillis(), 1, packetId,
+                packetType, payload, new MqttProperties(), true);
+    }
+
+}
@@ -15,18 +15,27 @@
  */
 package org.thingsboard.mqtt.broker.dao.service;
 
+import io.lettuce.core.ScriptOutputType;
 import io.netty.handler.codec.mqtt.MqttProperties;
 import org.junit.After;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.thingsboard.mqtt.broker.cache.LettuceConnectionManager;
 import org.thingsboard.mqtt.broker.common.data.BrokerConstants;
 import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
 import org.thingsboard.mqtt.broker.common.data.PersistedPacketType;
+import org.thingsboard.mqtt.broker.common.util.JacksonUtil;
 import org.thingsboard.mqtt.broker.dao.DaoSqlTest;
+import org.thingsboard.mqtt.broker.dao.messages.ClientIdLastPacketIdCacheKey;
+import org.thingsboard.mqtt.broker.dao.messages.ClientIdMessagesCacheKey;
 import org.thingsboard.mqtt.broker.dao.messages.DeviceMsgService;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
@@ -38,6 +47,11 @@ public class DeviceMsgServiceTest extends AbstractServiceTest {
 
     @Autowired
     private DeviceMsgService deviceMsgService;
+    @Autowired
+    private LettuceConnectionManager connectionManager;
+
+    @Value("${cache.cache-prefix:}")
+    private String cachePrefix;
 
     private final String TEST_CLIENT_ID = "testClientId";
     private final byte[] TEST_PAYLOAD = "testPayload".getBytes();
@@ -144,6 +158,27 @@ public class DeviceMsgServiceTest extends AbstractServiceTest {
         assertThat(findLatch.await(2, TimeUnit.SECONDS)).isTrue();
     }
 
+    @Test
+    public void testSaveMessagesOfSeveralClients() throws Exception {
+        String otherClientId = "otherTestClientId";
+        try {
+            deviceMsgService.saveAndReturnPreviousPacketId(TEST_CLIENT_ID, getDevicePublishMsgs(3), false).toCompletableFuture().get(2, TimeUnit.SECONDS);
+
+            Map<String, CompletionStage<Integer>> futures = deviceMsgService.saveAndReturnPreviousPacketIds(Map.of(
+                    TEST_CLIENT_ID, getDevicePublishMsgs(2),
+                    otherClientId, getDevicePublishMsgs(4)));
+
+            assertThat(futures).containsOnlyKeys(TEST_CLIENT_ID, otherClientId);
+            assertThat(futures.get(TEST_CLIENT_ID).toCompletableFuture().get(2, TimeUnit.SECONDS)).isEqualTo(3);
+            assertThat(futures.get(otherClientId).toCompletableFuture().get(2, TimeUnit.SECONDS)).isEqualTo(0);
+
+            assertThat(deviceMsgService.findPersistedMessages(TEST_CLIENT_ID).toCompletableFuture().get(2, TimeUnit.SECONDS)).hasSize(5);
+            assertThat(deviceMsgService.findPersistedMessages(otherClientId).toCompletableFuture().get(2, TimeUnit.SECONDS)).hasSize(4);
+        } finally {
+            deviceMsgService.removePersistedMessages(otherClientId);
+        }
+    }
+
     @Test
     public void testUpdateAndRemoveMessage() throws InterruptedException {
         var msg = newDevicePublishMsgWithBlankPacketId();
@@ -230,6 +265,40 @@ public class DeviceMsgServiceTest extends AbstractServiceTest {
         assertThat(updateLatch.await(2, TimeUnit.SECONDS)).isTrue();
     }
 
+    @Test
+    public void testReadAndUpdateLegacyJsonMessage() throws Exception {
+        var legacyMsg = newDevicePublishMsgWithBlankPacketId().toBuilder().packetId(1).build();
+        String messagesKey = ClientIdMessagesCacheKey.toStringKey(TEST_CLIENT_ID, cachePrefix);
+        String legacyMsgKey = messagesKey + "_1";
+        connectionManager.<String>evalAsync("""
+                        redis.call('SET', KEYS[2], ARGV[1])
+                        redis.call('ZADD', KEYS[1], 1, KEYS[2])
+                        redis.call('SET', KEYS[3], 1)
+                        return "OK"
+                        """, ScriptOutputType.STATUS,
+                new byte[][]{
+                        messagesKey.getBytes(StandardCharsets.UTF_8),
+                        legacyMsgKey.getBytes(StandardCharsets.UTF_8),
+                        ClientIdLastPacketIdCacheKey.toBytesKey(TEST_CLIENT_ID, cachePrefix)
+                },
+                JacksonUtil.writeValueAsBytes(legacyMsg)).get(2, TimeUnit.SECONDS);
+
+        deviceMsgService.updatePacketReceived(TEST_CLIENT_ID, 1).toCompletableFuture().get(2, TimeUnit.SECONDS);
+        deviceMsgService.saveAndReturnPreviousPacketId(TEST_CLIENT_ID, getDevicePublishMsgs(2), false).toCompletableFuture().get(2, TimeUnit.SECONDS);
+        deviceMsgService.updatePacketReceived(TEST_CLIENT_ID, 3).toCompletableFuture().get(2, TimeUnit.SECONDS);
+
+        List<DevicePublishMsg> persistedMsgs = deviceMsgService.findPersistedMessages(TEST_CLIENT_ID).toCompletableFuture().get(2, TimeUnit.SECONDS);
+        assertThat(persistedMsgs).hasSize(3);
+        assertThat(persistedMsgs.get(0).getPacketId()).isEqualTo(1);
+        assertThat(persistedMsgs.get(0).getTopicName()).isEqualTo(legacyMsg.getTopicName());
+        assertThat(persistedMsgs.get(0).getPacketType()).isEqualTo(PersistedPacketType.PUBREL);
+        assertThat(persistedMsgs.get(1).getPacketId()).isEqualTo(2);
+        assertThat(persistedMsgs.get(1).getPacketType()).isEqualTo(PersistedPacketType.PUBLISH);
+        assertThat(persistedMsgs.get(1).getPayload()).isEqualTo(TEST_PAYLOAD);
+        assertThat(persistedMsgs.get(2).getPacketId()).isEqualTo(3);
+        assertThat(persistedMsgs.get(2).getPacketType()).isEqualTo(PersistedPacketType.PUBREL);
+    }
+
     private DevicePublishMsg newDevicePublishMsgWithBlankPacketId() {
         return new DevicePublishMsg(TEST_CLIENT_ID, UUID.randomUUID().toString(), 0L, 0, BrokerConstants.BLANK_PACKET_ID,
                 PersistedPacketType.PUBLISH, TEST_PAYLOAD, new MqttProperties(), false);